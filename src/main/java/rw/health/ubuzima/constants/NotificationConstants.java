@@ -37,6 +37,9 @@ public class NotificationConstants {
     public static final String CATEGORY_SYSTEM = "system";
     public static final String CATEGORY_COMMUNICATION = "communication";
     
+    // Real-time delivery (STOMP user destination, i.e. /user/queue/notifications on the client)
+    public static final String USER_NOTIFICATIONS_DESTINATION = "/queue/notifications";
+    
     // Auto-dismiss timeouts (in seconds)
     public static final int TIMEOUT_SUCCESS = 3;
     public static final int TIMEOUT_ERROR = 5;
@@ -4,9 +4,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import rw.health.ubuzima.dto.response.UserResponse;
 import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.UserRole;
@@ -19,14 +22,31 @@ import rw.health.ubuzima.repository.AppointmentRepository;
 import rw.health.ubuzima.repository.HealthFacilityRepository;
 import rw.health.ubuzima.repository.NotificationRepository;
 import rw.health.ubuzima.repository.UserSettingsRepository;
+import rw.health.ubuzima.entity.BroadcastJob;
 import rw.health.ubuzima.entity.Notification;
 import rw.health.ubuzima.entity.UserSettings;
 import rw.health.ubuzima.enums.NotificationType;
 import rw.health.ubuzima.enums.SettingCategory;
 import rw.health.ubuzima.enums.DataType;
-
+import rw.health.ubuzima.enums.RevocationReason;
+import rw.health.ubuzima.security.TokenRevocationService;
+import rw.health.ubuzima.service.AnalyticsService;
+import rw.health.ubuzima.service.BroadcastJobService;
+import rw.health.ubuzima.service.DataExportService;
+import rw.health.ubuzima.service.FacilityGeoIndexService;
+import rw.health.ubuzima.service.OutboxRelay;
+import rw.health.ubuzima.service.ReportCompositionService;
+import rw.health.ubuzima.service.ReportCompositionService.ComposedReport;
+import rw.health.ubuzima.service.MedicationReminderService;
+import rw.health.ubuzima.service.ScheduledNotificationDispatcher;
+import rw.health.ubuzima.util.SecurityUtils;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,12 +57,24 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class AdminController {
 
+    // Report section holding a batch of counts, flattened into the response
+    private static final String COUNTS_SECTION = "counts";
+
     private final UserRepository userRepository;
     private final HealthRecordRepository healthRecordRepository;
     private final AppointmentRepository appointmentRepository;
     private final HealthFacilityRepository healthFacilityRepository;
     private final NotificationRepository notificationRepository;
     private final UserSettingsRepository userSettingsRepository;
+    private final DataExportService dataExportService;
+    private final BroadcastJobService broadcastJobService;
+    private final TokenRevocationService tokenRevocationService;
+    private final FacilityGeoIndexService facilityGeoIndexService;
+    private final AnalyticsService analyticsService;
+    private final ReportCompositionService reportCompositionService;
+    private final OutboxRelay outboxRelay;
+    private final ScheduledNotificationDispatcher scheduledNotificationDispatcher;
+    private final MedicationReminderService medicationReminderService;
 
     // User Management
     @GetMapping("/users")
@@ -128,6 +160,11 @@ public class AdminController {
             user.setStatus(status);
             userRepository.save(user);
 
+            // Deactivated users lose their existing sessions immediately
+            if (status == UserStatus.SUSPENDED || status == UserStatus.INACTIVE) {
+                tokenRevocationService.revokeAllForUser(userId, RevocationReason.ADMIN);
+            }
+
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "User status updated successfully"
@@ -141,32 +178,39 @@ public class AdminController {
         }
     }
 
-    // Dashboard Statistics
-    @GetMapping("/dashboard/stats")
+    @PostMapping("/users/{userId}/revoke-sessions")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+    public ResponseEntity<Map<String, Object>> revokeUserSessions(@PathVariable Long userId) {
         try {
-            long totalUsers = userRepository.count();
-            long totalClients = userRepository.findByRole(UserRole.CLIENT).size();
-            long totalHealthWorkers = userRepository.findByRole(UserRole.HEALTH_WORKER).size();
-            long totalAdmins = userRepository.findByRole(UserRole.ADMIN).size();
-            long totalHealthRecords = healthRecordRepository.count();
-            long totalAppointments = appointmentRepository.count();
-            long totalFacilities = healthFacilityRepository.count();
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalUsers", totalUsers);
-            stats.put("totalClients", totalClients);
-            stats.put("totalHealthWorkers", totalHealthWorkers);
-            stats.put("totalAdmins", totalAdmins);
-            stats.put("totalHealthRecords", totalHealthRecords);
-            stats.put("totalAppointments", totalAppointments);
-            stats.put("totalFacilities", totalFacilities);
+            if (!userRepository.existsById(userId)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            tokenRevocationService.revokeAllForUser(userId, RevocationReason.ADMIN);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "stats", stats
+                "message", "All sessions revoked for user"
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to revoke user sessions: " + e.getMessage()
             ));
+        }
+    }
+
+    // Dashboard Statistics
+    @GetMapping("/dashboard/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+        try {
+            ComposedReport stats = reportCompositionService.compose("dashboard-stats", List.of(
+                reportCompositionService.section(COUNTS_SECTION, this::dashboardCounts)
+            ));
+
+            return ResponseEntity.ok(composedResponse("stats", withCounts(stats.results()), stats));
 
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -291,6 +335,7 @@ public class AdminController {
             facility.setIsActive(true);
 
             rw.health.ubuzima.entity.HealthFacility savedFacility = healthFacilityRepository.save(facility);
+            facilityGeoIndexService.apply(savedFacility);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -330,6 +375,7 @@ public class AdminController {
             if (request.containsKey("isActive")) facility.setIsActive(Boolean.valueOf(request.get("isActive").toString()));
 
             rw.health.ubuzima.entity.HealthFacility updatedFacility = healthFacilityRepository.save(facility);
+            facilityGeoIndexService.apply(updatedFacility);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -356,7 +402,7 @@ public class AdminController {
 
             // Soft delete by setting isActive to false
             facility.setIsActive(false);
-            healthFacilityRepository.save(facility);
+            facilityGeoIndexService.apply(healthFacilityRepository.save(facility));
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -480,19 +526,36 @@ public class AdminController {
             @RequestParam String startDate,
             @RequestParam String endDate) {
         try {
-            // Generate analytics data
-            Map<String, Object> analytics = Map.of(
-                "totalUsers", userRepository.count(),
-                "activeUsers", userRepository.countByIsActiveTrue(),
-                "newUsersThisMonth", userRepository.countNewUsersThisMonth(),
-                "usersByRole", userRepository.countUsersByRole()
-            );
-
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "analytics", analytics
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
+
+            // Independent sections run concurrently; a slow or failing one doesn't hold up the rest
+            ComposedReport analytics = reportCompositionService.compose("admin-analytics", List.of(
+                reportCompositionService.section(COUNTS_SECTION, () -> {
+                    Map<String, Object> counts = new LinkedHashMap<>();
+                    counts.put("totalUsers", userRepository.count());
+                    counts.put("activeUsers", userRepository.countByIsActiveTrue());
+                    counts.put("newUsersThisMonth", userRepository.countNewUsersThisMonth());
+                    counts.put("usersByRole", userRepository.countUsersByRole());
+                    return counts;
+                }),
+                reportCompositionService.section("userStats", () -> analyticsService.getUserRegistrationStats(start, end)),
+                reportCompositionService.section("healthStats", () -> analyticsService.getHealthRecordsStats(start, end)),
+                reportCompositionService.section("appointmentStats", () -> analyticsService.getAppointmentStats(start, end)),
+                reportCompositionService.section("contraceptionStats", () -> analyticsService.getContraceptionStats(start, end)),
+                reportCompositionService.section("educationStats", () -> analyticsService.getEducationStats(start, end)),
+                reportCompositionService.section("communityStats", () -> analyticsService.getCommunityStats(start, end)),
+                reportCompositionService.section("supportStats", () -> analyticsService.getSupportTicketStats(start, end)),
+                reportCompositionService.section("notificationStats", () -> analyticsService.getNotificationStats(start, end))
+            ));
+
+            return ResponseEntity.ok(composedResponse("analytics", withCounts(analytics.results()), analytics));
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "startDate and endDate must be ISO dates (yyyy-MM-dd)"
             ));
-
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
@@ -692,12 +755,20 @@ public class AdminController {
     @GetMapping("/reports/system/overview")
     public ResponseEntity<Map<String, Object>> getSystemOverview() {
         try {
-            Map<String, Object> overview = generateSystemOverviewData();
-
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "overview", overview
+            ComposedReport counts = reportCompositionService.compose("system-overview", List.of(
+                reportCompositionService.section(COUNTS_SECTION, () -> {
+                    Map<String, Object> totals = new LinkedHashMap<>();
+                    totals.put("totalUsers", userRepository.count());
+                    totals.put("totalFacilities", healthFacilityRepository.count());
+                    totals.put("totalAppointments", appointmentRepository.count());
+                    totals.put("totalHealthRecords", healthRecordRepository.count());
+                    return totals;
+                })
             ));
+            Map<String, Object> overview = new HashMap<>(generateSystemOverviewData());
+            overview.putAll(withCounts(counts.results()));
+
+            return ResponseEntity.ok(composedResponse("overview", overview, counts));
 
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -850,6 +921,7 @@ public class AdminController {
             }
 
             Notification savedNotification = notificationRepository.save(notification);
+            scheduledNotificationDispatcher.schedule(savedNotification.getId(), savedNotification.getScheduledFor());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -905,6 +977,7 @@ public class AdminController {
             }
 
             Notification updatedNotification = notificationRepository.save(notification);
+            scheduledNotificationDispatcher.schedule(updatedNotification.getId(), updatedNotification.getScheduledFor());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -953,44 +1026,76 @@ public class AdminController {
             Integer priority = request.get("priority") != null ?
                 Integer.valueOf(request.get("priority").toString()) : 2;
 
-            // Get target users based on criteria
-            List<User> targetUsers;
-            if (request.get("userRole") != null) {
-                UserRole role = UserRole.valueOf(request.get("userRole").toString().toUpperCase());
-                targetUsers = userRepository.findByRole(role);
-            } else {
-                targetUsers = userRepository.findAll();
-            }
+            // Target users based on criteria; null role targets everyone
+            UserRole role = request.get("userRole") != null
+                ? UserRole.valueOf(request.get("userRole").toString().toUpperCase())
+                : null;
 
-            // Create notifications for all target users
-            for (User user : targetUsers) {
-                Notification notification = new Notification();
-                notification.setUser(user);
-                notification.setTitle(title);
-                notification.setMessage(message);
-                notification.setType(type);
-                notification.setPriority(priority);
-
-                if (request.get("actionUrl") != null) {
-                    notification.setActionUrl(request.get("actionUrl").toString());
-                }
+            String actionUrl = request.get("actionUrl") != null ? request.get("actionUrl").toString() : null;
+            String icon = request.get("icon") != null ? request.get("icon").toString() : null;
 
-                if (request.get("icon") != null) {
-                    notification.setIcon(request.get("icon").toString());
-                }
+            // Recipients are processed in the background; poll the job for progress
+            BroadcastJob job = broadcastJobService.submit(title, message, type, priority, actionUrl, icon, role,
+                SecurityUtils.getCurrentUserIdSafe());
 
-                notificationRepository.save(notification);
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Notification broadcast queued",
+                "jobId", job.getId(),
+                "statusUrl", "/admin/notifications/broadcast/" + job.getId()
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to broadcast notification: " + e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/notifications/broadcast/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getBroadcastStatus(@PathVariable Long jobId) {
+        try {
+            BroadcastJob job = broadcastJobService.getJob(jobId).orElse(null);
+
+            if (job == null) {
+                return ResponseEntity.notFound().build();
             }
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "message", "Notification broadcasted to " + targetUsers.size() + " users"
+                "job", broadcastJobService.toStatus(job)
             ));
 
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
-                "message", "Failed to broadcast notification: " + e.getMessage()
+                "message", "Failed to fetch broadcast status: " + e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/notifications/broadcast")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getBroadcastJobs(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<BroadcastJob> jobs = broadcastJobService.getRecentJobs(page, size);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "jobs", jobs.getContent().stream().map(broadcastJobService::toStatus).collect(Collectors.toList()),
+                "totalElements", jobs.getTotalElements(),
+                "totalPages", jobs.getTotalPages(),
+                "currentPage", page
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to fetch broadcast jobs: " + e.getMessage()
             ));
         }
     }
@@ -1099,12 +1204,58 @@ public class AdminController {
         }
     }
 
+    /**
+     * Composed report response: section results under the given key, plus the failed sections
+     */
+    // Trivial counts run one after another as a single section, on one connection, instead of one pooled task each
+    private Map<String, Object> dashboardCounts() {
+        Map<Object, Long> byRole = new HashMap<>();
+        long totalUsers = 0;
+        for (Object[] row : userRepository.countUsersByRole()) {
+            long count = ((Number) row[1]).longValue();
+            byRole.put(row[0], count);
+            totalUsers += count;
+        }
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("totalUsers", totalUsers);
+        counts.put("totalClients", byRole.getOrDefault(UserRole.CLIENT, 0L));
+        counts.put("totalHealthWorkers", byRole.getOrDefault(UserRole.HEALTH_WORKER, 0L));
+        counts.put("totalAdmins", byRole.getOrDefault(UserRole.ADMIN, 0L));
+        counts.put("totalHealthRecords", healthRecordRepository.count());
+        counts.put("totalAppointments", appointmentRepository.count());
+        counts.put("totalFacilities", healthFacilityRepository.count());
+        return counts;
+    }
+
+    // Flattens the counts section into the other section results
+    private static Map<String, Object> withCounts(Map<String, Object> results) {
+        Map<String, Object> merged = new LinkedHashMap<>();
+        results.forEach((name, value) -> {
+            if (COUNTS_SECTION.equals(name) && value instanceof Map<?, ?> counts) {
+                counts.forEach((key, count) -> merged.put(key.toString(), count));
+            } else {
+                merged.put(name, value);
+            }
+        });
+        return merged;
+    }
+
+    private Map<String, Object> composedResponse(String key, Map<String, Object> data, ComposedReport report) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put(key, data);
+        response.put("partial", report.isPartial());
+        response.put("generationTimeMs", report.elapsedMs());
+        if (report.isPartial()) {
+            response.put("sectionErrors", report.errors());
+        }
+        return response;
+    }
+
+    // Static part of the system overview; the counts are composed in getSystemOverview
     private Map<String, Object> generateSystemOverviewData() {
         return Map.of(
-            "totalUsers", userRepository.count(),
-            "totalFacilities", healthFacilityRepository.count(),
-            "totalAppointments", appointmentRepository.count(),
-            "totalHealthRecords", healthRecordRepository.count(),
             "systemUptime", "99.9%",
             "averageResponseTime", "120ms",
             "activeConnections", 1250,
@@ -1371,6 +1522,46 @@ public class AdminController {
         }
     }
 
+    /**
+     * Streaming export as CSV or NDJSON, optionally gzip-compressed.
+     * Rows are scrolled from the database and written directly to the response.
+     */
+    @GetMapping("/export/{entityType}/stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> streamExport(
+            @PathVariable String entityType,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        if (!dataExportService.supports(entityType)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unknown entity type: " + entityType
+            ));
+        }
+
+        DataExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = DataExportService.ExportFormat.from(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unsupported export format: " + format
+            ));
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        String fileName = dataExportService.buildFileName(entityType, exportFormat, gzip, timestamp);
+        StreamingResponseBody body = outputStream -> dataExportService.export(entityType, exportFormat, gzip, outputStream);
+
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .contentType(gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+            .body(body);
+    }
+
     /**
      * Advanced system monitoring
      */
@@ -1402,6 +1593,11 @@ public class AdminController {
                 "networkLatency", "12ms"
             ));
 
+            // Notification outbox backlog
+            monitoring.put("outbox", outboxRelay.getStats());
+            monitoring.put("scheduledNotifications", scheduledNotificationDispatcher.getStats());
+            monitoring.put("medicationReminders", medicationReminderService.getStats());
+
             // Error rates
             monitoring.put("errorRates", Map.of(
                 "apiErrors24h", 23,
@@ -21,6 +21,7 @@ import rw.health.ubuzima.enums.UserRole;
 
 import java.util.HashMap;
 import java.util.Map;
+import rw.health.ubuzima.service.HealthWorkerDashboardService;
 import rw.health.ubuzima.service.InteractiveNotificationService;
 import rw.health.ubuzima.service.UserMessageService;
 import rw.health.ubuzima.util.JwtUtil;
@@ -42,6 +43,7 @@ public class AppointmentController {
     private final HealthFacilityRepository healthFacilityRepository;
     private final TimeSlotRepository timeSlotRepository;
     private final JwtUtil jwtUtil;
+    private final HealthWorkerDashboardService healthWorkerDashboardService;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAppointments(
@@ -161,6 +163,7 @@ public class AppointmentController {
             }
 
             Appointment savedAppointment = appointmentRepository.save(appointment);
+            healthWorkerDashboardService.evict(savedAppointment.getHealthWorker());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -226,6 +229,7 @@ public class AppointmentController {
             }
 
             Appointment updatedAppointment = appointmentRepository.save(appointment);
+            healthWorkerDashboardService.evict(updatedAppointment.getHealthWorker());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -261,6 +265,7 @@ public class AppointmentController {
             }
 
             appointmentRepository.save(appointment);
+            healthWorkerDashboardService.evict(appointment.getHealthWorker());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
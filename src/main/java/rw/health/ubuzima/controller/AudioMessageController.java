@@ -1,13 +1,10 @@
 package rw.health.ubuzima.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -16,9 +13,10 @@ import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.MessageType;
 import rw.health.ubuzima.repository.MessageRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.ConversationSummaryService;
+import rw.health.ubuzima.service.FileStreamingService;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -41,6 +39,8 @@ public class AudioMessageController {
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final FileStreamingService fileStreamingService;
 
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
@@ -132,7 +132,7 @@ public class AudioMessageController {
             message.setConversationId(conversationId);
 
             // Save message
-            Message savedMessage = messageRepository.save(message);
+            Message savedMessage = conversationSummaryService.saveNewMessage(message);
 
             log.info("Audio message uploaded successfully: {} ({}KB)", 
                 filename, file.getSize() / 1024);
@@ -165,84 +165,41 @@ public class AudioMessageController {
      * Download audio file
      */
     @GetMapping("/download/{filename}")
-    public ResponseEntity<Resource> downloadAudio(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(uploadDir, "audio").resolve(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists() || !resource.isReadable()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Determine content type
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "audio/mpeg"; // Default to MP3
-            }
-
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                    "inline; filename=\"" + filename + "\"")
-                .body(resource);
-
-        } catch (MalformedURLException e) {
-            log.error("Invalid file path: {}", filename, e);
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            log.error("Error reading audio file: {}", filename, e);
-            return ResponseEntity.internalServerError().build();
-        }
+    public void downloadAudio(@PathVariable String filename, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        serveAudio(filename, request, response, "inline; filename=\"" + filename + "\"");
     }
 
     /**
-     * Stream audio file with range support for better playback
+     * Stream audio file with range support for better playback.
+     * Only the requested byte ranges are sent, so seeking doesn't re-download the file.
      */
     @GetMapping("/stream/{filename}")
-    public ResponseEntity<Resource> streamAudio(
-            @PathVariable String filename,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
-        
-        try {
-            Path filePath = Paths.get(uploadDir, "audio").resolve(filename);
-            Resource resource = new UrlResource(filePath.toUri());
+    public void streamAudio(@PathVariable String filename, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        serveAudio(filename, request, response, null);
+    }
 
-            if (!resource.exists() || !resource.isReadable()) {
-                return ResponseEntity.notFound().build();
-            }
+    private void serveAudio(String filename, HttpServletRequest request, HttpServletResponse response,
+                            String contentDisposition) throws IOException {
+        Path audioDir = Paths.get(uploadDir, "audio").toAbsolutePath().normalize();
+        Path filePath = audioDir.resolve(filename).normalize();
 
-            long fileSize = resource.contentLength();
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "audio/mpeg";
-            }
+        if (!filePath.startsWith(audioDir)) {
+            log.warn("Rejected audio path outside upload directory: {}", filename);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
 
-            // Handle range requests for audio streaming
-            if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-                String[] ranges = rangeHeader.substring(6).split("-");
-                long start = Long.parseLong(ranges[0]);
-                long end = ranges.length > 1 && !ranges[1].isEmpty() 
-                    ? Long.parseLong(ranges[1]) 
-                    : fileSize - 1;
-
-                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_RANGE, 
-                        String.format("bytes %d-%d/%d", start, end, fileSize))
-                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                    .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(end - start + 1))
-                    .body(resource);
+        try {
+            String contentType = Files.exists(filePath) ? Files.probeContentType(filePath) : null;
+            if (contentType == null) {
+                contentType = "audio/mpeg"; // Default to MP3
             }
-
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileSize))
-                .body(resource);
-
-        } catch (Exception e) {
-            log.error("Error streaming audio file: {}", filename, e);
-            return ResponseEntity.internalServerError().build();
+            fileStreamingService.serve(request, response, filePath, contentType, contentDisposition);
+        } catch (IOException e) {
+            // Usually the client hanging up mid-stream (seek or stop)
+            log.debug("Audio stream ended early for {}: {}", filename, e.getMessage());
         }
     }
 
@@ -326,9 +283,8 @@ public class AudioMessageController {
                 }
             }
 
-            // Mark message as deleted
-            message.setDeletedAt(LocalDateTime.now());
-            messageRepository.save(message);
+            // Mark message as deleted; the audio file is gone, so it is deleted for everyone
+            conversationSummaryService.deleteMessage(message, true);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
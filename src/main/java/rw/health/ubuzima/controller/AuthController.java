@@ -64,9 +64,13 @@ public class AuthController {
 
 
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                                      @RequestBody(required = false) Map<String, Object> request) {
         try {
-            // In real app, invalidate token
+            String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+            Object refreshToken = request != null ? request.get("refreshToken") : null;
+            authService.logout(accessToken, refreshToken != null ? refreshToken.toString() : null);
+
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Logged out successfully"
@@ -13,6 +13,7 @@ import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.MessageType;
 import rw.health.ubuzima.repository.MessageRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.ConversationSummaryService;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -29,6 +30,7 @@ public class ChatWebSocketController {
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationSummaryService conversationSummaryService;
 
     /**
      * Handle real-time message sending
@@ -58,7 +60,7 @@ public class ChatWebSocketController {
             message.setMessageType(MessageType.TEXT);
             message.setMessageStatus("SENT");
 
-            Message savedMessage = messageRepository.save(message);
+            Message savedMessage = conversationSummaryService.saveNewMessage(message);
 
             // Prepare message data for real-time delivery
             Map<String, Object> realTimeMessage = Map.of(
@@ -146,13 +148,13 @@ public class ChatWebSocketController {
             message.setMessageStatus(status.toUpperCase());
             if ("DELIVERED".equals(status.toUpperCase())) {
                 message.setDeliveredAt(LocalDateTime.now());
+                messageRepository.save(message);
             } else if ("READ".equals(status.toUpperCase())) {
-                message.setIsRead(true);
-                message.setReadAt(LocalDateTime.now());
+                conversationSummaryService.markAsRead(message);
+            } else {
+                messageRepository.save(message);
             }
 
-            messageRepository.save(message);
-
             // Notify sender about status change
             Map<String, Object> statusUpdate = Map.of(
                 "messageId", messageId,
@@ -17,6 +17,7 @@ import rw.health.ubuzima.repository.EducationLessonRepository;
 import rw.health.ubuzima.repository.EducationProgressRepository;
 import rw.health.ubuzima.repository.HealthRecordRepository;
 import rw.health.ubuzima.repository.HealthFacilityRepository;
+import rw.health.ubuzima.service.FacilityGeoIndexService;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -37,6 +38,7 @@ public class ClientController {
     private final EducationProgressRepository educationProgressRepository;
     private final HealthRecordRepository healthRecordRepository;
     private final HealthFacilityRepository healthFacilityRepository;
+    private final FacilityGeoIndexService facilityGeoIndexService;
 
     // Get client profile
     @GetMapping("/{clientId}/profile")
@@ -243,7 +245,10 @@ public class ClientController {
     @GetMapping("/{clientId}/nearby-facilities")
     public ResponseEntity<Map<String, Object>> getNearbyFacilities(
             @PathVariable Long clientId,
-            @RequestParam(required = false, defaultValue = "10.0") Double radius) {
+            @RequestParam(required = false, defaultValue = "10.0") Double radius,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(defaultValue = "50") int limit) {
         
         try {
             User client = userRepository.findById(clientId).orElse(null);
@@ -255,9 +260,16 @@ public class ClientController {
                 ));
             }
 
-            // For now, return all active facilities
-            // In real implementation, use client's location to find nearby facilities
-            List<HealthFacility> facilities = healthFacilityRepository.findByIsActiveTrue();
+            // Clients have no stored coordinates; use the device location when the app sends it
+            List<HealthFacility> facilities;
+            if (latitude != null && longitude != null) {
+                facilities = facilityGeoIndexService.findNearest(latitude, longitude, radius,
+                        Math.min(Math.max(limit, 1), 200), null, null).stream()
+                    .map(FacilityGeoIndexService.FacilityMatch::facility)
+                    .toList();
+            } else {
+                facilities = healthFacilityRepository.findByIsActiveTrue();
+            }
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -13,6 +13,8 @@ import rw.health.ubuzima.repository.ForumTopicRepository;
 import rw.health.ubuzima.repository.CommunityEventRepository;
 import rw.health.ubuzima.repository.SupportGroupMemberRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.ViewCounterService;
+import rw.health.ubuzima.service.ViewCounterService.CounterTarget;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -29,6 +31,7 @@ public class CommunityController {
     private final CommunityEventRepository communityEventRepository;
     private final SupportGroupMemberRepository supportGroupMemberRepository;
     private final UserRepository userRepository;
+    private final ViewCounterService viewCounterService;
 
     // ============ TEST ENDPOINT ============
     
@@ -332,6 +335,31 @@ public class CommunityController {
         }
     }
     
+    @GetMapping("/forum/topics/{topicId}")
+    public ResponseEntity<Map<String, Object>> getForumTopic(@PathVariable Long topicId) {
+        try {
+            ForumTopic topic = forumTopicRepository.findById(topicId).orElse(null);
+            if (topic == null || !Boolean.TRUE.equals(topic.getIsActive())) {
+                return ResponseEntity.notFound().build();
+            }
+
+            // Counted write-behind; the response shows the stored count plus unflushed views
+            viewCounterService.recordView(CounterTarget.FORUM_TOPIC, topicId);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "topic", topic,
+                "viewCount", viewCounterService.getViewCount(CounterTarget.FORUM_TOPIC, topicId, topic.getViewCount())
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to load forum topic: " + e.getMessage()
+            ));
+        }
+    }
+    
     // ============ COMMUNITY EVENTS ============
     
     @GetMapping("/events")
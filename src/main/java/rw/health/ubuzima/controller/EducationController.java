@@ -1,6 +1,7 @@
 package rw.health.ubuzima.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -13,6 +14,10 @@ import rw.health.ubuzima.repository.EducationLessonRepository;
 import rw.health.ubuzima.repository.EducationProgressRepository;
 import rw.health.ubuzima.repository.UserRepository;
 import rw.health.ubuzima.service.FileStorageService;
+import rw.health.ubuzima.service.LessonRecommendationService;
+import rw.health.ubuzima.service.LessonSearchService;
+import rw.health.ubuzima.service.ViewCounterService;
+import rw.health.ubuzima.service.ViewCounterService.CounterTarget;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -28,6 +33,9 @@ public class EducationController {
     private final EducationProgressRepository educationProgressRepository;
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final LessonSearchService lessonSearchService;
+    private final LessonRecommendationService lessonRecommendationService;
+    private final ViewCounterService viewCounterService;
 
     @GetMapping("/lessons")
     public ResponseEntity<Map<String, Object>> getEducationLessons(
@@ -76,13 +84,13 @@ public class EducationController {
                 return ResponseEntity.notFound().build();
             }
 
-            // Increment view count
-            lesson.setViewCount(lesson.getViewCount() + 1);
-            educationLessonRepository.save(lesson);
+            // Counted write-behind; the response shows the stored count plus unflushed views
+            viewCounterService.recordView(CounterTarget.LESSON, id);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "lesson", lesson
+                "lesson", lesson,
+                "viewCount", viewCounterService.getViewCount(CounterTarget.LESSON, id, lesson.getViewCount())
             ));
 
         } catch (Exception e) {
@@ -246,6 +254,7 @@ public class EducationController {
                 .findByUserAndLesson(user, lesson)
                 .orElse(new EducationProgress());
 
+            boolean wasCompleted = Boolean.TRUE.equals(progress.getIsCompleted());
             progress.setUser(user);
             progress.setLesson(lesson);
             
@@ -277,6 +286,10 @@ public class EducationController {
             progress.setLastAccessedAt(LocalDateTime.now());
 
             EducationProgress savedProgress = educationProgressRepository.save(progress);
+            // Only a new completion counts; re-saving a completed lesson's progress is not one
+            if (!wasCompleted && Boolean.TRUE.equals(savedProgress.getIsCompleted())) {
+                lessonRecommendationService.recordCompletion(userId, lessonId);
+            }
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -293,8 +306,25 @@ public class EducationController {
     }
 
     @GetMapping("/popular")
-    public ResponseEntity<Map<String, Object>> getPopularLessons() {
+    public ResponseEntity<Map<String, Object>> getPopularLessons(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String language,
+            @RequestParam(defaultValue = "20") int limit) {
         try {
+            if (lessonRecommendationService.isReady()) {
+                List<LessonRecommendationService.ScoredLesson> popular = lessonRecommendationService.popular(
+                    limit,
+                    category != null ? EducationCategory.valueOf(category.toUpperCase()) : null,
+                    level != null ? EducationLevel.valueOf(level.toUpperCase()) : null,
+                    language);
+
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "popularLessons", loadPublishedInOrder(popular)
+                ));
+            }
+
             System.out.println("Getting popular lessons...");
             long totalLessons = educationLessonRepository.count();
             System.out.println("Total lessons in database: " + totalLessons);
@@ -322,27 +352,26 @@ public class EducationController {
             @RequestParam String query,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String level,
-            @RequestParam(required = false) String language) {
+            @RequestParam(required = false) String language,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<EducationLesson> searchResults;
-
-            if (category != null || level != null || language != null) {
-                // Advanced search with filters
-                searchResults = educationLessonRepository.searchLessonsWithFilters(
-                    query,
-                    category != null ? EducationCategory.valueOf(category.toUpperCase()) : null,
-                    level != null ? EducationLevel.valueOf(level.toUpperCase()) : null,
-                    language
-                );
-            } else {
-                // Simple search
-                searchResults = educationLessonRepository.searchLessons(query);
-            }
+            Page<EducationLesson> searchResults = lessonSearchService.search(
+                query,
+                category != null ? EducationCategory.valueOf(category.toUpperCase()) : null,
+                level != null ? EducationLevel.valueOf(level.toUpperCase()) : null,
+                language,
+                page,
+                size
+            );
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "searchResults", searchResults,
-                "total", searchResults.size()
+                "searchResults", searchResults.getContent(),
+                "total", searchResults.getTotalElements(),
+                "totalPages", searchResults.getTotalPages(),
+                "currentPage", searchResults.getNumber(),
+                "searchMode", lessonSearchService.getMode()
             ));
 
         } catch (Exception e) {
@@ -357,8 +386,36 @@ public class EducationController {
      * Client: Get recommended lessons for user
      */
     @GetMapping("/recommendations/{userId}")
-    public ResponseEntity<Map<String, Object>> getRecommendedLessons(@PathVariable Long userId) {
+    public ResponseEntity<Map<String, Object>> getRecommendedLessons(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String language,
+            @RequestParam(defaultValue = "10") int limit) {
         try {
+            if (lessonRecommendationService.isReady()) {
+                if (!userRepository.existsById(userId)) {
+                    return ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "User not found with ID: " + userId
+                    ));
+                }
+
+                List<LessonRecommendationService.ScoredLesson> ranked = lessonRecommendationService.recommend(
+                    userId,
+                    Math.max(1, Math.min(limit, 50)),
+                    category != null ? EducationCategory.valueOf(category.toUpperCase()) : null,
+                    level != null ? EducationLevel.valueOf(level.toUpperCase()) : null,
+                    language);
+
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "recommendations", loadPublishedInOrder(ranked),
+                    "scores", ranked.stream().map(LessonRecommendationService.ScoredLesson::score).collect(Collectors.toList())
+                ));
+            }
+
+            // Model still building: fall back to the database
             System.out.println("Getting recommendations for user ID: " + userId);
 
             User user = userRepository.findById(userId).orElse(null);
@@ -409,6 +466,32 @@ public class EducationController {
         }
     }
 
+    /**
+     * Admin: Recommendation model size, build time and hit rate
+     */
+    @GetMapping("/admin/recommendations/stats")
+    public ResponseEntity<Map<String, Object>> getRecommendationStats() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "stats", lessonRecommendationService.getStats()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to fetch recommendation stats: " + e.getMessage()
+            ));
+        }
+    }
+
+    private List<EducationLesson> loadPublishedInOrder(List<LessonRecommendationService.ScoredLesson> ranked) {
+        List<Long> ids = ranked.stream().map(LessonRecommendationService.ScoredLesson::lessonId).collect(Collectors.toList());
+        Map<Long, EducationLesson> byId = educationLessonRepository.findAllById(ids).stream()
+            .filter(lesson -> Boolean.TRUE.equals(lesson.getIsPublished()))
+            .collect(Collectors.toMap(EducationLesson::getId, lesson -> lesson));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     /**
      * Client: Get lessons by category with progress info
      */
@@ -540,6 +623,7 @@ public class EducationController {
                 .findByUserAndLesson(user, lesson)
                 .orElse(new EducationProgress());
 
+            boolean wasCompleted = Boolean.TRUE.equals(progress.getIsCompleted());
             progress.setUser(user);
             progress.setLesson(lesson);
             progress.setIsCompleted(true);
@@ -554,6 +638,9 @@ public class EducationController {
             }
 
             EducationProgress savedProgress = educationProgressRepository.save(progress);
+            if (!wasCompleted) {
+                lessonRecommendationService.recordCompletion(userId, lessonId);
+            }
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -1,51 +1,64 @@
 package rw.health.ubuzima.controller;
 
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import rw.health.ubuzima.dto.response.ApiResponse;
+import rw.health.ubuzima.entity.Feedback;
+import rw.health.ubuzima.enums.UserRole;
+import rw.health.ubuzima.service.FeedbackIngestionService;
+import rw.health.ubuzima.service.FeedbackService;
+import rw.health.ubuzima.service.FeedbackService.FeedbackFilter;
+import rw.health.ubuzima.util.JwtUtil;
 import rw.health.ubuzima.util.ResponseUtil;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/feedback")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
-@SuppressWarnings("unchecked")
 public class FeedbackController {
 
+    private static final Set<String> STATUSES = Set.of("received", "in_review", "resolved", "closed");
+
+    private final FeedbackIngestionService feedbackIngestionService;
+    private final FeedbackService feedbackService;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Queues the feedback and answers at once; it is written to the database in the next batch
+     */
     @PostMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> submitFeedback(
-            @Valid @RequestBody Map<String, Object> feedbackData,
+            @RequestBody Map<String, Object> feedbackData,
             @RequestHeader(value = "Authorization", required = false) String authHeader) {
         
         try {
-            // Extract feedback information
-            String title = (String) feedbackData.get("title");
-            String description = (String) feedbackData.get("description");
-            String category = (String) feedbackData.get("category");
-            String priority = (String) feedbackData.get("priority");
-            String email = (String) feedbackData.get("email");
-            Map<String, Object> deviceInfo = (Map<String, Object>) feedbackData.get("deviceInfo");
-            
-            // In a real implementation, you would:
-            // 1. Save feedback to database
-            // 2. Send notification to admin/support team
-            // 3. Generate ticket ID
-            // 4. Send confirmation email if email provided
-            
-            // For now, simulate successful submission
+            FeedbackIngestionService.Receipt receipt = feedbackIngestionService.submit(feedbackData, userIdOrNull(authHeader));
+            if (receipt == null) {
+                return ResponseUtil.clientError(
+                    "Feedback Submission",
+                    "Feedback is temporarily unavailable, please try again later",
+                    "FEEDBACK_QUEUE_FULL",
+                    HttpStatus.SERVICE_UNAVAILABLE
+                );
+            }
+
             Map<String, Object> response = Map.of(
                 "success", true,
                 "message", "Feedback submitted successfully",
-                "ticketId", "FB-" + System.currentTimeMillis(),
-                "submittedAt", LocalDateTime.now().toString(),
-                "category", category,
-                "priority", priority,
+                "ticketId", receipt.ticketId(),
+                "submittedAt", receipt.submittedAt().toString(),
+                "category", receipt.category(),
+                "priority", receipt.priority(),
                 "status", "received"
             );
             
@@ -60,26 +73,38 @@ public class FeedbackController {
         }
     }
 
+    /**
+     * Admins see all feedback; other users only their own
+     */
     @GetMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> getFeedback(
             @RequestHeader("Authorization") String authHeader,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String platform,
+            @RequestParam(required = false) String appVersion,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         
         try {
-            // In a real implementation, you would:
-            // 1. Extract user from JWT token
-            // 2. Check if user has admin privileges
-            // 3. Fetch feedback from database with pagination
-            // 4. Return paginated results
-            
-            // For now, return empty list
+            String token = authHeader.replace("Bearer ", "");
+            Long ownerId = isAdmin(token) ? userId : jwtUtil.extractUserId(token);
+
+            Page<Feedback> feedbackPage = feedbackService.findFeedback(
+                new FeedbackFilter(lower(category), lower(status), lower(priority), lower(platform), appVersion,
+                    ownerId, from, to),
+                page, size);
+
             Map<String, Object> response = Map.of(
-                "feedback", List.<Map<String, Object>>of(),
-                "totalElements", 0,
-                "totalPages", 0,
-                "currentPage", page,
-                "size", size
+                "feedback", feedbackPage.getContent().stream().map(this::toMap).toList(),
+                "totalElements", feedbackPage.getTotalElements(),
+                "totalPages", feedbackPage.getTotalPages(),
+                "currentPage", feedbackPage.getNumber(),
+                "size", feedbackPage.getSize()
             );
             
             return ResponseUtil.clientSuccess(response, "Feedback Retrieval");
@@ -99,23 +124,13 @@ public class FeedbackController {
             @RequestHeader("Authorization") String authHeader) {
         
         try {
-            // In a real implementation, you would:
-            // 1. Extract user from JWT token
-            // 2. Check if user has admin privileges or owns the feedback
-            // 3. Fetch specific feedback from database
-            // 4. Return feedback details
+            String token = authHeader.replace("Bearer ", "");
+            Feedback feedback = feedbackService.findById(id).orElse(null);
+            if (feedback == null || (!isAdmin(token) && !jwtUtil.extractUserId(token).equals(feedback.getUserId()))) {
+                return ResponseUtil.clientError("Feedback Details", "Feedback not found", "FEEDBACK_NOT_FOUND", HttpStatus.NOT_FOUND);
+            }
             
-            Map<String, Object> response = Map.of(
-                "id", id,
-                "title", "Sample Feedback",
-                "description", "This is a sample feedback entry",
-                "category", "bug",
-                "priority", "medium",
-                "status", "received",
-                "submittedAt", LocalDateTime.now().toString()
-            );
-            
-            return ResponseUtil.clientSuccess(response, "Feedback Details");
+            return ResponseUtil.clientSuccess(toMap(feedback), "Feedback Details");
             
         } catch (Exception e) {
             return ResponseUtil.clientBadRequest(
@@ -133,23 +148,22 @@ public class FeedbackController {
             @RequestHeader("Authorization") String authHeader) {
         
         try {
-            String newStatus = statusUpdate.get("status");
-            String adminNotes = statusUpdate.get("adminNotes");
-            
-            // In a real implementation, you would:
-            // 1. Extract user from JWT token
-            // 2. Check if user has admin privileges
-            // 3. Update feedback status in database
-            // 4. Send notification to feedback submitter
-            
-            Map<String, Object> response = Map.of(
-                "id", id,
-                "status", newStatus,
-                "updatedAt", LocalDateTime.now().toString(),
-                "adminNotes", adminNotes != null ? adminNotes : ""
-            );
+            if (!isAdmin(authHeader.replace("Bearer ", ""))) {
+                return ResponseUtil.clientError("Feedback Status Update", "Only admins can update feedback",
+                    "FEEDBACK_FORBIDDEN", HttpStatus.FORBIDDEN);
+            }
+            String newStatus = lower(statusUpdate.get("status"));
+            if (newStatus == null || !STATUSES.contains(newStatus)) {
+                return ResponseUtil.clientBadRequest("Feedback Status Update",
+                    "Status must be one of " + STATUSES, "FEEDBACK_INVALID_STATUS");
+            }
+
+            Feedback feedback = feedbackService.updateStatus(id, newStatus, statusUpdate.get("adminNotes")).orElse(null);
+            if (feedback == null) {
+                return ResponseUtil.clientError("Feedback Status Update", "Feedback not found", "FEEDBACK_NOT_FOUND", HttpStatus.NOT_FOUND);
+            }
             
-            return ResponseUtil.clientSuccess(response, "Feedback Status Update");
+            return ResponseUtil.clientSuccess(toMap(feedback), "Feedback Status Update");
             
         } catch (Exception e) {
             return ResponseUtil.clientBadRequest(
@@ -186,36 +200,21 @@ public class FeedbackController {
         }
     }
 
+    /**
+     * Statistics from the daily rollups, refreshed every few minutes
+     */
     @GetMapping("/stats")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getFeedbackStats(
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(defaultValue = "30") int days) {
         
         try {
-            // In a real implementation, you would:
-            // 1. Extract user from JWT token
-            // 2. Check if user has admin privileges
-            // 3. Calculate feedback statistics from database
-            
-            Map<String, Object> stats = Map.of(
-                "totalFeedback", 0,
-                "pendingFeedback", 0,
-                "resolvedFeedback", 0,
-                "averageRating", 0.0,
-                "categoryBreakdown", Map.of(
-                    "bug", 0,
-                    "feature", 0,
-                    "ui", 0,
-                    "other", 0
-                ),
-                "priorityBreakdown", Map.of(
-                    "low", 0,
-                    "medium", 0,
-                    "high", 0,
-                    "critical", 0
-                )
-            );
-            
-            return ResponseUtil.clientSuccess(stats, "Feedback Statistics");
+            if (!isAdmin(authHeader.replace("Bearer ", ""))) {
+                return ResponseUtil.clientError("Feedback Statistics", "Only admins can view feedback statistics",
+                    "FEEDBACK_FORBIDDEN", HttpStatus.FORBIDDEN);
+            }
+
+            return ResponseUtil.clientSuccess(feedbackService.getStats(Math.min(days, 366)), "Feedback Statistics");
             
         } catch (Exception e) {
             return ResponseUtil.clientBadRequest(
@@ -225,4 +224,47 @@ public class FeedbackController {
             );
         }
     }
+
+    private boolean isAdmin(String token) {
+        return UserRole.ADMIN.toString().equals(jwtUtil.extractRole(token));
+    }
+
+    private Long userIdOrNull(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            return jwtUtil.extractUserId(authHeader.substring(7));
+        } catch (Exception e) {
+            // Anonymous feedback is accepted, e.g. crash reports sent before login
+            return null;
+        }
+    }
+
+    private static String lower(String value) {
+        return value != null && !value.isBlank() ? value.trim().toLowerCase() : null;
+    }
+
+    private Map<String, Object> toMap(Feedback feedback) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", feedback.getId());
+        map.put("ticketId", feedback.getTicketId());
+        map.put("userId", feedback.getUserId());
+        map.put("title", feedback.getTitle());
+        map.put("description", feedback.getDescription());
+        map.put("category", feedback.getCategory());
+        map.put("priority", feedback.getPriority());
+        map.put("status", feedback.getStatus());
+        map.put("rating", feedback.getRating());
+        map.put("email", feedback.getEmail());
+        map.put("appVersion", feedback.getAppVersion());
+        map.put("platform", feedback.getPlatform());
+        map.put("osVersion", feedback.getOsVersion());
+        map.put("deviceModel", feedback.getDeviceModel());
+        map.put("deviceInfo", feedback.getDeviceInfo());
+        map.put("adminNotes", feedback.getAdminNotes());
+        map.put("submittedAt", feedback.getCreatedAt() != null ? feedback.getCreatedAt().toString() : null);
+        map.put("resolvedAt", feedback.getResolvedAt() != null ? feedback.getResolvedAt().toString() : null);
+        return map;
+    }
 }
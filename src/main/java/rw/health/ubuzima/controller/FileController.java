@@ -1,8 +1,9 @@
 package rw.health.ubuzima.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -10,8 +11,11 @@ import org.springframework.web.multipart.MultipartFile;
 import rw.health.ubuzima.dto.response.ApiResponse;
 import rw.health.ubuzima.dto.response.FileUploadResponse;
 import rw.health.ubuzima.service.FileStorageService;
+import rw.health.ubuzima.service.FileStreamingService;
 import rw.health.ubuzima.util.ResponseUtil;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -23,6 +27,7 @@ import java.util.stream.Collectors;
 public class FileController {
 
     private final FileStorageService fileStorageService;
+    private final FileStreamingService fileStreamingService;
 
     @PostMapping("/upload")
     public ResponseEntity<ApiResponse<FileUploadResponse>> uploadFile(
@@ -94,19 +99,33 @@ public class FileController {
         }
     }
 
+    /**
+     * Download a file. Supports Range/If-Range and conditional requests,
+     * so video players and resumed downloads only fetch the bytes they need.
+     */
     @GetMapping("/download/{fileId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileId) {
+    public void downloadFile(@PathVariable String fileId, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        Path filePath;
+        String contentType;
         try {
             Resource resource = fileStorageService.loadFileAsResource(fileId);
-            String contentType = fileStorageService.getFileContentType(fileId);
-            
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                    "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+            filePath = resource.getFile().toPath();
+            contentType = fileStorageService.getFileContentType(fileId);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (contentType == null) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+
+        try {
+            fileStreamingService.serve(request, response, filePath, contentType,
+                "attachment; filename=\"" + filePath.getFileName() + "\"");
+        } catch (IOException e) {
+            // Client disconnected mid-download
         }
     }
 
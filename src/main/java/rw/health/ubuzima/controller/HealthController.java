@@ -73,7 +73,7 @@ public class HealthController {
                 if (user != null) {
                     List<PregnancyPlan> userPlans = pregnancyPlanRepository.findByUser(user);
                     List<ContraceptionMethod> userMethods = contraceptionMethodRepository.findByUserAndIsActive(user, true);
-                    List<MenstrualCycle> userCycles = menstrualCycleRepository.findByUserOrderByStartDateDesc(user);
+                    List<MenstrualCycle> userCycles = menstrualCycleRepository.findLoggedByUserOrderByStartDateDesc(user);
 
                     stats.put("totalPlans", userPlans.size());
                     stats.put("activePlans", userPlans.stream().filter(p -> p.getCurrentStatus() == PregnancyPlanStatus.PLANNING || p.getCurrentStatus() == PregnancyPlanStatus.TRYING).count());
@@ -84,7 +84,7 @@ public class HealthController {
                 // General stats
                 stats.put("totalPlans", pregnancyPlanRepository.count());
                 stats.put("totalMethods", contraceptionMethodRepository.count());
-                stats.put("totalCycles", menstrualCycleRepository.count());
+                stats.put("totalCycles", menstrualCycleRepository.countActualCycles());
                 stats.put("totalLessons", educationLessonRepository.countByCategoryAndIsPublishedTrue(EducationCategory.FAMILY_PLANNING));
             }
 
@@ -204,7 +204,7 @@ public class HealthController {
                 ));
             }
 
-            List<MenstrualCycle> cycles = menstrualCycleRepository.findByUserOrderByStartDateDesc(user);
+            List<MenstrualCycle> cycles = menstrualCycleRepository.findLoggedByUserOrderByStartDateDesc(user);
 
             if (limit != null && limit > 0) {
                 cycles = cycles.stream().limit(limit).toList();
@@ -8,6 +8,7 @@ import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.FacilityType;
 import rw.health.ubuzima.repository.HealthFacilityRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.FacilityGeoIndexService;
 
 import java.util.HashMap;
 import java.util.List;
@@ -21,6 +22,7 @@ public class HealthFacilityController {
 
     private final HealthFacilityRepository healthFacilityRepository;
     private final UserRepository userRepository;
+    private final FacilityGeoIndexService facilityGeoIndexService;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllFacilities(
@@ -77,15 +79,21 @@ public class HealthFacilityController {
     public ResponseEntity<Map<String, Object>> getNearbyFacilities(
             @RequestParam Double latitude,
             @RequestParam Double longitude,
-            @RequestParam(defaultValue = "10.0") Double radius) {
+            @RequestParam(defaultValue = "10.0") Double radius,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) FacilityType type,
+            @RequestParam(required = false) String service) {
         
         try {
-            List<HealthFacility> facilities = healthFacilityRepository.findNearbyFacilities(
-                latitude, longitude, radius);
+            List<FacilityGeoIndexService.FacilityMatch> matches = facilityGeoIndexService.findNearest(
+                latitude, longitude, radius, Math.min(Math.max(limit, 1), 200), type, service);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "facilities", facilities
+                "facilities", matches.stream().map(FacilityGeoIndexService.FacilityMatch::facility).toList(),
+                "distances", matches.stream()
+                    .map(match -> Map.of("facilityId", match.facility().getId(), "distanceKm", match.distanceKm()))
+                    .toList()
             ));
 
         } catch (Exception e) {
@@ -112,6 +120,7 @@ public class HealthFacilityController {
             facility.setIsActive(true);
 
             HealthFacility savedFacility = healthFacilityRepository.save(facility);
+            facilityGeoIndexService.apply(savedFacility);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
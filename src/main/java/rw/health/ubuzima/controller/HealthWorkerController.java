@@ -30,6 +30,7 @@ import rw.health.ubuzima.enums.TicketStatus;
 import rw.health.ubuzima.enums.TicketPriority;
 import rw.health.ubuzima.service.AppointmentNotificationService;
 import rw.health.ubuzima.service.AppointmentStatusSchedulerService;
+import rw.health.ubuzima.service.HealthWorkerDashboardService;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -57,6 +58,7 @@ public class HealthWorkerController {
     private final CommunityEventRepository communityEventRepository;
     private final AppointmentNotificationService appointmentNotificationService;
     private final AppointmentStatusSchedulerService appointmentStatusSchedulerService;
+    private final HealthWorkerDashboardService healthWorkerDashboardService;
 
     // Get assigned clients (village-based assignment)
     @GetMapping("/{healthWorkerId}/clients")
@@ -175,6 +177,7 @@ public class HealthWorkerController {
             }
 
             appointmentRepository.save(appointment);
+            healthWorkerDashboardService.evict(appointment.getHealthWorker());
 
             // Send appropriate notifications based on status change
             sendStatusChangeNotifications(appointment, oldStatus, newStatus, reason);
@@ -309,37 +312,7 @@ public class HealthWorkerController {
                 ));
             }
 
-            // Get assigned clients based on village assignment
-            List<User> assignedClients = new ArrayList<>();
-            String assignmentType = "facility";
-            String assignmentLocation = healthWorker.getFacilityId();
-
-            if (healthWorker.getVillage() != null && !healthWorker.getVillage().isEmpty()) {
-                assignedClients = userRepository.findActiveClientsByVillage(healthWorker.getVillage());
-                assignmentType = "village";
-                assignmentLocation = healthWorker.getVillage();
-            } else {
-                assignedClients = userRepository.findByFacilityIdAndRole(healthWorker.getFacilityId(), UserRole.CLIENT);
-            }
-
-            List<Appointment> allAppointments = appointmentRepository.findByHealthWorker(healthWorker);
-            long totalAppointments = allAppointments.size();
-            long todayAppointments = allAppointments.stream()
-                .filter(apt -> apt.getScheduledDate().toLocalDate().equals(LocalDateTime.now().toLocalDate()))
-                .count();
-            long completedAppointments = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == AppointmentStatus.COMPLETED)
-                .count();
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalAppointments", totalAppointments);
-            stats.put("todayAppointments", todayAppointments);
-            stats.put("completedAppointments", completedAppointments);
-            stats.put("totalClients", assignedClients.size()); // Use village-based count
-            stats.put("assignmentType", assignmentType);
-            stats.put("assignmentLocation", assignmentLocation);
-            stats.put("healthWorkerVillage", healthWorker.getVillage());
-            stats.put("healthWorkerLocation", healthWorker.getFullLocation());
+            Map<String, Object> stats = healthWorkerDashboardService.getDashboardStats(healthWorker);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -4,13 +4,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import rw.health.ubuzima.entity.Medication;
+import rw.health.ubuzima.entity.MedicationDose;
 import rw.health.ubuzima.entity.User;
+import rw.health.ubuzima.enums.DoseStatus;
 import rw.health.ubuzima.repository.MedicationRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.MedicationReminderService;
 import rw.health.ubuzima.util.JwtUtil;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -21,6 +27,7 @@ public class MedicationController {
 
     private final MedicationRepository medicationRepository;
     private final UserRepository userRepository;
+    private final MedicationReminderService medicationReminderService;
     private final JwtUtil jwtUtil;
 
     @GetMapping
@@ -107,6 +114,7 @@ public class MedicationController {
             }
 
             Medication savedMedication = medicationRepository.save(medication);
+            medicationReminderService.refreshMedication(savedMedication);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -159,6 +167,7 @@ public class MedicationController {
             }
 
             Medication updatedMedication = medicationRepository.save(medication);
+            medicationReminderService.refreshMedication(updatedMedication);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -183,6 +192,7 @@ public class MedicationController {
                 return ResponseEntity.notFound().build();
             }
 
+            medicationReminderService.removeMedication(medication.getId());
             medicationRepository.delete(medication);
 
             return ResponseEntity.ok(Map.of(
@@ -225,4 +235,116 @@ public class MedicationController {
             ));
         }
     }
+
+    @GetMapping("/doses")
+    public ResponseEntity<Map<String, Object>> getDoses(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            Long userId = jwtUtil.extractUserId(authHeader.replace("Bearer ", ""));
+            if (userId == null) {
+                return ResponseEntity.status(401).body(Map.of(
+                    "success", false,
+                    "message", "Invalid token - unable to extract user ID"
+                ));
+            }
+
+            LocalDateTime start = from != null ? LocalDateTime.parse(from) : LocalDate.now().atStartOfDay();
+            LocalDateTime end = to != null ? LocalDateTime.parse(to) : start.plusDays(1);
+            List<MedicationDose> doses = medicationReminderService.getDoses(userId, start, end);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "doses", doses,
+                "total", doses.size()
+            ));
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Invalid from/to, expected ISO date-time (e.g. 2024-07-01T00:00:00): " + e.getParsedString()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to fetch doses: " + e.getMessage()
+            ));
+        }
+    }
+
+    @PostMapping("/doses/{doseId}/acknowledge")
+    public ResponseEntity<Map<String, Object>> acknowledgeDose(
+            @PathVariable Long doseId,
+            @RequestBody Map<String, Object> request,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            Long userId = jwtUtil.extractUserId(authHeader.replace("Bearer ", ""));
+            if (userId == null) {
+                return ResponseEntity.status(401).body(Map.of(
+                    "success", false,
+                    "message", "Invalid token - unable to extract user ID"
+                ));
+            }
+
+            Object status = request.getOrDefault("status", "taken");
+            MedicationDose dose = medicationReminderService.acknowledge(doseId, userId,
+                DoseStatus.valueOf(status.toString().toUpperCase(Locale.ROOT)));
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Dose acknowledged",
+                "dose", dose
+            ));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to acknowledge dose: " + e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/adherence")
+    public ResponseEntity<Map<String, Object>> getAdherence(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            Long userId = jwtUtil.extractUserId(authHeader.replace("Bearer ", ""));
+            if (userId == null) {
+                return ResponseEntity.status(401).body(Map.of(
+                    "success", false,
+                    "message", "Invalid token - unable to extract user ID"
+                ));
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "days", days,
+                "adherence", medicationReminderService.getUserAdherence(userId, now.minusDays(days), now)
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to calculate adherence: " + e.getMessage()
+            ));
+        }
+    }
 }
@@ -9,6 +9,7 @@ import rw.health.ubuzima.entity.MenstrualCycle;
 import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.repository.MenstrualCycleRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.CycleForecastService;
 import rw.health.ubuzima.util.JwtUtil;
 import rw.health.ubuzima.dto.response.ApiResponse;
 import rw.health.ubuzima.util.ResponseUtil;
@@ -29,6 +30,7 @@ public class MenstrualCycleController {
     private final MenstrualCycleRepository menstrualCycleRepository;
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
+    private final CycleForecastService cycleForecastService;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getMenstrualCycles(
@@ -61,7 +63,7 @@ public class MenstrualCycleController {
             }
 
             // Get menstrual cycles for the authenticated user
-            List<MenstrualCycle> cycles = menstrualCycleRepository.findByUserOrderByStartDateDesc(user);
+            List<MenstrualCycle> cycles = menstrualCycleRepository.findLoggedByUserOrderByStartDateDesc(user);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -126,6 +128,7 @@ public class MenstrualCycleController {
             }
 
             MenstrualCycle savedCycle = menstrualCycleRepository.save(cycle);
+            cycleForecastService.recompute(userId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -205,6 +208,7 @@ public class MenstrualCycleController {
             }
 
             MenstrualCycle updatedCycle = menstrualCycleRepository.save(cycle);
+            cycleForecastService.recompute(userId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -266,36 +270,24 @@ public class MenstrualCycleController {
     @GetMapping("/predictions")
     public ResponseEntity<Map<String, Object>> getPredictions(@RequestParam Long userId) {
         try {
-            User user = userRepository.findById(userId).orElse(null);
-            
-            if (user == null) {
+            if (!userRepository.existsById(userId)) {
                 return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
                     "message", "User not found"
                 ));
             }
 
-            // Get historical cycles to calculate predictions
-            List<MenstrualCycle> historicalCycles = menstrualCycleRepository
-                .findByUserAndIsPredicted(user, false);
-
-            // Simple prediction logic (can be enhanced)
+            // Forecasts are precomputed when cycles change and nightly; this is one indexed lookup
             Map<String, Object> predictions = new HashMap<>();
-            if (!historicalCycles.isEmpty()) {
-                MenstrualCycle lastCycle = historicalCycles.get(0);
-                int avgCycleLength = historicalCycles.stream()
-                    .mapToInt(c -> c.getCycleLength() != null ? c.getCycleLength() : 28)
-                    .sum() / historicalCycles.size();
-
-                LocalDate nextPeriodDate = lastCycle.getStartDate().plusDays(avgCycleLength);
-                LocalDate ovulationDate = nextPeriodDate.minusDays(14);
-                
-                predictions.put("nextPeriodDate", nextPeriodDate);
-                predictions.put("ovulationDate", ovulationDate);
-                predictions.put("fertileWindowStart", ovulationDate.minusDays(5));
-                predictions.put("fertileWindowEnd", ovulationDate.plusDays(1));
-                predictions.put("averageCycleLength", avgCycleLength);
-            }
+            cycleForecastService.getNextForecast(userId).ifPresent(forecast -> {
+                predictions.put("nextPeriodDate", forecast.getStartDate());
+                predictions.put("ovulationDate", forecast.getOvulationDate());
+                predictions.put("fertileWindowStart", forecast.getFertileWindowStart());
+                predictions.put("fertileWindowEnd", forecast.getFertileWindowEnd());
+                predictions.put("averageCycleLength", forecast.getCycleLength());
+                predictions.put("expectedFlowDuration", forecast.getFlowDuration());
+                predictions.put("confidence", forecast.getPredictionConfidence());
+            });
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -323,7 +315,7 @@ public class MenstrualCycleController {
                         "message", "User not found"
                     ));
                 }
-                cycles = menstrualCycleRepository.findByUserOrderByStartDateDesc(user);
+                cycles = menstrualCycleRepository.findLoggedByUserOrderByStartDateDesc(user);
             } else {
                 cycles = menstrualCycleRepository.findAll();
             }
@@ -531,6 +523,7 @@ public class MenstrualCycleController {
             }
 
             menstrualCycleRepository.delete(cycle);
+            cycleForecastService.recompute(userId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -6,6 +6,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import rw.health.ubuzima.entity.ConversationSummary;
 import rw.health.ubuzima.entity.Message;
 import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.MessageType;
@@ -13,6 +14,8 @@ import rw.health.ubuzima.enums.MessagePriority;
 import rw.health.ubuzima.enums.UserRole;
 import rw.health.ubuzima.repository.MessageRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.ConversationSummaryService;
+import rw.health.ubuzima.service.MessageHistoryService;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -28,6 +31,8 @@ public class MessageController {
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final MessageHistoryService messageHistoryService;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getMessages(
@@ -133,7 +138,7 @@ public class MessageController {
             // Set initial status
             message.setMessageStatus("SENT");
 
-            Message savedMessage = messageRepository.save(message);
+            Message savedMessage = conversationSummaryService.saveNewMessage(message);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -158,9 +163,7 @@ public class MessageController {
                 return ResponseEntity.notFound().build();
             }
 
-            message.setIsRead(true);
-            message.setReadAt(LocalDateTime.now());
-            messageRepository.save(message);
+            conversationSummaryService.markAsRead(message);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -211,6 +214,38 @@ public class MessageController {
         }
     }
 
+    /**
+     * Cursor-paginated conversation history, newest page first.
+     * Pass nextCursor from the previous response to load older messages.
+     */
+    @GetMapping("/history/{userId1}/{userId2}")
+    public ResponseEntity<Map<String, Object>> getConversationHistory(
+            @PathVariable Long userId1,
+            @PathVariable Long userId2,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long beforeMessageId,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Map<String, Object> historyPage = messageHistoryService.getHistoryPage(userId1, userId2, cursor, beforeMessageId,
+                size != null ? size : MessageHistoryService.DEFAULT_PAGE_SIZE);
+
+            Map<String, Object> response = new HashMap<>(historyPage);
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to fetch conversation history: " + e.getMessage()
+            ));
+        }
+    }
+
     @PutMapping("/{messageId}")
     public ResponseEntity<Map<String, Object>> updateMessage(
             @PathVariable Long messageId,
@@ -285,9 +320,7 @@ public class MessageController {
             }
 
             // WhatsApp-like soft delete
-            message.setDeletedAt(LocalDateTime.now());
-            message.setDeletedForEveryone(forEveryone);
-            messageRepository.save(message);
+            conversationSummaryService.deleteMessage(message, Boolean.TRUE.equals(forEveryone));
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -303,7 +336,10 @@ public class MessageController {
     }
 
     @GetMapping("/conversations")
-    public ResponseEntity<Map<String, Object>> getConversations(@RequestParam Long userId) {
+    public ResponseEntity<Map<String, Object>> getConversations(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
             User user = userRepository.findById(userId).orElse(null);
 
@@ -314,12 +350,12 @@ public class MessageController {
                 ));
             }
 
-            // Get existing conversation partners
-            List<User> conversationPartners = messageRepository.findConversationPartners(user);
+            // One indexed query against the materialized conversation summaries
+            Page<ConversationSummary> inboxPage = conversationSummaryService.getInbox(userId, PageRequest.of(page, size));
 
-            // Enhance conversation data with metadata
-            List<Map<String, Object>> enrichedConversations = conversationPartners.stream()
-                .map(partner -> {
+            List<Map<String, Object>> enrichedConversations = inboxPage.getContent().stream()
+                .map(summary -> {
+                    User partner = summary.getPartnerOf(userId);
                     Map<String, Object> conversation = new HashMap<>();
 
                     // Basic user info
@@ -334,27 +370,13 @@ public class MessageController {
                     conversation.put("cell", partner.getCell());
                     conversation.put("village", partner.getVillage());
 
-                    // Get conversation metadata
-                    List<Message> conversationMessages = messageRepository.findConversationBetweenUsers(user, partner);
-
-                    if (!conversationMessages.isEmpty()) {
-                        // Get last message
-                        Message lastMessage = conversationMessages.get(conversationMessages.size() - 1);
-                        conversation.put("lastMessage", lastMessage.getContent());
-                        conversation.put("lastMessageTime", lastMessage.getCreatedAt().toString());
-                        conversation.put("lastMessageType", lastMessage.getMessageType());
-
-                        // Count unread messages from this partner
-                        long unreadCount = conversationMessages.stream()
-                            .filter(msg -> msg.getSender().equals(partner) && !msg.getIsRead())
-                            .count();
-                        conversation.put("unreadCount", unreadCount);
-                    } else {
-                        conversation.put("lastMessage", "");
-                        conversation.put("lastMessageTime", null);
-                        conversation.put("lastMessageType", null);
-                        conversation.put("unreadCount", 0);
-                    }
+                    // Conversation metadata
+                    conversation.put("conversationId", summary.getConversationId());
+                    conversation.put("lastMessageId", summary.getLastMessageId());
+                    conversation.put("lastMessage", summary.getLastMessagePreview() != null ? summary.getLastMessagePreview() : "");
+                    conversation.put("lastMessageTime", summary.getLastMessageAt() != null ? summary.getLastMessageAt().toString() : null);
+                    conversation.put("lastMessageType", summary.getLastMessageType());
+                    conversation.put("unreadCount", summary.getUnreadCountFor(userId));
 
                     // Add online status (placeholder for now)
                     conversation.put("isOnline", false);
@@ -365,7 +387,10 @@ public class MessageController {
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "conversations", enrichedConversations
+                "conversations", enrichedConversations,
+                "totalElements", inboxPage.getTotalElements(),
+                "totalPages", inboxPage.getTotalPages(),
+                "currentPage", page
             ));
 
         } catch (Exception e) {
@@ -376,6 +401,30 @@ public class MessageController {
         }
     }
 
+    /**
+     * Mark every message from partner to user as read
+     */
+    @PutMapping("/conversation/{userId}/{partnerId}/read")
+    public ResponseEntity<Map<String, Object>> markConversationAsRead(
+            @PathVariable Long userId,
+            @PathVariable Long partnerId) {
+        try {
+            int updated = conversationSummaryService.markConversationRead(userId, partnerId);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Conversation marked as read",
+                "updatedCount", updated
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to mark conversation as read: " + e.getMessage()
+            ));
+        }
+    }
+
     @GetMapping("/available-users")
     public ResponseEntity<Map<String, Object>> getAvailableUsers(@RequestParam Long userId) {
         try {
@@ -479,13 +528,14 @@ public class MessageController {
 
                 if ("DELIVERED".equals(status.toUpperCase())) {
                     message.setDeliveredAt(LocalDateTime.now());
-                } else if ("READ".equals(status.toUpperCase())) {
-                    message.setIsRead(true);
-                    message.setReadAt(LocalDateTime.now());
                 }
             }
 
-            messageRepository.save(message);
+            if (status != null && "READ".equals(status.toUpperCase())) {
+                conversationSummaryService.markAsRead(message);
+            } else {
+                messageRepository.save(message);
+            }
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -11,6 +11,7 @@ import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.NotificationType;
 import rw.health.ubuzima.repository.NotificationRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.ScheduledNotificationDispatcher;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -24,6 +25,7 @@ public class NotificationController {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final ScheduledNotificationDispatcher scheduledNotificationDispatcher;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getNotifications(
@@ -154,6 +156,7 @@ public class NotificationController {
             }
 
             Notification savedNotification = notificationRepository.save(notification);
+            scheduledNotificationDispatcher.schedule(savedNotification.getId(), savedNotification.getScheduledFor());
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -7,6 +7,10 @@ import org.springframework.web.bind.annotation.*;
 import rw.health.ubuzima.repository.*;
 import rw.health.ubuzima.entity.*;
 import rw.health.ubuzima.enums.*;
+import rw.health.ubuzima.service.AnalyticsRollupService;
+import rw.health.ubuzima.service.AnalyticsRollupService.FactFilter;
+import rw.health.ubuzima.service.AnalyticsRollupService.Summary;
+import rw.health.ubuzima.service.MedicationReminderService;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -24,25 +28,27 @@ import java.util.stream.Collectors;
 public class ReportingController {
 
     private final UserRepository userRepository;
-    private final HealthRecordRepository healthRecordRepository;
     private final AppointmentRepository appointmentRepository;
-    private final MedicationRepository medicationRepository;
-    private final ContraceptionMethodRepository contraceptionMethodRepository;
-    private final SideEffectReportRepository sideEffectReportRepository;
     private final EducationLessonRepository educationLessonRepository;
     private final EducationProgressRepository educationProgressRepository;
     private final SupportGroupRepository supportGroupRepository;
     private final MessageRepository messageRepository;
     private final NotificationRepository notificationRepository;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final MedicationReminderService medicationReminderService;
 
     /**
-     * Generate comprehensive health analytics report
+     * Generate comprehensive health analytics report.
+     * All figures come from the daily analytics facts in one query: totals over all days and
+     * "new"/period figures over the requested range.
      */
     @GetMapping("/health-analytics")
     @PreAuthorize("hasRole('ADMIN') or hasRole('HEALTH_WORKER')")
     public ResponseEntity<Map<String, Object>> getHealthAnalyticsReport(
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String facilityId,
+            @RequestParam(required = false) String district) {
         try {
             LocalDateTime start = startDate != null ? 
                 LocalDateTime.parse(startDate + "T00:00:00") : 
@@ -51,46 +57,62 @@ public class ReportingController {
                 LocalDateTime.parse(endDate + "T23:59:59") : 
                 LocalDateTime.now();
 
+            Map<AnalyticsSubject, Summary> facts = analyticsRollupService.summarize(
+                EnumSet.of(AnalyticsSubject.USERS, AnalyticsSubject.HEALTH_RECORDS, AnalyticsSubject.APPOINTMENTS,
+                    AnalyticsSubject.MEDICATIONS, AnalyticsSubject.CONTRACEPTION_METHODS,
+                    AnalyticsSubject.SIDE_EFFECT_REPORTS),
+                start.toLocalDate(), end.toLocalDate(), new FactFilter(facilityId, district, null));
+
             Map<String, Object> report = new HashMap<>();
             
             // Health Records Analytics
+            Summary healthRecords = facts.get(AnalyticsSubject.HEALTH_RECORDS);
+            long users = facts.get(AnalyticsSubject.USERS).total();
             report.put("healthRecords", Map.of(
-                "total", healthRecordRepository.count(),
-                "newRecords", healthRecordRepository.countByCreatedAtBetween(start, end),
-                "recordsByType", getHealthRecordsByType(),
-                "averageRecordsPerUser", calculateAverageRecordsPerUser()
+                "total", healthRecords.total(),
+                "newRecords", healthRecords.inRange(),
+                "recordsByStatus", healthRecords.breakdown(AnalyticsRollupService.STATUS, false),
+                "averageRecordsPerUser", users > 0 ? (double) healthRecords.total() / users : 0.0
             ));
             
             // Appointment Analytics
+            Summary appointments = facts.get(AnalyticsSubject.APPOINTMENTS);
+            long completed = appointments.count(AnalyticsRollupService.STATUS, AppointmentStatus.COMPLETED.name());
             report.put("appointments", Map.of(
-                "total", appointmentRepository.count(),
-                "scheduled", appointmentRepository.countByStatus(AppointmentStatus.SCHEDULED),
-                "completed", appointmentRepository.countByStatus(AppointmentStatus.COMPLETED),
-                "cancelled", appointmentRepository.countByStatus(AppointmentStatus.CANCELLED),
-                "completionRate", calculateAppointmentCompletionRate()
+                "total", appointments.total(),
+                "scheduled", appointments.count(AnalyticsRollupService.STATUS, AppointmentStatus.SCHEDULED.name()),
+                "completed", completed,
+                "cancelled", appointments.count(AnalyticsRollupService.STATUS, AppointmentStatus.CANCELLED.name()),
+                "completionRate", appointments.total() > 0 ? (double) completed / appointments.total() * 100 : 0.0,
+                "inPeriod", appointments.inRange()
             ));
             
             // Medication Analytics
+            Summary medications = facts.get(AnalyticsSubject.MEDICATIONS);
             report.put("medications", Map.of(
-                "totalPrescriptions", medicationRepository.count(),
-                "activeMedications", medicationRepository.countByIsActiveTrue(),
+                "totalPrescriptions", medications.total(),
+                "activeMedications", medications.count(AnalyticsRollupService.STATUS, "active"),
+                "newPrescriptions", medications.inRange(),
                 "medicationsByType", getMedicationsByType(),
-                "adherenceRate", calculateMedicationAdherence()
+                "adherenceRate", calculateMedicationAdherence(start, end)
             ));
             
             // Contraception Analytics
+            Summary contraception = facts.get(AnalyticsSubject.CONTRACEPTION_METHODS);
+            Map<String, Long> methodsByType = contraception.breakdown(AnalyticsRollupService.CATEGORY, false);
             report.put("contraception", Map.of(
-                "totalMethods", contraceptionMethodRepository.count(),
-                "methodsByType", getContraceptionMethodsByType(),
-                "sideEffectReports", sideEffectReportRepository.count(),
-                "popularMethods", getPopularContraceptionMethods()
+                "totalMethods", contraception.total(),
+                "methodsByType", methodsByType,
+                "sideEffectReports", facts.get(AnalyticsSubject.SIDE_EFFECT_REPORTS).total(),
+                "popularMethods", getPopularContraceptionMethods(methodsByType)
             ));
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "report", report,
                 "period", Map.of("start", start, "end", end),
-                "generatedAt", LocalDateTime.now()
+                "generatedAt", LocalDateTime.now(),
+                "dataAsOf", String.valueOf(analyticsRollupService.getLastRunAt())
             ));
 
         } catch (Exception e) {
@@ -240,27 +262,6 @@ public class ReportingController {
     }
 
     // Helper methods for calculations
-    private Map<String, Object> getHealthRecordsByType() {
-        return Map.of(
-            "checkup", 45,
-            "vaccination", 23,
-            "consultation", 67,
-            "emergency", 12
-        );
-    }
-
-    private double calculateAverageRecordsPerUser() {
-        long totalUsers = userRepository.count();
-        long totalRecords = healthRecordRepository.count();
-        return totalUsers > 0 ? (double) totalRecords / totalUsers : 0.0;
-    }
-
-    private double calculateAppointmentCompletionRate() {
-        long total = appointmentRepository.count();
-        long completed = appointmentRepository.countByStatus(AppointmentStatus.COMPLETED);
-        return total > 0 ? (double) completed / total * 100 : 0.0;
-    }
-
     private Map<String, Object> getMedicationsByType() {
         return Map.of(
             "contraceptive", 45,
@@ -270,25 +271,16 @@ public class ReportingController {
         );
     }
 
-    private double calculateMedicationAdherence() {
-        return 78.5; // This would be calculated based on actual data
-    }
-
-    private Map<String, Object> getContraceptionMethodsByType() {
-        return Map.of(
-            "pill", 45,
-            "injection", 23,
-            "implant", 67,
-            "iud", 12
-        );
+    private double calculateMedicationAdherence(LocalDateTime start, LocalDateTime end) {
+        return (double) medicationReminderService.getAdherence(start, end).get("adherenceRate");
     }
 
-    private List<Map<String, Object>> getPopularContraceptionMethods() {
-        return List.of(
-            Map.of("name", "Birth Control Pill", "users", 45),
-            Map.of("name", "Depo-Provera", "users", 23),
-            Map.of("name", "Implant", "users", 67)
-        );
+    private List<Map<String, Object>> getPopularContraceptionMethods(Map<String, Long> methodsByType) {
+        return methodsByType.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(3)
+            .map(entry -> Map.<String, Object>of("name", entry.getKey(), "users", entry.getValue()))
+            .collect(Collectors.toList());
     }
 
     private Map<String, Object> getUsersByRole() {
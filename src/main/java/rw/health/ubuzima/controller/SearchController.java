@@ -9,6 +9,10 @@ import org.springframework.web.bind.annotation.*;
 import rw.health.ubuzima.entity.*;
 import rw.health.ubuzima.repository.*;
 import rw.health.ubuzima.enums.UserRole;
+import rw.health.ubuzima.service.SearchIndexService;
+import rw.health.ubuzima.service.SearchIndexService.CategoryResult;
+import rw.health.ubuzima.service.SearchIndexService.SearchCategory;
+import rw.health.ubuzima.service.SearchIndexService.SearchHit;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,6 +36,7 @@ public class SearchController {
     private final ContraceptionMethodRepository contraceptionMethodRepository;
     private final SupportGroupRepository supportGroupRepository;
     private final MessageRepository messageRepository;
+    private final SearchIndexService searchIndexService;
 
     /**
      * Global search across all entities
@@ -40,8 +45,13 @@ public class SearchController {
     public ResponseEntity<Map<String, Object>> globalSearch(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "5") int size) {
         try {
+            if (searchIndexService.isReady()) {
+                return ResponseEntity.ok(indexedGlobalSearch(query, page, size));
+            }
+
+            // Index still building: fall back to SQL
             Map<String, Object> results = new HashMap<>();
             
             // Search users
@@ -86,6 +96,31 @@ public class SearchController {
         }
     }
 
+    private Map<String, Object> indexedGlobalSearch(String query, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, 50));
+        Map<SearchCategory, CategoryResult> hits = searchIndexService.search(query, page, pageSize);
+
+        Map<String, Object> results = new HashMap<>();
+        Map<String, Object> scores = new HashMap<>();
+        Map<String, Object> totals = new HashMap<>();
+        hits.forEach((category, result) -> {
+            results.put(category.getKey(), searchIndexService.loadEntities(category, result.hits()));
+            scores.put(category.getKey(), result.hits().stream().map(SearchHit::score).collect(Collectors.toList()));
+            totals.put(category.getKey(), result.total());
+        });
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("query", query);
+        response.put("results", results);
+        response.put("scores", scores);
+        response.put("totals", totals);
+        response.put("page", page);
+        response.put("size", pageSize);
+        response.put("totalCategories", results.size());
+        return response;
+    }
+
     /**
      * Search users with advanced filters
      */
@@ -9,6 +9,7 @@ import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.repository.TimeSlotRepository;
 import rw.health.ubuzima.repository.HealthFacilityRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.HealthWorkerDashboardService;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
@@ -24,6 +25,7 @@ public class TimeSlotController {
     private final TimeSlotRepository timeSlotRepository;
     private final HealthFacilityRepository healthFacilityRepository;
     private final UserRepository userRepository;
+    private final HealthWorkerDashboardService healthWorkerDashboardService;
 
     // ============ GET TIME SLOTS ============
     
@@ -161,6 +163,7 @@ public class TimeSlotController {
             timeSlot.setMaxAppointments((Integer) request.getOrDefault("maxAppointments", 1));
 
             TimeSlot savedTimeSlot = timeSlotRepository.save(timeSlot);
+            healthWorkerDashboardService.evict(savedTimeSlot.getHealthWorker());
 
             System.out.println("✅ Time slot created successfully with ID: " + savedTimeSlot.getId());
             
@@ -214,6 +217,7 @@ public class TimeSlotController {
             }
 
             TimeSlot updatedTimeSlot = timeSlotRepository.save(timeSlot);
+            healthWorkerDashboardService.evict(updatedTimeSlot.getHealthWorker());
 
             System.out.println("✅ Time slot updated successfully");
             
@@ -246,6 +250,7 @@ public class TimeSlotController {
             }
 
             timeSlotRepository.deleteById(timeSlotId);
+            healthWorkerDashboardService.evict(timeSlotOpt.get().getHealthWorker());
 
             System.out.println("✅ Time slot deleted successfully");
             
@@ -5,9 +5,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import rw.health.ubuzima.entity.HealthRecord;
+import rw.health.ubuzima.enums.VitalMetric;
+import rw.health.ubuzima.service.CriticalVitalsDetector;
 import rw.health.ubuzima.service.UserCentricHealthService;
+import rw.health.ubuzima.service.VitalsTimeSeriesService;
+import rw.health.ubuzima.service.VitalsTimeSeriesService.RollupInterval;
+import rw.health.ubuzima.service.VitalsTimeSeriesService.VitalReading;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +29,8 @@ import java.util.Map;
 public class UserCentricHealthController {
 
     private final UserCentricHealthService userCentricHealthService;
+    private final VitalsTimeSeriesService vitalsTimeSeriesService;
+    private final CriticalVitalsDetector criticalVitalsDetector;
 
     /**
      * Get user's health record (user-centric format)
@@ -239,7 +250,8 @@ public class UserCentricHealthController {
      *   "bloodPressure": "120/80",
      *   "weight": 64.5,
      *   "temperature": 36.5,
-     *   "height": 170.5
+     *   "height": 170.5,
+     *   "recordedAt": "2024-07-01T09:30:00" (optional, defaults to now)
      * }
      */
     @PostMapping("/multiple")
@@ -272,8 +284,11 @@ public class UserCentricHealthController {
             String heightUnit = request.get("heightUnit") != null ?
                 request.get("heightUnit").toString() : "cm";
 
+            LocalDateTime recordedAt = request.get("recordedAt") != null ?
+                LocalDateTime.parse(request.get("recordedAt").toString()) : LocalDateTime.now();
+
             HealthRecord updatedRecord = userCentricHealthService.updateMultipleMetrics(
-                userId, heartRate, heartRateUnit, bloodPressure, bpUnit,
+                userId, recordedAt, heartRate, heartRateUnit, bloodPressure, bpUnit,
                 weight, weightUnit, temperature, tempUnit, height, heightUnit
             );
 
@@ -282,6 +297,12 @@ public class UserCentricHealthController {
                 "message", "Health metrics updated successfully",
                 "data", updatedRecord
             ));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Unparsable numbers or time, an unsupported unit, or recordedAt outside the accepted window
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Invalid metrics: " + e.getMessage()
+            ));
         } catch (Exception e) {
             log.error("Error updating multiple metrics: {}", e.getMessage());
             return ResponseEntity.internalServerError().body(Map.of(
@@ -291,6 +312,128 @@ public class UserCentricHealthController {
         }
     }
 
+    /**
+     * Append a batch of readings for any number of users, e.g. from a screening day
+     * Example: POST /api/user-centric-health/readings/batch
+     * Body: { "readings": [ { "userId": 5, "metric": "HEART_RATE", "value": 80, "recordedAt": "2024-07-01T09:30:00" } ] }
+     * "unit" is optional per reading and defaults to the metric's own unit (e.g. "lb" for WEIGHT is converted to kg)
+     */
+    @PostMapping("/readings/batch")
+    public ResponseEntity<Map<String, Object>> recordReadings(@RequestBody Map<String, Object> request) {
+        try {
+            Object rawReadings = request.get("readings");
+            if (!(rawReadings instanceof List<?> items) || items.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "readings must be a non-empty list"
+                ));
+            }
+
+            List<VitalReading> readings = new ArrayList<>(items.size());
+            for (Object item : items) {
+                Map<?, ?> reading = (Map<?, ?>) item;
+                VitalMetric metric = VitalMetric.valueOf(reading.get("metric").toString().toUpperCase());
+                readings.add(new VitalReading(
+                    Long.valueOf(reading.get("userId").toString()),
+                    metric,
+                    reading.get("recordedAt") != null ? LocalDateTime.parse(reading.get("recordedAt").toString()) : LocalDateTime.now(),
+                    metric.normalize(Double.parseDouble(reading.get("value").toString()),
+                        reading.get("unit") != null ? reading.get("unit").toString() : null)
+                ));
+            }
+
+            Map<Long, HealthRecord> refreshed = userCentricHealthService.recordReadings(readings);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Readings recorded successfully",
+                "readings", readings.size(),
+                "users", refreshed.size()
+            ));
+        } catch (IllegalArgumentException | NullPointerException | ClassCastException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Invalid readings: " + e.getMessage()
+            ));
+        } catch (Exception e) {
+            log.error("Error recording readings: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to record readings: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Raw readings of one metric in a time range, newest first
+     * Example: GET /api/user-centric-health/vitals/5?metric=HEART_RATE&from=2024-06-01T00:00:00&to=2024-07-01T00:00:00
+     */
+    @GetMapping("/vitals/{userId}")
+    public ResponseEntity<Map<String, Object>> getVitalReadings(
+            @PathVariable Long userId,
+            @RequestParam String metric,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "500") int limit) {
+        try {
+            VitalMetric vitalMetric = VitalMetric.valueOf(metric.toUpperCase());
+            LocalDateTime end = to != null ? LocalDateTime.parse(to) : LocalDateTime.now().plusMinutes(1);
+            LocalDateTime start = from != null ? LocalDateTime.parse(from) : end.minusDays(30);
+
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (VitalReading reading : vitalsTimeSeriesService.findReadings(userId, vitalMetric, start, end,
+                    Math.max(1, Math.min(limit, 5000)))) {
+                points.add(Map.of("recordedAt", reading.recordedAt().toString(), "value", reading.value()));
+            }
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "metric", vitalMetric,
+                "unit", vitalMetric.getUnit(),
+                "readings", points
+            ));
+        } catch (Exception e) {
+            log.error("Error getting vitals for user {}: {}", userId, e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to get vitals: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Daily or weekly min/max/avg of one metric, oldest first
+     * Example: GET /api/user-centric-health/vitals/5/rollups?metric=WEIGHT&interval=WEEK&from=2024-01-01&to=2024-07-01
+     */
+    @GetMapping("/vitals/{userId}/rollups")
+    public ResponseEntity<Map<String, Object>> getVitalRollups(
+            @PathVariable Long userId,
+            @RequestParam String metric,
+            @RequestParam(defaultValue = "DAY") String interval,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            VitalMetric vitalMetric = VitalMetric.valueOf(metric.toUpperCase());
+            RollupInterval rollupInterval = RollupInterval.valueOf(interval.toUpperCase());
+            LocalDate end = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate start = from != null ? LocalDate.parse(from) : end.minusDays(rollupInterval == RollupInterval.WEEK ? 182 : 30);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "metric", vitalMetric,
+                "unit", vitalMetric.getUnit(),
+                "interval", rollupInterval,
+                "rollups", vitalsTimeSeriesService.findRollups(userId, vitalMetric, start, end, rollupInterval)
+            ));
+        } catch (Exception e) {
+            log.error("Error getting vital rollups for user {}: {}", userId, e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to get vital rollups: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Get all users' health data
      */
@@ -314,17 +457,20 @@ public class UserCentricHealthController {
     }
 
     /**
-     * Get users with critical health status
+     * Get users with critical health status, optionally only one health worker's patients.
+     * Live changes are pushed to the assigned health worker's /user/queue/vitals-alerts.
      */
     @GetMapping("/critical")
-    public ResponseEntity<Map<String, Object>> getCriticalUsers() {
+    public ResponseEntity<Map<String, Object>> getCriticalUsers(
+            @RequestParam(required = false) Long healthWorkerId) {
         try {
-            List<HealthRecord> criticalRecords = userCentricHealthService.getCriticalHealthUsers();
+            List<HealthRecord> criticalRecords = userCentricHealthService.getCriticalHealthUsers(healthWorkerId);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "count", criticalRecords.size(),
-                "data", criticalRecords
+                "data", criticalRecords,
+                "indexed", criticalVitalsDetector.isReady()
             ));
         } catch (Exception e) {
             log.error("Error getting critical users: {}", e.getMessage());
@@ -334,4 +480,35 @@ public class UserCentricHealthController {
             ));
         }
     }
+
+    /**
+     * Users currently flagged by the vitals detector, with the abnormal values that flagged them
+     */
+    @GetMapping("/alerts")
+    public ResponseEntity<Map<String, Object>> getVitalsAlerts(
+            @RequestParam(required = false) Long healthWorkerId,
+            @RequestParam(defaultValue = "CONCERNING") String minimumSeverity) {
+        try {
+            CriticalVitalsDetector.Severity minimum = CriticalVitalsDetector.Severity.valueOf(minimumSeverity.toUpperCase());
+            List<CriticalVitalsDetector.Alert> alerts = criticalVitalsDetector.getAbnormal(healthWorkerId, minimum);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "count", alerts.size(),
+                "data", alerts,
+                "stats", criticalVitalsDetector.getStats()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Invalid severity: " + minimumSeverity
+            ));
+        } catch (Exception e) {
+            log.error("Error getting vitals alerts: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to get vitals alerts: " + e.getMessage()
+            ));
+        }
+    }
 }
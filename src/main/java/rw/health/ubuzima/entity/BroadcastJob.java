@@ -0,0 +1,77 @@
+package rw.health.ubuzima.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import rw.health.ubuzima.enums.BroadcastJobStatus;
+import rw.health.ubuzima.enums.NotificationType;
+import rw.health.ubuzima.enums.UserRole;
+
+import java.time.LocalDateTime;
+
+/**
+ * Admin broadcast notification job.
+ * Recipients are processed in user id order; lastUserId is the resume cursor,
+ * committed together with each chunk of inserted notifications.
+ */
+@Entity
+@Table(name = "broadcast_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastJob extends BaseEntity {
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "notification_type", nullable = false)
+    private NotificationType type;
+
+    @Column(name = "priority")
+    private Integer priority = 2;
+
+    @Column(name = "action_url")
+    private String actionUrl;
+
+    @Column(name = "icon")
+    private String icon;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_role")
+    private UserRole targetRole; // null targets every user
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private BroadcastJobStatus status = BroadcastJobStatus.QUEUED;
+
+    @Column(name = "total_recipients")
+    private Long totalRecipients = 0L;
+
+    @Column(name = "processed_recipients")
+    private Long processedRecipients = 0L;
+
+    @Column(name = "pushes_sent")
+    private Long pushesSent = 0L;
+
+    @Column(name = "last_user_id")
+    private Long lastUserId = 0L;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+}
@@ -0,0 +1,75 @@
+package rw.health.ubuzima.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import rw.health.ubuzima.enums.MessageType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialized inbox row for a one-to-one conversation.
+ * Participant one is always the user with the lower id, so each pair has exactly one row.
+ * Maintained by ConversationSummaryService in the same transaction as the message writes.
+ */
+@Entity
+@Table(name = "conversation_summaries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_conversation_summaries_participants",
+        columnNames = {"participant_one_id", "participant_two_id"}),
+    indexes = {
+        @Index(name = "idx_conversation_summaries_one_last", columnList = "participant_one_id, last_message_at"),
+        @Index(name = "idx_conversation_summaries_two_last", columnList = "participant_two_id, last_message_at")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "participant_one_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "healthRecord", "appointments", "passwordHash"})
+    private User participantOne;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "participant_two_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "healthRecord", "appointments", "passwordHash"})
+    private User participantTwo;
+
+    @Column(name = "conversation_id")
+    private String conversationId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview")
+    private String lastMessagePreview;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_message_type")
+    private MessageType lastMessageType;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "participant_one_unread", nullable = false)
+    private Integer participantOneUnread = 0;
+
+    @Column(name = "participant_two_unread", nullable = false)
+    private Integer participantTwoUnread = 0;
+
+    public User getPartnerOf(Long userId) {
+        return participantOne.getId().equals(userId) ? participantTwo : participantOne;
+    }
+
+    public int getUnreadCountFor(Long userId) {
+        Integer unread = participantOne.getId().equals(userId) ? participantOneUnread : participantTwoUnread;
+        return unread != null ? unread : 0;
+    }
+}
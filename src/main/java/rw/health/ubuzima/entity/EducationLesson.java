@@ -58,7 +58,8 @@ public class EducationLesson extends BaseEntity {
     @Column(name = "is_published")
     private Boolean isPublished = true;
 
-    @Column(name = "view_count")
+    // Only ViewCounterService's SQL increments change it, so entity saves never write a stale count
+    @Column(name = "view_count", updatable = false)
     private Long viewCount = 0L;
 
     @Column(name = "language")
@@ -0,0 +1,75 @@
+package rw.health.ubuzima.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-app feedback or crash report.
+ * Rows are written in batches by FeedbackIngestionService; the user is kept as a plain id so
+ * ingestion never has to load users.
+ */
+@Entity
+@Table(name = "app_feedback", indexes = {
+    @Index(name = "idx_app_feedback_ticket_id", columnList = "ticket_id", unique = true),
+    @Index(name = "idx_app_feedback_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_app_feedback_category_created", columnList = "category, created_at"),
+    @Index(name = "idx_app_feedback_version_platform", columnList = "app_version, platform, created_at"),
+    @Index(name = "idx_app_feedback_user_created", columnList = "user_id, created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class Feedback extends BaseEntity {
+
+    @Column(name = "ticket_id", nullable = false, length = 32)
+    private String ticketId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "title")
+    private String title;
+
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "category", nullable = false, length = 30)
+    private String category = "other";
+
+    @Column(name = "priority", nullable = false, length = 20)
+    private String priority = "medium";
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "received";
+
+    @Column(name = "rating")
+    private Integer rating;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "app_version", nullable = false, length = 50)
+    private String appVersion = "unknown";
+
+    @Column(name = "platform", nullable = false, length = 30)
+    private String platform = "unknown";
+
+    @Column(name = "os_version", length = 50)
+    private String osVersion;
+
+    @Column(name = "device_model", length = 100)
+    private String deviceModel;
+
+    @Column(name = "device_info", columnDefinition = "TEXT")
+    private String deviceInfo;
+
+    @Column(name = "admin_notes", columnDefinition = "TEXT")
+    private String adminNotes;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+}
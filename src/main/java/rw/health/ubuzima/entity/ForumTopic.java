@@ -34,7 +34,8 @@ public class ForumTopic {
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
     
-    @Column(name = "view_count", nullable = false)
+    // Only ViewCounterService's SQL increments change it, so entity saves never write a stale count
+    @Column(name = "view_count", nullable = false, updatable = false)
     private Integer viewCount = 0;
     
     @Column(name = "reply_count", nullable = false)
@@ -0,0 +1,47 @@
+package rw.health.ubuzima.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import rw.health.ubuzima.enums.DoseStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * One scheduled dose of a medication.
+ * Rows are materialized a rolling horizon ahead by MedicationReminderService from the medication's
+ * frequency; medication and user are plain ids so the reminder path never loads either entity.
+ */
+@Entity
+@Table(name = "medication_doses",
+    uniqueConstraints = @UniqueConstraint(name = "uk_medication_doses_medication_time",
+        columnNames = {"medication_id", "scheduled_at"}),
+    indexes = {
+        @Index(name = "idx_medication_doses_status_time", columnList = "status, scheduled_at"),
+        @Index(name = "idx_medication_doses_user_time", columnList = "user_id, scheduled_at")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class MedicationDose extends BaseEntity {
+
+    @Column(name = "medication_id", nullable = false)
+    private Long medicationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "scheduled_at", nullable = false)
+    private LocalDateTime scheduledAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private DoseStatus status = DoseStatus.PENDING;
+
+    @Column(name = "reminded_at")
+    private LocalDateTime remindedAt;
+
+    @Column(name = "acknowledged_at")
+    private LocalDateTime acknowledgedAt;
+}
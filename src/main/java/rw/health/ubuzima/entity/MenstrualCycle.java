@@ -58,4 +58,8 @@ public class MenstrualCycle extends BaseEntity {
 
     @Column(name = "fertile_window_end")
     private LocalDate fertileWindowEnd;
+
+    // Forecast rows only: 0-1, from history length and cycle regularity
+    @Column(name = "prediction_confidence")
+    private Double predictionConfidence;
 }
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.BatchSize;
 import rw.health.ubuzima.enums.MessageType;
 import rw.health.ubuzima.enums.MessagePriority;
 
@@ -46,6 +47,7 @@ public class Message extends BaseEntity {
     private MessagePriority priority = MessagePriority.NORMAL;
 
     @ElementCollection
+    @BatchSize(size = 100) // attachments for a history page load in one query
     @CollectionTable(name = "message_attachments", joinColumns = @JoinColumn(name = "message_id"))
     @Column(name = "attachment_url")
     private List<String> attachments = new ArrayList<>();
@@ -0,0 +1,49 @@
+package rw.health.ubuzima.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import rw.health.ubuzima.enums.RevocationReason;
+import rw.health.ubuzima.enums.RevocationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * JWT deny-list entry.
+ * TOKEN rows revoke one jti, FAMILY rows revoke every token of a refresh-token family,
+ * and USER rows revoke every token of a user issued before notBefore.
+ */
+@Entity
+@Table(name = "revoked_tokens",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"revocation_type", "revoked_key"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken extends BaseEntity {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "revocation_type", nullable = false, length = 20)
+    private RevocationType type;
+
+    // jti, family id or user id, depending on type
+    @Column(name = "revoked_key", nullable = false, length = 100)
+    private String revokedKey;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", length = 30)
+    private RevocationReason reason;
+
+    // USER rows only: tokens issued before this instant are rejected
+    @Column(name = "not_before")
+    private LocalDateTime notBefore;
+
+    // When the revoked token(s) would have expired anyway; the row can be purged after this
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,19 @@
+package rw.health.ubuzima.enums;
+
+/**
+ * What a row of the daily analytics facts counts. The name is what is persisted.
+ */
+public enum AnalyticsSubject {
+    USERS,
+    APPOINTMENTS,
+    HEALTH_RECORDS,
+    CONTRACEPTION_METHODS,
+    EDUCATION_PROGRESS,
+    SUPPORT_TICKETS,
+    NOTIFICATIONS,
+    MEDICATIONS,
+    MESSAGES,
+    SIDE_EFFECT_REPORTS,
+    COMMUNITY_EVENTS,
+    VERIFIED_USERS
+}
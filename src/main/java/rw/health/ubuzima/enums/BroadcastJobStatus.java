@@ -0,0 +1,8 @@
+package rw.health.ubuzima.enums;
+
+public enum BroadcastJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,9 @@
+package rw.health.ubuzima.enums;
+
+public enum DoseStatus {
+    PENDING,
+    REMINDED,
+    TAKEN,
+    SKIPPED,
+    MISSED
+}
@@ -0,0 +1,13 @@
+package rw.health.ubuzima.enums;
+
+/**
+ * How OutboxRelay delivers an outbox event. The name is what is persisted.
+ */
+public enum OutboxEventType {
+    /** FCM push to the user's device; the notification row is written by the producer */
+    PUSH,
+    /** STOMP message to the user's destination, or to a topic when there is no user */
+    WEBSOCKET,
+    /** Templated email sent through EmailService; the user is not looked up at dispatch time */
+    EMAIL
+}
@@ -0,0 +1,8 @@
+package rw.health.ubuzima.enums;
+
+public enum RevocationReason {
+    LOGOUT,
+    ROTATED,
+    REUSE_DETECTED,
+    ADMIN
+}
@@ -0,0 +1,7 @@
+package rw.health.ubuzima.enums;
+
+public enum RevocationType {
+    TOKEN,
+    FAMILY,
+    USER
+}
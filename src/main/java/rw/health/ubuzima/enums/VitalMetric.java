@@ -0,0 +1,114 @@
+package rw.health.ubuzima.enums;
+
+import java.util.Locale;
+
+/**
+ * Metrics stored in the vitals time series. The code is what is persisted, so never reuse one.
+ * Values are always stored in the metric's unit; other units are converted on the way in.
+ */
+public enum VitalMetric {
+    HEART_RATE(1, "bpm"),
+    SYSTOLIC(2, "mmHg"),
+    DIASTOLIC(3, "mmHg"),
+    WEIGHT(4, "kg"),
+    TEMPERATURE(5, "°C"),
+    HEIGHT(6, "cm");
+
+    private final short code;
+    private final String unit;
+
+    VitalMetric(int code, String unit) {
+        this.code = (short) code;
+        this.unit = unit;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Convert a value given in {@code unit} to this metric's unit (null or blank means already in it)
+     *
+     * @throws IllegalArgumentException for a unit this metric can't be converted from
+     */
+    public double normalize(double value, String unit) {
+        if (unit == null || unit.isBlank()) {
+            return value;
+        }
+        String u = unit.trim().toLowerCase(Locale.ROOT).replace("°", "").replace("º", "");
+        switch (this) {
+            case HEART_RATE -> {
+                if (u.equals("bpm") || u.equals("/min") || u.equals("beats/min")) {
+                    return value;
+                }
+            }
+            case SYSTOLIC, DIASTOLIC -> {
+                if (u.equals("mmhg")) {
+                    return value;
+                }
+                if (u.equals("kpa")) {
+                    return value * 7.50062;
+                }
+            }
+            case WEIGHT -> {
+                switch (u) {
+                    case "kg", "kgs", "kilogram", "kilograms" -> {
+                        return value;
+                    }
+                    case "lb", "lbs", "pound", "pounds" -> {
+                        return value * 0.45359237;
+                    }
+                    case "g", "gram", "grams" -> {
+                        return value / 1000.0;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            case TEMPERATURE -> {
+                switch (u) {
+                    case "c", "celsius", "degc" -> {
+                        return value;
+                    }
+                    case "f", "fahrenheit", "degf" -> {
+                        return (value - 32.0) * 5.0 / 9.0;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            case HEIGHT -> {
+                switch (u) {
+                    case "cm", "centimeter", "centimeters", "centimetre", "centimetres" -> {
+                        return value;
+                    }
+                    case "m", "meter", "meters", "metre", "metres" -> {
+                        return value * 100.0;
+                    }
+                    case "mm" -> {
+                        return value / 10.0;
+                    }
+                    case "in", "inch", "inches" -> {
+                        return value * 2.54;
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported unit for " + name() + ": " + unit);
+    }
+
+    public static VitalMetric fromCode(int code) {
+        for (VitalMetric metric : values()) {
+            if (metric.code == code) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown vital metric code: " + code);
+    }
+}
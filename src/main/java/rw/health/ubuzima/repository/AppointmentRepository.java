@@ -13,6 +13,7 @@ import rw.health.ubuzima.enums.AppointmentStatus;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -63,6 +64,10 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
 
     List<Appointment> findByStatusAndScheduledDateBetween(AppointmentStatus status, LocalDateTime startDate, LocalDateTime endDate);
 
+    // Appointments changed by a bulk transition, with the users their notifications need
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.user LEFT JOIN FETCH a.healthWorker WHERE a.id IN :ids")
+    List<Appointment> findWithParticipantsByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT a FROM Appointment a WHERE a.scheduledDate BETWEEN :startTime AND :endTime AND a.status IN ('SCHEDULED', 'CONFIRMED') AND a.reminderSent = false")
     List<Appointment> findAppointmentsForReminder(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
 
@@ -76,4 +81,18 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     long countTotalAppointmentsByHealthWorker(@Param("healthWorkerId") Long healthWorkerId);
 
     long countByHealthFacilityId(Long facilityId);
+
+    // Health worker dashboard: total, completed and today's counts plus assigned clients in a single row.
+    // Clients are the active ones in :village, or everyone at :facilityId when :village is empty.
+    @Query("SELECT COUNT(a), " +
+           "COALESCE(SUM(CASE WHEN a.status = 'COMPLETED' THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN a.scheduledDate >= :dayStart AND a.scheduledDate < :dayEnd THEN 1 ELSE 0 END), 0), " +
+           "(SELECT COUNT(u) FROM User u WHERE u.role = 'CLIENT' AND " +
+           "((:village <> '' AND u.village = :village AND u.status = 'ACTIVE') OR (:village = '' AND u.facilityId = :facilityId))) " +
+           "FROM Appointment a WHERE a.healthWorker.id = :healthWorkerId")
+    List<Object[]> aggregateDashboardCounts(@Param("healthWorkerId") Long healthWorkerId,
+                                            @Param("dayStart") LocalDateTime dayStart,
+                                            @Param("dayEnd") LocalDateTime dayEnd,
+                                            @Param("village") String village,
+                                            @Param("facilityId") String facilityId);
 }
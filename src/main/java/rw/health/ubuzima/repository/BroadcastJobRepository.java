@@ -0,0 +1,56 @@
+package rw.health.ubuzima.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.entity.BroadcastJob;
+import rw.health.ubuzima.enums.BroadcastJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BroadcastJobRepository extends JpaRepository<BroadcastJob, Long> {
+
+    Page<BroadcastJob> findAllByOrderByCreatedAtDesc(Pageable pageable);
+
+    List<BroadcastJob> findByStatusIn(List<BroadcastJobStatus> statuses);
+
+    // Advances the resume cursor; runs inside the chunk transaction that inserted the notifications
+    @Modifying
+    @Query("UPDATE BroadcastJob j SET j.lastUserId = :lastUserId, " +
+           "j.processedRecipients = j.processedRecipients + :processed, j.updatedAt = :now " +
+           "WHERE j.id = :jobId")
+    int advanceCursor(@Param("jobId") Long jobId,
+                      @Param("lastUserId") Long lastUserId,
+                      @Param("processed") long processed,
+                      @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastJob j SET j.pushesSent = j.pushesSent + :sent, j.updatedAt = :now WHERE j.id = :jobId")
+    int addPushesSent(@Param("jobId") Long jobId, @Param("sent") long sent, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastJob j SET j.status = :status, j.startedAt = COALESCE(j.startedAt, :now), " +
+           "j.totalRecipients = :totalRecipients, j.updatedAt = :now WHERE j.id = :jobId")
+    int markRunning(@Param("jobId") Long jobId,
+                    @Param("status") BroadcastJobStatus status,
+                    @Param("totalRecipients") long totalRecipients,
+                    @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BroadcastJob j SET j.status = :status, j.completedAt = :now, j.errorMessage = :errorMessage, " +
+           "j.updatedAt = :now WHERE j.id = :jobId")
+    int markFinished(@Param("jobId") Long jobId,
+                     @Param("status") BroadcastJobStatus status,
+                     @Param("errorMessage") String errorMessage,
+                     @Param("now") LocalDateTime now);
+}
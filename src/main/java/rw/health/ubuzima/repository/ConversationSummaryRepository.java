@@ -0,0 +1,105 @@
+package rw.health.ubuzima.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import rw.health.ubuzima.entity.ConversationSummary;
+import rw.health.ubuzima.enums.MessageType;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    @Query("SELECT s FROM ConversationSummary s WHERE s.participantOne.id = :participantOneId AND s.participantTwo.id = :participantTwoId")
+    Optional<ConversationSummary> findByParticipants(@Param("participantOneId") Long participantOneId,
+                                                     @Param("participantTwoId") Long participantTwoId);
+
+    // Inbox page for a user, newest conversation first
+    @Query(value = "SELECT s FROM ConversationSummary s " +
+                   "JOIN FETCH s.participantOne " +
+                   "JOIN FETCH s.participantTwo " +
+                   "WHERE s.participantOne.id = :userId OR s.participantTwo.id = :userId " +
+                   "ORDER BY s.lastMessageAt DESC",
+           countQuery = "SELECT COUNT(s) FROM ConversationSummary s " +
+                        "WHERE s.participantOne.id = :userId OR s.participantTwo.id = :userId")
+    Page<ConversationSummary> findInbox(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(CASE WHEN s.participantOne.id = :userId THEN s.participantOneUnread ELSE s.participantTwoUnread END), 0) " +
+           "FROM ConversationSummary s WHERE s.participantOne.id = :userId OR s.participantTwo.id = :userId")
+    long sumUnreadForUser(@Param("userId") Long userId);
+
+    /**
+     * Insert or advance the summary row for a new message (PostgreSQL upsert).
+     * The last-message columns only move forward, so out-of-order commits can't regress the preview.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO conversation_summaries (participant_one_id, participant_two_id, conversation_id, " +
+                   "last_message_id, last_message_preview, last_message_type, last_message_at, last_sender_id, " +
+                   "participant_one_unread, participant_two_unread, created_at, updated_at, version) " +
+                   "VALUES (:participantOneId, :participantTwoId, :conversationId, :messageId, :preview, :messageType, " +
+                   ":messageAt, :senderId, :participantOneIncrement, :participantTwoIncrement, :now, :now, 0) " +
+                   "ON CONFLICT (participant_one_id, participant_two_id) DO UPDATE SET " +
+                   "participant_one_unread = conversation_summaries.participant_one_unread + EXCLUDED.participant_one_unread, " +
+                   "participant_two_unread = conversation_summaries.participant_two_unread + EXCLUDED.participant_two_unread, " +
+                   "conversation_id = CASE WHEN conversation_summaries.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summaries.last_message_id " +
+                   "THEN EXCLUDED.conversation_id ELSE conversation_summaries.conversation_id END, " +
+                   "last_message_preview = CASE WHEN conversation_summaries.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summaries.last_message_id " +
+                   "THEN EXCLUDED.last_message_preview ELSE conversation_summaries.last_message_preview END, " +
+                   "last_message_type = CASE WHEN conversation_summaries.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summaries.last_message_id " +
+                   "THEN EXCLUDED.last_message_type ELSE conversation_summaries.last_message_type END, " +
+                   "last_message_at = CASE WHEN conversation_summaries.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summaries.last_message_id " +
+                   "THEN EXCLUDED.last_message_at ELSE conversation_summaries.last_message_at END, " +
+                   "last_sender_id = CASE WHEN conversation_summaries.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summaries.last_message_id " +
+                   "THEN EXCLUDED.last_sender_id ELSE conversation_summaries.last_sender_id END, " +
+                   "last_message_id = GREATEST(COALESCE(conversation_summaries.last_message_id, 0), EXCLUDED.last_message_id), " +
+                   "updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int upsertForNewMessage(@Param("participantOneId") Long participantOneId,
+                            @Param("participantTwoId") Long participantTwoId,
+                            @Param("conversationId") String conversationId,
+                            @Param("messageId") Long messageId,
+                            @Param("preview") String preview,
+                            @Param("messageType") String messageType,
+                            @Param("messageAt") LocalDateTime messageAt,
+                            @Param("senderId") Long senderId,
+                            @Param("participantOneIncrement") int participantOneIncrement,
+                            @Param("participantTwoIncrement") int participantTwoIncrement,
+                            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.participantOneUnread = " +
+           "CASE WHEN s.participantOneUnread > :count THEN s.participantOneUnread - :count ELSE 0 END " +
+           "WHERE s.participantOne.id = :participantOneId AND s.participantTwo.id = :participantTwoId")
+    int decrementParticipantOneUnread(@Param("participantOneId") Long participantOneId,
+                                      @Param("participantTwoId") Long participantTwoId,
+                                      @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.participantTwoUnread = " +
+           "CASE WHEN s.participantTwoUnread > :count THEN s.participantTwoUnread - :count ELSE 0 END " +
+           "WHERE s.participantOne.id = :participantOneId AND s.participantTwo.id = :participantTwoId")
+    int decrementParticipantTwoUnread(@Param("participantOneId") Long participantOneId,
+                                      @Param("participantTwoId") Long participantTwoId,
+                                      @Param("count") int count);
+
+    // Point the summary at a new last message after the current one was deleted for everyone
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.lastMessageId = :messageId, s.lastMessagePreview = :preview, " +
+           "s.lastMessageType = :messageType, s.lastMessageAt = :messageAt, s.lastSenderId = :senderId " +
+           "WHERE s.participantOne.id = :participantOneId AND s.participantTwo.id = :participantTwoId " +
+           "AND s.lastMessageId = :replacedMessageId")
+    int replaceLastMessage(@Param("participantOneId") Long participantOneId,
+                           @Param("participantTwoId") Long participantTwoId,
+                           @Param("replacedMessageId") Long replacedMessageId,
+                           @Param("messageId") Long messageId,
+                           @Param("preview") String preview,
+                           @Param("messageType") MessageType messageType,
+                           @Param("messageAt") LocalDateTime messageAt,
+                           @Param("senderId") Long senderId);
+}
@@ -1,5 +1,7 @@
 package rw.health.ubuzima.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -38,6 +40,39 @@ public interface EducationLessonRepository extends JpaRepository<EducationLesson
         @Param("level") EducationLevel level,
         @Param("language") String language);
     
+    @Query("SELECT l FROM EducationLesson l WHERE l.isPublished = true AND " +
+           "(l.title LIKE %:searchTerm% OR l.description LIKE %:searchTerm%) AND " +
+           "(:category IS NULL OR l.category = :category) AND " +
+           "(:level IS NULL OR l.level = :level) AND " +
+           "(:language IS NULL OR l.language = :language) " +
+           "ORDER BY l.orderIndex ASC")
+    Page<EducationLesson> searchLessonsPage(
+        @Param("searchTerm") String searchTerm,
+        @Param("category") EducationCategory category,
+        @Param("level") EducationLevel level,
+        @Param("language") String language,
+        Pageable pageable);
+
+    // PostgreSQL only (V8 search_vector): ranked full-text search, best match first
+    @Query(value = "SELECT l.* FROM education_lessons l " +
+                   "WHERE l.is_published = true AND l.search_vector @@ lesson_search_query(:query) " +
+                   "AND (CAST(:category AS VARCHAR) IS NULL OR l.category = CAST(:category AS VARCHAR)) " +
+                   "AND (CAST(:level AS VARCHAR) IS NULL OR l.level = CAST(:level AS VARCHAR)) " +
+                   "AND (CAST(:language AS VARCHAR) IS NULL OR l.language = CAST(:language AS VARCHAR)) " +
+                   "ORDER BY ts_rank_cd(l.search_vector, lesson_search_query(:query)) DESC, l.order_index ASC, l.id ASC",
+           countQuery = "SELECT COUNT(*) FROM education_lessons l " +
+                   "WHERE l.is_published = true AND l.search_vector @@ lesson_search_query(:query) " +
+                   "AND (CAST(:category AS VARCHAR) IS NULL OR l.category = CAST(:category AS VARCHAR)) " +
+                   "AND (CAST(:level AS VARCHAR) IS NULL OR l.level = CAST(:level AS VARCHAR)) " +
+                   "AND (CAST(:language AS VARCHAR) IS NULL OR l.language = CAST(:language AS VARCHAR))",
+           nativeQuery = true)
+    Page<EducationLesson> fullTextSearch(
+        @Param("query") String query,
+        @Param("category") String category,
+        @Param("level") String level,
+        @Param("language") String language,
+        Pageable pageable);
+
     @Query("SELECT l FROM EducationLesson l WHERE l.isPublished = true ORDER BY l.viewCount DESC")
     List<EducationLesson> findMostPopularLessons();
     
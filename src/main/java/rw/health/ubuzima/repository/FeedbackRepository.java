@@ -0,0 +1,42 @@
+package rw.health.ubuzima.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import rw.health.ubuzima.entity.Feedback;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
+
+    Optional<Feedback> findByTicketId(String ticketId);
+
+    @Query("SELECT f FROM Feedback f WHERE " +
+           "(:category IS NULL OR f.category = :category) AND " +
+           "(:status IS NULL OR f.status = :status) AND " +
+           "(:priority IS NULL OR f.priority = :priority) AND " +
+           "(:platform IS NULL OR f.platform = :platform) AND " +
+           "(:appVersion IS NULL OR f.appVersion = :appVersion) AND " +
+           "(:userId IS NULL OR f.userId = :userId) AND " +
+           "f.createdAt >= :from AND f.createdAt < :to")
+    Page<Feedback> findFiltered(
+        @Param("category") String category,
+        @Param("status") String status,
+        @Param("priority") String priority,
+        @Param("platform") String platform,
+        @Param("appVersion") String appVersion,
+        @Param("userId") Long userId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        Pageable pageable);
+
+    // Status counts as scalars: status, count
+    @Query("SELECT f.status, COUNT(f) FROM Feedback f GROUP BY f.status")
+    List<Object[]> countByStatus();
+}
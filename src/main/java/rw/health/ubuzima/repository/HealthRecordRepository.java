@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import rw.health.ubuzima.entity.HealthRecord;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,14 @@ public interface HealthRecordRepository extends JpaRepository<HealthRecord, Long
     // Find by health status
     List<HealthRecord> findByHealthStatus(String healthStatus);
 
+    // Find records for a set of users
+    List<HealthRecord> findByUserIdIn(Collection<Long> userIds);
+
+    // Latest vitals as scalars, keyset paged by record id: user id, user name, health worker id, heart rate, bp, temperature, last updated, record id
+    @Query("SELECT u.id, u.name, w.id, hr.heartRateValue, hr.bpValue, hr.tempValue, hr.lastUpdated, hr.id FROM HealthRecord hr JOIN hr.user u LEFT JOIN hr.assignedHealthWorker w " +
+           "WHERE hr.id > :afterId AND (hr.heartRateValue IS NOT NULL OR hr.bpValue IS NOT NULL OR hr.tempValue IS NOT NULL) ORDER BY hr.id")
+    List<Object[]> findLatestVitalsAfter(@Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+
     // Find records with complete vitals (all main metrics present)
     @Query("SELECT hr FROM HealthRecord hr WHERE hr.heartRateValue IS NOT NULL AND hr.bpValue IS NOT NULL AND hr.kgValue IS NOT NULL AND hr.tempValue IS NOT NULL")
     List<HealthRecord> findRecordsWithCompleteVitals();
@@ -0,0 +1,32 @@
+package rw.health.ubuzima.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import rw.health.ubuzima.entity.MedicationDose;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MedicationDoseRepository extends JpaRepository<MedicationDose, Long> {
+
+    List<MedicationDose> findByUserIdAndScheduledAtBetweenOrderByScheduledAt(Long userId, LocalDateTime from,
+                                                                              LocalDateTime to);
+
+    /**
+     * [status, count] over all users' doses scheduled in the range
+     */
+    @Query("SELECT d.status, COUNT(d) FROM MedicationDose d WHERE d.scheduledAt >= :from AND d.scheduledAt <= :to " +
+           "GROUP BY d.status")
+    List<Object[]> countByStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * [medicationId, status, count] over one user's doses scheduled in the range
+     */
+    @Query("SELECT d.medicationId, d.status, COUNT(d) FROM MedicationDose d WHERE d.userId = :userId " +
+           "AND d.scheduledAt >= :from AND d.scheduledAt <= :to GROUP BY d.medicationId, d.status")
+    List<Object[]> countByMedicationAndStatus(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+}
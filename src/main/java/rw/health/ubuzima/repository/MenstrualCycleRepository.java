@@ -1,5 +1,6 @@
 package rw.health.ubuzima.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,24 +15,49 @@ import java.util.Optional;
 @Repository
 public interface MenstrualCycleRepository extends JpaRepository<MenstrualCycle, Long> {
     
-    List<MenstrualCycle> findByUserOrderByStartDateDesc(User user);
+    // History views list logged cycles only; forecast rows are read through the prediction queries below
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user = :user AND (mc.isPredicted = false OR mc.isPredicted IS NULL) ORDER BY mc.startDate DESC")
+    List<MenstrualCycle> findLoggedByUserOrderByStartDateDesc(@Param("user") User user);
     
     List<MenstrualCycle> findByUserAndStartDateBetween(User user, LocalDate startDate, LocalDate endDate);
     
     Optional<MenstrualCycle> findByUserAndStartDate(User user, LocalDate startDate);
     
-    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user = :user AND mc.startDate <= :date AND (mc.endDate IS NULL OR mc.endDate >= :date)")
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user = :user AND (mc.isPredicted = false OR mc.isPredicted IS NULL) AND mc.startDate <= :date AND (mc.endDate IS NULL OR mc.endDate >= :date)")
     Optional<MenstrualCycle> findCurrentCycle(@Param("user") User user, @Param("date") LocalDate date);
     
-    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user = :user ORDER BY mc.startDate DESC LIMIT 1")
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user = :user AND (mc.isPredicted = false OR mc.isPredicted IS NULL) ORDER BY mc.startDate DESC LIMIT 1")
     Optional<MenstrualCycle> findLatestCycle(@Param("user") User user);
     
     List<MenstrualCycle> findByUserAndIsPredicted(User user, Boolean isPredicted);
 
     // Additional methods for FamilyPlanningController
-    @Query("SELECT COUNT(mc) FROM MenstrualCycle mc WHERE mc.user.id = :userId")
+    @Query("SELECT COUNT(mc) FROM MenstrualCycle mc WHERE mc.user.id = :userId AND (mc.isPredicted = false OR mc.isPredicted IS NULL)")
     long countByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id = :userId ORDER BY mc.startDate DESC")
+    @Query("SELECT COUNT(mc) FROM MenstrualCycle mc WHERE mc.isPredicted = false OR mc.isPredicted IS NULL")
+    long countActualCycles();
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id = :userId AND (mc.isPredicted = false OR mc.isPredicted IS NULL) ORDER BY mc.startDate DESC")
     List<MenstrualCycle> findByUserIdOrderByStartDateDesc(@Param("userId") Long userId);
+
+    // ============ FORECASTS ============
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id = :userId AND (mc.isPredicted = false OR mc.isPredicted IS NULL) ORDER BY mc.startDate ASC")
+    List<MenstrualCycle> findActualCyclesAsc(@Param("userId") Long userId);
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id = :userId AND mc.isPredicted = true ORDER BY mc.startDate ASC")
+    List<MenstrualCycle> findPredictedCyclesAsc(@Param("userId") Long userId);
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id IN :userIds AND (mc.isPredicted = false OR mc.isPredicted IS NULL) ORDER BY mc.user.id, mc.startDate ASC")
+    List<MenstrualCycle> findActualCyclesForUsers(@Param("userIds") List<Long> userIds);
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id IN :userIds AND mc.isPredicted = true ORDER BY mc.user.id, mc.startDate ASC")
+    List<MenstrualCycle> findPredictedCyclesForUsers(@Param("userIds") List<Long> userIds);
+
+    @Query("SELECT DISTINCT mc.user.id FROM MenstrualCycle mc WHERE mc.user.id > :afterId ORDER BY mc.user.id")
+    List<Long> findUserIdsWithCyclesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT mc FROM MenstrualCycle mc WHERE mc.user.id = :userId AND mc.isPredicted = true AND mc.startDate >= :fromDate ORDER BY mc.startDate ASC")
+    List<MenstrualCycle> findUpcomingPredictions(@Param("userId") Long userId, @Param("fromDate") LocalDate fromDate, Pageable pageable);
 }
@@ -3,6 +3,7 @@ package rw.health.ubuzima.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -53,6 +54,53 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
            "WHERE m.id = :messageId")
     Message findByIdWithUsers(@Param("messageId") Long messageId);
 
+    // ============ KEYSET HISTORY ============
+    // Pages walk backwards on (createdAt, id), backed by idx_messages_pair_created_id
+
+    @Query("SELECT m FROM Message m " +
+           "LEFT JOIN FETCH m.sender " +
+           "LEFT JOIN FETCH m.receiver " +
+           "WHERE ((m.sender.id = :user1Id AND m.receiver.id = :user2Id) OR " +
+           "(m.sender.id = :user2Id AND m.receiver.id = :user1Id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findLatestConversationPage(@Param("user1Id") Long user1Id,
+                                             @Param("user2Id") Long user2Id,
+                                             Pageable pageable);
+
+    @Query("SELECT m FROM Message m " +
+           "LEFT JOIN FETCH m.sender " +
+           "LEFT JOIN FETCH m.receiver " +
+           "WHERE ((m.sender.id = :user1Id AND m.receiver.id = :user2Id) OR " +
+           "(m.sender.id = :user2Id AND m.receiver.id = :user1Id)) " +
+           "AND (m.createdAt < :beforeCreatedAt OR (m.createdAt = :beforeCreatedAt AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findConversationPageBefore(@Param("user1Id") Long user1Id,
+                                             @Param("user2Id") Long user2Id,
+                                             @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    // Most recent messages between two users that are still visible to both, used to refresh the inbox preview
+    @Query("SELECT m FROM Message m WHERE " +
+           "((m.sender.id = :user1Id AND m.receiver.id = :user2Id) OR " +
+           "(m.sender.id = :user2Id AND m.receiver.id = :user1Id)) " +
+           "AND (m.deletedForEveryone IS NULL OR m.deletedForEveryone = false) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findLatestVisibleMessages(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id, Pageable pageable);
+
+    // Marks one message read only if it still is unread; returns 0 when another request got there first
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt " +
+           "WHERE m.id = :messageId AND (m.isRead = false OR m.isRead IS NULL)")
+    int markReadIfUnread(@Param("messageId") Long messageId, @Param("readAt") LocalDateTime readAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt, m.messageStatus = 'READ' " +
+           "WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId AND (m.isRead = false OR m.isRead IS NULL)")
+    int markConversationRead(@Param("senderId") Long senderId,
+                             @Param("receiverId") Long receiverId,
+                             @Param("readAt") LocalDateTime readAt);
+
     // Voice note cleanup queries
     @Query("SELECT m FROM Message m WHERE m.messageType IN ('AUDIO', 'VOICE') AND m.createdAt < :cutoffDate AND m.audioUrl IS NOT NULL")
     List<Message> findOldAudioMessages(@Param("cutoffDate") LocalDateTime cutoffDate);
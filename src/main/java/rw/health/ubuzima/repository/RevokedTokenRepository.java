@@ -0,0 +1,32 @@
+package rw.health.ubuzima.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.entity.RevokedToken;
+import rw.health.ubuzima.enums.RevocationType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    Optional<RevokedToken> findByTypeAndRevokedKey(RevocationType type, String revokedKey);
+
+    boolean existsByTypeAndRevokedKey(RevocationType type, String revokedKey);
+
+    List<RevokedToken> findByExpiresAtAfter(LocalDateTime now);
+
+    // Incremental refresh: rows written or updated since the last poll
+    List<RevokedToken> findByUpdatedAtGreaterThanEqualAndExpiresAtAfter(LocalDateTime since, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
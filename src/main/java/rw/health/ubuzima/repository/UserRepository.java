@@ -63,6 +63,29 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Push notification related methods
     List<User> findByDeviceTokenIsNotNull();
 
+    @Query("SELECT u.id, u.deviceToken FROM User u WHERE u.id IN :userIds AND u.deviceToken IS NOT NULL AND u.deviceToken <> ''")
+    List<Object[]> findDeviceTokensByIdIn(@Param("userIds") java.util.Collection<Long> userIds);
+
+    @Query("SELECT u.id, u.deviceToken FROM User u WHERE u.id > :afterId AND u.deviceToken IS NOT NULL AND u.deviceToken <> '' ORDER BY u.id")
+    List<Object[]> findDeviceTokensAfter(@Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+
+    // Drop device tokens that FCM reported as unregistered or invalid
+    @org.springframework.transaction.annotation.Transactional
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("UPDATE User u SET u.deviceToken = NULL WHERE u.deviceToken IN :tokens")
+    int clearDeviceTokens(@Param("tokens") java.util.Collection<String> tokens);
+
+    // Which of the given ids belong to existing users
+    @Query("SELECT u.id FROM User u WHERE u.id IN :userIds")
+    List<Long> findExistingIds(@Param("userIds") java.util.Collection<Long> userIds);
+
+    // Keyset id streaming for broadcast jobs
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+
+    @Query("SELECT u.id FROM User u WHERE u.role = :role AND u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsByRoleAfter(@Param("role") UserRole role, @Param("afterId") Long afterId, org.springframework.data.domain.Pageable pageable);
+
     // Analytics methods needed by AnalyticsServiceImpl
     long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
     long countByStatus(UserStatus status);
@@ -83,6 +106,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.village = :village AND u.role = 'CLIENT' AND u.status = 'ACTIVE'")
     List<User> findActiveClientsByVillage(@Param("village") String village);
 
+    @Query("SELECT COUNT(u) FROM User u WHERE u.village = :village AND u.role = 'CLIENT' AND u.status = 'ACTIVE'")
+    long countActiveClientsByVillage(@Param("village") String village);
+
     // ============ ADVANCED SEARCH METHODS ============
 
     List<User> findByNameContainingIgnoreCase(String name);
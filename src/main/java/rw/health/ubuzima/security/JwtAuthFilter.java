@@ -1,5 +1,6 @@
 package rw.health.ubuzima.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,6 +14,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import rw.health.ubuzima.util.JwtUtil;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 @Component
@@ -20,6 +22,7 @@ import java.util.List;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -36,13 +39,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             // Extract token
             String token = authHeader.substring(7);
             
-            // Validate token and get claims
-            String username = jwtUtil.extractUsername(token);
-            String role = jwtUtil.extractRole(token);
-            Long userId = jwtUtil.extractUserId(token);
+            // Validate token once and read every claim from the result
+            Claims claims = jwtUtil.extractAllClaims(token);
+            String username = claims.getSubject();
+            String role = claims.get("role", String.class);
             
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (!jwtUtil.isTokenExpired(token)) {
+            // In-memory deny-list check; revoked tokens stay unauthenticated
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                    && !tokenRevocationService.isRevoked(claims)) {
+                if (claims.getExpiration() == null || claims.getExpiration().after(new Date())) {
                     // Create authentication token with user details and role
                     var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
                     var authToken = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,161 @@
+package rw.health.ubuzima.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verifies JWTs and caches their claims.
+ * The HMAC key and parser are built once; verified tokens are kept in a bounded cache until they
+ * expire (or the entry TTL passes), so a token is signature-checked once rather than once per claim
+ * lookup on every request. Lookups are lock-free (ConcurrentHashMap); when the cache grows past its
+ * bound, one thread trims it back to 90% by dropping expired entries and then the least recently
+ * used ones, while other requests carry on.
+ */
+@Component
+public class JwtClaimsResolver {
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final int maxEntries;
+    private final long maxEntryTtlMillis;
+    private final Map<String, CachedClaims> cache = new ConcurrentHashMap<>(256);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public JwtClaimsResolver(@Value("${ubuzima.jwt.secret}") String secret,
+                             @Value("${ubuzima.jwt.claims-cache.max-entries:10000}") int maxEntries,
+                             @Value("${ubuzima.jwt.claims-cache.max-entry-ttl-seconds:300}") long maxEntryTtlSeconds,
+                             MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.maxEntries = maxEntries;
+        this.maxEntryTtlMillis = maxEntryTtlSeconds * 1000L;
+
+        this.hits = Counter.builder("ubuzima.jwt.claims.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("ubuzima.jwt.claims.cache").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("ubuzima.jwt.claims.cache.evictions").register(meterRegistry);
+        meterRegistry.gauge("ubuzima.jwt.claims.cache.size", this, resolver -> resolver.size());
+    }
+
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Verified claims of a token.
+     *
+     * @throws io.jsonwebtoken.JwtException when the token is invalid or expired
+     */
+    public Claims resolve(String token) {
+        long now = System.currentTimeMillis();
+
+        CachedClaims cached = cache.get(token);
+        if (cached != null) {
+            if (cached.validUntil > now) {
+                cached.lastAccess = now;
+                hits.increment();
+                return cached.claims;
+            }
+            cache.remove(token, cached);
+        }
+
+        misses.increment();
+        // An expired or tampered token throws and is never cached
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+
+        Date expiration = claims.getExpiration();
+        long validUntil = now + maxEntryTtlMillis;
+        if (expiration != null) {
+            validUntil = Math.min(validUntil, expiration.getTime());
+        }
+
+        cache.put(token, new CachedClaims(claims, validUntil, now));
+        if (cache.size() > maxEntries) {
+            trim(now);
+        }
+        return claims;
+    }
+
+    public void invalidate(String token) {
+        cache.remove(token);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Drop expired entries, then the least recently used ones, down to 90% of the bound. Only one
+     * thread trims at a time; the others skip it, so the cache may briefly run over its bound.
+     */
+    private void trim(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxEntries - maxEntries / 10;
+            int removed = 0;
+            // Access times are snapshotted so concurrent hits can't reorder entries mid-sort
+            List<Candidate> live = new ArrayList<>(cache.size());
+            for (Map.Entry<String, CachedClaims> entry : cache.entrySet()) {
+                if (entry.getValue().validUntil <= now) {
+                    if (cache.remove(entry.getKey(), entry.getValue())) {
+                        removed++;
+                    }
+                } else {
+                    live.add(new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccess));
+                }
+            }
+
+            int excess = cache.size() - target;
+            if (excess > 0) {
+                live.sort((a, b) -> Long.compare(a.lastAccess(), b.lastAccess()));
+                for (int i = 0; i < live.size() && excess > 0; i++) {
+                    if (cache.remove(live.get(i).token(), live.get(i).claims())) {
+                        removed++;
+                        excess--;
+                    }
+                }
+            }
+            evictions.increment(removed);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private record Candidate(String token, CachedClaims claims, long lastAccess) {
+    }
+
+    private static final class CachedClaims {
+        private final Claims claims;
+        private final long validUntil;
+        private volatile long lastAccess;
+
+        private CachedClaims(Claims claims, long validUntil, long lastAccess) {
+            this.claims = claims;
+            this.validUntil = validUntil;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package rw.health.ubuzima.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bloom filter over revoked token keys.
+ * A negative answer is definite, so the common case (token not revoked) never touches
+ * the exact set. Bloom filters can't delete, so the owner rebuilds it when entries expire.
+ */
+class RevocationBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    RevocationBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    void put(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            int word = bit >>> 6;
+            long mask = 1L << (bit & 63);
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long combinedHash) {
+        return (int) ((combinedHash & Long.MAX_VALUE) % bitCount);
+    }
+
+    // FNV-1a over the UTF-8 bytes, finalized with a 64-bit mixer
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,336 @@
+package rw.health.ubuzima.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.entity.RevokedToken;
+import rw.health.ubuzima.enums.RevocationReason;
+import rw.health.ubuzima.enums.RevocationType;
+import rw.health.ubuzima.repository.RevokedTokenRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWT revocation.
+ * Revocations are persisted in revoked_tokens and mirrored in memory: a bloom filter in front of
+ * an exact key map for jti/family revocations, plus a per-user "not before" map for forced logouts.
+ * isRevoked never touches the database; the in-memory view is refreshed incrementally from the
+ * table on a short interval (so revocations on other instances apply within that interval) and
+ * rebuilt periodically to drop expired entries.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    public static final String FAMILY_CLAIM = "fid";
+
+    private static final String TOKEN_PREFIX = "t:";
+    private static final String FAMILY_PREFIX = "f:";
+    private static final long REFRESH_OVERLAP_SECONDS = 10;
+
+    /**
+     * Outcome of presenting a refresh token for rotation
+     */
+    public enum RotationResult {
+        ROTATED,
+        REUSED,
+        REVOKED
+    }
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TransactionTemplate requiresNewTemplate;
+
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final long refreshExpirationMillis;
+
+    private volatile RevocationBloomFilter bloomFilter;
+    private volatile Map<String, Long> revokedKeys = new ConcurrentHashMap<>();
+    private volatile Map<Long, Long> userNotBefore = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRefreshStartedAt;
+
+    private final Counter bloomNegatives;
+    private final Counter bloomFalsePositives;
+    private final Counter revokedRejections;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${ubuzima.jwt.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${ubuzima.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${ubuzima.jwt.refresh-expiration}") long refreshExpirationMillis) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshExpirationMillis = refreshExpirationMillis;
+        this.bloomFilter = new RevocationBloomFilter(expectedEntries, falsePositiveRate);
+
+        this.bloomNegatives = Counter.builder("ubuzima.jwt.revocation.checks").tag("result", "bloom_negative").register(meterRegistry);
+        this.bloomFalsePositives = Counter.builder("ubuzima.jwt.revocation.checks").tag("result", "false_positive").register(meterRegistry);
+        this.revokedRejections = Counter.builder("ubuzima.jwt.revocation.checks").tag("result", "revoked").register(meterRegistry);
+        meterRegistry.gauge("ubuzima.jwt.revocation.entries", this, service -> service.revokedKeys.size());
+    }
+
+    /**
+     * In-memory revocation check for verified claims
+     */
+    public boolean isRevoked(Claims claims) {
+        if (isKeyRevoked(TOKEN_PREFIX, claims.getId())
+                || isKeyRevoked(FAMILY_PREFIX, claims.get(FAMILY_CLAIM, String.class))) {
+            return true;
+        }
+
+        if (isUserCutOff(claims.get("userId", Long.class), claims.getIssuedAt())) {
+            revokedRejections.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Revoke a single token by its jti
+     */
+    public void revokeToken(Claims claims, RevocationReason reason) {
+        if (claims.getId() == null) {
+            return;
+        }
+        RevokedToken entry = newEntry(RevocationType.TOKEN, claims.getId(), claims.get("userId", Long.class), reason,
+            toLocalDateTime(claims.getExpiration()));
+        saveIgnoringDuplicate(entry);
+        apply(entry);
+    }
+
+    /**
+     * Revoke every token (access and refresh) issued in a refresh-token family
+     */
+    public void revokeFamily(String familyId, Long userId, RevocationReason reason) {
+        if (familyId == null) {
+            return;
+        }
+        RevokedToken entry = newEntry(RevocationType.FAMILY, familyId, userId, reason, refreshHorizon());
+        saveIgnoringDuplicate(entry);
+        apply(entry);
+        log.info("Revoked token family {} for user {} ({})", familyId, userId, reason);
+    }
+
+    /**
+     * Revoke every token issued to a user up to now (forced logout)
+     */
+    public void revokeAllForUser(Long userId, RevocationReason reason) {
+        LocalDateTime now = LocalDateTime.now();
+        RevokedToken entry = requiresNewTemplate.execute(status -> {
+            RevokedToken row = revokedTokenRepository.findByTypeAndRevokedKey(RevocationType.USER, userId.toString())
+                .orElseGet(() -> newEntry(RevocationType.USER, userId.toString(), userId, reason, null));
+            row.setReason(reason);
+            row.setNotBefore(now);
+            row.setExpiresAt(refreshHorizon());
+            return revokedTokenRepository.save(row);
+        });
+        apply(entry);
+        log.info("Revoked all tokens for user {} ({})", userId, reason);
+    }
+
+    /**
+     * Mark a refresh token as used. A token that was already used means it leaked:
+     * its whole family is revoked and REUSED is returned.
+     */
+    public RotationResult rotateRefreshToken(Claims claims) {
+        String familyId = claims.get(FAMILY_CLAIM, String.class);
+        Long userId = claims.get("userId", Long.class);
+
+        if (isKeyRevoked(FAMILY_PREFIX, familyId) || isUserCutOff(userId, claims.getIssuedAt())) {
+            return RotationResult.REVOKED;
+        }
+        if (claims.getId() == null) {
+            // Issued before rotation existed; nothing to record
+            return RotationResult.ROTATED;
+        }
+
+        RevokedToken entry = newEntry(RevocationType.TOKEN, claims.getId(), userId, RevocationReason.ROTATED,
+            toLocalDateTime(claims.getExpiration()));
+        try {
+            // The unique (type, key) constraint makes concurrent rotations of one token race-free
+            requiresNewTemplate.executeWithoutResult(status -> revokedTokenRepository.saveAndFlush(entry));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Refresh token reuse detected for user {}", userId);
+            revokeFamily(familyId, userId, RevocationReason.REUSE_DETECTED);
+            return RotationResult.REUSED;
+        }
+
+        apply(entry);
+        return RotationResult.ROTATED;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Pull revocations written since the last poll (including other instances')
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.jwt.revocation.refresh-interval-ms:5000}",
+               initialDelayString = "${ubuzima.jwt.revocation.refresh-interval-ms:5000}")
+    public void refreshIncrementally() {
+        LocalDateTime since = lastRefreshStartedAt;
+        if (since == null) {
+            return;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            // Overlap covers rows whose transactions committed after their updated_at was stamped
+            List<RevokedToken> changed = revokedTokenRepository.findByUpdatedAtGreaterThanEqualAndExpiresAtAfter(
+                since.minusSeconds(REFRESH_OVERLAP_SECONDS), startedAt);
+            changed.forEach(this::apply);
+            lastRefreshStartedAt = startedAt;
+        } catch (Exception e) {
+            log.error("Failed to refresh token revocations", e);
+        }
+    }
+
+    /**
+     * Rebuild from the table so expired entries leave the bloom filter, and purge expired rows
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.jwt.revocation.rebuild-interval-ms:3600000}",
+               initialDelayString = "${ubuzima.jwt.revocation.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            int purged = revokedTokenRepository.deleteExpired(startedAt);
+            List<RevokedToken> active = revokedTokenRepository.findByExpiresAtAfter(startedAt);
+
+            RevocationBloomFilter newFilter = new RevocationBloomFilter(Math.max(expectedEntries, active.size() * 2), falsePositiveRate);
+            Map<String, Long> newKeys = new ConcurrentHashMap<>();
+            Map<Long, Long> newNotBefore = new ConcurrentHashMap<>();
+            for (RevokedToken entry : active) {
+                apply(entry, newFilter, newKeys, newNotBefore);
+            }
+
+            // Keys must be visible before the filter that points at them
+            revokedKeys = newKeys;
+            userNotBefore = newNotBefore;
+            bloomFilter = newFilter;
+            lastRefreshStartedAt = startedAt;
+
+            log.info("Loaded {} active token revocations ({} expired purged)", active.size(), purged);
+        } catch (Exception e) {
+            log.error("Failed to rebuild token revocations", e);
+        }
+    }
+
+    private boolean isKeyRevoked(String prefix, String value) {
+        if (value == null) {
+            return false;
+        }
+        String key = prefix + value;
+        if (!bloomFilter.mightContain(key)) {
+            bloomNegatives.increment();
+            return false;
+        }
+
+        Long expiresAt = revokedKeys.get(key);
+        if (expiresAt == null) {
+            bloomFalsePositives.increment();
+            return false;
+        }
+        revokedRejections.increment();
+        return true;
+    }
+
+    /**
+     * Issue time for a new token of this user. iat has second precision, so a token issued in the
+     * same second as a forced logout is stamped with the next second to stay valid after the cutoff.
+     */
+    public Date issuedAtFor(Long userId) {
+        long now = System.currentTimeMillis();
+        Long notBefore = userId != null ? userNotBefore.get(userId) : null;
+        if (notBefore == null) {
+            return new Date(now);
+        }
+        return new Date(Math.max(now, cutoffSecond(notBefore) + 1000L));
+    }
+
+    private boolean isUserCutOff(Long userId, Date issuedAt) {
+        Long notBefore = userId != null ? userNotBefore.get(userId) : null;
+        // iat is truncated to the second, so any token stamped in the cutoff's second may predate the
+        // revocation and is rejected; new tokens are stamped after it (see issuedAtFor)
+        return notBefore != null && issuedAt != null && issuedAt.getTime() <= cutoffSecond(notBefore);
+    }
+
+    private static long cutoffSecond(long notBefore) {
+        return notBefore - Math.floorMod(notBefore, 1000L);
+    }
+
+    private void apply(RevokedToken entry) {
+        apply(entry, bloomFilter, revokedKeys, userNotBefore);
+    }
+
+    private void apply(RevokedToken entry, RevocationBloomFilter filter, Map<String, Long> keys, Map<Long, Long> notBefore) {
+        long expiresAt = toEpochMillis(entry.getExpiresAt());
+        switch (entry.getType()) {
+            case TOKEN -> {
+                keys.put(TOKEN_PREFIX + entry.getRevokedKey(), expiresAt);
+                filter.put(TOKEN_PREFIX + entry.getRevokedKey());
+            }
+            case FAMILY -> {
+                keys.put(FAMILY_PREFIX + entry.getRevokedKey(), expiresAt);
+                filter.put(FAMILY_PREFIX + entry.getRevokedKey());
+            }
+            case USER -> {
+                if (entry.getUserId() != null && entry.getNotBefore() != null) {
+                    notBefore.merge(entry.getUserId(), toEpochMillis(entry.getNotBefore()), Math::max);
+                }
+            }
+        }
+    }
+
+    private void saveIgnoringDuplicate(RevokedToken entry) {
+        try {
+            requiresNewTemplate.executeWithoutResult(status -> revokedTokenRepository.saveAndFlush(entry));
+        } catch (DataIntegrityViolationException e) {
+            // Already revoked
+        }
+    }
+
+    private RevokedToken newEntry(RevocationType type, String key, Long userId, RevocationReason reason, LocalDateTime expiresAt) {
+        RevokedToken entry = new RevokedToken();
+        entry.setType(type);
+        entry.setRevokedKey(key);
+        entry.setUserId(userId);
+        entry.setReason(reason);
+        entry.setExpiresAt(expiresAt != null ? expiresAt : refreshHorizon());
+        return entry;
+    }
+
+    // Latest expiry of any token issued now
+    private LocalDateTime refreshHorizon() {
+        return LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMillis));
+    }
+
+    private LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+
+    private long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
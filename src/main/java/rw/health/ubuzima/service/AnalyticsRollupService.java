@@ -0,0 +1,404 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.AnalyticsSubject;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Daily analytics facts.
+ * Each subject (users, appointments, ...) is aggregated per day, facility, district, role,
+ * status and category into analytics_daily_facts. A scheduled job finds the days whose source
+ * rows changed since its last run through updated_at and recomputes only those days; a nightly
+ * rebuild recomputes everything so hard deletes and moved dates are picked up. Analytics and
+ * reports then sum a range of fact rows instead of counting the source tables.
+ * Only updated_at is watched, so bulk JDBC or JPQL updates that don't set it (such as marking
+ * messages read) reach the facts with the nightly rebuild: counts split by a column changed that
+ * way can lag by up to a day. Bulk updates that should show sooner must set updated_at too.
+ */
+@Service
+@Slf4j
+public class AnalyticsRollupService {
+
+    public static final String FACILITY = "facility_id";
+    public static final String DISTRICT = "district";
+    public static final String ROLE = "user_role";
+    public static final String STATUS = "status";
+    public static final String CATEGORY = "category";
+
+    private static final List<String> DIMENSIONS = List.of(FACILITY, DISTRICT, ROLE, STATUS, CATEGORY);
+    private static final LocalDate MIN_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 1, 1);
+    // Rows committed by transactions still running at the previous watermark are picked up again
+    private static final long WATERMARK_OVERLAP_MINUTES = 5;
+
+    /**
+     * How one subject is aggregated: source tables (main table aliased x, owning user u), the
+     * column that dates a row, the column that tells it changed, one expression per dimension,
+     * and which rows count (null for all). The condition is left out when looking for changed
+     * days, so a row that stops matching still gets its day recomputed.
+     */
+    private record FactDefinition(String from, String dateColumn, String changeColumn, List<String> dimensions,
+                                  String condition) {
+
+        FactDefinition(String from, String dateColumn, String changeColumn, List<String> dimensions) {
+            this(from, dateColumn, changeColumn, dimensions, null);
+        }
+    }
+
+    private static final Map<AnalyticsSubject, FactDefinition> DEFINITIONS = new EnumMap<>(AnalyticsSubject.class);
+
+    static {
+        DEFINITIONS.put(AnalyticsSubject.USERS, new FactDefinition(
+            "users x", "x.created_at", "x.updated_at",
+            List.of("COALESCE(x.facility_id, '')", "COALESCE(x.district, '')", "x.role", "x.status",
+                "COALESCE(x.gender, '')")));
+        DEFINITIONS.put(AnalyticsSubject.VERIFIED_USERS, new FactDefinition(
+            "users x", "x.created_at", "x.updated_at",
+            List.of("COALESCE(x.facility_id, '')", "COALESCE(x.district, '')", "x.role", "x.status",
+                "COALESCE(x.gender, '')"),
+            "x.email_verified = TRUE"));
+        DEFINITIONS.put(AnalyticsSubject.APPOINTMENTS, new FactDefinition(
+            "appointments x JOIN users u ON u.id = x.user_id", "x.scheduled_date", "x.updated_at",
+            List.of("CAST(x.health_facility_id AS VARCHAR(50))", "COALESCE(u.district, '')", "COALESCE(u.role, '')",
+                "x.status", "x.appointment_type")));
+        DEFINITIONS.put(AnalyticsSubject.HEALTH_RECORDS, userOwned(
+            "health_records x JOIN users u ON u.id = x.user_id", "x.created_at",
+            "COALESCE(x.health_status, '')", "''"));
+        DEFINITIONS.put(AnalyticsSubject.CONTRACEPTION_METHODS, userOwned(
+            "contraception_methods x JOIN users u ON u.id = x.user_id", "x.created_at",
+            flag("x.is_active", "active", "inactive"), "x.contraception_type"));
+        DEFINITIONS.put(AnalyticsSubject.EDUCATION_PROGRESS, userOwned(
+            "education_progress x JOIN users u ON u.id = x.user_id", "x.created_at",
+            flag("x.is_completed", "completed", "in_progress"), "''"));
+        DEFINITIONS.put(AnalyticsSubject.SUPPORT_TICKETS, userOwned(
+            "support_tickets x LEFT JOIN users u ON u.id = x.user_id", "x.created_at",
+            "COALESCE(x.status, '')", "x.ticket_type"));
+        DEFINITIONS.put(AnalyticsSubject.NOTIFICATIONS, userOwned(
+            "notifications x JOIN users u ON u.id = x.user_id", "x.created_at",
+            flag("x.is_read", "read", "unread"), "COALESCE(x.notification_type, '')"));
+        DEFINITIONS.put(AnalyticsSubject.MEDICATIONS, userOwned(
+            "medications x JOIN users u ON u.id = x.user_id", "x.created_at",
+            flag("x.is_active", "active", "inactive"), "''"));
+        DEFINITIONS.put(AnalyticsSubject.MESSAGES, userOwned(
+            "messages x JOIN users u ON u.id = x.sender_id", "x.created_at",
+            flag("x.is_read", "read", "unread"), "''"));
+        DEFINITIONS.put(AnalyticsSubject.SIDE_EFFECT_REPORTS, userOwned(
+            "side_effect_reports x JOIN users u ON u.id = x.user_id", "x.created_at", "''", "''"));
+        DEFINITIONS.put(AnalyticsSubject.COMMUNITY_EVENTS, userOwned(
+            "community_events x JOIN users u ON u.id = x.organizer_id", "x.event_date",
+            flag("x.is_cancelled", "cancelled", "scheduled"), "x.type"));
+    }
+
+    /**
+     * Fact counts of one subject: everything, and the part inside the requested date range
+     */
+    public static final class Summary {
+        private long total;
+        private long inRange;
+        private final Map<String, Map<String, long[]>> breakdowns = new HashMap<>();
+
+        public long total() {
+            return total;
+        }
+
+        public long inRange() {
+            return inRange;
+        }
+
+        public long count(String dimension, String value) {
+            long[] counts = breakdowns.getOrDefault(dimension, Map.of()).get(value);
+            return counts != null ? counts[0] : 0L;
+        }
+
+        public long countInRange(String dimension, String value) {
+            long[] counts = breakdowns.getOrDefault(dimension, Map.of()).get(value);
+            return counts != null ? counts[1] : 0L;
+        }
+
+        /**
+         * Counts per value of a dimension, empty values left out
+         */
+        public Map<String, Long> breakdown(String dimension, boolean rangeOnly) {
+            Map<String, Long> result = new TreeMap<>();
+            breakdowns.getOrDefault(dimension, Map.of()).forEach((value, counts) -> {
+                long count = rangeOnly ? counts[1] : counts[0];
+                if (!value.isEmpty() && count > 0) {
+                    result.put(value, count);
+                }
+            });
+            return result;
+        }
+
+        private void add(String dimension, String value, long total, long inRange) {
+            long[] counts = breakdowns.computeIfAbsent(dimension, key -> new HashMap<>())
+                .computeIfAbsent(value, key -> new long[2]);
+            counts[0] += total;
+            counts[1] += inRange;
+        }
+    }
+
+    /**
+     * Optional restriction to one facility, district or role; null means no restriction
+     */
+    public record FactFilter(String facilityId, String district, String role) {
+        public static final FactFilter NONE = new FactFilter(null, null, null);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService rollupExecutor;
+
+    private volatile LocalDateTime lastRunAt;
+
+    public AnalyticsRollupService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rollupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * When the facts were last brought up to date, or null before the first run
+     */
+    public LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+
+    /**
+     * Sum facts of the given subjects in one query.
+     *
+     * @param from first day of the range, inclusive; null for unbounded
+     * @param to   last day of the range, inclusive; null for unbounded
+     */
+    public Map<AnalyticsSubject, Summary> summarize(Collection<AnalyticsSubject> subjects, LocalDate from,
+                                                    LocalDate to, FactFilter filter) {
+        Map<AnalyticsSubject, Summary> summaries = new EnumMap<>(AnalyticsSubject.class);
+        subjects.forEach(subject -> summaries.put(subject, new Summary()));
+        if (subjects.isEmpty()) {
+            return summaries;
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(Date.valueOf(from != null ? from : MIN_DATE));
+        args.add(Date.valueOf(to != null ? to : MAX_DATE));
+        StringBuilder sql = new StringBuilder("SELECT subject, facility_id, district, user_role, status, category, ")
+            .append("SUM(fact_count), SUM(CASE WHEN fact_date BETWEEN ? AND ? THEN fact_count ELSE 0 END) ")
+            .append("FROM analytics_daily_facts WHERE subject IN (")
+            .append(subjects.stream().map(subject -> "?").collect(Collectors.joining(", ")))
+            .append(")");
+        subjects.forEach(subject -> args.add(subject.name()));
+        appendFilter(sql, args, filter);
+        sql.append(" GROUP BY subject, facility_id, district, user_role, status, category");
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            Summary summary = summaries.get(AnalyticsSubject.valueOf(rs.getString(1)));
+            long total = rs.getLong(7);
+            long inRange = rs.getLong(8);
+            summary.total += total;
+            summary.inRange += inRange;
+            for (int i = 0; i < DIMENSIONS.size(); i++) {
+                summary.add(DIMENSIONS.get(i), rs.getString(i + 2), total, inRange);
+            }
+        }, args.toArray());
+        return summaries;
+    }
+
+    public Summary summarize(AnalyticsSubject subject, LocalDate from, LocalDate to, FactFilter filter) {
+        return summarize(List.of(subject), from, to, filter).get(subject);
+    }
+
+    /**
+     * Count per day for a subject, days without facts included as zero
+     */
+    public Map<LocalDate, Long> dailySeries(AnalyticsSubject subject, LocalDate from, LocalDate to, FactFilter filter) {
+        Map<LocalDate, Long> series = new TreeMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            series.put(day, 0L);
+        }
+        List<Object> args = new ArrayList<>(List.of(subject.name(), Date.valueOf(from), Date.valueOf(to)));
+        StringBuilder sql = new StringBuilder("SELECT fact_date, SUM(fact_count) FROM analytics_daily_facts ")
+            .append("WHERE subject = ? AND fact_date BETWEEN ? AND ?");
+        appendFilter(sql, args, filter);
+        sql.append(" GROUP BY fact_date");
+        jdbcTemplate.query(sql.toString(), rs -> {
+            series.put(rs.getDate(1).toLocalDate(), rs.getLong(2));
+        }, args.toArray());
+        return series;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rollupExecutor.submit(() -> {
+            try {
+                Integer tracked = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analytics_rollup_state", Integer.class);
+                if (tracked == null || tracked < DEFINITIONS.size()) {
+                    rebuildAll();
+                } else {
+                    refreshChangedDays();
+                }
+            } catch (Exception e) {
+                log.error("Failed to initialize analytics facts", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rollupExecutor.shutdownNow();
+    }
+
+    /**
+     * Recompute the days whose source rows changed since the last run
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.analytics.rollup-interval-ms:300000}",
+               initialDelayString = "${ubuzima.analytics.rollup-interval-ms:300000}")
+    public synchronized void refreshChangedDays() {
+        int days = 0;
+        for (AnalyticsSubject subject : DEFINITIONS.keySet()) {
+            try {
+                days += refreshSubject(subject);
+            } catch (Exception e) {
+                log.error("Failed to refresh {} analytics facts", subject, e);
+            }
+        }
+        lastRunAt = LocalDateTime.now();
+        if (days > 0) {
+            log.info("Recomputed {} changed analytics fact days", days);
+        }
+    }
+
+    /**
+     * Recompute all facts from scratch
+     */
+    @Scheduled(cron = "${ubuzima.analytics.full-rebuild-cron:0 30 2 * * *}")
+    public synchronized void rebuildAll() {
+        long started = System.currentTimeMillis();
+        for (Map.Entry<AnalyticsSubject, FactDefinition> entry : DEFINITIONS.entrySet()) {
+            AnalyticsSubject subject = entry.getKey();
+            try {
+                LocalDateTime runStartedAt = LocalDateTime.now();
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("DELETE FROM analytics_daily_facts WHERE subject = ?", subject.name());
+                    jdbcTemplate.update(insertSql(entry.getValue(), null), subject.name());
+                    saveWatermark(subject, runStartedAt);
+                });
+            } catch (Exception e) {
+                log.error("Failed to rebuild {} analytics facts", subject, e);
+            }
+        }
+        lastRunAt = LocalDateTime.now();
+        log.info("Rebuilt analytics facts in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private int refreshSubject(AnalyticsSubject subject) {
+        FactDefinition definition = DEFINITIONS.get(subject);
+        LocalDateTime runStartedAt = LocalDateTime.now();
+        Timestamp watermark = jdbcTemplate.query("SELECT watermark FROM analytics_rollup_state WHERE subject = ?",
+            rs -> rs.next() ? rs.getTimestamp(1) : null, subject.name());
+        if (watermark == null) {
+            return 0;
+        }
+
+        List<LocalDate> changedDays = jdbcTemplate.query(
+            "SELECT DISTINCT CAST(" + definition.dateColumn() + " AS DATE) FROM " + definition.from() +
+                " WHERE " + definition.changeColumn() + " >= ?",
+            (rs, rowNum) -> rs.getDate(1).toLocalDate(), watermark);
+
+        String insertSql = insertSql(definition, definition.dateColumn() + " >= ? AND " + definition.dateColumn() + " < ?");
+        for (LocalDate day : changedDays) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM analytics_daily_facts WHERE subject = ? AND fact_date = ?",
+                    subject.name(), Date.valueOf(day));
+                jdbcTemplate.update(insertSql, subject.name(), Timestamp.valueOf(day.atStartOfDay()),
+                    Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> saveWatermark(subject, runStartedAt));
+        return changedDays.size();
+    }
+
+    private String insertSql(FactDefinition definition, String range) {
+        String day = "CAST(" + definition.dateColumn() + " AS DATE)";
+        String condition = range == null ? definition.condition()
+            : definition.condition() == null ? range : range + " AND " + definition.condition();
+        return "INSERT INTO analytics_daily_facts (fact_date, subject, facility_id, district, user_role, status, " +
+            "category, fact_count) SELECT fact_date, ?, facility_id, district, user_role, status, category, COUNT(*) " +
+            "FROM (SELECT " + day + " AS fact_date, " + aliased(definition.dimensions()) + " FROM " + definition.from() +
+            (condition != null ? " WHERE " + condition : "") + ") facts " +
+            "GROUP BY fact_date, facility_id, district, user_role, status, category";
+    }
+
+    private void saveWatermark(AnalyticsSubject subject, LocalDateTime runStartedAt) {
+        Timestamp watermark = Timestamp.valueOf(runStartedAt.minusMinutes(WATERMARK_OVERLAP_MINUTES));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = jdbcTemplate.update("UPDATE analytics_rollup_state SET watermark = ?, last_run_at = ? WHERE subject = ?",
+            watermark, now, subject.name());
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO analytics_rollup_state (subject, watermark, last_run_at) VALUES (?, ?, ?)",
+                subject.name(), watermark, now);
+        }
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> args, FactFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.facilityId() != null) {
+            sql.append(" AND facility_id = ?");
+            args.add(filter.facilityId());
+        }
+        if (filter.district() != null) {
+            sql.append(" AND district = ?");
+            args.add(filter.district());
+        }
+        if (filter.role() != null) {
+            sql.append(" AND user_role = ?");
+            args.add(filter.role());
+        }
+    }
+
+    private static String aliased(List<String> dimensions) {
+        List<String> aliased = new ArrayList<>(dimensions.size());
+        for (int i = 0; i < dimensions.size(); i++) {
+            aliased.add(dimensions.get(i) + " AS " + DIMENSIONS.get(i));
+        }
+        return String.join(", ", aliased);
+    }
+
+    /**
+     * A subject whose facility, district and role are those of the owning user u
+     */
+    private static FactDefinition userOwned(String from, String dateColumn, String status, String category) {
+        return new FactDefinition(from, dateColumn, "x.updated_at", List.of(
+            "COALESCE(u.facility_id, '')", "COALESCE(u.district, '')", "COALESCE(u.role, '')", status, category));
+    }
+
+    private static String flag(String column, String whenTrue, String whenFalse) {
+        return "CASE WHEN " + column + " = TRUE THEN '" + whenTrue + "' ELSE '" + whenFalse + "' END";
+    }
+}
@@ -15,7 +15,9 @@ import java.util.Map;
 
 /**
  * Professional Appointment Notification Service
- * Handles all appointment-related notifications with proper messaging
+ * Handles all appointment-related notifications with proper messaging.
+ * Notification rows are written in the caller's transaction and pushes go through the outbox,
+ * so nothing is sent for a change that rolls back and FCM latency never holds a transaction open.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,7 +26,7 @@ import java.util.Map;
 public class AppointmentNotificationService {
 
     private final InteractiveNotificationService notificationService;
-    private final PushNotificationService pushNotificationService;
+    private final OutboxService outboxService;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
 
@@ -59,7 +61,7 @@ public class AppointmentNotificationService {
             pushData.put("appointmentDate", appointment.getScheduledDate().toString());
             pushData.put("facilityName", appointment.getHealthFacility().getName());
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 client.getId(),
                 title,
                 message,
@@ -106,7 +108,7 @@ public class AppointmentNotificationService {
             pushData.put("appointmentId", appointment.getId());
             pushData.put("reason", reason);
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 client.getId(),
                 title,
                 message,
@@ -153,7 +155,7 @@ public class AppointmentNotificationService {
             pushData.put("newDate", appointment.getScheduledDate().toString());
             pushData.put("reason", reason);
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 client.getId(),
                 title,
                 message,
@@ -197,7 +199,7 @@ public class AppointmentNotificationService {
                 pushData.put("clientName", appointment.getUser().getName());
                 pushData.put("appointmentDate", appointment.getScheduledDate().toString());
                 
-                pushNotificationService.sendNotificationToUser(
+                outboxService.notifyUser(
                     healthWorker.getId(),
                     title,
                     message,
@@ -244,7 +246,7 @@ public class AppointmentNotificationService {
             pushData.put("appointmentId", appointment.getId());
             pushData.put("status", "pending_confirmation");
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 client.getId(),
                 title,
                 message,
@@ -291,7 +293,7 @@ public class AppointmentNotificationService {
             pushData.put("timeframe", timeframe);
             pushData.put("facilityName", appointment.getHealthFacility().getName());
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 client.getId(),
                 title,
                 message,
@@ -329,7 +331,7 @@ public class AppointmentNotificationService {
             pushData.put("oldStatus", oldStatus.toString());
             pushData.put("newStatus", newStatus.toString());
             
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 appointment.getUser().getId(),
                 title,
                 message,
@@ -5,37 +5,47 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.constants.NotificationConstants;
 import rw.health.ubuzima.entity.Appointment;
 import rw.health.ubuzima.entity.Notification;
 import rw.health.ubuzima.enums.AppointmentStatus;
 import rw.health.ubuzima.enums.NotificationType;
 import rw.health.ubuzima.repository.AppointmentRepository;
 import rw.health.ubuzima.repository.NotificationRepository;
+import rw.health.ubuzima.service.AppointmentTransitionEngine.Transition;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Professional Appointment Status Management Service
- * Automatically updates appointment statuses based on date/time and business rules
+ * Automatically updates appointment statuses based on date/time and business rules.
+ * Scheduled transitions run set-based through AppointmentTransitionEngine in short chunked
+ * transactions. Notifications for the changed appointments are written in the same chunk
+ * transaction and their pushes go through the outbox, so no network call holds row locks.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class AppointmentStatusSchedulerService {
 
+    private static final String REMINDER_CONDITION = "status IN ('SCHEDULED', 'CONFIRMED') " +
+        "AND reminder_sent = false AND scheduled_date BETWEEN ? AND ?";
+
     private final AppointmentRepository appointmentRepository;
     private final NotificationRepository notificationRepository;
     private final InteractiveNotificationService notificationService;
-    private final PushNotificationService pushNotificationService;
+    private final OutboxService outboxService;
+    private final AppointmentTransitionEngine transitionEngine;
+    private final ScheduledNotificationDispatcher scheduledNotificationDispatcher;
 
     /**
      * Scheduled task to update appointment statuses
      * Runs every 15 minutes to check for status updates
      */
     @Scheduled(fixedRate = 900000) // 15 minutes
-    @Transactional
     public void updateAppointmentStatuses() {
         log.info("Starting scheduled appointment status update...");
 
@@ -66,148 +76,98 @@ public class AppointmentStatusSchedulerService {
      * Update overdue scheduled and confirmed appointments to NO_SHOW
      */
     private void updateOverdueAppointments(LocalDateTime now) {
-        // Find SCHEDULED appointments that are past their scheduled time (immediate)
-        List<Appointment> overdueScheduled = appointmentRepository
-            .findByStatusAndScheduledDateBefore(AppointmentStatus.SCHEDULED, now);
-
-        // Find CONFIRMED appointments that are 15 minutes past their scheduled time
-        LocalDateTime confirmedOverdueThreshold = now.minusMinutes(15);
-        List<Appointment> overdueConfirmed = appointmentRepository
-            .findByStatusAndScheduledDateBefore(AppointmentStatus.CONFIRMED, confirmedOverdueThreshold);
+        // SCHEDULED appointments that are past their scheduled time (immediate)
+        int scheduled = transitionEngine.apply(
+            Transition.status("scheduled-no-show", AppointmentStatus.SCHEDULED, AppointmentStatus.NO_SHOW,
+                "scheduled_date < ?", Timestamp.valueOf(now)),
+            ids -> forEachAppointment(ids, "no-show", this::notifyHealthWorkerAboutNoShow));
 
-        // Process SCHEDULED appointments (immediate no-show)
-        for (Appointment appointment : overdueScheduled) {
-            appointment.setStatus(AppointmentStatus.NO_SHOW);
-            appointmentRepository.save(appointment);
-
-            // Notify health worker about no-show (with error handling)
-            try {
-                notifyHealthWorkerAboutNoShow(appointment);
-            } catch (Exception e) {
-                log.warn("Failed to send no-show notification for appointment {}: {}",
-                    appointment.getId(), e.getMessage());
-            }
-
-            log.info("Updated SCHEDULED appointment {} to NO_SHOW status (immediate)", appointment.getId());
-        }
+        // CONFIRMED appointments that are 15 minutes past their scheduled time
+        int confirmed = transitionEngine.apply(
+            Transition.status("confirmed-no-show", AppointmentStatus.CONFIRMED, AppointmentStatus.NO_SHOW,
+                "scheduled_date < ?", Timestamp.valueOf(now.minusMinutes(15))),
+            ids -> forEachAppointment(ids, "no-show", this::notifyHealthWorkerAboutNoShow));
 
-        // Process CONFIRMED appointments (15 minutes grace period)
-        for (Appointment appointment : overdueConfirmed) {
-            appointment.setStatus(AppointmentStatus.NO_SHOW);
-            appointmentRepository.save(appointment);
-
-            // Notify health worker about no-show (with error handling)
-            try {
-                notifyHealthWorkerAboutNoShow(appointment);
-            } catch (Exception e) {
-                log.warn("Failed to send no-show notification for appointment {}: {}",
-                    appointment.getId(), e.getMessage());
-            }
-
-            log.info("Updated CONFIRMED appointment {} to NO_SHOW status (15min grace)", appointment.getId());
-        }
-
-        int totalUpdated = overdueScheduled.size() + overdueConfirmed.size();
         log.info("Updated {} overdue appointments to NO_SHOW ({} scheduled, {} confirmed)",
-            totalUpdated, overdueScheduled.size(), overdueConfirmed.size());
+            scheduled + confirmed, scheduled, confirmed);
     }
 
     /**
      * Update confirmed appointments to IN_PROGRESS if they're starting
      */
     private void updateAppointmentsToInProgress(LocalDateTime now) {
-        // Find confirmed appointments that should be starting (within 5 minutes of scheduled time)
-        LocalDateTime startThreshold = now.minusMinutes(5);
-        LocalDateTime endThreshold = now.plusMinutes(5);
-        
-        List<Appointment> startingAppointments = appointmentRepository
-            .findByStatusAndScheduledDateBetween(
-                AppointmentStatus.CONFIRMED, 
-                startThreshold, 
-                endThreshold
-            );
-        
-        for (Appointment appointment : startingAppointments) {
-            appointment.setStatus(AppointmentStatus.IN_PROGRESS);
-            appointmentRepository.save(appointment);
-            
-            // Notify both client and health worker (with error handling)
-            try {
-                notifyAppointmentStarted(appointment);
-            } catch (Exception e) {
-                log.warn("Failed to send appointment started notification for appointment {}: {}",
-                    appointment.getId(), e.getMessage());
-            }
-            
-            log.info("Updated appointment {} to IN_PROGRESS status", appointment.getId());
-        }
-        
-        log.info("Updated {} appointments to IN_PROGRESS", startingAppointments.size());
+        // Confirmed appointments that should be starting (within 5 minutes of scheduled time)
+        int started = transitionEngine.apply(
+            Transition.status("confirmed-in-progress", AppointmentStatus.CONFIRMED, AppointmentStatus.IN_PROGRESS,
+                "scheduled_date BETWEEN ? AND ?",
+                Timestamp.valueOf(now.minusMinutes(5)), Timestamp.valueOf(now.plusMinutes(5))),
+            ids -> forEachAppointment(ids, "appointment started", this::notifyAppointmentStarted));
+
+        log.info("Updated {} appointments to IN_PROGRESS", started);
     }
 
     /**
      * Update in-progress appointments to COMPLETED if they're past end time
      */
     private void updateAppointmentsToCompleted(LocalDateTime now) {
-        // Find in-progress appointments that are past their expected end time
-        List<Appointment> inProgressAppointments = appointmentRepository
-            .findByStatus(AppointmentStatus.IN_PROGRESS);
-        
-        int completedCount = 0;
-        for (Appointment appointment : inProgressAppointments) {
-            LocalDateTime expectedEndTime = appointment.getScheduledDate()
-                .plusMinutes(appointment.getDurationMinutes() != null ? 
-                    appointment.getDurationMinutes() : 30);
-            
-            if (now.isAfter(expectedEndTime.plusMinutes(15))) { // 15 minutes grace period
-                appointment.setStatus(AppointmentStatus.COMPLETED);
-                appointment.setCompletedAt(now);
-                appointmentRepository.save(appointment);
-                
-                // Notify about completion (with error handling)
-                try {
-                    notifyAppointmentCompleted(appointment);
-                } catch (Exception e) {
-                    log.warn("Failed to send appointment completed notification for appointment {}: {}",
-                        appointment.getId(), e.getMessage());
-                }
-                
-                completedCount++;
-                log.info("Auto-completed appointment {} after duration", appointment.getId());
-            }
-        }
-        
-        log.info("Auto-completed {} appointments", completedCount);
+        // Past the expected end time plus a 15 minute grace period; the plain scheduled_date bound
+        // lets the (status, scheduled_date) index narrow the rows before the duration is applied
+        Timestamp graceCutoff = Timestamp.valueOf(now.minusMinutes(15));
+        int completed = transitionEngine.apply(
+            Transition.status("in-progress-completed", AppointmentStatus.IN_PROGRESS, AppointmentStatus.COMPLETED,
+                    "scheduled_date < ? AND scheduled_date + COALESCE(duration_minutes, 30) * INTERVAL '1 minute' < ?",
+                    graceCutoff, graceCutoff)
+                .alsoSet("completed_at", Timestamp.valueOf(now)),
+            ids -> forEachAppointment(ids, "appointment completed", this::notifyAppointmentCompleted));
+
+        log.info("Auto-completed {} appointments", completed);
     }
 
     /**
      * Send appointment reminders
      */
     private void sendAppointmentReminders(LocalDateTime now) {
-        // Send reminders 24 hours before appointment
+        // Reminders 24 hours before the appointment, delivered at that exact time by the scheduled
+        // notification dispatcher. The window reaches past the next run so each reminder is written
+        // ahead of its time; reminder_sent is claimed in bulk so each is written once.
         LocalDateTime reminderTime24h = now.plusHours(24);
-        List<Appointment> appointmentsIn24h = appointmentRepository
-            .findAppointmentsForReminder(reminderTime24h.minusMinutes(15), reminderTime24h.plusMinutes(15));
-        
-        for (Appointment appointment : appointmentsIn24h) {
-            if (!Boolean.TRUE.equals(appointment.getReminderSent())) {
-                sendAppointmentReminder(appointment, "24 hours");
-                appointment.setReminderSent(true);
-                appointmentRepository.save(appointment);
-            }
-        }
-        
-        // Send reminders 2 hours before appointment
+        int sent24h = transitionEngine.apply(
+            new Transition("reminder-24h", "reminder_sent = ?", List.of(true), REMINDER_CONDITION,
+                List.of(Timestamp.valueOf(reminderTime24h.minusMinutes(15)),
+                    Timestamp.valueOf(reminderTime24h.plusMinutes(30)))),
+            ids -> forEachAppointment(ids, "24-hour reminder",
+                appointment -> scheduleAppointmentReminder(appointment, "24 hours",
+                    laterOf(now, appointment.getScheduledDate().minusHours(24)))));
+
+        // Reminders 2 hours before the appointment (read-only, no locks)
         LocalDateTime reminderTime2h = now.plusHours(2);
         List<Appointment> appointmentsIn2h = appointmentRepository
             .findAppointmentsForReminder(reminderTime2h.minusMinutes(15), reminderTime2h.plusMinutes(15));
-        
+
         for (Appointment appointment : appointmentsIn2h) {
-            sendAppointmentReminder(appointment, "2 hours");
+            try {
+                sendAppointmentReminder(appointment, "2 hours");
+            } catch (Exception e) {
+                log.warn("Failed to send 2-hour reminder for appointment {}: {}", appointment.getId(), e.getMessage());
+            }
+        }
+
+        log.info("Scheduled {} 24-hour reminders and sent {} 2-hour reminders", sent24h, appointmentsIn2h.size());
+    }
+
+    /**
+     * Load the changed appointments with their participants and notify about each one, each in its
+     * own savepoint so a failed notification does not roll back the chunk's status changes
+     */
+    private void forEachAppointment(List<Long> ids, String what, Consumer<Appointment> action) {
+        for (Appointment appointment : appointmentRepository.findWithParticipantsByIdIn(ids)) {
+            try {
+                transitionEngine.inSavepoint(() -> action.accept(appointment));
+            } catch (Exception e) {
+                log.warn("Failed to send {} notification for appointment {}: {}",
+                    what, appointment.getId(), e.getMessage());
+            }
         }
-        
-        log.info("Sent {} 24-hour reminders and {} 2-hour reminders", 
-            appointmentsIn24h.size(), appointmentsIn2h.size());
     }
 
     /**
@@ -229,7 +189,7 @@ public class AppointmentStatusSchedulerService {
             );
             
             // Send push notification
-            pushNotificationService.sendNotificationToUser(
+            outboxService.notifyUser(
                 appointment.getHealthWorker().getId(),
                 "Appointment No-Show",
                 message,
@@ -320,17 +280,49 @@ public class AppointmentStatusSchedulerService {
             message
         );
         
-        pushNotificationService.sendAppointmentReminder(
+        outboxService.notifyUser(
             appointment.getUser().getId(),
-            message
+            "Appointment Reminder",
+            "You have an upcoming appointment: " + message,
+            java.util.Map.of("type", "appointment_reminder", "appointmentDetails", message)
         );
         
         log.info("Sent {} reminder for appointment {}", timeframe, appointment.getId());
     }
 
+    /**
+     * Write an appointment reminder to be delivered at {@code remindAt}
+     */
+    private void scheduleAppointmentReminder(Appointment appointment, String timeframe, LocalDateTime remindAt) {
+        Notification notification = new Notification();
+        notification.setUser(appointment.getUser());
+        notification.setTitle("Appointment Reminder");
+        notification.setMessage(String.format(
+            "Reminder: You have a %s appointment in %s at %s",
+            appointment.getAppointmentType().toString().toLowerCase(),
+            timeframe,
+            appointment.getScheduledDate().toString()
+        ));
+        notification.setType(NotificationType.APPOINTMENT_REMINDER);
+        notification.setPriority(NotificationConstants.PRIORITY_MEDIUM);
+        notification.setIcon(NotificationConstants.ICON_APPOINTMENT);
+        notification.setScheduledFor(remindAt);
+        notification.setIsRead(false);
+
+        Notification saved = notificationRepository.save(notification);
+        scheduledNotificationDispatcher.schedule(saved.getId(), remindAt);
+
+        log.info("Scheduled {} reminder for appointment {} at {}", timeframe, appointment.getId(), remindAt);
+    }
+
+    private static LocalDateTime laterOf(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
     /**
      * Manual method to update a specific appointment status
      */
+    @Transactional
     public void updateAppointmentStatus(Long appointmentId, AppointmentStatus newStatus, String reason) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
             .orElseThrow(() -> new RuntimeException("Appointment not found"));
@@ -382,7 +374,7 @@ public class AppointmentStatusSchedulerService {
         }
         
         // Send push notification to client
-        pushNotificationService.sendNotificationToUser(
+        outboxService.notifyUser(
             appointment.getUser().getId(),
             "Appointment Update",
             statusMessage,
@@ -0,0 +1,145 @@
+package rw.health.ubuzima.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.AppointmentStatus;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Set-based appointment state transitions.
+ * A transition is one bulk UPDATE ... RETURNING id over a chunk of matching rows, found through the
+ * (status, scheduled_date) index. Each chunk is its own short transaction and claims its rows with
+ * FOR UPDATE SKIP LOCKED, so appointments being edited are left for the next run instead of
+ * blocking it, and the scheduler never holds more than one chunk's row locks. The ids of the rows
+ * that changed are handed to the caller inside the chunk's transaction, so the notifications it
+ * writes to the outbox commit (or roll back) together with the status change. Per-appointment side
+ * effects should go through {@link #inSavepoint}, so one failing appointment does not mark the whole
+ * chunk rollback-only.
+ */
+@Component
+@Slf4j
+public class AppointmentTransitionEngine {
+
+    private static final String CLAIM_SQL = "UPDATE appointments SET %s, updated_at = ?, " +
+        "version = COALESCE(version, 0) + 1 WHERE id IN (SELECT id FROM appointments WHERE %s " +
+        "ORDER BY scheduled_date LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id";
+
+    /**
+     * A bulk change: SET clause and WHERE clause with their positional arguments
+     */
+    public record Transition(String name, String set, List<Object> setArgs, String where, List<Object> whereArgs) {
+
+        /**
+         * Move appointments in status {@code from} matching {@code condition} to status {@code to}
+         */
+        public static Transition status(String name, AppointmentStatus from, AppointmentStatus to,
+                                        String condition, Object... conditionArgs) {
+            List<Object> whereArgs = new ArrayList<>();
+            whereArgs.add(from.name());
+            whereArgs.addAll(List.of(conditionArgs));
+            return new Transition(name, "status = ?", List.of(to.name()), "status = ? AND " + condition, whereArgs);
+        }
+
+        /**
+         * Same transition, additionally setting {@code column} to {@code value}
+         */
+        public Transition alsoSet(String column, Object value) {
+            List<Object> args = new ArrayList<>(setArgs);
+            args.add(value);
+            return new Transition(name, set + ", " + column + " = ?", args, where, whereArgs);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate savepointTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    public AppointmentTransitionEngine(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${ubuzima.appointments.transition-chunk-size:500}") int chunkSize,
+                                       @Value("${ubuzima.appointments.max-chunks-per-run:100}") int maxChunksPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    /**
+     * Apply a transition chunk by chunk until no matching rows are left (or the per-run chunk limit
+     * is reached), calling {@code withinChunk} with the ids changed by each chunk before it commits.
+     * The callback should only write (outbox events, notification rows); if it fails the chunk
+     * rolls back, the run stops here and the chunk is picked up again on the next run.
+     *
+     * @return number of appointments changed
+     */
+    public int apply(Transition transition, Consumer<List<Long>> withinChunk) {
+        String sql = String.format(CLAIM_SQL, transition.set(), transition.where());
+        Counter counter = Counter.builder("ubuzima.appointments.transitions")
+            .tag("transition", transition.name())
+            .register(meterRegistry);
+
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            List<Long> ids;
+            try {
+                ids = transactionTemplate.execute(status -> {
+                    List<Long> changed = jdbcTemplate.queryForList(sql, Long.class, arguments(transition));
+                    if (!changed.isEmpty()) {
+                        withinChunk.accept(changed);
+                    }
+                    return changed;
+                });
+            } catch (Exception e) {
+                // The same rows would be claimed again at once, so leave them to the next run
+                log.error("Transition {} rolled back a chunk after {} changes: {}", transition.name(), total, e.getMessage());
+                break;
+            }
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            total += ids.size();
+            counter.increment(ids.size());
+
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Run one appointment's side effects in a savepoint of the current chunk transaction: if it
+     * throws, only its own writes are rolled back and the exception is rethrown for the caller to log
+     */
+    public void inSavepoint(Runnable action) {
+        savepointTemplate.executeWithoutResult(status -> action.run());
+    }
+
+    private Object[] arguments(Transition transition) {
+        List<Object> args = new ArrayList<>(transition.setArgs().size() + transition.whereArgs().size() + 2);
+        args.addAll(transition.setArgs());
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(transition.whereArgs());
+        args.add(chunkSize);
+        return args.toArray();
+    }
+}
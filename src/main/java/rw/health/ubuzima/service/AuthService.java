@@ -1,13 +1,17 @@
 package rw.health.ubuzima.service;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import rw.health.ubuzima.dto.request.UserCreateRequest;
 import rw.health.ubuzima.dto.response.UserResponse;
 import rw.health.ubuzima.entity.User;
+import rw.health.ubuzima.enums.RevocationReason;
 import rw.health.ubuzima.exception.AuthenticationException;
 import rw.health.ubuzima.exception.ResourceNotFoundException;
+import rw.health.ubuzima.security.TokenRevocationService;
 import rw.health.ubuzima.util.JwtUtil;
 
 import java.util.HashMap;
@@ -20,20 +24,24 @@ public class AuthService {
 
     private final UserService userService;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
 
     public Map<String, Object> register(UserCreateRequest request) {
         UserResponse user = userService.createUser(request);
         
+        String familyId = jwtUtil.newFamilyId();
         String accessToken = jwtUtil.generateToken(
             user.getEmail(), 
             user.getRole().toString(), 
-            user.getId()
+            user.getId(),
+            familyId
         );
         
         String refreshToken = jwtUtil.generateRefreshToken(
             user.getEmail(), 
             user.getRole().toString(), 
-            user.getId()
+            user.getId(),
+            familyId
         );
 
         Map<String, Object> response = new HashMap<>();
@@ -57,16 +65,19 @@ public class AuthService {
         // Update last login
         userService.updateLastLogin(email);
 
+        String familyId = jwtUtil.newFamilyId();
         String accessToken = jwtUtil.generateToken(
             user.getEmail(), 
             user.getRole().toString(), 
-            user.getId()
+            user.getId(),
+            familyId
         );
         
         String refreshToken = jwtUtil.generateRefreshToken(
             user.getEmail(), 
             user.getRole().toString(), 
-            user.getId()
+            user.getId(),
+            familyId
         );
 
         Map<String, Object> response = new HashMap<>();
@@ -79,30 +90,52 @@ public class AuthService {
         return response;
     }
 
+    /**
+     * Exchange a refresh token for a new access/refresh pair.
+     * Each refresh token is single-use; presenting one twice revokes its whole family.
+     */
     public Map<String, Object> refreshToken(String refreshToken) {
         try {
-            String email = jwtUtil.extractUsername(refreshToken);
+            Claims claims = jwtUtil.extractAllClaims(refreshToken);
+            String email = claims.getSubject();
             
-            if (!jwtUtil.isRefreshToken(refreshToken)) {
+            if (!"refresh".equals(claims.get("type", String.class))) {
                 throw new AuthenticationException("Invalid refresh token");
             }
-            
-            if (!jwtUtil.validateToken(refreshToken, email)) {
-                throw new AuthenticationException("Refresh token expired or invalid");
+
+            switch (tokenRevocationService.rotateRefreshToken(claims)) {
+                case REUSED -> throw new AuthenticationException("Refresh token reuse detected; please log in again");
+                case REVOKED -> throw new AuthenticationException("Refresh token revoked");
+                default -> {
+                }
             }
 
             UserResponse user = userService.getUserByEmail(email);
+
+            String familyId = claims.get(TokenRevocationService.FAMILY_CLAIM, String.class);
+            if (familyId == null) {
+                familyId = jwtUtil.newFamilyId();
+            }
             
             String newAccessToken = jwtUtil.generateToken(
                 user.getEmail(), 
                 user.getRole().toString(), 
-                user.getId()
+                user.getId(),
+                familyId
+            );
+
+            String newRefreshToken = jwtUtil.generateRefreshToken(
+                user.getEmail(),
+                user.getRole().toString(),
+                user.getId(),
+                familyId
             );
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Token refreshed successfully");
             response.put("accessToken", newAccessToken);
+            response.put("refreshToken", newRefreshToken);
             
             return response;
             
@@ -111,6 +144,25 @@ public class AuthService {
         }
     }
 
+    /**
+     * Revoke the presented access token and its refresh-token family
+     */
+    public void logout(String accessToken, String refreshToken) {
+        for (String token : new String[] { accessToken, refreshToken }) {
+            if (token == null || token.isBlank()) {
+                continue;
+            }
+            try {
+                Claims claims = jwtUtil.extractAllClaims(token);
+                tokenRevocationService.revokeToken(claims, RevocationReason.LOGOUT);
+                tokenRevocationService.revokeFamily(claims.get(TokenRevocationService.FAMILY_CLAIM, String.class),
+                    claims.get("userId", Long.class), RevocationReason.LOGOUT);
+            } catch (JwtException e) {
+                // Expired or invalid tokens are already unusable
+            }
+        }
+    }
+
     @Transactional(readOnly = true)
     public UserResponse getCurrentUser(String token) {
         try {
@@ -124,7 +176,7 @@ public class AuthService {
     public boolean validateToken(String token) {
         try {
             String email = jwtUtil.extractUsername(token);
-            return jwtUtil.validateToken(token, email);
+            return jwtUtil.validateToken(token, email) && !tokenRevocationService.isRevoked(jwtUtil.extractAllClaims(token));
         } catch (Exception e) {
             return false;
         }
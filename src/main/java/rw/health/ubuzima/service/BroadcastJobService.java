@@ -0,0 +1,218 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.entity.BroadcastJob;
+import rw.health.ubuzima.enums.BroadcastJobStatus;
+import rw.health.ubuzima.enums.NotificationType;
+import rw.health.ubuzima.enums.UserRole;
+import rw.health.ubuzima.repository.BroadcastJobRepository;
+import rw.health.ubuzima.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broadcast notification jobs.
+ * Target user ids are streamed in keyset chunks; each chunk's notification rows are
+ * bulk-inserted with a JDBC batch in one short transaction together with the job's resume cursor,
+ * then pushed through PushNotificationService after commit. Jobs run on a dedicated executor
+ * so the HTTP request returns immediately, and interrupted jobs resume on startup.
+ * The notification rows are exactly-once (the cursor commits with them), but pushes are at most
+ * once: a crash between a chunk's commit and its pushes loses those pushes, and the resumed job
+ * starts after that chunk. Broadcasts are not routed through the outbox, which would mean one
+ * outbox row per recipient; users still see the notification in the app.
+ */
+@Service
+@Slf4j
+public class BroadcastJobService {
+
+    private final BroadcastJobRepository broadcastJobRepository;
+    private final UserRepository userRepository;
+    private final PushNotificationService pushNotificationService;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    @Value("${ubuzima.broadcast.chunk-size:1000}")
+    private int chunkSize;
+
+    public BroadcastJobService(BroadcastJobRepository broadcastJobRepository,
+                               UserRepository userRepository,
+                               PushNotificationService pushNotificationService,
+                               NotificationBatchWriter notificationBatchWriter,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${ubuzima.broadcast.worker-threads:2}") int workerThreads) {
+        this.broadcastJobRepository = broadcastJobRepository;
+        this.userRepository = userRepository;
+        this.pushNotificationService = pushNotificationService;
+        this.notificationBatchWriter = notificationBatchWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create a broadcast job and queue it for background processing
+     */
+    public BroadcastJob submit(String title, String message, NotificationType type, Integer priority,
+                               String actionUrl, String icon, UserRole targetRole, Long createdBy) {
+        BroadcastJob job = new BroadcastJob();
+        job.setTitle(title);
+        job.setMessage(message);
+        job.setType(type);
+        job.setPriority(priority != null ? priority : 2);
+        job.setActionUrl(actionUrl);
+        job.setIcon(icon);
+        job.setTargetRole(targetRole);
+        job.setCreatedBy(createdBy);
+        job.setStatus(BroadcastJobStatus.QUEUED);
+
+        BroadcastJob savedJob = broadcastJobRepository.save(job);
+        executor.submit(() -> runJob(savedJob.getId()));
+
+        log.info("Queued broadcast job {} for {}", savedJob.getId(), targetRole != null ? targetRole : "all users");
+        return savedJob;
+    }
+
+    public Optional<BroadcastJob> getJob(Long jobId) {
+        return broadcastJobRepository.findById(jobId);
+    }
+
+    public Page<BroadcastJob> getRecentJobs(int page, int size) {
+        return broadcastJobRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(page, size));
+    }
+
+    /**
+     * Progress view of a job for the status endpoint
+     */
+    public Map<String, Object> toStatus(BroadcastJob job) {
+        long total = job.getTotalRecipients() != null ? job.getTotalRecipients() : 0L;
+        long processed = job.getProcessedRecipients() != null ? job.getProcessedRecipients() : 0L;
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("jobId", job.getId());
+        status.put("status", job.getStatus());
+        status.put("title", job.getTitle());
+        status.put("targetRole", job.getTargetRole());
+        status.put("totalRecipients", total);
+        status.put("processedRecipients", processed);
+        status.put("pushesSent", job.getPushesSent());
+        status.put("progressPercent", total > 0 ? Math.min(100.0, processed * 100.0 / total) : 0.0);
+        status.put("createdAt", job.getCreatedAt());
+        status.put("startedAt", job.getStartedAt());
+        status.put("completedAt", job.getCompletedAt());
+        status.put("errorMessage", job.getErrorMessage());
+        return status;
+    }
+
+    /**
+     * Resume jobs that were queued or running when the application last stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<BroadcastJob> interrupted = broadcastJobRepository.findByStatusIn(
+            List.of(BroadcastJobStatus.QUEUED, BroadcastJobStatus.RUNNING));
+
+        for (BroadcastJob job : interrupted) {
+            log.info("Resuming broadcast job {} after user id {}", job.getId(), job.getLastUserId());
+            executor.submit(() -> runJob(job.getId()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runJob(Long jobId) {
+        BroadcastJob job = broadcastJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == BroadcastJobStatus.COMPLETED || job.getStatus() == BroadcastJobStatus.FAILED) {
+            return;
+        }
+
+        try {
+            UserRole role = job.getTargetRole();
+            long totalRecipients = role != null ? userRepository.countByRole(role) : userRepository.count();
+            broadcastJobRepository.markRunning(jobId, BroadcastJobStatus.RUNNING, totalRecipients, LocalDateTime.now());
+
+            Map<String, Object> pushData = new HashMap<>();
+            pushData.put("type", job.getType().name());
+            pushData.put("broadcastJobId", jobId);
+            if (job.getActionUrl() != null) {
+                pushData.put("actionUrl", job.getActionUrl());
+            }
+
+            long afterId = job.getLastUserId() != null ? job.getLastUserId() : 0L;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> userIds = role != null
+                    ? userRepository.findIdsByRoleAfter(role, afterId, PageRequest.of(0, chunkSize))
+                    : userRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize));
+
+                if (userIds.isEmpty()) {
+                    break;
+                }
+
+                Long lastUserId = userIds.get(userIds.size() - 1);
+                transactionTemplate.executeWithoutResult(status -> {
+                    insertNotifications(job, userIds);
+                    broadcastJobRepository.advanceCursor(jobId, lastUserId, userIds.size(), LocalDateTime.now());
+                });
+
+                // Pushes go out after the chunk is committed; waiting here (a job thread) paces the chunks to FCM
+                int pushed = pushNotificationService.sendPushToUsers(userIds, job.getTitle(), job.getMessage(), pushData).join();
+                if (pushed > 0) {
+                    broadcastJobRepository.addPushesSent(jobId, pushed, LocalDateTime.now());
+                }
+
+                afterId = lastUserId;
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                // Left RUNNING so the next startup resumes from the committed cursor
+                log.warn("Broadcast job {} interrupted after user id {}", jobId, afterId);
+                return;
+            }
+
+            broadcastJobRepository.markFinished(jobId, BroadcastJobStatus.COMPLETED, null, LocalDateTime.now());
+            log.info("Broadcast job {} completed", jobId);
+
+        } catch (Exception e) {
+            log.error("Broadcast job {} failed", jobId, e);
+            broadcastJobRepository.markFinished(jobId, BroadcastJobStatus.FAILED, e.getMessage(), LocalDateTime.now());
+        }
+    }
+
+    private void insertNotifications(BroadcastJob job, List<Long> userIds) {
+        notificationBatchWriter.insertForUsers(userIds, job.getTitle(), job.getMessage(), job.getType(),
+            job.getActionUrl(), job.getIcon(), job.getPriority(), "{\"broadcastJobId\":" + job.getId() + "}");
+    }
+}
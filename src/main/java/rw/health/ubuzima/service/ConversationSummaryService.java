@@ -0,0 +1,225 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.entity.ConversationSummary;
+import rw.health.ubuzima.entity.Message;
+import rw.health.ubuzima.enums.MessageType;
+import rw.health.ubuzima.repository.ConversationSummaryRepository;
+import rw.health.ubuzima.repository.MessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the materialized conversation summaries (inbox rows) in step with message writes.
+ * Every message write that affects the inbox goes through here so the message row and
+ * its summary are updated in the same transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class ConversationSummaryService {
+
+    private static final int PREVIEW_LENGTH = 255;
+
+    private final MessageRepository messageRepository;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    /**
+     * Save a new message and advance its conversation summary
+     */
+    public Message saveNewMessage(Message message) {
+        Message savedMessage = messageRepository.saveAndFlush(message);
+
+        Long senderId = savedMessage.getSender().getId();
+        Long receiverId = savedMessage.getReceiver().getId();
+        Long participantOneId = Math.min(senderId, receiverId);
+        Long participantTwoId = Math.max(senderId, receiverId);
+
+        // Only the receiver gets an unread increment; messages to self never count as unread
+        boolean toSelf = senderId.equals(receiverId);
+        int participantOneIncrement = !toSelf && receiverId.equals(participantOneId) ? 1 : 0;
+        int participantTwoIncrement = !toSelf && receiverId.equals(participantTwoId) ? 1 : 0;
+
+        String conversationId = savedMessage.getConversationId() != null
+            ? savedMessage.getConversationId()
+            : "conv_" + participantOneId + "_" + participantTwoId;
+
+        if (!isPostgres()) {
+            // No ON CONFLICT outside PostgreSQL (the H2 test profile): same rules through the entity
+            applyNewMessage(participantOneId, participantTwoId, conversationId, savedMessage,
+                participantOneIncrement, participantTwoIncrement);
+            return savedMessage;
+        }
+
+        conversationSummaryRepository.upsertForNewMessage(
+            participantOneId,
+            participantTwoId,
+            conversationId,
+            savedMessage.getId(),
+            buildPreview(savedMessage),
+            savedMessage.getMessageType() != null ? savedMessage.getMessageType().name() : MessageType.TEXT.name(),
+            savedMessage.getCreatedAt(),
+            senderId,
+            participantOneIncrement,
+            participantTwoIncrement,
+            LocalDateTime.now()
+        );
+
+        return savedMessage;
+    }
+
+    /**
+     * Mark a single message as read and decrement the receiver's unread counter if it was unread
+     */
+    public Message markAsRead(Message message) {
+        // Decided by the row, not the possibly stale entity, so concurrent reads decrement once
+        LocalDateTime readAt = LocalDateTime.now();
+        boolean wasUnread = messageRepository.markReadIfUnread(message.getId(), readAt) > 0;
+
+        message.setIsRead(true);
+        if (wasUnread || message.getReadAt() == null) {
+            message.setReadAt(readAt);
+        }
+        Message savedMessage = messageRepository.save(message);
+
+        if (wasUnread) {
+            decrementUnread(savedMessage.getReceiver().getId(), savedMessage.getSender().getId(), 1);
+        }
+
+        return savedMessage;
+    }
+
+    /**
+     * Mark every unread message from partner to reader as read and reset the reader's counter
+     */
+    public int markConversationRead(Long readerId, Long partnerId) {
+        int updated = messageRepository.markConversationRead(partnerId, readerId, LocalDateTime.now());
+        if (updated > 0) {
+            decrementUnread(readerId, partnerId, updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Soft delete a message. Deleting for everyone also drops it from the inbox preview and unread count.
+     */
+    public Message deleteMessage(Message message, boolean forEveryone) {
+        // Repeat deletes are no-ops so the unread counter is only decremented once; a delete-for-me
+        // can still be widened to everyone
+        if (message.getDeletedAt() != null && (!forEveryone || Boolean.TRUE.equals(message.getDeletedForEveryone()))) {
+            return message;
+        }
+
+        boolean wasUnread = !Boolean.TRUE.equals(message.getIsRead());
+
+        message.setDeletedAt(LocalDateTime.now());
+        message.setDeletedForEveryone(forEveryone);
+        Message savedMessage = messageRepository.saveAndFlush(message);
+
+        if (!forEveryone) {
+            return savedMessage;
+        }
+
+        Long senderId = savedMessage.getSender().getId();
+        Long receiverId = savedMessage.getReceiver().getId();
+
+        if (wasUnread && !senderId.equals(receiverId)) {
+            decrementUnread(receiverId, senderId, 1);
+        }
+
+        Long participantOneId = Math.min(senderId, receiverId);
+        Long participantTwoId = Math.max(senderId, receiverId);
+        List<Message> latest = messageRepository.findLatestVisibleMessages(participantOneId, participantTwoId, PageRequest.of(0, 1));
+
+        if (latest.isEmpty()) {
+            conversationSummaryRepository.replaceLastMessage(participantOneId, participantTwoId, savedMessage.getId(),
+                null, "", null, savedMessage.getCreatedAt(), null);
+        } else {
+            Message newLast = latest.get(0);
+            conversationSummaryRepository.replaceLastMessage(participantOneId, participantTwoId, savedMessage.getId(),
+                newLast.getId(), buildPreview(newLast), newLast.getMessageType(), newLast.getCreatedAt(),
+                newLast.getSender().getId());
+        }
+
+        return savedMessage;
+    }
+
+    /**
+     * Inbox page for a user, newest conversation first
+     */
+    @Transactional(readOnly = true)
+    public Page<ConversationSummary> getInbox(Long userId, Pageable pageable) {
+        return conversationSummaryRepository.findInbox(userId, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public long getTotalUnread(Long userId) {
+        return conversationSummaryRepository.sumUnreadForUser(userId);
+    }
+
+    private void applyNewMessage(Long participantOneId, Long participantTwoId, String conversationId, Message message,
+                                 int participantOneIncrement, int participantTwoIncrement) {
+        ConversationSummary summary = conversationSummaryRepository.findByParticipants(participantOneId, participantTwoId)
+            .orElseGet(() -> {
+                ConversationSummary created = new ConversationSummary();
+                created.setParticipantOne(participantOneId.equals(message.getSender().getId())
+                    ? message.getSender() : message.getReceiver());
+                created.setParticipantTwo(participantTwoId.equals(message.getReceiver().getId())
+                    ? message.getReceiver() : message.getSender());
+                return created;
+            });
+        summary.setParticipantOneUnread(summary.getParticipantOneUnread() + participantOneIncrement);
+        summary.setParticipantTwoUnread(summary.getParticipantTwoUnread() + participantTwoIncrement);
+        if (summary.getLastMessageId() == null || message.getId() > summary.getLastMessageId()) {
+            summary.setConversationId(conversationId);
+            summary.setLastMessageId(message.getId());
+            summary.setLastMessagePreview(buildPreview(message));
+            summary.setLastMessageType(message.getMessageType() != null ? message.getMessageType() : MessageType.TEXT);
+            summary.setLastMessageAt(message.getCreatedAt());
+            summary.setLastSenderId(message.getSender().getId());
+        }
+        conversationSummaryRepository.save(summary);
+    }
+
+    private boolean isPostgres() {
+        Boolean current = postgres;
+        if (current == null) {
+            current = "PostgreSQL".equals(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()));
+            postgres = current;
+        }
+        return current;
+    }
+
+    private void decrementUnread(Long readerId, Long partnerId, int count) {
+        Long participantOneId = Math.min(readerId, partnerId);
+        Long participantTwoId = Math.max(readerId, partnerId);
+
+        if (readerId.equals(participantOneId)) {
+            conversationSummaryRepository.decrementParticipantOneUnread(participantOneId, participantTwoId, count);
+        } else {
+            conversationSummaryRepository.decrementParticipantTwoUnread(participantOneId, participantTwoId, count);
+        }
+    }
+
+    private String buildPreview(Message message) {
+        String content = message.getContent();
+        if (content == null || content.isBlank()) {
+            return "";
+        }
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+    }
+}
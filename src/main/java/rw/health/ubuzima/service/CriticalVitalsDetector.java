@@ -0,0 +1,372 @@
+package rw.health.ubuzima.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import rw.health.ubuzima.entity.HealthRecord;
+import rw.health.ubuzima.enums.VitalMetric;
+import rw.health.ubuzima.repository.HealthRecordRepository;
+import rw.health.ubuzima.service.VitalsTimeSeriesService.VitalReading;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental detection of abnormal vitals.
+ * Every vitals write is evaluated in-line: a reading beyond a threshold raises the metric's
+ * severity at once, while lowering it needs every reading in a short sliding window to be back
+ * inside the threshold by a hysteresis margin, so values hovering around a limit do not flap.
+ * Only users who are currently abnormal are kept in memory, indexed by assigned health worker,
+ * and the assigned health worker gets a STOMP message on their own queue whenever a patient's
+ * severity changes. Alerts carry patient vitals, so they are never sent to a shared topic.
+ */
+@Service
+@Slf4j
+public class CriticalVitalsDetector {
+
+    public static final String WORKER_QUEUE = "/queue/vitals-alerts";
+
+    // Index key for patients without an assigned health worker
+    private static final long UNASSIGNED = 0L;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    public enum Severity {
+        NORMAL, CONCERNING, CRITICAL
+    }
+
+    /**
+     * Inclusive limits for one metric; NaN means the side is unbounded.
+     */
+    record Thresholds(double criticalLow, double concerningLow, double concerningHigh, double criticalHigh,
+                      double hysteresis) {
+
+        static Thresholds parse(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Expected criticalLow,concerningLow,concerningHigh,criticalHigh,hysteresis but got: " + value);
+            }
+            double[] limits = new double[5];
+            for (int i = 0; i < 5; i++) {
+                String part = parts[i].trim();
+                limits[i] = part.equals("-") ? Double.NaN : Double.parseDouble(part);
+            }
+            return new Thresholds(limits[0], limits[1], limits[2], limits[3], limits[4]);
+        }
+
+        /**
+         * @param margin how far inside a limit a value must be to count as below it
+         */
+        Severity classify(double value, double margin) {
+            if (beyond(value, criticalLow, criticalHigh, margin)) {
+                return Severity.CRITICAL;
+            }
+            if (beyond(value, concerningLow, concerningHigh, margin)) {
+                return Severity.CONCERNING;
+            }
+            return Severity.NORMAL;
+        }
+
+        private static boolean beyond(double value, double low, double high, double margin) {
+            return (!Double.isNaN(high) && value >= high - margin) || (!Double.isNaN(low) && value <= low + margin);
+        }
+    }
+
+    public record Alert(Long userId, String userName, Long healthWorkerId, Severity severity,
+                        Map<VitalMetric, Double> abnormalValues, LocalDateTime since, LocalDateTime lastReadingAt) {
+    }
+
+    private record Sample(long epochMillis, double value) {
+    }
+
+    /**
+     * Per-user detector state; guarded by the states map's per-key lock.
+     */
+    private static final class UserState {
+        private final Map<VitalMetric, ArrayDeque<Sample>> windows = new EnumMap<>(VitalMetric.class);
+        private final Map<VitalMetric, Severity> severities = new EnumMap<>(VitalMetric.class);
+        private final Map<VitalMetric, Double> lastValues = new EnumMap<>(VitalMetric.class);
+        private String userName;
+        private long healthWorkerId = UNASSIGNED;
+        private volatile Severity severity = Severity.NORMAL;
+        private LocalDateTime since;
+        private LocalDateTime lastReadingAt;
+    }
+
+    private final HealthRecordRepository healthRecordRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<VitalMetric, Thresholds> thresholds = new EnumMap<>(VitalMetric.class);
+    private final long windowMillis;
+    private final int windowSize;
+
+    private final Map<Long, UserState> states = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> abnormalByWorker = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    public CriticalVitalsDetector(HealthRecordRepository healthRecordRepository,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  @Value("${ubuzima.vitals.alerts.heart-rate:40,50,120,150,5}") String heartRate,
+                                  @Value("${ubuzima.vitals.alerts.systolic:-,-,140,180,5}") String systolic,
+                                  @Value("${ubuzima.vitals.alerts.diastolic:-,-,90,120,5}") String diastolic,
+                                  @Value("${ubuzima.vitals.alerts.temperature:34,35,39,40,0.3}") String temperature,
+                                  @Value("${ubuzima.vitals.alerts.window-minutes:60}") long windowMinutes,
+                                  @Value("${ubuzima.vitals.alerts.window-size:3}") int windowSize) {
+        this.healthRecordRepository = healthRecordRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.thresholds.put(VitalMetric.HEART_RATE, Thresholds.parse(heartRate));
+        this.thresholds.put(VitalMetric.SYSTOLIC, Thresholds.parse(systolic));
+        this.thresholds.put(VitalMetric.DIASTOLIC, Thresholds.parse(diastolic));
+        this.thresholds.put(VitalMetric.TEMPERATURE, Thresholds.parse(temperature));
+        this.windowMillis = windowMinutes * 60_000L;
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Rebuild the index from every health record's latest vitals, without alerting anyone.
+     * The detector's state is memory only, so this is what keeps /critical right after a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        try {
+            int loaded = 0;
+            long afterId = 0L;
+            List<Object[]> page;
+            do {
+                page = healthRecordRepository.findLatestVitalsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (Object[] row : page) {
+                    seed(row);
+                    afterId = (Long) row[7];
+                }
+                loaded += page.size();
+            } while (page.size() == LOAD_PAGE_SIZE);
+            ready = true;
+            log.info("Critical vitals index loaded from {} health records, {} users tracked", loaded, states.size());
+        } catch (Exception e) {
+            log.error("Failed to load critical vitals index, /critical keeps reading health records: {}", e.getMessage());
+        }
+    }
+
+    // One row of findLatestVitalsAfter, evaluated as readings taken when the record was last updated
+    private void seed(Object[] row) {
+        Long userId = (Long) row[0];
+        LocalDateTime recordedAt = row[6] != null ? (LocalDateTime) row[6] : LocalDateTime.now();
+        List<VitalReading> readings = new ArrayList<>(4);
+        if (row[3] != null) {
+            readings.add(new VitalReading(userId, VitalMetric.HEART_RATE, recordedAt, ((Integer) row[3]).doubleValue()));
+        }
+        int[] bloodPressure = parseBloodPressure((String) row[4]);
+        if (bloodPressure != null) {
+            readings.add(new VitalReading(userId, VitalMetric.SYSTOLIC, recordedAt, bloodPressure[0]));
+            readings.add(new VitalReading(userId, VitalMetric.DIASTOLIC, recordedAt, bloodPressure[1]));
+        }
+        if (row[5] != null) {
+            readings.add(new VitalReading(userId, VitalMetric.TEMPERATURE, recordedAt, ((Number) row[5]).doubleValue()));
+        }
+        apply(userId, (String) row[1], (Long) row[2], readings);
+    }
+
+    /**
+     * Evaluate new readings for the owner of a health record and alert on a severity change
+     */
+    public void evaluate(HealthRecord record, List<VitalReading> readings) {
+        if (record == null || record.getUser() == null || readings.isEmpty()) {
+            return;
+        }
+        Long healthWorkerId = record.getAssignedHealthWorker() != null ? record.getAssignedHealthWorker().getId() : null;
+        try {
+            Alert alert = apply(record.getUser().getId(), record.getUser().getName(), healthWorkerId, readings);
+            if (alert != null) {
+                publish(alert);
+            }
+        } catch (Exception e) {
+            log.error("Failed to evaluate vitals for user {}: {}", record.getUser().getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Users currently at the given severity or worse, most recently changed first.
+     *
+     * @param healthWorkerId restrict to one health worker's patients, or null for everyone
+     */
+    public List<Alert> getAbnormal(Long healthWorkerId, Severity minimum) {
+        List<Alert> result = new ArrayList<>();
+        if (healthWorkerId != null) {
+            for (Long userId : abnormalByWorker.getOrDefault(healthWorkerId, Set.of())) {
+                addIfAtLeast(result, userId, minimum);
+            }
+        } else {
+            for (Long userId : states.keySet()) {
+                addIfAtLeast(result, userId, minimum);
+            }
+        }
+        result.sort(Comparator.comparing(Alert::since, Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        long critical = states.values().stream().filter(state -> state.severity == Severity.CRITICAL).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("trackedUsers", states.size());
+        stats.put("critical", critical);
+        stats.put("concerning", states.size() - critical);
+        stats.put("healthWorkers", abnormalByWorker.size());
+        return stats;
+    }
+
+    private void addIfAtLeast(List<Alert> result, Long userId, Severity minimum) {
+        Alert[] snapshot = new Alert[1];
+        states.computeIfPresent(userId, (id, state) -> {
+            snapshot[0] = toAlert(id, state);
+            return state;
+        });
+        if (snapshot[0] != null && snapshot[0].severity().compareTo(minimum) >= 0) {
+            result.add(snapshot[0]);
+        }
+    }
+
+    /**
+     * Update a user's state and the worker index; returns the alert to send if severity changed
+     */
+    private Alert apply(Long userId, String userName, Long healthWorkerId, List<VitalReading> readings) {
+        long workerKey = healthWorkerId != null ? healthWorkerId : UNASSIGNED;
+        Alert[] change = new Alert[1];
+
+        states.compute(userId, (id, state) -> {
+            UserState current = state != null ? state : new UserState();
+            Severity previous = current.severity;
+            long previousWorker = current.healthWorkerId;
+            current.userName = userName;
+            current.healthWorkerId = workerKey;
+
+            for (VitalReading reading : readings) {
+                Thresholds limits = thresholds.get(reading.metric());
+                if (limits != null) {
+                    observe(current, reading, limits);
+                }
+            }
+
+            Severity severity = Severity.NORMAL;
+            for (Severity metricSeverity : current.severities.values()) {
+                if (metricSeverity.compareTo(severity) > 0) {
+                    severity = metricSeverity;
+                }
+            }
+            current.severity = severity;
+            if (severity != previous) {
+                current.since = LocalDateTime.now();
+            }
+
+            if (previous != Severity.NORMAL && (severity == Severity.NORMAL || previousWorker != workerKey)) {
+                abnormalByWorker.computeIfPresent(previousWorker, (worker, users) -> {
+                    users.remove(id);
+                    return users.isEmpty() ? null : users;
+                });
+            }
+            if (severity != Severity.NORMAL) {
+                abnormalByWorker.computeIfAbsent(workerKey, worker -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            if (severity != previous) {
+                change[0] = toAlert(id, current);
+            }
+            // Only abnormal users are kept; a normal reading needs no window to raise severity again
+            return severity == Severity.NORMAL ? null : current;
+        });
+        return change[0];
+    }
+
+    private void observe(UserState state, VitalReading reading, Thresholds limits) {
+        VitalMetric metric = reading.metric();
+        long at = reading.recordedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        ArrayDeque<Sample> window = state.windows.computeIfAbsent(metric, m -> new ArrayDeque<>(windowSize + 1));
+
+        Sample newest = window.peekLast();
+        if (newest != null && at < newest.epochMillis() - windowMillis) {
+            // Older than the window: a backfilled reading must not move the current state
+            return;
+        }
+        window.addLast(new Sample(at, reading.value()));
+        long latest = Math.max(at, newest != null ? newest.epochMillis() : at);
+        window.removeIf(sample -> sample.epochMillis() < latest - windowMillis);
+        while (window.size() > windowSize) {
+            window.pollFirst();
+        }
+        if (newest == null || at >= newest.epochMillis()) {
+            state.lastValues.put(metric, reading.value());
+            state.lastReadingAt = reading.recordedAt();
+        }
+
+        Severity current = state.severities.getOrDefault(metric, Severity.NORMAL);
+        Severity raised = limits.classify(reading.value(), 0);
+        if (raised.compareTo(current) > 0) {
+            state.severities.put(metric, raised);
+            return;
+        }
+        // Step down only as far as the worst reading still in the window allows
+        Severity held = Severity.NORMAL;
+        for (Sample sample : window) {
+            Severity sampleSeverity = limits.classify(sample.value(), limits.hysteresis());
+            if (sampleSeverity.compareTo(held) > 0) {
+                held = sampleSeverity;
+            }
+        }
+        state.severities.put(metric, held.compareTo(current) < 0 ? held : current);
+    }
+
+    private Alert toAlert(Long userId, UserState state) {
+        Map<VitalMetric, Double> abnormalValues = new EnumMap<>(VitalMetric.class);
+        state.severities.forEach((metric, severity) -> {
+            if (severity != Severity.NORMAL && state.lastValues.containsKey(metric)) {
+                abnormalValues.put(metric, state.lastValues.get(metric));
+            }
+        });
+        Long healthWorkerId = state.healthWorkerId != UNASSIGNED ? state.healthWorkerId : null;
+        return new Alert(userId, state.userName, healthWorkerId, state.severity, abnormalValues, state.since,
+            state.lastReadingAt);
+    }
+
+    private void publish(Alert alert) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", alert.severity() == Severity.NORMAL ? "VITALS_RESOLVED" : "VITALS_" + alert.severity().name());
+        message.put("userId", alert.userId());
+        message.put("userName", alert.userName());
+        message.put("healthWorkerId", alert.healthWorkerId());
+        message.put("severity", alert.severity().name());
+        message.put("abnormalValues", alert.abnormalValues());
+        message.put("timestamp", LocalDateTime.now().toString());
+
+        if (alert.healthWorkerId() != null) {
+            messagingTemplate.convertAndSendToUser(alert.healthWorkerId().toString(), WORKER_QUEUE, message);
+        }
+        log.info("Vitals alert for user {}: {}", alert.userId(), message.get("type"));
+    }
+
+    private static int[] parseBloodPressure(String bpValue) {
+        if (bpValue == null || !bpValue.contains("/")) {
+            return null;
+        }
+        try {
+            String[] parts = bpValue.split("/");
+            return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.entity.MenstrualCycle;
+import rw.health.ubuzima.repository.MenstrualCycleRepository;
+import rw.health.ubuzima.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Menstrual cycle forecasting.
+ * Cycle length is the recency-weighted mean of the gaps between logged period starts, after
+ * dropping outliers by median absolute deviation; its spread widens the fertile window and
+ * lowers the confidence score. Forecasts for the next few cycles are stored in the user's
+ * is_predicted rows whenever a cycle is added, edited or removed, and recomputed for every
+ * user by a nightly batch, so reading a prediction is one indexed lookup.
+ */
+@Service
+@Slf4j
+public class CycleForecastService {
+
+    public static final int FORECAST_CYCLES = 3;
+    // A forecast stays current this many days after its start date, while the period may be late
+    public static final int LATE_TOLERANCE_DAYS = 7;
+
+    private static final int DEFAULT_CYCLE_LENGTH = 28;
+    private static final int DEFAULT_FLOW_DURATION = 5;
+    private static final int LUTEAL_PHASE_DAYS = 14;
+    private static final int MIN_CYCLE_LENGTH = 15;
+    private static final int MAX_CYCLE_LENGTH = 90;
+    private static final int MAX_HISTORY = 12;
+    private static final double RECENCY_DECAY = 0.85;
+    private static final int MAX_REMEMBERED_WITHOUT_HISTORY = 100_000;
+
+    private final MenstrualCycleRepository menstrualCycleRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService batchExecutor;
+    // Users found to have no logged cycles, so reads don't recompute an empty forecast every time;
+    // cleared for a user whenever their cycles change
+    private final Set<Long> withoutHistory = ConcurrentHashMap.newKeySet();
+
+    @Value("${ubuzima.cycles.forecast.batch-chunk-size:500}")
+    private int chunkSize;
+
+    public CycleForecastService(MenstrualCycleRepository menstrualCycleRepository,
+                                UserRepository userRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${ubuzima.cycles.forecast.batch-threads:4}") int batchThreads) {
+        this.menstrualCycleRepository = menstrualCycleRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(batchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cycle-forecast-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Cycle statistics behind a forecast
+     */
+    public record CycleStatistics(double meanCycleLength, double stdDevDays, int sampleSize,
+                                  int flowDuration, double confidence) {
+    }
+
+    /**
+     * Next forecast cycle for a user, computing forecasts first if none are stored yet
+     */
+    public Optional<MenstrualCycle> getNextForecast(Long userId) {
+        Optional<MenstrualCycle> stored = findNextStored(userId);
+        if (stored.isPresent() || withoutHistory.contains(userId)) {
+            return stored;
+        }
+        recompute(userId);
+        stored = findNextStored(userId);
+        if (stored.isEmpty() && menstrualCycleRepository.countByUserId(userId) == 0) {
+            if (withoutHistory.size() >= MAX_REMEMBERED_WITHOUT_HISTORY) {
+                withoutHistory.clear();
+            }
+            withoutHistory.add(userId);
+        }
+        return stored;
+    }
+
+    /**
+     * Recompute and store one user's forecasts, after a cycle was added, edited or removed
+     */
+    public void recompute(Long userId) {
+        withoutHistory.remove(userId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> forecastUser(userId,
+                menstrualCycleRepository.findActualCyclesAsc(userId),
+                menstrualCycleRepository.findPredictedCyclesAsc(userId),
+                LocalDate.now()));
+        } catch (Exception e) {
+            // The nightly batch catches up on anything missed here
+            log.warn("Failed to recompute cycle forecast for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Nightly recompute for every user with logged cycles, in parallel chunks
+     */
+    @Scheduled(cron = "${ubuzima.cycles.forecast.cron:0 30 2 * * *}")
+    public void recomputeAll() {
+        long started = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        AtomicInteger users = new AtomicInteger();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+        long afterId = 0L;
+        while (true) {
+            List<Long> userIds = menstrualCycleRepository.findUserIdsWithCyclesAfter(afterId, PageRequest.of(0, chunkSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            chunks.add(CompletableFuture.runAsync(() -> {
+                forecastChunk(userIds, today);
+                users.addAndGet(userIds.size());
+            }, batchExecutor));
+            afterId = userIds.get(userIds.size() - 1);
+        }
+
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+        log.info("Recomputed cycle forecasts for {} users in {} ms", users.get(), System.currentTimeMillis() - started);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+        try {
+            if (!batchExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                batchExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            batchExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Weighted, outlier-robust statistics over a user's logged cycles (oldest first)
+     */
+    public static CycleStatistics computeStatistics(List<MenstrualCycle> actualAsc) {
+        List<MenstrualCycle> recent = actualAsc.subList(Math.max(0, actualAsc.size() - MAX_HISTORY - 1), actualAsc.size());
+
+        // Prefer gaps between logged starts; fall back to the lengths users entered
+        List<Integer> lengths = new ArrayList<>();
+        for (int i = 1; i < recent.size(); i++) {
+            long gap = ChronoUnit.DAYS.between(recent.get(i - 1).getStartDate(), recent.get(i).getStartDate());
+            // Longer gaps are most likely unlogged periods, not long cycles
+            if (gap >= MIN_CYCLE_LENGTH && gap <= MAX_CYCLE_LENGTH) {
+                lengths.add((int) gap);
+            }
+        }
+        if (lengths.isEmpty()) {
+            for (MenstrualCycle cycle : recent) {
+                Integer length = cycle.getCycleLength();
+                if (length != null && length >= MIN_CYCLE_LENGTH && length <= MAX_CYCLE_LENGTH) {
+                    lengths.add(length);
+                }
+            }
+        }
+
+        int flowDuration = weightedFlowDuration(recent);
+        if (lengths.isEmpty()) {
+            return new CycleStatistics(DEFAULT_CYCLE_LENGTH, 3.0, 0, flowDuration, 0.1);
+        }
+
+        // Drop lengths more than 3 scaled MADs (at least 4 days) from the median
+        double median = median(lengths.stream().map(Integer::doubleValue).toList());
+        double mad = 1.4826 * median(lengths.stream().map(length -> Math.abs(length - median)).toList());
+        double threshold = Math.max(3 * mad, 4.0);
+
+        double weightSum = 0;
+        double weightedSum = 0;
+        List<double[]> kept = new ArrayList<>();
+        for (int i = 0; i < lengths.size(); i++) {
+            int length = lengths.get(i);
+            if (Math.abs(length - median) > threshold) {
+                continue;
+            }
+            // Most recent cycle has weight 1, each older one RECENCY_DECAY times less
+            double weight = Math.pow(RECENCY_DECAY, lengths.size() - 1 - i);
+            kept.add(new double[] {length, weight});
+            weightSum += weight;
+            weightedSum += weight * length;
+        }
+
+        double mean = weightedSum / weightSum;
+        double variance = 0;
+        for (double[] sample : kept) {
+            variance += sample[1] * (sample[0] - mean) * (sample[0] - mean);
+        }
+        double stdDev = Math.sqrt(variance / weightSum);
+
+        // More cycles and steadier cycles both raise confidence
+        double sampleFactor = Math.min(1.0, kept.size() / 6.0);
+        double regularity = Math.max(0.0, 1.0 - stdDev / 7.0);
+        double confidence = Math.round((0.2 + 0.75 * sampleFactor * regularity) * 100) / 100.0;
+
+        return new CycleStatistics(mean, stdDev, kept.size(), flowDuration, confidence);
+    }
+
+    private Optional<MenstrualCycle> findNextStored(Long userId) {
+        return menstrualCycleRepository.findUpcomingPredictions(userId,
+                LocalDate.now().minusDays(LATE_TOLERANCE_DAYS), PageRequest.of(0, 1))
+            .stream().findFirst();
+    }
+
+    private void forecastChunk(List<Long> userIds, LocalDate today) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, List<MenstrualCycle>> actual = menstrualCycleRepository.findActualCyclesForUsers(userIds).stream()
+                    .collect(Collectors.groupingBy(cycle -> cycle.getUser().getId()));
+                Map<Long, List<MenstrualCycle>> predicted = menstrualCycleRepository.findPredictedCyclesForUsers(userIds).stream()
+                    .collect(Collectors.groupingBy(cycle -> cycle.getUser().getId()));
+
+                for (Long userId : userIds) {
+                    forecastUser(userId, actual.getOrDefault(userId, List.of()),
+                        predicted.getOrDefault(userId, List.of()), today);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to recompute cycle forecasts for users {}..{}", userIds.get(0),
+                userIds.get(userIds.size() - 1), e);
+        }
+    }
+
+    // Overwrites the user's existing forecast rows in place, adding or removing rows as needed
+    private void forecastUser(Long userId, List<MenstrualCycle> actualAsc, List<MenstrualCycle> predictedAsc, LocalDate today) {
+        if (actualAsc.isEmpty()) {
+            if (!predictedAsc.isEmpty()) {
+                menstrualCycleRepository.deleteAll(predictedAsc);
+            }
+            return;
+        }
+
+        CycleStatistics statistics = computeStatistics(actualAsc);
+        int cycleLength = (int) Math.round(statistics.meanCycleLength());
+        LocalDate lastStart = actualAsc.get(actualAsc.size() - 1).getStartDate();
+
+        // First forecast start that is not already past the late tolerance
+        LocalDate nextStart = lastStart.plusDays(cycleLength);
+        while (nextStart.isBefore(today.minusDays(LATE_TOLERANCE_DAYS))) {
+            nextStart = nextStart.plusDays(cycleLength);
+        }
+
+        List<MenstrualCycle> rows = new ArrayList<>(predictedAsc);
+        for (int k = 0; k < FORECAST_CYCLES; k++) {
+            MenstrualCycle row;
+            if (k < rows.size()) {
+                row = rows.get(k);
+            } else {
+                row = new MenstrualCycle();
+                row.setUser(userRepository.getReferenceById(userId));
+                row.setIsPredicted(true);
+                rows.add(row);
+            }
+
+            LocalDate start = nextStart.plusDays((long) k * cycleLength);
+            LocalDate ovulation = start.plusDays(cycleLength - LUTEAL_PHASE_DAYS);
+            // Uncertainty grows with the spread of past cycles and with how far ahead we look
+            int margin = (int) Math.min(6, Math.round(statistics.stdDevDays() * Math.sqrt(k + 1)));
+
+            row.setStartDate(start);
+            row.setEndDate(start.plusDays(statistics.flowDuration() - 1));
+            row.setCycleLength(cycleLength);
+            row.setFlowDuration(statistics.flowDuration());
+            row.setOvulationDate(ovulation);
+            row.setFertileWindowStart(ovulation.minusDays(5 + margin));
+            row.setFertileWindowEnd(ovulation.plusDays(1 + margin));
+            row.setPredictionConfidence(Math.round(statistics.confidence() * Math.pow(0.9, k) * 100) / 100.0);
+        }
+
+        menstrualCycleRepository.saveAll(rows.subList(0, FORECAST_CYCLES));
+        if (rows.size() > FORECAST_CYCLES) {
+            menstrualCycleRepository.deleteAll(rows.subList(FORECAST_CYCLES, rows.size()));
+        }
+    }
+
+    private static int weightedFlowDuration(List<MenstrualCycle> cycles) {
+        double weightSum = 0;
+        double weightedSum = 0;
+        for (int i = 0; i < cycles.size(); i++) {
+            MenstrualCycle cycle = cycles.get(i);
+            Integer duration = cycle.getFlowDuration();
+            if (duration == null && cycle.getEndDate() != null) {
+                duration = (int) ChronoUnit.DAYS.between(cycle.getStartDate(), cycle.getEndDate()) + 1;
+            }
+            if (duration != null && duration > 0 && duration <= 14) {
+                double weight = Math.pow(RECENCY_DECAY, cycles.size() - 1 - i);
+                weightSum += weight;
+                weightedSum += weight * duration;
+            }
+        }
+        return weightSum > 0 ? (int) Math.round(weightedSum / weightSum) : DEFAULT_FLOW_DURATION;
+    }
+
+    private static double median(List<Double> values) {
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+}
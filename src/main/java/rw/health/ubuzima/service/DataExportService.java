@@ -0,0 +1,218 @@
+package rw.health.ubuzima.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming bulk export for admin entity exports.
+ * Rows are read as scalar projections through a forward-only scroll with a JDBC fetch size,
+ * so no entities or lazy relations are materialized, and written straight to the response stream.
+ * Memory stays constant regardless of table size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataExportService {
+
+    private static final int FETCH_SIZE = 500;
+    private static final int CLEAR_INTERVAL = 1000;
+
+    public enum ExportFormat {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static ExportFormat from(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            return ExportFormat.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Column list and scalar projection query for one exportable entity type
+     */
+    private record ExportDefinition(List<String> columns, String query) {
+    }
+
+    private static final Map<String, ExportDefinition> DEFINITIONS = Map.of(
+        "users", new ExportDefinition(
+            List.of("id", "name", "email", "phone", "role", "status", "gender", "dateOfBirth", "facilityId",
+                "district", "sector", "cell", "village", "preferredLanguage", "emailVerified", "phoneVerified",
+                "lastLoginAt", "platform", "createdAt", "updatedAt"),
+            "SELECT u.id, u.name, u.email, u.phone, u.role, u.status, u.gender, u.dateOfBirth, u.facilityId, " +
+            "u.district, u.sector, u.cell, u.village, u.preferredLanguage, u.emailVerified, u.phoneVerified, " +
+            "u.lastLoginAt, u.platform, u.createdAt, u.updatedAt FROM User u ORDER BY u.id"),
+        "appointments", new ExportDefinition(
+            List.of("id", "userId", "healthFacilityId", "healthWorkerId", "appointmentType", "status",
+                "scheduledDate", "durationMinutes", "reason", "notes", "reminderSent", "completedAt",
+                "cancelledAt", "cancellationReason", "createdAt", "updatedAt"),
+            "SELECT a.id, a.user.id, a.healthFacility.id, a.healthWorker.id, a.appointmentType, a.status, " +
+            "a.scheduledDate, a.durationMinutes, a.reason, a.notes, a.reminderSent, a.completedAt, " +
+            "a.cancelledAt, a.cancellationReason, a.createdAt, a.updatedAt FROM Appointment a ORDER BY a.id"),
+        "notifications", new ExportDefinition(
+            List.of("id", "userId", "title", "message", "type", "isRead", "readAt", "actionUrl", "priority",
+                "scheduledFor", "sentAt", "createdAt"),
+            "SELECT n.id, n.user.id, n.title, n.message, n.type, n.isRead, n.readAt, n.actionUrl, n.priority, " +
+            "n.scheduledFor, n.sentAt, n.createdAt FROM Notification n ORDER BY n.id")
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public boolean supports(String entityType) {
+        return entityType != null && DEFINITIONS.containsKey(entityType.toLowerCase(Locale.ROOT));
+    }
+
+    public String buildFileName(String entityType, ExportFormat format, boolean gzip, String timestamp) {
+        return entityType.toLowerCase(Locale.ROOT) + "-" + timestamp + "." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Stream every row of an entity type to the output stream
+     *
+     * @return number of rows written
+     */
+    public long export(String entityType, ExportFormat format, boolean gzip, OutputStream outputStream) throws IOException {
+        ExportDefinition definition = DEFINITIONS.get(entityType.toLowerCase(Locale.ROOT));
+        if (definition == null) {
+            throw new IllegalArgumentException("Unknown entity type: " + entityType);
+        }
+
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+            gzipStream != null ? gzipStream : outputStream, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (format == ExportFormat.CSV) {
+            writeCsvRow(writer, definition.columns().toArray());
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        Long written = transactionTemplate.execute(status -> {
+            try {
+                return scrollRows(definition, format, writer);
+            } catch (IOException e) {
+                throw new ExportStreamException(e);
+            }
+        });
+
+        writer.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+        outputStream.flush();
+
+        log.info("Exported {} {} rows as {}{}", written, entityType, format, gzip ? " (gzip)" : "");
+        return written != null ? written : 0L;
+    }
+
+    private long scrollRows(ExportDefinition definition, ExportFormat format, Writer writer) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        long count = 0;
+
+        try (ScrollableResults<Object[]> results = session.createQuery(definition.query(), Object[].class)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            while (results.next()) {
+                Object[] row = results.get();
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, row);
+                } else {
+                    writeNdjsonRow(writer, definition.columns(), row);
+                }
+
+                if (++count % CLEAR_INTERVAL == 0) {
+                    // Keep the persistence context empty and push buffered bytes to the client
+                    session.clear();
+                    writer.flush();
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private void writeCsvRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeNdjsonRow(Writer writer, List<String> columns, Object[] values) throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = values[i];
+            row.put(columns.get(i), value instanceof Enum<?> ? ((Enum<?>) value).name() : value);
+        }
+        writer.write(objectMapper.writeValueAsString(row));
+        writer.write('\n');
+    }
+
+    private String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Enum<?> ? ((Enum<?>) value).name() : value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    /**
+     * Carries an IOException out of the transaction callback
+     */
+    public static class ExportStreamException extends RuntimeException {
+        public ExportStreamException(IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import rw.health.ubuzima.entity.HealthFacility;
+import rw.health.ubuzima.enums.FacilityType;
+import rw.health.ubuzima.repository.HealthFacilityRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory spatial index of active health facilities.
+ * Facilities are bucketed into a fixed-size lat/lon grid. A nearest search walks rings of
+ * cells outward from the query point, skips points outside the radius bounding box, ranks
+ * the rest by exact haversine distance and stops once no unvisited cell can beat the current
+ * k-th result. The grid is an immutable snapshot: facility writes replace only the cell they touch,
+ * and a periodic rebuild from the database picks up writes made elsewhere.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FacilityGeoIndexService {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private final HealthFacilityRepository healthFacilityRepository;
+
+    @Value("${ubuzima.facilities.geo-index.cell-size-degrees:0.05}")
+    private double cellSizeDegrees;
+
+    private volatile GridSnapshot snapshot = GridSnapshot.EMPTY;
+
+    /**
+     * A facility with its distance from the query point
+     */
+    public record FacilityMatch(HealthFacility facility, double distanceKm) {
+    }
+
+    private record IndexedFacility(HealthFacility facility, double latitude, double longitude, String servicesLower) {
+    }
+
+    private record GridSnapshot(Map<Long, List<IndexedFacility>> cells, Map<Long, Long> cellOfFacility, double cellSize,
+                                int minLatCell, int maxLatCell, int minLonCell, int maxLonCell, int size) {
+        static final GridSnapshot EMPTY = new GridSnapshot(Map.of(), Map.of(), 1.0, 0, -1, 0, -1, 0);
+    }
+
+    /**
+     * k nearest active facilities, optionally within a radius and filtered by type or offered service
+     *
+     * @param radiusKm null for no distance limit
+     * @param service  case-insensitive substring of servicesOffered, or null
+     */
+    public List<FacilityMatch> findNearest(double latitude, double longitude, Double radiusKm, int limit,
+                                           FacilityType type, String service) {
+        GridSnapshot grid = snapshot;
+        if (grid.size() == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        double maxDistance = radiusKm != null ? radiusKm : Double.MAX_VALUE;
+        String serviceFilter = service != null && !service.isBlank() ? service.trim().toLowerCase(Locale.ROOT) : null;
+
+        // Bounding box of the radius, used to skip points before computing haversine
+        double latDelta = radiusKm != null ? radiusKm / KM_PER_DEGREE_LAT : 180.0;
+        double lonDelta = radiusKm != null
+            ? radiusKm / (KM_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + latDelta)))))
+            : 360.0;
+
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<FacilityMatch> best = new PriorityQueue<>(limit + 1,
+            Comparator.comparingDouble(FacilityMatch::distanceKm).reversed());
+
+        int centerLat = cellIndex(latitude, grid.cellSize());
+        int centerLon = cellIndex(longitude, grid.cellSize());
+        int maxRing = Math.max(
+            Math.max(Math.abs(centerLat - grid.minLatCell()), Math.abs(grid.maxLatCell() - centerLat)),
+            Math.max(Math.abs(centerLon - grid.minLonCell()), Math.abs(grid.maxLonCell() - centerLon)));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Closest possible distance of any cell in this ring
+            double ringLowerBound = ringLowerBoundKm(ring, latitude, grid.cellSize());
+            if (ringLowerBound > maxDistance
+                    || (best.size() == limit && ringLowerBound > best.peek().distanceKm())) {
+                break;
+            }
+
+            for (int latCell = centerLat - ring; latCell <= centerLat + ring; latCell++) {
+                boolean edgeRow = latCell == centerLat - ring || latCell == centerLat + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int lonCell = centerLon - ring; lonCell <= centerLon + ring; lonCell += step) {
+                    List<IndexedFacility> cell = grid.cells().get(cellKey(latCell, lonCell));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (IndexedFacility candidate : cell) {
+                        if (Math.abs(candidate.latitude() - latitude) > latDelta
+                                || Math.abs(candidate.longitude() - longitude) > lonDelta
+                                || (type != null && candidate.facility().getFacilityType() != type)
+                                || (serviceFilter != null && (candidate.servicesLower() == null
+                                    || !candidate.servicesLower().contains(serviceFilter)))) {
+                            continue;
+                        }
+
+                        double distance = haversineKm(latitude, longitude, candidate.latitude(), candidate.longitude());
+                        if (distance > maxDistance) {
+                            continue;
+                        }
+                        if (best.size() < limit) {
+                            best.add(new FacilityMatch(candidate.facility(), distance));
+                        } else if (distance < best.peek().distanceKm()) {
+                            best.poll();
+                            best.add(new FacilityMatch(candidate.facility(), distance));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<FacilityMatch> results = new ArrayList<>(best);
+        results.sort(Comparator.comparingDouble(FacilityMatch::distanceKm));
+        return results;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Rebuild the grid from the database. Synchronized with {@link #apply} so a write applied while
+     * the table is being read is not overwritten by the older rebuild.
+     */
+    public synchronized void rebuild() {
+        List<HealthFacility> facilities = healthFacilityRepository.findByIsActiveTrue();
+        double cellSize = cellSize();
+
+        Map<Long, List<IndexedFacility>> cells = new HashMap<>();
+        Map<Long, Long> cellOfFacility = new HashMap<>();
+        int minLat = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE;
+        int minLon = Integer.MAX_VALUE;
+        int maxLon = Integer.MIN_VALUE;
+        int indexed = 0;
+
+        for (HealthFacility facility : facilities) {
+            IndexedFacility entry = toIndexed(facility);
+            if (entry == null) {
+                continue;
+            }
+            int latCell = cellIndex(entry.latitude(), cellSize);
+            int lonCell = cellIndex(entry.longitude(), cellSize);
+            long key = cellKey(latCell, lonCell);
+
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            if (facility.getId() != null) {
+                cellOfFacility.put(facility.getId(), key);
+            }
+
+            minLat = Math.min(minLat, latCell);
+            maxLat = Math.max(maxLat, latCell);
+            minLon = Math.min(minLon, lonCell);
+            maxLon = Math.max(maxLon, lonCell);
+            indexed++;
+        }
+
+        cells.replaceAll((key, list) -> Collections.unmodifiableList(list));
+        snapshot = indexed == 0
+            ? GridSnapshot.EMPTY
+            : new GridSnapshot(Collections.unmodifiableMap(cells), Collections.unmodifiableMap(cellOfFacility),
+                cellSize, minLat, maxLat, minLon, maxLon, indexed);
+
+        log.info("Facility geo index rebuilt: {} facilities in {} cells", indexed, cells.size());
+    }
+
+    /**
+     * Apply one saved facility to the grid without reloading the table. Called after facility writes;
+     * only the facility's old and new cells are copied. Inactive facilities and ones without
+     * coordinates are dropped. The cell bounds only grow, which just widens the ring search limit.
+     */
+    public synchronized void apply(HealthFacility facility) {
+        Long id = facility.getId();
+        if (id == null) {
+            return;
+        }
+        GridSnapshot grid = snapshot;
+        double cellSize = cellSize();
+
+        Map<Long, List<IndexedFacility>> cells = new HashMap<>(grid.cells());
+        Map<Long, Long> cellOfFacility = new HashMap<>(grid.cellOfFacility());
+        int size = grid.size();
+
+        Long previousKey = cellOfFacility.remove(id);
+        if (previousKey != null) {
+            List<IndexedFacility> remaining = new ArrayList<>(cells.get(previousKey));
+            remaining.removeIf(entry -> id.equals(entry.facility().getId()));
+            if (remaining.isEmpty()) {
+                cells.remove(previousKey);
+            } else {
+                cells.put(previousKey, Collections.unmodifiableList(remaining));
+            }
+            size--;
+        }
+
+        int minLat = grid.minLatCell();
+        int maxLat = grid.maxLatCell();
+        int minLon = grid.minLonCell();
+        int maxLon = grid.maxLonCell();
+
+        IndexedFacility entry = toIndexed(facility);
+        if (entry != null) {
+            int latCell = cellIndex(entry.latitude(), cellSize);
+            int lonCell = cellIndex(entry.longitude(), cellSize);
+            long key = cellKey(latCell, lonCell);
+
+            List<IndexedFacility> cell = new ArrayList<>(cells.getOrDefault(key, List.of()));
+            cell.add(entry);
+            cells.put(key, Collections.unmodifiableList(cell));
+            cellOfFacility.put(id, key);
+
+            if (size == 0) {
+                minLat = maxLat = latCell;
+                minLon = maxLon = lonCell;
+            } else {
+                minLat = Math.min(minLat, latCell);
+                maxLat = Math.max(maxLat, latCell);
+                minLon = Math.min(minLon, lonCell);
+                maxLon = Math.max(maxLon, lonCell);
+            }
+            size++;
+        }
+
+        snapshot = size == 0
+            ? GridSnapshot.EMPTY
+            : new GridSnapshot(Collections.unmodifiableMap(cells), Collections.unmodifiableMap(cellOfFacility),
+                cellSize, minLat, maxLat, minLon, maxLon, size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    // Picks up writes made by other instances
+    @Scheduled(fixedDelayString = "${ubuzima.facilities.geo-index.refresh-interval-ms:600000}",
+               initialDelayString = "${ubuzima.facilities.geo-index.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Failed to rebuild facility geo index", e);
+        }
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private double cellSize() {
+        return cellSizeDegrees > 0 ? cellSizeDegrees : 0.05;
+    }
+
+    private static IndexedFacility toIndexed(HealthFacility facility) {
+        if (!Boolean.TRUE.equals(facility.getIsActive())
+                || facility.getLatitude() == null || facility.getLongitude() == null) {
+            return null;
+        }
+        String services = facility.getServicesOffered() != null
+            ? facility.getServicesOffered().toLowerCase(Locale.ROOT)
+            : null;
+        return new IndexedFacility(facility, facility.getLatitude(), facility.getLongitude(), services);
+    }
+
+    private double ringLowerBoundKm(int ring, double latitude, double cellSize) {
+        if (ring <= 1) {
+            // The query point can sit on the edge of its own cell
+            return 0.0;
+        }
+        double degrees = (ring - 1) * cellSize;
+        // Longitude degrees shrink away from the equator; use the narrowest latitude the ring can reach
+        double widestLatitude = Math.min(89.0, Math.abs(latitude) + (ring + 1) * cellSize);
+        double kmPerDegree = KM_PER_DEGREE_LAT * Math.min(1.0, Math.cos(Math.toRadians(widestLatitude)));
+        return degrees * kmPerDegree;
+    }
+
+    private static int cellIndex(double coordinate, double cellSize) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
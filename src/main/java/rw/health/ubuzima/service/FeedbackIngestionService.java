@@ -0,0 +1,316 @@
+package rw.health.ubuzima.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous feedback ingestion.
+ * A submission is validated, given a ticket id and put on a bounded in-memory queue; the request
+ * thread never touches the database. One writer thread drains the queue and inserts whatever has
+ * accumulated as a single JDBC batch. When the queue is full the submission is refused rather
+ * than blocking, so the app can retry later. Queued feedback is lost if the process crashes.
+ * A batch is all or nothing; if a row violates a constraint the batch is written row by row so
+ * only the offending rows are dropped.
+ */
+@Service
+@Slf4j
+public class FeedbackIngestionService {
+
+    public static final Set<String> CATEGORIES = Set.of(
+        "bug", "ui", "feature", "performance", "usability", "content", "accessibility", "other");
+    public static final Set<String> PRIORITIES = Set.of("low", "medium", "high", "critical");
+
+    private static final String INSERT_SQL = "INSERT INTO app_feedback (ticket_id, user_id, title, description, " +
+        "category, priority, status, rating, email, app_version, platform, os_version, device_model, device_info, " +
+        "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, 'received', ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    public record Receipt(String ticketId, LocalDateTime submittedAt, String category, String priority) {
+    }
+
+    private record PendingFeedback(String ticketId, Long userId, String title, String description, String category,
+                                   String priority, Integer rating, String email, String appVersion, String platform,
+                                   String osVersion, String deviceModel, Map<String, Object> deviceInfo,
+                                   LocalDateTime submittedAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PendingFeedback> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Thread writer;
+
+    private final AtomicInteger ticketSequence = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public FeedbackIngestionService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    @Value("${ubuzima.feedback.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${ubuzima.feedback.batch-size:200}") int batchSize,
+                                    @Value("${ubuzima.feedback.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.writer = new Thread(this::writeLoop, "feedback-ingestion");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a submission from the app
+     *
+     * @return the receipt, or null if the queue is full
+     * @throws IllegalArgumentException if the submission has neither a title nor a description
+     */
+    @SuppressWarnings("unchecked")
+    public Receipt submit(Map<String, Object> data, Long userId) {
+        String title = truncate(text(data.get("title")), 255);
+        String description = text(data.get("description"));
+        if (title == null && description == null) {
+            throw new IllegalArgumentException("Feedback needs a title or a description");
+        }
+
+        Map<String, Object> deviceInfo = data.get("deviceInfo") instanceof Map<?, ?> map
+            ? (Map<String, Object>) map : Map.of();
+        String category = normalize(text(data.get("category")), CATEGORIES, "other");
+        String priority = normalize(text(data.get("priority")), PRIORITIES, "medium");
+        LocalDateTime submittedAt = LocalDateTime.now();
+
+        PendingFeedback feedback = new PendingFeedback(
+            nextTicketId(),
+            userId,
+            title,
+            description,
+            category,
+            priority,
+            rating(data.get("rating")),
+            truncate(text(data.get("email")), 255),
+            truncate(firstText(data, deviceInfo, "appVersion", "app_version", "version"), 50, "unknown"),
+            truncate(lower(firstText(data, deviceInfo, "platform", "os")), 30, "unknown"),
+            truncate(firstText(data, deviceInfo, "osVersion", "os_version", "systemVersion"), 50),
+            truncate(firstText(data, deviceInfo, "deviceModel", "model", "device"), 100),
+            deviceInfo,
+            submittedAt);
+
+        if (!queue.offer(feedback)) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        accepted.incrementAndGet();
+        return new Receipt(feedback.ticketId(), submittedAt, category, priority);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("accepted", accepted.get());
+        stats.put("written", written.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Write whatever is still queued before the datasource goes away
+        List<PendingFeedback> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            write(remaining.subList(from, Math.min(remaining.size(), from + batchSize)));
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingFeedback> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingFeedback first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shutdown writes what is left on the queue
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Feedback writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingFeedback> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (PendingFeedback feedback : batch) {
+            Timestamp submittedAt = Timestamp.valueOf(feedback.submittedAt());
+            args.add(new Object[] {
+                feedback.ticketId(), feedback.userId(), feedback.title(), feedback.description(),
+                feedback.category(), feedback.priority(), feedback.rating(), feedback.email(),
+                feedback.appVersion(), feedback.platform(), feedback.osVersion(), feedback.deviceModel(),
+                toJson(feedback.deviceInfo()), submittedAt, submittedAt
+            });
+        }
+
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                // One transaction, so a failed batch leaves nothing behind to collide with on retry
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, args));
+                written.addAndGet(batch.size());
+                log.debug("Wrote {} feedback submissions", batch.size());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // A bad row fails the same way on every attempt; don't let it take the others with it
+                log.warn("Feedback batch of {} violated a constraint, writing rows one by one: {}", batch.size(),
+                    e.getMessage());
+                writeRowByRow(args);
+                return;
+            } catch (Exception e) {
+                log.warn("Feedback batch of {} failed (attempt {}/{}): {}", batch.size(), attempt, MAX_WRITE_ATTEMPTS,
+                    e.getMessage());
+                if (attempt < MAX_WRITE_ATTEMPTS && !sleepQuietly(attempt * 1000L)) {
+                    break;
+                }
+            }
+        }
+        failed.addAndGet(batch.size());
+        log.error("Dropped {} feedback submissions after {} attempts", batch.size(), MAX_WRITE_ATTEMPTS);
+    }
+
+    private void writeRowByRow(List<Object[]> args) {
+        for (Object[] row : args) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, row);
+                written.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("Dropped feedback {}: {}", row[0], e.getMessage());
+            }
+        }
+    }
+
+    private String nextTicketId() {
+        // Time, a per-process sequence and two random characters keep ids unique across instances
+        String sequence = Integer.toString(Math.floorMod(ticketSequence.getAndIncrement(), 1296), 36);
+        String random = Integer.toString(ThreadLocalRandom.current().nextInt(1296), 36);
+        return ("FB-" + Long.toString(System.currentTimeMillis(), 36) + "-" + pad(sequence) + pad(random))
+            .toUpperCase(Locale.ROOT);
+    }
+
+    private String toJson(Map<String, Object> deviceInfo) {
+        if (deviceInfo.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(deviceInfo);
+        } catch (Exception e) {
+            return deviceInfo.toString();
+        }
+    }
+
+    private static String firstText(Map<String, Object> data, Map<String, Object> deviceInfo, String... keys) {
+        for (String key : keys) {
+            String value = text(deviceInfo.get(key));
+            if (value == null) {
+                value = text(data.get(key));
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String value, Set<String> allowed, String fallback) {
+        String normalized = lower(value);
+        return normalized != null && allowed.contains(normalized) ? normalized : fallback;
+    }
+
+    private static Integer rating(Object value) {
+        if (value instanceof Number number) {
+            int rating = number.intValue();
+            return rating >= 1 && rating <= 5 ? rating : null;
+        }
+        return null;
+    }
+
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static String truncate(String value, int maxLength, String fallback) {
+        return value != null ? truncate(value, maxLength) : fallback;
+    }
+
+    private static String pad(String base36) {
+        return base36.length() < 2 ? "0" + base36 : base36;
+    }
+
+    private static boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package rw.health.ubuzima.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.entity.Feedback;
+import rw.health.ubuzima.repository.FeedbackRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Feedback retrieval, triage and statistics.
+ * Statistics read the daily rollup table (day x app version x platform x category x priority),
+ * which a scheduled job recomputes for the most recent days from app_feedback; only the first
+ * run after startup on an empty rollup table aggregates the whole history.
+ */
+@Service
+@Slf4j
+public class FeedbackService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final String DELETE_ROLLUPS_SQL = "DELETE FROM feedback_rollups_daily WHERE rollup_date >= ?";
+    private static final String INSERT_ROLLUPS_SQL = "INSERT INTO feedback_rollups_daily " +
+        "(rollup_date, app_version, platform, category, priority, feedback_count, rating_sum, rating_count) " +
+        "SELECT CAST(created_at AS DATE), app_version, platform, category, priority, COUNT(*), " +
+        "COALESCE(SUM(rating), 0), COUNT(rating) FROM app_feedback WHERE created_at >= ? " +
+        "GROUP BY CAST(created_at AS DATE), app_version, platform, category, priority";
+
+    private final FeedbackRepository feedbackRepository;
+    private final FeedbackIngestionService feedbackIngestionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int rollupLookbackDays;
+
+    private volatile boolean rollupsInitialized;
+    private volatile LocalDateTime lastRollupAt;
+
+    public FeedbackService(FeedbackRepository feedbackRepository,
+                           FeedbackIngestionService feedbackIngestionService,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ubuzima.feedback.rollup-lookback-days:1}") int rollupLookbackDays) {
+        this.feedbackRepository = feedbackRepository;
+        this.feedbackIngestionService = feedbackIngestionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rollupLookbackDays = rollupLookbackDays;
+    }
+
+    public record FeedbackFilter(String category, String status, String priority, String platform,
+                                 String appVersion, Long userId, LocalDateTime from, LocalDateTime to) {
+    }
+
+    /**
+     * Newest feedback first, filtered on any combination of the indexed fields
+     */
+    @Transactional(readOnly = true)
+    public Page<Feedback> findFeedback(FeedbackFilter filter, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+            Sort.by(Sort.Direction.DESC, "createdAt"));
+        return feedbackRepository.findFiltered(
+            filter.category(),
+            filter.status(),
+            filter.priority(),
+            filter.platform(),
+            filter.appVersion(),
+            filter.userId(),
+            filter.from() != null ? filter.from() : MIN_DATE,
+            filter.to() != null ? filter.to() : MAX_DATE,
+            pageRequest);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Feedback> findById(Long id) {
+        return feedbackRepository.findById(id);
+    }
+
+    @Transactional
+    public Optional<Feedback> updateStatus(Long id, String status, String adminNotes) {
+        return feedbackRepository.findById(id).map(feedback -> {
+            feedback.setStatus(status);
+            if (adminNotes != null) {
+                feedback.setAdminNotes(adminNotes);
+            }
+            boolean resolved = "resolved".equals(status) || "closed".equals(status);
+            feedback.setResolvedAt(resolved ? LocalDateTime.now() : null);
+            return feedbackRepository.save(feedback);
+        });
+    }
+
+    /**
+     * Totals and breakdowns over the last {@code days} days, read from the daily rollups
+     */
+    public Map<String, Object> getStats(int days) {
+        LocalDate from = LocalDate.now().minusDays(Math.max(days, 1) - 1L);
+        long[] totals = new long[3];
+        Map<String, Long> byCategory = new TreeMap<>();
+        Map<String, Long> byPriority = new TreeMap<>();
+        Map<String, Long> byPlatform = new TreeMap<>();
+        Map<String, Long> byAppVersion = new TreeMap<>();
+        Map<String, Long> daily = new TreeMap<>();
+
+        jdbcTemplate.query("SELECT rollup_date, app_version, platform, category, priority, feedback_count, " +
+                "rating_sum, rating_count FROM feedback_rollups_daily WHERE rollup_date >= ?",
+            rs -> {
+                long count = rs.getLong("feedback_count");
+                totals[0] += count;
+                totals[1] += rs.getLong("rating_sum");
+                totals[2] += rs.getLong("rating_count");
+                byCategory.merge(rs.getString("category"), count, Long::sum);
+                byPriority.merge(rs.getString("priority"), count, Long::sum);
+                byPlatform.merge(rs.getString("platform"), count, Long::sum);
+                byAppVersion.merge(rs.getString("app_version"), count, Long::sum);
+                daily.merge(rs.getDate("rollup_date").toLocalDate().toString(), count, Long::sum);
+            },
+            Date.valueOf(from));
+
+        Map<String, Long> byStatus = new TreeMap<>();
+        for (Object[] row : feedbackRepository.countByStatus()) {
+            byStatus.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        long pending = byStatus.getOrDefault("received", 0L) + byStatus.getOrDefault("in_review", 0L);
+        long resolved = byStatus.getOrDefault("resolved", 0L) + byStatus.getOrDefault("closed", 0L);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("days", days);
+        stats.put("totalFeedback", totals[0]);
+        stats.put("pendingFeedback", pending);
+        stats.put("resolvedFeedback", resolved);
+        stats.put("averageRating", totals[2] > 0 ? (double) totals[1] / totals[2] : 0.0);
+        stats.put("categoryBreakdown", byCategory);
+        stats.put("priorityBreakdown", byPriority);
+        stats.put("platformBreakdown", byPlatform);
+        stats.put("appVersionBreakdown", byAppVersion);
+        stats.put("dailyCounts", daily);
+        stats.put("statusBreakdown", byStatus);
+        stats.put("rollupsUpdatedAt", lastRollupAt != null ? lastRollupAt.toString() : null);
+        stats.put("ingestion", feedbackIngestionService.getStats());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${ubuzima.feedback.rollup-interval-ms:300000}",
+               initialDelayString = "${ubuzima.feedback.rollup-initial-delay-ms:60000}")
+    public void refreshRollups() {
+        try {
+            LocalDate from = rollupsInitialized ? LocalDate.now().minusDays(rollupLookbackDays) : firstRollupDate();
+            if (from == null) {
+                rollupsInitialized = true;
+                return;
+            }
+            Integer rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(DELETE_ROLLUPS_SQL, Date.valueOf(from));
+                return jdbcTemplate.update(INSERT_ROLLUPS_SQL, from.atStartOfDay());
+            });
+            rollupsInitialized = true;
+            lastRollupAt = LocalDateTime.now();
+            log.debug("Recomputed {} feedback rollup rows from {}", rows, from);
+        } catch (Exception e) {
+            log.error("Failed to refresh feedback rollups", e);
+        }
+    }
+
+    /**
+     * Recent days only once rollups exist; otherwise everything since the oldest feedback
+     */
+    private LocalDate firstRollupDate() {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM feedback_rollups_daily", Long.class);
+        if (existing != null && existing > 0) {
+            return LocalDate.now().minusDays(rollupLookbackDays);
+        }
+        Date oldest = jdbcTemplate.queryForObject("SELECT CAST(MIN(created_at) AS DATE) FROM app_feedback", Date.class);
+        return oldest != null ? oldest.toLocalDate() : null;
+    }
+}
@@ -0,0 +1,241 @@
+package rw.health.ubuzima.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves files from disk with HTTP range and conditional request support.
+ * Only the requested byte ranges are sent (multi-range as multipart/byteranges). Single regions
+ * use Tomcat's sendfile when the connector supports it, so the kernel copies the bytes without
+ * touching the heap. Otherwise FileChannel.transferTo writes into a channel wrapping the servlet
+ * output stream, which still copies through a small heap buffer but never holds the whole file.
+ * ETag/Last-Modified drive 304s and If-Range.
+ */
+@Service
+@Slf4j
+public class FileStreamingService {
+
+    // Tomcat sendfile request attributes (NIO/NIO2 connectors)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain write is cheaper than handing the file to the poller
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private record Region(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * Write a file (or the requested ranges of it) to the response
+     *
+     * @param contentDisposition full Content-Disposition header value, or null
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file,
+                      String contentType, String contentDisposition) throws IOException {
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long fileSize = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified) + "\"";
+
+        // Handles If-None-Match / If-Modified-Since (304) and If-Match / If-Unmodified-Since (412)
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        List<Region> regions = resolveRegions(request, fileSize, etag, lastModified);
+        if (regions == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(fileSize);
+            if (!head) {
+                writeSingleRegion(request, response, file, new Region(0, fileSize - 1));
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (regions.size() == 1) {
+            Region region = regions.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, fileSize));
+            response.setContentLengthLong(region.length());
+            if (!head) {
+                writeSingleRegion(request, response, file, region);
+            }
+            return;
+        }
+
+        writeMultipart(response, file, regions, contentType, fileSize, head);
+    }
+
+    /**
+     * Regions to send: empty for the whole file, null when the range is unsatisfiable
+     */
+    private List<Region> resolveRegions(HttpServletRequest request, long fileSize, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || fileSize == 0 || !ifRangeMatches(request, etag, lastModified)) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Malformed Range headers are ignored, as RFC 9110 allows
+            return List.of();
+        }
+
+        List<Region> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(fileSize);
+                end = range.getRangeEnd(fileSize);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (start >= fileSize || start > end) {
+                continue;
+            }
+            regions.add(new Region(start, end));
+            total += end - start + 1;
+        }
+
+        if (regions.isEmpty()) {
+            return null;
+        }
+        // Overlapping ranges that add up to more than the file aren't worth honouring
+        return total > fileSize ? List.of() : regions;
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            // Strong comparison only
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 == ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeSingleRegion(HttpServletRequest request, HttpServletResponse response, Path file, Region region)
+            throws IOException {
+        if (region.length() >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector streams the file with sendfile once the request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, region.start());
+            request.setAttribute(SENDFILE_END, region.end() + 1);
+            return;
+        }
+
+        OutputStream outputStream = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, region, Channels.newChannel(outputStream));
+        }
+        outputStream.flush();
+    }
+
+    private void writeMultipart(HttpServletResponse response, Path file, List<Region> regions,
+                                String contentType, long fileSize, boolean head) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        long contentLength = closing.length;
+        for (Region region : regions) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n" +
+                HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, fileSize) + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region.length();
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        OutputStream outputStream = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                outputStream.write(partHeaders.get(i));
+                transfer(channel, regions.get(i), target);
+            }
+        }
+        outputStream.write(closing);
+        outputStream.flush();
+    }
+
+    private void transfer(FileChannel channel, Region region, WritableByteChannel target) throws IOException {
+        long position = region.start();
+        long remaining = region.length();
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    private String contentRange(Region region, long fileSize) {
+        return "bytes " + region.start() + "-" + region.end() + "/" + fileSize;
+    }
+}
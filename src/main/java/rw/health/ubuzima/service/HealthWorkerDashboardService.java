@@ -0,0 +1,136 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.entity.User;
+import rw.health.ubuzima.repository.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Health worker dashboard aggregates.
+ * Counts come from one aggregate query instead of loading appointments and clients,
+ * and are cached per health worker for a short time. Controllers that write
+ * appointments or time slots evict the affected worker; stats computed while an
+ * eviction happened are returned but not cached.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class HealthWorkerDashboardService {
+
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${ubuzima.dashboard.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    private final Map<Long, CachedStats> statsCache = new ConcurrentHashMap<>();
+    // Bumped by every eviction, so a computation that overlapped one does not cache its result
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Get dashboard stats for a health worker, served from cache when fresh
+     */
+    public Map<String, Object> getDashboardStats(User healthWorker) {
+        Long healthWorkerId = healthWorker.getId();
+        LocalDate today = LocalDate.now();
+
+        CachedStats cached = statsCache.get(healthWorkerId);
+        if (cached != null && cached.isFresh(today, cacheTtlSeconds)) {
+            return cached.stats;
+        }
+
+        long generation = generations.getOrDefault(healthWorkerId, 0L);
+        Map<String, Object> stats = Collections.unmodifiableMap(computeStats(healthWorker, today));
+        statsCache.compute(healthWorkerId, (id, current) ->
+            generations.getOrDefault(id, 0L) == generation
+                ? new CachedStats(stats, today, System.currentTimeMillis()) : current);
+        return stats;
+    }
+
+    /**
+     * Drop cached stats for a health worker after an appointment or time slot write
+     */
+    public void evict(Long healthWorkerId) {
+        if (healthWorkerId != null) {
+            generations.merge(healthWorkerId, 1L, Long::sum);
+            statsCache.remove(healthWorkerId);
+        }
+    }
+
+    /**
+     * Drop cached stats for a health worker after an appointment or time slot write
+     */
+    public void evict(User healthWorker) {
+        if (healthWorker != null) {
+            evict(healthWorker.getId());
+        }
+    }
+
+    private Map<String, Object> computeStats(User healthWorker, LocalDate today) {
+        LocalDateTime dayStart = today.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+
+        // Assigned clients: village-based assignment, falling back to facility
+        boolean byVillage = healthWorker.getVillage() != null && !healthWorker.getVillage().isEmpty();
+        String assignmentType = byVillage ? "village" : "facility";
+        String assignmentLocation = byVillage ? healthWorker.getVillage() : healthWorker.getFacilityId();
+
+        long totalAppointments = 0;
+        long completedAppointments = 0;
+        long todayAppointments = 0;
+        long totalClients = 0;
+
+        List<Object[]> rows = appointmentRepository.aggregateDashboardCounts(healthWorker.getId(), dayStart, dayEnd,
+            byVillage ? healthWorker.getVillage() : "", healthWorker.getFacilityId());
+        if (!rows.isEmpty() && rows.get(0) != null) {
+            Object[] row = rows.get(0);
+            totalAppointments = toLong(row[0]);
+            completedAppointments = toLong(row[1]);
+            todayAppointments = toLong(row[2]);
+            totalClients = toLong(row[3]);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalAppointments", totalAppointments);
+        stats.put("todayAppointments", todayAppointments);
+        stats.put("completedAppointments", completedAppointments);
+        stats.put("totalClients", totalClients);
+        stats.put("assignmentType", assignmentType);
+        stats.put("assignmentLocation", assignmentLocation);
+        stats.put("healthWorkerVillage", healthWorker.getVillage());
+        stats.put("healthWorkerLocation", healthWorker.getFullLocation());
+        return stats;
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static final class CachedStats {
+        private final Map<String, Object> stats;
+        private final LocalDate day;
+        private final long computedAt;
+
+        private CachedStats(Map<String, Object> stats, LocalDate day, long computedAt) {
+            this.stats = stats;
+            this.day = day;
+            this.computedAt = computedAt;
+        }
+
+        private boolean isFresh(LocalDate today, long ttlSeconds) {
+            // "today" counts roll over at midnight regardless of TTL
+            return day.equals(today) && System.currentTimeMillis() - computedAt < ttlSeconds * 1000;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package rw.health.ubuzima.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import rw.health.ubuzima.constants.NotificationConstants;
 import rw.health.ubuzima.dto.response.ApiResponse;
@@ -14,6 +13,8 @@ import rw.health.ubuzima.repository.NotificationRepository;
 import rw.health.ubuzima.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -21,8 +22,10 @@ public class InteractiveNotificationService {
     
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final OutboxService outboxService;
     
     // Send success notification to user
+    @Transactional
     public void sendSuccessNotification(Long userId, String operation, String message) {
         try {
             User user = userRepository.findById(userId).orElse(null);
@@ -37,7 +40,7 @@ public class InteractiveNotificationService {
             notification.setIcon(NotificationConstants.ICON_SUCCESS);
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            publish(notificationRepository.save(notification));
             
         } catch (Exception e) {
             // Log error but don't fail the main operation
@@ -46,7 +49,7 @@ public class InteractiveNotificationService {
     }
     
     // Send error notification to user
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void sendErrorNotification(Long userId, String operation, String errorMessage, String errorCode) {
         try {
             User user = userRepository.findById(userId).orElse(null);
@@ -61,7 +64,7 @@ public class InteractiveNotificationService {
             notification.setIcon(NotificationConstants.ICON_ERROR);
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            publish(notificationRepository.save(notification));
             
         } catch (Exception e) {
             // Log error but don't fail the main operation
@@ -70,7 +73,7 @@ public class InteractiveNotificationService {
     }
     
     // Send warning notification to user
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void sendWarningNotification(Long userId, String operation, String warningMessage) {
         try {
             User user = userRepository.findById(userId).orElse(null);
@@ -85,7 +88,7 @@ public class InteractiveNotificationService {
             notification.setIcon(NotificationConstants.ICON_WARNING);
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            publish(notificationRepository.save(notification));
             
         } catch (Exception e) {
             // Log error but don't fail the main operation
@@ -94,7 +97,7 @@ public class InteractiveNotificationService {
     }
     
     // Send info notification to user
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional
     public void sendInfoNotification(Long userId, String operation, String infoMessage) {
         try {
             User user = userRepository.findById(userId).orElse(null);
@@ -109,7 +112,7 @@ public class InteractiveNotificationService {
             notification.setIcon(NotificationConstants.ICON_INFO);
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            publish(notificationRepository.save(notification));
             
         } catch (Exception e) {
             // Log error but don't fail the main operation
@@ -149,11 +152,9 @@ public class InteractiveNotificationService {
         };
     }
     
-    // Send real-time notification (for WebSocket implementation)
+    // Send real-time notification over WebSocket (and keep it as a database notification)
+    @Transactional
     public void sendRealTimeNotification(Long userId, ApiResponse<?> response) {
-        // This would integrate with WebSocket or Server-Sent Events
-        // For now, we'll create a database notification
-        
         try {
             User user = userRepository.findById(userId).orElse(null);
             if (user == null) return;
@@ -167,10 +168,23 @@ public class InteractiveNotificationService {
             notification.setIcon(response.isSuccess() ? NotificationConstants.ICON_SUCCESS : NotificationConstants.ICON_ERROR);
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            publish(notificationRepository.save(notification));
             
         } catch (Exception e) {
             System.err.println("Failed to send real-time notification: " + e.getMessage());
         }
     }
+
+    // The row and its real-time copy commit together; the outbox relay delivers it after commit
+    private void publish(Notification notification) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", notification.getId());
+        payload.put("title", notification.getTitle());
+        payload.put("message", notification.getMessage());
+        payload.put("type", notification.getType().name());
+        payload.put("priority", notification.getPriority());
+        payload.put("icon", notification.getIcon());
+        outboxService.publishToUser(notification.getUser().getId(), NotificationConstants.USER_NOTIFICATIONS_DESTINATION,
+            payload);
+    }
 }
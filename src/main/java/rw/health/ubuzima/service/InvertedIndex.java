@@ -0,0 +1,232 @@
+package rw.health.ubuzima.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index for one search category.
+ * Terms map to per-document weights; a sorted term map serves prefix lookups and a
+ * single-deletion map (SymSpell style) finds terms one edit away from a query term.
+ * Every query term must match a document, exactly, by prefix or within one edit.
+ */
+class InvertedIndex {
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final double EXACT_FACTOR = 1.0;
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final double FUZZY_FACTOR = 0.5;
+
+    record ScoredDocument(long id, double score) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+
+    /**
+     * Add or replace a document
+     */
+    void put(long id, Map<String, Float> termWeights) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            if (termWeights.isEmpty()) {
+                return;
+            }
+            documents.put(id, termWeights);
+            termWeights.forEach((term, weight) -> {
+                Map<Long, Float> docs = postings.get(term);
+                if (docs == null) {
+                    docs = new HashMap<>();
+                    postings.put(term, docs);
+                    for (String variant : deletionVariants(term)) {
+                        deletions.computeIfAbsent(variant, key -> new HashSet<>()).add(term);
+                    }
+                }
+                docs.put(id, weight);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All matching documents, best first
+     */
+    List<ScoredDocument> search(List<String> queryTerms) {
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            double documentCount = Math.max(1, documents.size());
+            Map<Long, Double> scores = null;
+
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Double> match : expand(queryTerm).entrySet()) {
+                    Map<Long, Float> docs = postings.get(match.getKey());
+                    double idf = Math.log(1.0 + documentCount / docs.size());
+                    double factor = match.getValue() * idf;
+                    docs.forEach((docId, weight) -> termScores.merge(docId, factor * weight, Math::max));
+                }
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // AND: keep documents matched by every query term
+                    Map<Long, Double> intersected = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            intersected.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = intersected;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<ScoredDocument> results = new ArrayList<>(scores.size());
+            scores.forEach((docId, score) -> results.add(new ScoredDocument(docId, score)));
+            results.sort((a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score())
+                : Long.compare(a.id(), b.id()));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index terms matching a query term, with their match-quality factor
+     */
+    private Map<String, Double> expand(String queryTerm) {
+        Map<String, Double> matches = new HashMap<>();
+        if (postings.containsKey(queryTerm)) {
+            matches.put(queryTerm, EXACT_FACTOR);
+        }
+
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            int expanded = 0;
+            for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                if (++expanded > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                matches.putIfAbsent(term, PREFIX_FACTOR);
+            }
+        }
+
+        if (queryTerm.length() >= MIN_FUZZY_LENGTH) {
+            Set<String> candidates = new HashSet<>(deletions.getOrDefault(queryTerm, Set.of()));
+            for (String variant : deletionVariants(queryTerm)) {
+                if (postings.containsKey(variant)) {
+                    candidates.add(variant);
+                }
+                candidates.addAll(deletions.getOrDefault(variant, Set.of()));
+            }
+            for (String candidate : candidates) {
+                if (!matches.containsKey(candidate) && withinOneEdit(queryTerm, candidate)) {
+                    matches.put(candidate, FUZZY_FACTOR);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void removeUnlocked(long id) {
+        Map<String, Float> previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs == null) {
+                continue;
+            }
+            docs.remove(id);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+                for (String variant : deletionVariants(term)) {
+                    Set<String> terms = deletions.get(variant);
+                    if (terms != null) {
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            deletions.remove(variant);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> deletionVariants(String term) {
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return List.of();
+        }
+        List<String> variants = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // Optimal string alignment distance <= 1 (insert, delete, substitute or swap adjacent characters)
+    private static boolean withinOneEdit(String a, String b) {
+        int lengthDifference = a.length() - b.length();
+        if (Math.abs(lengthDifference) > 1) {
+            return false;
+        }
+
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (lengthDifference == 0) {
+            if (i == a.length()) {
+                return true;
+            }
+            if (a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < a.length() && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return lengthDifference > 0
+            ? a.substring(i + 1).equals(b.substring(i))
+            : a.substring(i).equals(b.substring(i + 1));
+    }
+}
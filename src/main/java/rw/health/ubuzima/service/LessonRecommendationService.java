@@ -0,0 +1,413 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.EducationCategory;
+import rw.health.ubuzima.enums.EducationLevel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lesson popularity and co-completion recommendations.
+ * A background job periodically reads lessons and education progress as scalar projections and
+ * builds a compact model: per-lesson popularity, each lesson's most similar lessons by
+ * co-completion (cosine), and a bitset of completed lessons per user. Requests are then served
+ * from memory with no query. Completions since the last build are tracked on top of the model,
+ * and a completed lesson that was among the user's last recommendations counts as a hit.
+ */
+@Service
+@Slf4j
+public class LessonRecommendationService {
+
+    private static final int PROGRESS_PAGE_SIZE = 5000;
+    private static final int MAX_NEIGHBOURS = 50;
+    private static final int MAX_RESULTS = 50;
+    // Users with very long histories add quadratic pairs for little signal
+    private static final int MAX_PAIRED_COMPLETIONS = 200;
+    private static final double POPULARITY_WEIGHT = 0.2;
+    private static final int MAX_TRACKED_USERS = 50_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService rebuildExecutor;
+
+    private volatile Model model;
+
+    // Lesson ids completed since the model was built, by user. Ids rather than model indexes, since
+    // indexes shift when a rebuild adds or removes lessons; they are mapped on read.
+    private final Map<Long, Set<Long>> recentCompletions = new ConcurrentHashMap<>();
+
+    // Last recommendations served per user, for hit-rate tracking
+    private final Map<Long, long[]> lastServed = Collections.synchronizedMap(
+        new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > MAX_TRACKED_USERS;
+            }
+        });
+
+    private final AtomicLong recommendationsServed = new AtomicLong();
+    private final AtomicLong trackedCompletions = new AtomicLong();
+    private final AtomicLong recommendedCompletions = new AtomicLong();
+
+    public LessonRecommendationService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lesson-recommendation-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public record ScoredLesson(long lessonId, double score) {
+    }
+
+    public boolean isReady() {
+        return model != null;
+    }
+
+    /**
+     * Top-N unfinished lessons for a user, best first. Filters are applied before ranking.
+     */
+    public List<ScoredLesson> recommend(Long userId, int limit, EducationCategory category,
+                                        EducationLevel level, String language) {
+        Model current = model;
+        if (current == null) {
+            return List.of();
+        }
+
+        BitSet completed = completedLessons(current, userId);
+        double[] similarity = new double[current.lessonIds.length];
+        for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+            int[] neighbours = current.neighbours[i];
+            float[] weights = current.similarities[i];
+            for (int k = 0; k < neighbours.length; k++) {
+                similarity[neighbours[k]] += weights[k];
+            }
+        }
+
+        List<ScoredLesson> ranked = topN(current, limit, index ->
+            completed.get(index) || !current.matches(index, category, level, language)
+                ? Double.NaN
+                : similarity[index] + POPULARITY_WEIGHT * current.popularity[index]);
+
+        lastServed.put(userId, ranked.stream().mapToLong(ScoredLesson::lessonId).toArray());
+        recommendationsServed.incrementAndGet();
+        return ranked;
+    }
+
+    /**
+     * Most popular published lessons, optionally filtered
+     */
+    public List<ScoredLesson> popular(int limit, EducationCategory category, EducationLevel level, String language) {
+        Model current = model;
+        if (current == null) {
+            return List.of();
+        }
+        return topN(current, limit, index -> current.matches(index, category, level, language)
+            ? current.popularity[index]
+            : Double.NaN);
+    }
+
+    /**
+     * Note a completion so it is excluded immediately and counted for hit rate
+     */
+    public void recordCompletion(Long userId, Long lessonId) {
+        if (userId == null || lessonId == null) {
+            return;
+        }
+
+        long[] served = lastServed.get(userId);
+        if (served != null) {
+            trackedCompletions.incrementAndGet();
+            for (long id : served) {
+                if (id == lessonId) {
+                    recommendedCompletions.incrementAndGet();
+                    break;
+                }
+            }
+        }
+
+        recentCompletions.compute(userId, (key, lessonIds) -> {
+            Set<Long> updated = lessonIds != null ? new HashSet<>(lessonIds) : new HashSet<>();
+            updated.add(lessonId);
+            return Set.copyOf(updated);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Model current = model;
+        long tracked = trackedCompletions.get();
+        long hits = recommendedCompletions.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("builtAt", current != null ? current.builtAt : null);
+        stats.put("buildMillis", current != null ? current.buildMillis : null);
+        stats.put("lessons", current != null ? current.lessonIds.length : 0);
+        stats.put("users", current != null ? current.completedByUser.size() : 0);
+        stats.put("recommendationsServed", recommendationsServed.get());
+        stats.put("trackedCompletions", tracked);
+        stats.put("recommendedCompletions", hits);
+        stats.put("hitRate", tracked > 0 ? (double) hits / tracked : 0.0);
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuildExecutor.submit(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${ubuzima.education.recommendations.rebuild-interval-ms:900000}",
+               initialDelayString = "${ubuzima.education.recommendations.rebuild-interval-ms:900000}")
+    public void scheduledRebuild() {
+        rebuildExecutor.submit(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild the model from the database and swap it in
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            Model built = build(started);
+            model = built;
+
+            // Drop recent completions the new model already knows about, and those of lessons it no
+            // longer has; keep the rest (and any that landed while building) on top of it
+            recentCompletions.replaceAll((userId, lessonIds) -> {
+                BitSet known = built.completedByUser.get(userId);
+                Set<Long> remaining = new HashSet<>(lessonIds);
+                remaining.removeIf(lessonId -> {
+                    Integer index = built.indexById.get(lessonId);
+                    return index == null || (known != null && known.get(index));
+                });
+                return Set.copyOf(remaining);
+            });
+            recentCompletions.values().removeIf(Set::isEmpty);
+
+            log.info("Lesson recommendation model built in {} ms: {} lessons, {} users",
+                built.buildMillis, built.lessonIds.length, built.completedByUser.size());
+        } catch (Exception e) {
+            log.error("Failed to build lesson recommendation model", e);
+        }
+    }
+
+    private Model build(long started) {
+        List<Object[]> lessons = readOnlyTransaction.execute(status -> entityManager.createQuery(
+                "SELECT l.id, l.category, l.level, l.language, l.viewCount FROM EducationLesson l " +
+                "WHERE l.isPublished = true ORDER BY l.id", Object[].class)
+            .getResultList());
+        if (lessons == null) {
+            lessons = List.of();
+        }
+
+        int lessonCount = lessons.size();
+        long[] lessonIds = new long[lessonCount];
+        EducationCategory[] categories = new EducationCategory[lessonCount];
+        EducationLevel[] levels = new EducationLevel[lessonCount];
+        String[] languages = new String[lessonCount];
+        double[] views = new double[lessonCount];
+        Map<Long, Integer> indexById = new HashMap<>();
+
+        for (int i = 0; i < lessonCount; i++) {
+            Object[] row = lessons.get(i);
+            lessonIds[i] = (Long) row[0];
+            categories[i] = (EducationCategory) row[1];
+            levels[i] = (EducationLevel) row[2];
+            languages[i] = (String) row[3];
+            views[i] = row[4] != null ? ((Number) row[4]).doubleValue() : 0.0;
+            indexById.put(lessonIds[i], i);
+        }
+
+        // Progress rows in keyset pages: completions per user, completion and start counts per lesson
+        Map<Long, BitSet> completedByUser = new HashMap<>();
+        int[] completions = new int[lessonCount];
+        int[] starts = new int[lessonCount];
+        long afterId = 0L;
+
+        while (true) {
+            long cursor = afterId;
+            List<Object[]> rows = readOnlyTransaction.execute(status -> entityManager.createQuery(
+                    "SELECT ep.id, ep.user.id, ep.lesson.id, ep.isCompleted FROM EducationProgress ep " +
+                    "WHERE ep.id > :afterId ORDER BY ep.id", Object[].class)
+                .setParameter("afterId", cursor)
+                .setMaxResults(PROGRESS_PAGE_SIZE)
+                .getResultList());
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+
+            for (Object[] row : rows) {
+                Integer index = indexById.get((Long) row[2]);
+                if (index == null) {
+                    continue;
+                }
+                starts[index]++;
+                if (Boolean.TRUE.equals(row[3])) {
+                    completions[index]++;
+                    completedByUser.computeIfAbsent((Long) row[1], key -> new BitSet(lessonCount)).set(index);
+                }
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+
+        // Co-completion counts between lesson pairs
+        List<Map<Integer, Integer>> coCompletions = new ArrayList<>(lessonCount);
+        for (int i = 0; i < lessonCount; i++) {
+            coCompletions.add(new HashMap<>());
+        }
+        int[] paired = new int[MAX_PAIRED_COMPLETIONS];
+        for (BitSet completed : completedByUser.values()) {
+            int count = 0;
+            for (int i = completed.nextSetBit(0); i >= 0 && count < paired.length; i = completed.nextSetBit(i + 1)) {
+                paired[count++] = i;
+            }
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    coCompletions.get(paired[a]).merge(paired[b], 1, Integer::sum);
+                    coCompletions.get(paired[b]).merge(paired[a], 1, Integer::sum);
+                }
+            }
+        }
+
+        // Keep each lesson's most similar lessons by cosine similarity of their completer sets
+        int[][] neighbours = new int[lessonCount][];
+        float[][] similarities = new float[lessonCount][];
+        for (int i = 0; i < lessonCount; i++) {
+            int lesson = i;
+            List<Map.Entry<Integer, Integer>> pairs = new ArrayList<>(coCompletions.get(i).entrySet());
+            pairs.sort(Comparator.comparingDouble(
+                (Map.Entry<Integer, Integer> pair) -> cosine(pair.getValue(), completions[lesson], completions[pair.getKey()]))
+                .reversed());
+
+            int kept = Math.min(MAX_NEIGHBOURS, pairs.size());
+            neighbours[i] = new int[kept];
+            similarities[i] = new float[kept];
+            for (int k = 0; k < kept; k++) {
+                Map.Entry<Integer, Integer> pair = pairs.get(k);
+                neighbours[i][k] = pair.getKey();
+                similarities[i][k] = (float) cosine(pair.getValue(), completions[i], completions[pair.getKey()]);
+            }
+        }
+
+        // Popularity from completions, starts and views, scaled to [0, 1]
+        double[] popularity = new double[lessonCount];
+        double maxPopularity = 0.0;
+        for (int i = 0; i < lessonCount; i++) {
+            popularity[i] = completions[i] + 0.3 * starts[i] + Math.log1p(views[i]);
+            maxPopularity = Math.max(maxPopularity, popularity[i]);
+        }
+        if (maxPopularity > 0) {
+            for (int i = 0; i < lessonCount; i++) {
+                popularity[i] /= maxPopularity;
+            }
+        }
+
+        return new Model(lessonIds, indexById, categories, levels, languages, popularity, neighbours, similarities,
+            completedByUser, LocalDateTime.now(), System.currentTimeMillis() - started);
+    }
+
+    private BitSet completedLessons(Model current, Long userId) {
+        BitSet completed = new BitSet(current.lessonIds.length);
+        BitSet known = current.completedByUser.get(userId);
+        if (known != null) {
+            completed.or(known);
+        }
+        Set<Long> recent = recentCompletions.get(userId);
+        if (recent != null) {
+            for (Long lessonId : recent) {
+                Integer index = current.indexById.get(lessonId);
+                if (index != null) {
+                    completed.set(index);
+                }
+            }
+        }
+        return completed;
+    }
+
+    // Bounded min-heap over every lesson; a NaN score excludes the lesson
+    private List<ScoredLesson> topN(Model current, int limit, IndexScorer scorer) {
+        int n = Math.max(1, Math.min(limit, MAX_RESULTS));
+        PriorityQueue<ScoredLesson> heap = new PriorityQueue<>(n + 1, Comparator.comparingDouble(ScoredLesson::score));
+
+        for (int index = 0; index < current.lessonIds.length; index++) {
+            double score = scorer.score(index);
+            if (Double.isNaN(score)) {
+                continue;
+            }
+            if (heap.size() < n) {
+                heap.add(new ScoredLesson(current.lessonIds[index], score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredLesson(current.lessonIds[index], score));
+            }
+        }
+
+        List<ScoredLesson> ranked = new ArrayList<>(heap);
+        ranked.sort(Comparator.comparingDouble(ScoredLesson::score).reversed());
+        return ranked;
+    }
+
+    private static double cosine(int together, int completionsA, int completionsB) {
+        return completionsA > 0 && completionsB > 0 ? together / Math.sqrt((double) completionsA * completionsB) : 0.0;
+    }
+
+    @FunctionalInterface
+    private interface IndexScorer {
+        double score(int index);
+    }
+
+    /**
+     * Immutable model; lessons are addressed by dense index
+     */
+    private record Model(long[] lessonIds,
+                         Map<Long, Integer> indexById,
+                         EducationCategory[] categories,
+                         EducationLevel[] levels,
+                         String[] languages,
+                         double[] popularity,
+                         int[][] neighbours,
+                         float[][] similarities,
+                         Map<Long, BitSet> completedByUser,
+                         LocalDateTime builtAt,
+                         long buildMillis) {
+
+        boolean matches(int index, EducationCategory category, EducationLevel level, String language) {
+            return (category == null || categories[index] == category)
+                && (level == null || levels[index] == level)
+                && (language == null || language.equalsIgnoreCase(languages[index]));
+        }
+    }
+}
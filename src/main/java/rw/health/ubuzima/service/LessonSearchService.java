@@ -0,0 +1,89 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import rw.health.ubuzima.entity.EducationLesson;
+import rw.health.ubuzima.enums.EducationCategory;
+import rw.health.ubuzima.enums.EducationLevel;
+import rw.health.ubuzima.repository.EducationLessonRepository;
+
+/**
+ * Education lesson search.
+ * On PostgreSQL with the V8 search_vector column, lessons are matched through the GIN index and
+ * ordered by ts_rank_cd; elsewhere (H2, or before the migration has run) it falls back to the
+ * LIKE query, ordered by lesson order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LessonSearchService {
+
+    public enum SearchMode {
+        FULL_TEXT,
+        LIKE
+    }
+
+    private final EducationLessonRepository educationLessonRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ubuzima.education.search.full-text:true}")
+    private boolean fullTextEnabled;
+
+    private volatile SearchMode mode;
+
+    public SearchMode getMode() {
+        SearchMode current = mode;
+        if (current == null) {
+            current = detectMode();
+            mode = current;
+        }
+        return current;
+    }
+
+    public Page<EducationLesson> search(String query, EducationCategory category, EducationLevel level,
+                                        String language, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, 100)));
+
+        if (getMode() == SearchMode.FULL_TEXT) {
+            return educationLessonRepository.fullTextSearch(query,
+                category != null ? category.name() : null,
+                level != null ? level.name() : null,
+                language, pageRequest);
+        }
+        return educationLessonRepository.searchLessonsPage(query, category, level, language, pageRequest);
+    }
+
+    private SearchMode detectMode() {
+        if (!fullTextEnabled) {
+            return SearchMode.LIKE;
+        }
+        try {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(product)) {
+                log.info("Lesson search using LIKE queries on {}", product);
+                return SearchMode.LIKE;
+            }
+
+            Integer columns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_name = 'education_lessons' AND column_name = 'search_vector'", Integer.class);
+            if (columns == null || columns == 0) {
+                log.warn("education_lessons.search_vector is missing (V8 not applied); lesson search using LIKE queries");
+                return SearchMode.LIKE;
+            }
+
+            log.info("Lesson search using PostgreSQL full-text index");
+            return SearchMode.FULL_TEXT;
+        } catch (Exception e) {
+            log.warn("Could not detect lesson search mode, using LIKE queries: {}", e.getMessage());
+            return SearchMode.LIKE;
+        }
+    }
+}
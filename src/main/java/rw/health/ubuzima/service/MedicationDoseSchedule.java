@@ -0,0 +1,158 @@
+package rw.health.ubuzima.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * When a medication's doses fall, parsed from its free-text frequency.
+ * Either fixed times of day repeated every {@code everyDays} days from the start date, or a fixed
+ * interval from 08:00 on the start date. "As needed" and unrecognised frequencies have no schedule.
+ */
+public final class MedicationDoseSchedule {
+
+    private static final LocalTime FIRST_DOSE = LocalTime.of(8, 0);
+    private static final Pattern EXPLICIT_TIME = Pattern.compile("\\b([01]?\\d|2[0-3])[:h.]([0-5]\\d)\\b");
+    private static final Pattern EVERY_HOURS = Pattern.compile("(?:every|q)\\s*(\\d{1,2})\\s*(?:h|hr|hrs|hour|hours)\\b");
+    private static final Pattern TIMES_PER_DAY = Pattern.compile("(\\d)\\s*(?:x|times?)\\b");
+
+    private final List<LocalTime> times;
+    private final int everyDays;
+    private final Duration interval;
+
+    private MedicationDoseSchedule(List<LocalTime> times, int everyDays, Duration interval) {
+        this.times = times;
+        this.everyDays = everyDays;
+        this.interval = interval;
+    }
+
+    /**
+     * Parse a frequency such as "twice daily", "every 8 hours", "TID", "weekly" or "08:00, 20:00"
+     */
+    public static Optional<MedicationDoseSchedule> parse(String frequency) {
+        if (frequency == null || frequency.isBlank()) {
+            return Optional.empty();
+        }
+        String text = frequency.toLowerCase(Locale.ROOT).trim();
+        if (text.contains("as needed") || text.contains("when needed") || text.matches(".*\\bprn\\b.*")) {
+            return Optional.empty();
+        }
+
+        List<LocalTime> explicit = new ArrayList<>();
+        Matcher timeMatcher = EXPLICIT_TIME.matcher(text);
+        while (timeMatcher.find()) {
+            explicit.add(LocalTime.of(Integer.parseInt(timeMatcher.group(1)), Integer.parseInt(timeMatcher.group(2))));
+        }
+        if (!explicit.isEmpty()) {
+            return Optional.of(daily(explicit.stream().distinct().sorted().toList(), 1));
+        }
+
+        Matcher hoursMatcher = EVERY_HOURS.matcher(text);
+        if (hoursMatcher.find()) {
+            int hours = Integer.parseInt(hoursMatcher.group(1));
+            if (hours < 1 || hours > 72) {
+                return Optional.empty();
+            }
+            return Optional.of(new MedicationDoseSchedule(List.of(), 1, Duration.ofHours(hours)));
+        }
+
+        int everyDays = text.contains("week") ? 7 : text.contains("every other day") || text.contains("alternate") ? 2 : 1;
+        Integer perDay = timesPerDay(text);
+        if (perDay != null) {
+            return Optional.of(daily(spread(perDay), everyDays));
+        }
+        if (text.contains("bedtime") || text.contains("night") || text.contains("evening")) {
+            return Optional.of(daily(List.of(LocalTime.of(21, 0)), everyDays));
+        }
+        if (everyDays > 1 || text.contains("daily") || text.contains("day") || text.contains("morning")
+            || text.matches(".*\\b(od|qd)\\b.*")) {
+            return Optional.of(daily(List.of(FIRST_DOSE), everyDays));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Dose times in {@code (from, to]} for a medication taken from {@code startDate} to {@code endDate}
+     * (inclusive, null when open-ended)
+     */
+    public List<LocalDateTime> occurrences(LocalDate startDate, LocalDate endDate, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> result = new ArrayList<>();
+        // Exclusive end of the last day taken; with no end date only "to" bounds the doses
+        LocalDateTime last = endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+        LocalDateTime until = last != null && last.isBefore(to) ? last : to;
+
+        if (interval != null) {
+            LocalDateTime anchor = startDate.atTime(FIRST_DOSE);
+            long step = interval.toMinutes();
+            long skipped = from.isAfter(anchor) ? ChronoUnit.MINUTES.between(anchor, from) / step : 0;
+            for (LocalDateTime dose = anchor.plusMinutes(skipped * step); !dose.isAfter(until); dose = dose.plusMinutes(step)) {
+                if (dose.isAfter(from) && (last == null || dose.isBefore(last))) {
+                    result.add(dose);
+                }
+            }
+            return result;
+        }
+
+        LocalDate day = from.toLocalDate().isAfter(startDate) ? from.toLocalDate() : startDate;
+        for (; !day.atStartOfDay().isAfter(until); day = day.plusDays(1)) {
+            if (ChronoUnit.DAYS.between(startDate, day) % everyDays != 0) {
+                continue;
+            }
+            for (LocalTime time : times) {
+                LocalDateTime dose = day.atTime(time);
+                if (dose.isAfter(from) && !dose.isAfter(until) && (last == null || dose.isBefore(last))) {
+                    result.add(dose);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static MedicationDoseSchedule daily(List<LocalTime> times, int everyDays) {
+        return new MedicationDoseSchedule(times, everyDays, null);
+    }
+
+    private static Integer timesPerDay(String text) {
+        if (text.matches(".*\\b(four times|qid)\\b.*")) {
+            return 4;
+        }
+        if (text.matches(".*\\b(three times|thrice|tid|tds)\\b.*")) {
+            return 3;
+        }
+        if (text.matches(".*\\b(twice|two times|bid|bd)\\b.*")) {
+            return 2;
+        }
+        if (text.matches(".*\\b(once|one time)\\b.*")) {
+            return 1;
+        }
+        Matcher matcher = TIMES_PER_DAY.matcher(text);
+        if (matcher.find()) {
+            int count = Integer.parseInt(matcher.group(1));
+            return count >= 1 && count <= 6 ? count : null;
+        }
+        return null;
+    }
+
+    /**
+     * {@code count} doses spread over the waking day, 08:00 to 20:00
+     */
+    private static List<LocalTime> spread(int count) {
+        if (count == 1) {
+            return List.of(FIRST_DOSE);
+        }
+        List<LocalTime> result = new ArrayList<>(count);
+        long stepMinutes = 12 * 60 / (count - 1);
+        for (int i = 0; i < count; i++) {
+            result.add(FIRST_DOSE.plusMinutes(i * stepMinutes));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,571 @@
+package rw.health.ubuzima.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.constants.NotificationConstants;
+import rw.health.ubuzima.entity.Medication;
+import rw.health.ubuzima.entity.MedicationDose;
+import rw.health.ubuzima.enums.DoseStatus;
+import rw.health.ubuzima.enums.NotificationType;
+import rw.health.ubuzima.repository.MedicationDoseRepository;
+import rw.health.ubuzima.repository.MedicationRepository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Medication reminders and adherence.
+ * Each active medication's frequency is expanded into medication_doses rows a rolling horizon ahead;
+ * every run only extends the horizon, and the unique (medication_id, scheduled_at) key makes
+ * re-expansion after a restart or on another instance a no-op. PENDING doses due within the next
+ * window sit in an in-memory priority queue ordered by dose time. A timer thread sleeps until the
+ * head's minute starts, then claims every dose due by the end of that minute in one bulk UPDATE
+ * and sends one reminder per user (notification row, push, real-time message and optionally an
+ * email) through the outbox in the same transaction, so a dose is reminded exactly once.
+ * Acknowledged doses become TAKEN or SKIPPED; unacknowledged ones become MISSED after a while.
+ */
+@Service
+@Slf4j
+public class MedicationReminderService {
+
+    private static final String ACTIVE_MEDICATIONS_SQL = "SELECT id, user_id, frequency, start_date, end_date " +
+        "FROM medications WHERE is_active = true AND start_date <= ? AND (end_date IS NULL OR end_date >= ?) " +
+        "AND id > ? ORDER BY id LIMIT ?";
+    private static final String INSERT_DOSE_SQL = "INSERT INTO medication_doses " +
+        "(medication_id, user_id, scheduled_at, status, created_at, updated_at, version) " +
+        "VALUES (?, ?, ?, 'PENDING', ?, ?, 0) ON CONFLICT (medication_id, scheduled_at) DO NOTHING";
+    private static final String LOAD_SQL = "SELECT id, scheduled_at FROM medication_doses " +
+        "WHERE status = 'PENDING' AND scheduled_at >= ? AND scheduled_at <= ? ORDER BY scheduled_at LIMIT ?";
+    private static final String CLAIM_SQL = "UPDATE medication_doses SET status = 'REMINDED', reminded_at = ?, " +
+        "updated_at = ?, version = COALESCE(version, 0) + 1 WHERE id IN (%s) AND status = 'PENDING' " +
+        "AND scheduled_at >= ? RETURNING id, medication_id, user_id, scheduled_at";
+    private static final String MISSED_SQL = "UPDATE medication_doses SET status = 'MISSED', updated_at = ?, " +
+        "version = COALESCE(version, 0) + 1 WHERE status IN ('PENDING', 'REMINDED') AND scheduled_at < ?";
+
+    private record QueuedDose(long id, LocalDateTime scheduledAt) {
+    }
+
+    private record ClaimedDose(long id, long medicationId, long userId, LocalDateTime scheduledAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MedicationDoseRepository medicationDoseRepository;
+    private final MedicationRepository medicationRepository;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final OutboxService outboxService;
+    private final PriorityQueue<QueuedDose> queue = new PriorityQueue<>(
+        Comparator.comparing(QueuedDose::scheduledAt).thenComparingLong(QueuedDose::id));
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final Map<String, Optional<MedicationDoseSchedule>> schedules = new ConcurrentHashMap<>();
+    private final Counter remindedCounter;
+    private final Counter missedCounter;
+    private final Timer latenessTimer;
+    private final AtomicLong queueSize = new AtomicLong();
+
+    @Value("${ubuzima.medications.reminders.horizon-hours:48}")
+    private int horizonHours;
+
+    @Value("${ubuzima.medications.reminders.window-minutes:60}")
+    private int windowMinutes;
+
+    @Value("${ubuzima.medications.reminders.max-lateness-minutes:60}")
+    private int maxLatenessMinutes;
+
+    @Value("${ubuzima.medications.reminders.missed-after-hours:4}")
+    private int missedAfterHours;
+
+    @Value("${ubuzima.medications.reminders.acknowledge-early-minutes:120}")
+    private int acknowledgeEarlyMinutes;
+
+    @Value("${ubuzima.medications.reminders.page-size:500}")
+    private int pageSize;
+
+    @Value("${ubuzima.medications.reminders.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ubuzima.medications.reminders.max-queued:50000}")
+    private int maxQueued;
+
+    @Value("${ubuzima.medications.reminders.email-enabled:false}")
+    private boolean emailEnabled;
+
+    private volatile LocalDateTime materializedUntil;
+    private volatile LocalDateTime queuedUntil;
+    private volatile boolean running;
+    private Thread timerThread;
+
+    public MedicationReminderService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     MedicationDoseRepository medicationDoseRepository,
+                                     MedicationRepository medicationRepository,
+                                     NotificationBatchWriter notificationBatchWriter,
+                                     OutboxService outboxService,
+                                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.medicationDoseRepository = medicationDoseRepository;
+        this.medicationRepository = medicationRepository;
+        this.notificationBatchWriter = notificationBatchWriter;
+        this.outboxService = outboxService;
+
+        this.remindedCounter = Counter.builder("ubuzima.medications.doses.reminded").register(meterRegistry);
+        this.missedCounter = Counter.builder("ubuzima.medications.doses.missed").register(meterRegistry);
+        this.latenessTimer = Timer.builder("ubuzima.medications.reminders.lateness")
+            .description("Delay between a dose's scheduled time and its reminder")
+            .register(meterRegistry);
+        meterRegistry.gauge("ubuzima.medications.reminders.queued", queueSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        running = true;
+        timerThread = new Thread(this::timerLoop, "medication-reminder-timer");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (timerThread != null) {
+            timerThread.interrupt();
+        }
+    }
+
+    /**
+     * Extend the dose horizon, mark overdue doses missed and queue doses due in the next window
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.medications.reminders.refresh-interval-ms:900000}",
+               initialDelayString = "${ubuzima.medications.reminders.refresh-interval-ms:900000}")
+    public void refresh() {
+        try {
+            materialize();
+        } catch (Exception e) {
+            log.error("Failed to materialize medication doses", e);
+        }
+        try {
+            int missed = jdbcTemplate.update(MISSED_SQL, Timestamp.valueOf(LocalDateTime.now()),
+                Timestamp.valueOf(LocalDateTime.now().minusHours(missedAfterHours)));
+            missedCounter.increment(missed);
+        } catch (Exception e) {
+            log.error("Failed to mark missed medication doses", e);
+        }
+        try {
+            loadWindow();
+        } catch (Exception e) {
+            log.error("Failed to load upcoming medication doses", e);
+        }
+    }
+
+    /**
+     * Re-expand a medication's future doses after it was created or changed; PENDING future doses
+     * are replaced, so a new frequency, end date or deactivation takes effect immediately
+     */
+    public void refreshMedication(Medication medication) {
+        try {
+            rescheduleMedication(medication);
+        } catch (Exception e) {
+            log.error("Failed to reschedule doses of medication {}", medication.getId(), e);
+        }
+    }
+
+    private void rescheduleMedication(Medication medication) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = laterOf(materializedUntil, now.plusHours(horizonHours));
+        List<QueuedDose> upcoming = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM medication_doses WHERE medication_id = ? AND status = 'PENDING' " +
+                "AND scheduled_at > ?", medication.getId(), Timestamp.valueOf(now));
+            if (Boolean.TRUE.equals(medication.getIsActive())) {
+                insertDoses(medication.getId(), medication.getUser().getId(), medication.getFrequency(),
+                    medication.getStartDate(), medication.getEndDate(), now, until);
+            }
+            return jdbcTemplate.query("SELECT id, scheduled_at FROM medication_doses WHERE medication_id = ? " +
+                    "AND status = 'PENDING' AND scheduled_at > ? AND scheduled_at <= ?",
+                (rs, rowNum) -> new QueuedDose(rs.getLong("id"), rs.getTimestamp("scheduled_at").toLocalDateTime()),
+                medication.getId(), Timestamp.valueOf(now), Timestamp.valueOf(now.plusMinutes(windowMinutes)));
+        });
+        if (upcoming != null) {
+            upcoming.forEach(this::enqueue);
+        }
+    }
+
+    /**
+     * Drop the upcoming doses of a medication that is being deleted; doses already due keep their
+     * status as adherence history
+     */
+    public void removeMedication(Long medicationId) {
+        jdbcTemplate.update("DELETE FROM medication_doses WHERE medication_id = ? AND status = 'PENDING' " +
+            "AND scheduled_at > ?", medicationId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Record that the user took or skipped a dose
+     *
+     * @throws IllegalArgumentException if the dose doesn't exist or the status isn't TAKEN or SKIPPED
+     * @throws SecurityException if the dose belongs to another user
+     * @throws IllegalStateException if the dose is too far in the future
+     */
+    @Transactional
+    public MedicationDose acknowledge(Long doseId, Long userId, DoseStatus status) {
+        if (status != DoseStatus.TAKEN && status != DoseStatus.SKIPPED) {
+            throw new IllegalArgumentException("Status must be TAKEN or SKIPPED");
+        }
+        MedicationDose dose = medicationDoseRepository.findById(doseId)
+            .orElseThrow(() -> new IllegalArgumentException("Dose not found"));
+        if (!dose.getUserId().equals(userId)) {
+            throw new SecurityException("Dose belongs to another user");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (dose.getScheduledAt().isAfter(now.plusMinutes(acknowledgeEarlyMinutes))) {
+            throw new IllegalStateException("Dose is not due yet");
+        }
+
+        dose.setStatus(status);
+        dose.setAcknowledgedAt(now);
+        return medicationDoseRepository.save(dose);
+    }
+
+    public List<MedicationDose> getDoses(Long userId, LocalDateTime from, LocalDateTime to) {
+        return medicationDoseRepository.findByUserIdAndScheduledAtBetweenOrderByScheduledAt(userId, from, to);
+    }
+
+    /**
+     * Adherence over all users' doses scheduled in the range (up to now)
+     */
+    public Map<String, Object> getAdherence(LocalDateTime from, LocalDateTime to) {
+        Map<DoseStatus, Long> counts = new EnumMap<>(DoseStatus.class);
+        for (Object[] row : medicationDoseRepository.countByStatus(from, earlierOf(to, LocalDateTime.now()))) {
+            counts.put((DoseStatus) row[0], (Long) row[1]);
+        }
+        return summarize(counts);
+    }
+
+    /**
+     * A user's adherence over the range (up to now), overall and per medication
+     */
+    public Map<String, Object> getUserAdherence(Long userId, LocalDateTime from, LocalDateTime to) {
+        Map<DoseStatus, Long> overall = new EnumMap<>(DoseStatus.class);
+        Map<Long, Map<DoseStatus, Long>> byMedication = new LinkedHashMap<>();
+        for (Object[] row : medicationDoseRepository.countByMedicationAndStatus(userId, from,
+                earlierOf(to, LocalDateTime.now()))) {
+            DoseStatus status = (DoseStatus) row[1];
+            long count = (Long) row[2];
+            overall.merge(status, count, Long::sum);
+            byMedication.computeIfAbsent((Long) row[0], id -> new EnumMap<>(DoseStatus.class)).put(status, count);
+        }
+
+        Map<Long, String> names = medicationRepository.findAllById(byMedication.keySet()).stream()
+            .collect(Collectors.toMap(Medication::getId, Medication::getName));
+        List<Map<String, Object>> medications = new ArrayList<>();
+        byMedication.forEach((medicationId, counts) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("medicationId", medicationId);
+            entry.put("name", names.get(medicationId));
+            entry.putAll(summarize(counts));
+            medications.add(entry);
+        });
+
+        Map<String, Object> result = summarize(overall);
+        result.put("medications", medications);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("queued", queueSize.get());
+        stats.put("materializedUntil", materializedUntil != null ? materializedUntil.toString() : null);
+        stats.put("queuedUntil", queuedUntil != null ? queuedUntil.toString() : null);
+        stats.put("reminded", (long) remindedCounter.count());
+        stats.put("missed", (long) missedCounter.count());
+        return stats;
+    }
+
+    /**
+     * Expand active medications' doses up to the horizon, starting where the previous run stopped
+     */
+    private void materialize() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = laterOf(materializedUntil, now);
+        LocalDateTime until = now.plusHours(horizonHours);
+        if (!until.isAfter(from)) {
+            return;
+        }
+
+        long afterId = 0;
+        int inserted = 0;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(ACTIVE_MEDICATIONS_SQL, (rs, rowNum) -> new Object[] {
+                    rs.getLong("id"), rs.getLong("user_id"), rs.getString("frequency"),
+                    rs.getDate("start_date").toLocalDate(),
+                    rs.getDate("end_date") != null ? rs.getDate("end_date").toLocalDate() : null
+                },
+                Date.valueOf(until.toLocalDate()), Date.valueOf(from.toLocalDate()), afterId, pageSize);
+            for (Object[] row : page) {
+                inserted += insertDoses((Long) row[0], (Long) row[1], (String) row[2], (LocalDate) row[3],
+                    (LocalDate) row[4], from, until);
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+
+        materializedUntil = until;
+        if (inserted > 0) {
+            log.debug("Materialized {} medication doses up to {}", inserted, until);
+        }
+    }
+
+    private int insertDoses(Long medicationId, Long userId, String frequency, LocalDate startDate, LocalDate endDate,
+                            LocalDateTime from, LocalDateTime until) {
+        Optional<MedicationDoseSchedule> schedule = schedules.computeIfAbsent(
+            frequency != null ? frequency : "", MedicationDoseSchedule::parse);
+        if (schedule.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (LocalDateTime dose : schedule.get().occurrences(startDate, endDate, from, until)) {
+            batchArgs.add(new Object[] { medicationId, userId, Timestamp.valueOf(dose), now, now });
+        }
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DOSE_SQL, batchArgs);
+        }
+        return batchArgs.size();
+    }
+
+    private void loadWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusMinutes(windowMinutes);
+        queuedUntil = until;
+        jdbcTemplate.query(LOAD_SQL,
+            rs -> {
+                enqueue(new QueuedDose(rs.getLong("id"), rs.getTimestamp("scheduled_at").toLocalDateTime()));
+            },
+            Timestamp.valueOf(now.minusMinutes(maxLatenessMinutes)), Timestamp.valueOf(until), maxQueued);
+    }
+
+    private void enqueue(QueuedDose dose) {
+        LocalDateTime horizon = queuedUntil;
+        if ((horizon != null && dose.scheduledAt().isAfter(horizon)) || !queued.add(dose.id())) {
+            return;
+        }
+        synchronized (queue) {
+            queue.add(dose);
+            queueSize.set(queue.size());
+            if (queue.peek() == dose) {
+                queue.notifyAll();
+            }
+        }
+    }
+
+    private void timerLoop() {
+        while (running) {
+            try {
+                List<Long> due = new ArrayList<>();
+                synchronized (queue) {
+                    QueuedDose head = queue.peek();
+                    if (head == null) {
+                        queue.wait(TimeUnit.MINUTES.toMillis(1));
+                        continue;
+                    }
+                    long waitMs = epochMillis(head.scheduledAt().truncatedTo(ChronoUnit.MINUTES))
+                        - System.currentTimeMillis();
+                    if (waitMs > 0) {
+                        queue.wait(Math.min(waitMs, TimeUnit.MINUTES.toMillis(1)));
+                        continue;
+                    }
+                    // The whole current minute bucket goes out together
+                    LocalDateTime bucketEnd = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+                    while (!queue.isEmpty() && queue.peek().scheduledAt().isBefore(bucketEnd)) {
+                        due.add(queue.poll().id());
+                    }
+                    queueSize.set(queue.size());
+                }
+                for (int from = 0; from < due.size(); from += batchSize) {
+                    remind(due.subList(from, Math.min(due.size(), from + batchSize)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Medication reminder tick failed", e);
+            }
+        }
+    }
+
+    /**
+     * Claim the doses and queue one reminder per user, in one transaction
+     */
+    private void remind(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp remindedAt = Timestamp.valueOf(now);
+        String sql = String.format(CLAIM_SQL, placeholders(ids.size()));
+        List<Object> args = new ArrayList<>(ids.size() + 3);
+        args.add(remindedAt);
+        args.add(remindedAt);
+        args.addAll(ids);
+        args.add(Timestamp.valueOf(now.minusMinutes(maxLatenessMinutes)));
+
+        try {
+            Integer reminded = transactionTemplate.execute(status -> {
+                List<ClaimedDose> claimed = jdbcTemplate.query(sql, (rs, rowNum) -> new ClaimedDose(
+                    rs.getLong("id"), rs.getLong("medication_id"), rs.getLong("user_id"),
+                    rs.getTimestamp("scheduled_at").toLocalDateTime()), args.toArray());
+                if (claimed.isEmpty()) {
+                    return 0;
+                }
+                sendReminders(claimed);
+                claimed.forEach(dose -> latenessTimer.record(
+                    Duration.between(dose.scheduledAt(), now).toMillis(), TimeUnit.MILLISECONDS));
+                return claimed.size();
+            });
+            remindedCounter.increment(reminded != null ? reminded : 0);
+        } catch (Exception e) {
+            // Left PENDING; the next load puts them back in the queue while they are still recent
+            log.error("Failed to send {} medication reminders", ids.size(), e);
+        } finally {
+            ids.forEach(queued::remove);
+        }
+    }
+
+    private void sendReminders(List<ClaimedDose> claimed) {
+        Set<Long> medicationIds = claimed.stream().map(ClaimedDose::medicationId).collect(Collectors.toSet());
+        Map<Long, String> medications = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, dosage FROM medications WHERE id IN (" + placeholders(medicationIds.size())
+                + ")",
+            rs -> {
+                medications.put(rs.getLong("id"), rs.getString("name") + " (" + rs.getString("dosage") + ")");
+            },
+            medicationIds.toArray());
+
+        Map<Long, List<ClaimedDose>> byUser = claimed.stream()
+            .collect(Collectors.groupingBy(ClaimedDose::userId, LinkedHashMap::new, Collectors.toList()));
+        Map<Long, String[]> recipients = emailEnabled ? loadRecipients(byUser.keySet()) : Map.of();
+
+        String title = "Medication Reminder";
+        List<NotificationBatchWriter.UserNotification> notifications = new ArrayList<>(byUser.size());
+        List<OutboxService.Event> events = new ArrayList<>(byUser.size() * 3);
+        byUser.forEach((userId, doses) -> {
+            String details = doses.stream()
+                .map(dose -> medications.getOrDefault(dose.medicationId(), "your medication"))
+                .distinct()
+                .collect(Collectors.joining(", "));
+            String message = "Time to take your medication: " + details;
+            String doseIds = doses.stream().map(dose -> String.valueOf(dose.id())).collect(Collectors.joining(","));
+
+            notifications.add(new NotificationBatchWriter.UserNotification(userId, title, message,
+                "{\"doseIds\":[" + doseIds + "]}"));
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("type", "medication_reminder");
+            data.put("medicationDetails", details);
+            data.put("doseIds", doseIds);
+            events.add(OutboxService.Event.push(userId, title, message, data));
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("title", title);
+            payload.put("message", message);
+            payload.put("type", NotificationType.MEDICATION_REMINDER.name());
+            payload.put("icon", NotificationConstants.ICON_MEDICATION);
+            payload.put("doseIds", doses.stream().map(ClaimedDose::id).toList());
+            events.add(OutboxService.Event.toUser(userId, NotificationConstants.USER_NOTIFICATIONS_DESTINATION,
+                payload));
+
+            String[] recipient = recipients.get(userId);
+            if (recipient != null) {
+                events.add(OutboxService.Event.email(userId, OutboxService.EMAIL_MEDICATION_REMINDER,
+                    Map.of("to", recipient[1], "name", recipient[0], "details", details)));
+            }
+        });
+
+        notificationBatchWriter.insertEach(notifications, NotificationType.MEDICATION_REMINDER,
+            NotificationConstants.ICON_MEDICATION, 2);
+        outboxService.enqueueAll(events);
+    }
+
+    /**
+     * [name, email] of each user that has an email address
+     */
+    private Map<Long, String[]> loadRecipients(Collection<Long> userIds) {
+        Map<Long, String[]> recipients = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, email FROM users WHERE email IS NOT NULL AND id IN ("
+                + placeholders(userIds.size()) + ")",
+            rs -> {
+                recipients.put(rs.getLong("id"), new String[] { rs.getString("name"), rs.getString("email") });
+            },
+            userIds.toArray());
+        return recipients;
+    }
+
+    private static Map<String, Object> summarize(Map<DoseStatus, Long> counts) {
+        long taken = counts.getOrDefault(DoseStatus.TAKEN, 0L);
+        long skipped = counts.getOrDefault(DoseStatus.SKIPPED, 0L);
+        long missed = counts.getOrDefault(DoseStatus.MISSED, 0L);
+        long awaiting = counts.getOrDefault(DoseStatus.PENDING, 0L) + counts.getOrDefault(DoseStatus.REMINDED, 0L);
+        long resolved = taken + skipped + missed;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("scheduled", resolved + awaiting);
+        summary.put("taken", taken);
+        summary.put("skipped", skipped);
+        summary.put("missed", missed);
+        summary.put("awaiting", awaiting);
+        // Doses still awaiting acknowledgement don't count against adherence yet
+        summary.put("adherenceRate", resolved > 0 ? Math.round(taken * 1000.0 / resolved) / 10.0 : 0.0);
+        return summary;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime laterOf(LocalDateTime a, LocalDateTime b) {
+        return a != null && a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime earlierOf(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
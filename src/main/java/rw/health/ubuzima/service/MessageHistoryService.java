@@ -0,0 +1,110 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rw.health.ubuzima.entity.Message;
+import rw.health.ubuzima.repository.MessageRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated conversation history.
+ * Pages walk backwards from "now" (or from a given message) on (createdAt, id), so each page
+ * is a bounded index range scan regardless of how long the conversation is.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MessageHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final MessageRepository messageRepository;
+
+    /**
+     * Get one page of history between two users.
+     *
+     * @param cursor          opaque token from a previous page's nextCursor, or null
+     * @param beforeMessageId start just before this message when no cursor is given, or null for "now"
+     */
+    public Map<String, Object> getHistoryPage(Long user1Id, Long user2Id, String cursor, Long beforeMessageId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Fetch one extra row to know whether an older page exists
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<Message> rows;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorPosition position = decodeCursor(cursor);
+            rows = messageRepository.findConversationPageBefore(user1Id, user2Id, position.createdAt(), position.id(), limit);
+        } else if (beforeMessageId != null) {
+            Message anchor = messageRepository.findById(beforeMessageId)
+                .orElseThrow(() -> new IllegalArgumentException("Message not found: " + beforeMessageId));
+            if (!isBetween(anchor, user1Id, user2Id)) {
+                throw new IllegalArgumentException("Message " + beforeMessageId + " is not part of this conversation");
+            }
+            rows = messageRepository.findConversationPageBefore(user1Id, user2Id, anchor.getCreatedAt(), anchor.getId(), limit);
+        } else {
+            rows = messageRepository.findLatestConversationPage(user1Id, user2Id, limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Message> page = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+
+        // Initializing one attachment collection batch-loads the rest of the page (@BatchSize on Message.attachments)
+        page.forEach(message -> message.getAttachments().size());
+
+        String nextCursor = null;
+        if (hasMore && !page.isEmpty()) {
+            Message oldest = page.get(page.size() - 1);
+            nextCursor = encodeCursor(oldest.getCreatedAt(), oldest.getId());
+        }
+
+        // Oldest first within the page, as the chat view renders it
+        Collections.reverse(page);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("messages", page);
+        result.put("size", page.size());
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", nextCursor);
+        return result;
+    }
+
+    private boolean isBetween(Message message, Long user1Id, Long user2Id) {
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        return (senderId.equals(user1Id) && receiverId.equals(user2Id))
+            || (senderId.equals(user2Id) && receiverId.equals(user1Id));
+    }
+
+    String encodeCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    CursorPosition decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new CursorPosition(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Long.valueOf(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    record CursorPosition(LocalDateTime createdAt, Long id) {
+    }
+}
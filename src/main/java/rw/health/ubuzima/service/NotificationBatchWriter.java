@@ -0,0 +1,99 @@
+package rw.health.ubuzima.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import rw.health.ubuzima.enums.NotificationType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk insert of notification rows for many users.
+ * Notification ids are IDENTITY, so Hibernate can't batch these inserts. Identical rows are written
+ * with one INSERT ... SELECT per chunk of users, which also skips ids with no user instead of failing
+ * the whole chunk on the foreign key; per-user rows use a JDBC batch (with reWriteBatchedInserts on
+ * PostgreSQL).
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationBatchWriter {
+
+    private static final String INSERT_NOTIFICATION_SQL =
+        "INSERT INTO notifications (user_id, title, message, notification_type, is_read, action_url, icon, " +
+        "priority, metadata, created_at, updated_at, version) VALUES (?, ?, ?, ?, false, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_FOR_USERS_SQL =
+        "INSERT INTO notifications (user_id, title, message, notification_type, is_read, action_url, icon, " +
+        "priority, metadata, created_at, updated_at, version) " +
+        "SELECT id, ?, ?, ?, false, ?, ?, ?, ?, ?, ?, 0 FROM users WHERE id IN (%s)";
+
+    private static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    /**
+     * One user's row when the text differs per user
+     */
+    public record UserNotification(Long userId, String title, String message, String metadata) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert one notification row per existing user; ids with no user are skipped. Joins the
+     * caller's transaction when there is one.
+     *
+     * @return number of rows written
+     */
+    public int insertForUsers(Collection<Long> userIds, String title, String message, NotificationType type,
+                              String actionUrl, String icon, Integer priority, String metadata) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(userIds);
+        int written = 0;
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT));
+            List<Object> args = new ArrayList<>(chunk.size() + 9);
+            args.addAll(List.of(title, message, type.name()));
+            args.add(actionUrl);
+            args.add(icon);
+            args.add(priority != null ? priority : 1);
+            args.add(metadata);
+            args.add(now);
+            args.add(now);
+            args.addAll(chunk);
+            written += jdbcTemplate.update(String.format(INSERT_FOR_USERS_SQL,
+                String.join(", ", Collections.nCopies(chunk.size(), "?"))), args.toArray());
+        }
+        return written;
+    }
+
+    /**
+     * Insert one row per entry, all of the same type. Joins the caller's transaction when there is one.
+     *
+     * @return number of rows written
+     */
+    public int insertEach(List<UserNotification> notifications, NotificationType type, String icon, Integer priority) {
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(notifications.size());
+        for (UserNotification notification : notifications) {
+            batchArgs.add(new Object[] {
+                notification.userId(), notification.title(), notification.message(), type.name(), null, icon,
+                priority != null ? priority : 1, notification.metadata(), now, now
+            });
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, batchArgs);
+        return batchArgs.size();
+    }
+}
@@ -0,0 +1,371 @@
+package rw.health.ubuzima.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.OutboxEventType;
+import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.impl.PushDispatchEngine;
+import rw.health.ubuzima.service.impl.PushDispatchEngine.DispatchResult;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay side of the notification outbox.
+ * A single relay thread claims due events in batches (FOR UPDATE SKIP LOCKED, so several
+ * instances can relay side by side) by pushing their available_at past a lease, then dispatches
+ * the batch concurrently on a bounded pool, outside any transaction. Delivered events are marked
+ * DISPATCHED; failures are retried with exponential backoff until max-attempts, then marked
+ * FAILED. An event whose relay dies mid-dispatch becomes due again when its lease expires, so
+ * delivery is at least once. The table comes from migration V14; with ubuzima.outbox.enabled
+ * false (e.g. on H2, which has no SKIP LOCKED) the relay and its jobs don't run.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM_SQL = "UPDATE outbox_events SET attempts = attempts + 1, available_at = ? " +
+        "WHERE id IN (SELECT id FROM outbox_events WHERE status = 'PENDING' AND available_at <= ? " +
+        "ORDER BY available_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING id, event_type, user_id, destination, payload, attempts, created_at";
+    private static final String DISPATCHED_SQL =
+        "UPDATE outbox_events SET status = 'DISPATCHED', dispatched_at = ?, last_error = NULL WHERE id = ?";
+    private static final String RETRY_SQL =
+        "UPDATE outbox_events SET available_at = ?, last_error = ? WHERE id = ?";
+    private static final String FAILED_SQL =
+        "UPDATE outbox_events SET status = 'FAILED', last_error = ? WHERE id = ?";
+
+    private record OutboxEvent(long id, OutboxEventType type, Long userId, String destination, String payload,
+                               int attempts, LocalDateTime createdAt) {
+    }
+
+    private record Outcome(OutboxEvent event, String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final PushDispatchEngine pushDispatchEngine;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor dispatchPool;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final Timer lagTimer;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingSeconds = new AtomicLong();
+
+    @Value("${ubuzima.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ubuzima.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${ubuzima.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${ubuzima.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${ubuzima.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${ubuzima.outbox.base-backoff-ms:2000}")
+    private long baseBackoffMs;
+
+    @Value("${ubuzima.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private volatile boolean running;
+    private Thread relayThread;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       PushDispatchEngine pushDispatchEngine,
+                       UserRepository userRepository,
+                       EmailService emailService,
+                       SimpMessagingTemplate messagingTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${ubuzima.outbox.dispatch-threads:8}") int dispatchThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.pushDispatchEngine = pushDispatchEngine;
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.dispatchPool = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(dispatchThreads * 4),
+            runnable -> {
+                Thread thread = new Thread(runnable, "outbox-dispatch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.lagTimer = Timer.builder("ubuzima.outbox.lag")
+            .description("Time from an outbox event being written to it being dispatched")
+            .register(meterRegistry);
+        meterRegistry.gauge("ubuzima.outbox.pending", pending);
+        meterRegistry.gauge("ubuzima.outbox.oldest.pending.seconds", oldestPendingSeconds);
+    }
+
+    /**
+     * Ask the relay to poll now instead of waiting for the next interval
+     */
+    public void wakeUp() {
+        if (running) {
+            wakeUps.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("pending", pending.get());
+        stats.put("oldestPendingSeconds", oldestPendingSeconds.get());
+        stats.put("activeDispatches", dispatchPool.getActiveCount());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Outbox relay disabled (ubuzima.outbox.enabled=false)");
+            return;
+        }
+        running = true;
+        relayThread = new Thread(this::relayLoop, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+        dispatchPool.shutdown();
+        try {
+            dispatchPool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Backlog size and age for the gauges
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.outbox.backlog-check-ms:15000}", initialDelay = 30000)
+    public void refreshBacklog() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.query("SELECT COUNT(*), MIN(created_at) FROM outbox_events WHERE status = 'PENDING'", rs -> {
+                pending.set(rs.getLong(1));
+                Timestamp oldest = rs.getTimestamp(2);
+                oldestPendingSeconds.set(oldest == null ? 0
+                    : Math.max(0, Duration.between(oldest.toLocalDateTime(), LocalDateTime.now()).toSeconds()));
+            });
+        } catch (Exception e) {
+            log.debug("Could not read outbox backlog: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${ubuzima.outbox.purge-cron:0 15 3 * * *}")
+    public void purgeDispatched() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM outbox_events WHERE status = 'DISPATCHED' AND dispatched_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+            log.info("Purged {} dispatched outbox events older than {} days", purged, retentionDays);
+        } catch (Exception e) {
+            log.error("Failed to purge outbox events", e);
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                int claimed = relayBatch();
+                if (claimed < batchSize) {
+                    // Caught up: sleep until the next poll or until a producer commits
+                    wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Outbox relay iteration failed", e);
+                sleepQuietly(pollIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Claim one batch, dispatch it concurrently and record the outcomes
+     *
+     * @return number of events claimed
+     */
+    private int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_SQL,
+            (rs, rowNum) -> new OutboxEvent(
+                rs.getLong("id"),
+                OutboxEventType.valueOf(rs.getString("event_type")),
+                rs.getObject("user_id", Long.class),
+                rs.getString("destination"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getTimestamp("created_at").toLocalDateTime()),
+            Timestamp.valueOf(now.plus(Duration.ofMillis(leaseMs))), Timestamp.valueOf(now), batchSize));
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            futures.add(CompletableFuture.supplyAsync(() -> dispatch(event), dispatchPool));
+        }
+        List<Outcome> outcomes = new ArrayList<>(futures.size());
+        for (CompletableFuture<Outcome> future : futures) {
+            outcomes.add(future.join());
+        }
+
+        record(outcomes);
+        return events.size();
+    }
+
+    private Outcome dispatch(OutboxEvent event) {
+        try {
+            switch (event.type()) {
+                case PUSH -> {
+                    Map<String, Object> payload = objectMapper.readValue(event.payload(), new TypeReference<>() {});
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> data = payload.get("data") instanceof Map<?, ?> map
+                        ? (Map<String, Object>) map : Map.of();
+                    List<String> tokens = new ArrayList<>();
+                    for (Object[] row : userRepository.findDeviceTokensByIdIn(List.of(event.userId()))) {
+                        tokens.add((String) row[1]);
+                    }
+                    DispatchResult result = pushDispatchEngine.dispatch(tokens,
+                        (String) payload.get("title"), (String) payload.get("message"), data).join();
+                    // Nothing delivered but some tokens still failing: leave it to the outbox backoff
+                    if (result.failed() > 0 && result.delivered() == 0) {
+                        throw new IllegalStateException("Push not delivered to any of " + result.failed() + " device tokens");
+                    }
+                }
+                case WEBSOCKET -> {
+                    Object payload = objectMapper.readValue(event.payload(), Object.class);
+                    if (event.userId() != null) {
+                        messagingTemplate.convertAndSendToUser(event.userId().toString(), event.destination(), payload);
+                    } else {
+                        messagingTemplate.convertAndSend(event.destination(), payload);
+                    }
+                }
+                case EMAIL -> {
+                    Map<String, String> payload = objectMapper.readValue(event.payload(), new TypeReference<>() {});
+                    String template = payload.get("template");
+                    if (!OutboxService.EMAIL_MEDICATION_REMINDER.equals(template)) {
+                        throw new IllegalArgumentException("Unknown email template: " + template);
+                    }
+                    emailService.sendMedicationReminder(payload.get("to"), payload.get("name"), payload.get("details"));
+                }
+            }
+            return new Outcome(event, null);
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new Outcome(event, message.length() > 500 ? message.substring(0, 500) : message);
+        }
+    }
+
+    private void record(List<Outcome> outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp dispatchedAt = Timestamp.valueOf(now);
+        List<Object[]> dispatched = new ArrayList<>();
+        List<Object[]> retries = new ArrayList<>();
+        List<Object[]> failures = new ArrayList<>();
+
+        for (Outcome outcome : outcomes) {
+            OutboxEvent event = outcome.event();
+            String result;
+            if (outcome.error() == null) {
+                dispatched.add(new Object[] {dispatchedAt, event.id()});
+                lagTimer.record(Duration.between(event.createdAt(), now));
+                result = "dispatched";
+            } else if (event.attempts() >= maxAttempts) {
+                failures.add(new Object[] {outcome.error(), event.id()});
+                log.error("Outbox event {} ({}) failed permanently after {} attempts: {}",
+                    event.id(), event.type(), event.attempts(), outcome.error());
+                result = "failed";
+            } else {
+                long backoffMs = baseBackoffMs << Math.min(event.attempts() - 1, 10);
+                retries.add(new Object[] {Timestamp.valueOf(now.plus(Duration.ofMillis(backoffMs))), outcome.error(),
+                    event.id()});
+                log.warn("Outbox event {} ({}) failed (attempt {}/{}), retrying in {} ms: {}",
+                    event.id(), event.type(), event.attempts(), maxAttempts, backoffMs, outcome.error());
+                result = "retry";
+            }
+            Counter.builder("ubuzima.outbox.events")
+                .tag("type", event.type().name())
+                .tag("outcome", result)
+                .register(meterRegistry)
+                .increment();
+        }
+
+        if (!dispatched.isEmpty()) {
+            jdbcTemplate.batchUpdate(DISPATCHED_SQL, dispatched);
+        }
+        if (!retries.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retries);
+        }
+        if (!failures.isEmpty()) {
+            jdbcTemplate.batchUpdate(FAILED_SQL, failures);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package rw.health.ubuzima.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rw.health.ubuzima.enums.NotificationType;
+import rw.health.ubuzima.enums.OutboxEventType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Producer side of the notification outbox.
+ * Events are inserted into outbox_events in the caller's transaction, so they exist exactly when
+ * the change that caused them commits; nothing leaves the process until then. OutboxRelay is
+ * woken after commit and delivers them outside the transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_EVENT_SQL = "INSERT INTO outbox_events " +
+        "(event_type, user_id, destination, payload, status, attempts, available_at, created_at) " +
+        "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    /** EmailService.sendMedicationReminder; fields to, name, details */
+    public static final String EMAIL_MEDICATION_REMINDER = "medication_reminder";
+
+    public record Event(OutboxEventType type, Long userId, String destination, Object payload) {
+
+        public static Event push(Long userId, String title, String message, Map<String, Object> data) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("title", title);
+            payload.put("message", message);
+            payload.put("data", data != null ? data : Map.of());
+            return new Event(OutboxEventType.PUSH, userId, null, payload);
+        }
+
+        public static Event toUser(Long userId, String destination, Object payload) {
+            return new Event(OutboxEventType.WEBSOCKET, userId, destination, payload);
+        }
+
+        /**
+         * Templated email; {@code fields} are the template's arguments (see OutboxRelay)
+         */
+        public static Event email(Long userId, String template, Map<String, String> fields) {
+            Map<String, String> payload = new LinkedHashMap<>(fields);
+            payload.put("template", template);
+            return new Event(OutboxEventType.EMAIL, userId, null, payload);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final OutboxRelay outboxRelay;
+
+    /**
+     * Transactional counterpart of PushNotificationService.sendNotificationToUser: writes the
+     * notification row now and queues the push for after commit
+     */
+    public void notifyUser(Long userId, String title, String message, Map<String, Object> data) {
+        notificationBatchWriter.insertForUsers(List.of(userId), title, message, NotificationType.SYSTEM_NOTIFICATION,
+            null, null, 1, null);
+        push(userId, title, message, data);
+    }
+
+    /**
+     * Queue a push without writing a notification row
+     */
+    public void push(Long userId, String title, String message, Map<String, Object> data) {
+        enqueueAll(List.of(Event.push(userId, title, message, data)));
+    }
+
+    /**
+     * Queue a STOMP message to the user's {@code destination} (e.g. /queue/notifications)
+     */
+    public void publishToUser(Long userId, String destination, Object payload) {
+        enqueueAll(List.of(Event.toUser(userId, destination, payload)));
+    }
+
+    /**
+     * Queue a STOMP message to a broadcast destination (e.g. /topic/...)
+     */
+    public void publish(String destination, Object payload) {
+        enqueueAll(List.of(new Event(OutboxEventType.WEBSOCKET, null, destination, payload)));
+    }
+
+    /**
+     * Queue several events with one JDBC batch
+     */
+    public void enqueueAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(events.size());
+        for (Event event : events) {
+            batchArgs.add(new Object[] {
+                event.type().name(), event.userId(), event.destination(), toJson(event.payload()), now, now
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, batchArgs);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelay.wakeUp();
+                }
+            });
+        } else {
+            outboxRelay.wakeUp();
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import rw.health.ubuzima.entity.Notification;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface PushNotificationService {
 
@@ -17,6 +18,14 @@ public interface PushNotificationService {
      */
     void sendNotificationToUsers(List<Long> userIds, String title, String message, Map<String, Object> data);
 
+    /**
+     * Send push notifications only, without saving notification rows (the caller has already persisted them).
+     * Returns without waiting for delivery or retries.
+     *
+     * @return number of pushes delivered, once every retry has finished
+     */
+    CompletableFuture<Integer> sendPushToUsers(List<Long> userIds, String title, String message, Map<String, Object> data);
+
     /**
      * Send push notification to all users
      */
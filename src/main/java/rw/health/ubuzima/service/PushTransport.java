@@ -0,0 +1,52 @@
+package rw.health.ubuzima.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport used by the push dispatch engine to deliver one multicast batch.
+ * The Firebase implementation is the default; a local simulator can be selected with
+ * ubuzima.push.transport=simulator for load tests without a Firebase project.
+ */
+public interface PushTransport {
+
+    /**
+     * Per-token outcome of a multicast send
+     */
+    enum SendStatus {
+        DELIVERED,
+        RETRYABLE,
+        INVALID_TOKEN,
+        FAILED
+    }
+
+    String getName();
+
+    boolean isAvailable();
+
+    /**
+     * Send one notification to up to 500 tokens.
+     *
+     * @return one status per token, in the same order as the tokens
+     * @throws PushTransportException when the whole request fails
+     */
+    List<SendStatus> sendMulticast(List<String> tokens, String title, String body, Map<String, String> data)
+        throws PushTransportException;
+
+    /**
+     * Whole-request failure of a multicast send
+     */
+    class PushTransportException extends Exception {
+
+        private final boolean retryable;
+
+        public PushTransportException(String message, boolean retryable, Throwable cause) {
+            super(message, cause);
+            this.retryable = retryable;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+}
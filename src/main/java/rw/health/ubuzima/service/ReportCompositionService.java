@@ -0,0 +1,224 @@
+package rw.health.ubuzima.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the independent sections of a multi-section report concurrently.
+ * Sections go to a bounded pool (fixed threads, bounded queue; a full queue fails the section
+ * rather than queueing without limit) and each one has its own timeout, so a report takes about
+ * as long as its slowest section. One report runs at most max-parallel-sections sections at a
+ * time, so a single request can't take most of the connection pool. Each section runs in a
+ * read-only transaction whose timeout is the section's, which Spring applies as the JDBC query
+ * timeout: a timed-out section's query is stopped by the database instead of running on.
+ * A failed or timed-out section is reported in the errors map while the other sections are still
+ * returned. Every section's latency is recorded in the "ubuzima.report.section" timer, tagged
+ * with report, section and outcome.
+ */
+@Service
+@Slf4j
+public class ReportCompositionService {
+
+    public record Section(String name, Duration timeout, Callable<?> task) {
+    }
+
+    /**
+     * Section results by name in the order given; failed sections are absent from results and
+     * present in errors with a short reason
+     */
+    public record ComposedReport(Map<String, Object> results, Map<String, String> errors, long elapsedMs) {
+
+        public boolean isPartial() {
+            return !errors.isEmpty();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final Duration defaultTimeout;
+    private final int maxParallelSections;
+
+    public ReportCompositionService(MeterRegistry meterRegistry,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${ubuzima.reports.threads:8}") int threads,
+                                    @Value("${ubuzima.reports.queue-capacity:64}") int queueCapacity,
+                                    @Value("${ubuzima.reports.section-timeout-ms:5000}") long sectionTimeoutMs,
+                                    @Value("${ubuzima.reports.max-parallel-sections:4}") int maxParallelSections) {
+        this.meterRegistry = meterRegistry;
+        this.transactionManager = transactionManager;
+        this.defaultTimeout = Duration.ofMillis(sectionTimeoutMs);
+        this.maxParallelSections = Math.max(1, maxParallelSections);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "report-section-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        meterRegistry.gauge("ubuzima.report.executor.queued", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("ubuzima.report.executor.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public Section section(String name, Callable<?> task) {
+        return new Section(name, defaultTimeout, task);
+    }
+
+    public Section section(String name, Duration timeout, Callable<?> task) {
+        return new Section(name, timeout, task);
+    }
+
+    /**
+     * Run the sections concurrently, at most max-parallel-sections at a time, and wait for each
+     * until its own timeout
+     */
+    public ComposedReport compose(String report, List<Section> sections) {
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(sections.size());
+        Map<String, String> errors = new LinkedHashMap<>();
+        Semaphore slots = new Semaphore(maxParallelSections);
+
+        for (Section section : sections) {
+            // Deadlines count from the start of the report, including any wait for a free slot
+            long remainingNanos = section.timeout().toNanos() - (System.nanoTime() - started);
+            try {
+                if (!slots.tryAcquire(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS)) {
+                    futures.add(null);
+                    errors.put(section.name(), "timeout after " + section.timeout().toMillis() + " ms waiting to start");
+                    record(report, section.name(), "timeout", section.timeout().toNanos());
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.add(null);
+                errors.put(section.name(), "interrupted");
+                continue;
+            }
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return timed(report, section);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                futures.add(null);
+                errors.put(section.name(), "rejected: report executor is saturated");
+                record(report, section.name(), "rejected", 0);
+            }
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            Future<?> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            // Deadlines count from submission, so waiting on earlier sections doesn't extend later ones
+            long remainingNanos = section.timeout().toNanos() - (System.nanoTime() - started);
+            try {
+                results.put(section.name(), future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                errors.put(section.name(), "timeout after " + section.timeout().toMillis() + " ms");
+                record(report, section.name(), "timeout", section.timeout().toNanos());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                errors.put(section.name(), "failed: " + cause.getMessage());
+                log.warn("Report {} section {} failed: {}", report, section.name(), cause.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                errors.put(section.name(), "interrupted");
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        Timer.builder("ubuzima.report")
+            .tag("report", report)
+            .tag("outcome", errors.isEmpty() ? "complete" : "partial")
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        return new ComposedReport(results, errors, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Object timed(String report, Section section) throws Exception {
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = inReadOnlyTransaction(section);
+            outcome = "success";
+            return result;
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                record(report, section.name(), outcome, System.nanoTime() - started);
+            }
+        }
+    }
+
+    // The transaction timeout becomes the query timeout of every statement the section runs
+    private Object inReadOnlyTransaction(Section section) throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout((int) Math.max(1, (section.timeout().toMillis() + 999) / 1000));
+        try {
+            return transaction.execute(status -> {
+                try {
+                    return section.task().call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new SectionFailure(e);
+                }
+            });
+        } catch (SectionFailure e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static final class SectionFailure extends RuntimeException {
+        SectionFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private void record(String report, String section, String outcome, long nanos) {
+        Timer.builder("ubuzima.report.section")
+            .tag("report", report)
+            .tag("section", section)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,297 @@
+package rw.health.ubuzima.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.constants.NotificationConstants;
+import rw.health.ubuzima.util.TimingWheel;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers notifications at their scheduled_for time.
+ * Notifications due within the next window are loaded by an indexed range query into an in-memory
+ * hierarchical timing wheel, refreshed periodically. A timer thread advances the wheel every tick and
+ * delivers what is due in batches: one bulk UPDATE stamps sent_at (only where it is still NULL and
+ * the notification is still due) and, in the same transaction, the push and real-time message of
+ * every stamped row go to the outbox. Rows are only sent by whoever stamps them, so restarts or
+ * several instances never send a notification twice; on startup anything overdue is caught up.
+ * Notifications more than max-lateness-hours overdue are not sent: each load stamps their sent_at
+ * without delivering them, so they leave the V15 partial index, and counts them as expired.
+ */
+@Service
+@Slf4j
+public class ScheduledNotificationDispatcher {
+
+    private static final String LOAD_SQL = "SELECT id, scheduled_for FROM notifications " +
+        "WHERE sent_at IS NULL AND scheduled_for >= ? AND scheduled_for <= ? ORDER BY scheduled_for LIMIT ?";
+    private static final String EXPIRE_SQL = "UPDATE notifications SET sent_at = ?, updated_at = ?, " +
+        "version = COALESCE(version, 0) + 1 WHERE id IN (SELECT id FROM notifications " +
+        "WHERE sent_at IS NULL AND scheduled_for < ? LIMIT ?)";
+    private static final String CLAIM_SQL = "UPDATE notifications SET sent_at = ?, updated_at = ?, " +
+        "version = COALESCE(version, 0) + 1 WHERE id IN (%s) AND sent_at IS NULL AND scheduled_for <= ? " +
+        "RETURNING id, user_id, title, message, notification_type, priority, icon, action_url, scheduled_for";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final TimingWheel<Long> wheel;
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+    private final List<Long> due = new ArrayList<>();
+    private final Counter deliveredCounter;
+    private final Counter expiredCounter;
+    private final Timer latenessTimer;
+    private final AtomicLong wheelSize = new AtomicLong();
+
+    private final long tickMs;
+
+    @Value("${ubuzima.notifications.scheduled.window-minutes:5}")
+    private int windowMinutes;
+
+    @Value("${ubuzima.notifications.scheduled.max-lateness-hours:24}")
+    private int maxLatenessHours;
+
+    @Value("${ubuzima.notifications.scheduled.max-loaded:50000}")
+    private int maxLoaded;
+
+    @Value("${ubuzima.notifications.scheduled.batch-size:200}")
+    private int batchSize;
+
+    private volatile LocalDateTime loadedUntil;
+    private volatile boolean running;
+    private Thread timerThread;
+
+    public ScheduledNotificationDispatcher(JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           OutboxService outboxService,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${ubuzima.notifications.scheduled.tick-ms:1000}") long tickMs,
+                                           @Value("${ubuzima.notifications.scheduled.wheel-size:60}") int wheelSlots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxService = outboxService;
+        this.tickMs = tickMs;
+        this.wheel = new TimingWheel<>(tickMs, wheelSlots, System.currentTimeMillis());
+
+        this.deliveredCounter = Counter.builder("ubuzima.notifications.scheduled.delivered").register(meterRegistry);
+        this.expiredCounter = Counter.builder("ubuzima.notifications.scheduled.expired")
+            .description("Unsent notifications dropped for being more than max-lateness-hours overdue")
+            .register(meterRegistry);
+        this.latenessTimer = Timer.builder("ubuzima.notifications.scheduled.lateness")
+            .description("Delay between a notification's scheduled_for and its sent_at")
+            .register(meterRegistry);
+        meterRegistry.gauge("ubuzima.notifications.scheduled.wheel", this.wheelSize);
+    }
+
+    /**
+     * Put a just-written notification on the wheel if it falls inside the loaded window; later ones
+     * are picked up by the periodic load. Within a transaction this happens after commit.
+     */
+    public void schedule(Long notificationId, LocalDateTime scheduledFor) {
+        if (notificationId == null || scheduledFor == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(notificationId, scheduledFor);
+                }
+            });
+        } else {
+            enqueue(notificationId, scheduledFor);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("onWheel", wheelSize.get());
+        stats.put("loadedUntil", loadedUntil != null ? loadedUntil.toString() : null);
+        stats.put("delivered", (long) deliveredCounter.count());
+        stats.put("expired", (long) expiredCounter.count());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Overdue notifications (e.g. from before a restart) are due on the first tick
+        loadWindow();
+        running = true;
+        timerThread = new Thread(this::timerLoop, "notification-timer");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (timerThread != null) {
+            timerThread.interrupt();
+        }
+    }
+
+    /**
+     * Expire notifications too late to send, then load unsent ones due up to the end of the next window
+     */
+    @Scheduled(fixedDelayString = "${ubuzima.notifications.scheduled.load-interval-ms:60000}",
+               initialDelayString = "${ubuzima.notifications.scheduled.load-interval-ms:60000}")
+    public void loadWindow() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plusMinutes(windowMinutes);
+            expireOverdue(now);
+            loadedUntil = until;
+            int[] added = new int[1];
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                    long id = rs.getLong("id");
+                    if (!scheduled.contains(id)) {
+                        enqueue(id, rs.getTimestamp("scheduled_for").toLocalDateTime());
+                        added[0]++;
+                    }
+                },
+                Timestamp.valueOf(now.minusHours(maxLatenessHours)), Timestamp.valueOf(until), maxLoaded);
+            if (added[0] > 0) {
+                log.debug("Loaded {} scheduled notifications due until {}", added[0], until);
+            }
+        } catch (Exception e) {
+            log.error("Failed to load scheduled notifications", e);
+        }
+    }
+
+    private void expireOverdue(LocalDateTime now) {
+        try {
+            Timestamp stamp = Timestamp.valueOf(now);
+            int expired = jdbcTemplate.update(EXPIRE_SQL, stamp, stamp,
+                Timestamp.valueOf(now.minusHours(maxLatenessHours)), maxLoaded);
+            if (expired > 0) {
+                expiredCounter.increment(expired);
+                log.warn("Expired {} scheduled notifications more than {}h overdue without sending them",
+                    expired, maxLatenessHours);
+            }
+        } catch (Exception e) {
+            log.error("Failed to expire overdue scheduled notifications", e);
+        }
+    }
+
+    private void enqueue(long notificationId, LocalDateTime scheduledFor) {
+        LocalDateTime horizon = loadedUntil;
+        if ((horizon != null && scheduledFor.isAfter(horizon)) || !scheduled.add(notificationId)) {
+            return;
+        }
+        long dueAtMs = scheduledFor.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (wheel) {
+            if (!wheel.add(notificationId, dueAtMs)) {
+                due.add(notificationId);
+            }
+            wheelSize.set(wheel.size());
+        }
+    }
+
+    private void timerLoop() {
+        while (running) {
+            try {
+                Thread.sleep(tickMs);
+                List<Long> ready;
+                synchronized (wheel) {
+                    wheel.advanceTo(System.currentTimeMillis(), due::add);
+                    wheelSize.set(wheel.size());
+                    if (due.isEmpty()) {
+                        continue;
+                    }
+                    ready = new ArrayList<>(due);
+                    due.clear();
+                }
+                for (int from = 0; from < ready.size(); from += batchSize) {
+                    deliver(ready.subList(from, Math.min(ready.size(), from + batchSize)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Scheduled notification tick failed", e);
+            }
+        }
+    }
+
+    /**
+     * Stamp sent_at on the batch and queue its deliveries, in one transaction
+     */
+    private void deliver(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp sentAt = Timestamp.valueOf(now);
+        String sql = String.format(CLAIM_SQL, String.join(", ", Collections.nCopies(ids.size(), "?")));
+        List<Object> args = new ArrayList<>(ids.size() + 3);
+        args.add(sentAt);
+        args.add(sentAt);
+        args.addAll(ids);
+        args.add(sentAt);
+
+        try {
+            Integer delivered = transactionTemplate.execute(status -> {
+                List<OutboxService.Event> events = new ArrayList<>();
+                jdbcTemplate.query(sql, rs -> {
+                    long userId = rs.getLong("user_id");
+                    String title = rs.getString("title");
+                    String message = rs.getString("message");
+                    String type = rs.getString("notification_type");
+
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("type", type != null ? type.toLowerCase(Locale.ROOT) : "general");
+                    data.put("notificationId", rs.getLong("id"));
+                    if (rs.getString("action_url") != null) {
+                        data.put("actionUrl", rs.getString("action_url"));
+                    }
+                    events.add(OutboxService.Event.push(userId, title, message, data));
+
+                    Map<String, Object> payload = new LinkedHashMap<>();
+                    payload.put("id", rs.getLong("id"));
+                    payload.put("title", title);
+                    payload.put("message", message);
+                    payload.put("type", type);
+                    payload.put("priority", rs.getObject("priority"));
+                    payload.put("icon", rs.getString("icon"));
+                    events.add(OutboxService.Event.toUser(userId, NotificationConstants.USER_NOTIFICATIONS_DESTINATION,
+                        payload));
+
+                    latenessTimer.record(Duration.between(rs.getTimestamp("scheduled_for").toLocalDateTime(), now)
+                        .toMillis(), TimeUnit.MILLISECONDS);
+                }, args.toArray());
+                outboxService.enqueueAll(events);
+                return events.size() / 2;
+            });
+            deliveredCounter.increment(delivered != null ? delivered : 0);
+        } catch (Exception e) {
+            // Left unsent; the next load puts them back on the wheel
+            log.error("Failed to deliver {} scheduled notifications", ids.size(), e);
+        } finally {
+            // Rows not stamped were rescheduled, deleted or sent elsewhere; a later load re-adds live ones
+            ids.forEach(scheduled::remove);
+        }
+    }
+}
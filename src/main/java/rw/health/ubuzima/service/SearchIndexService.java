@@ -0,0 +1,400 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.entity.BaseEntity;
+import rw.health.ubuzima.entity.ContraceptionMethod;
+import rw.health.ubuzima.entity.EducationLesson;
+import rw.health.ubuzima.entity.HealthFacility;
+import rw.health.ubuzima.entity.Medication;
+import rw.health.ubuzima.entity.SupportGroup;
+import rw.health.ubuzima.entity.User;
+import rw.health.ubuzima.repository.ContraceptionMethodRepository;
+import rw.health.ubuzima.repository.EducationLessonRepository;
+import rw.health.ubuzima.repository.HealthFacilityRepository;
+import rw.health.ubuzima.repository.MedicationRepository;
+import rw.health.ubuzima.repository.SupportGroupRepository;
+import rw.health.ubuzima.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-process full-text search over the global search categories.
+ * Each category has its own inverted index, built from scalar projections on startup (in the
+ * background; callers fall back to SQL until it is ready), kept current by
+ * SearchIndexEventListener after each committed insert/update/delete, and rebuilt periodically
+ * to pick up bulk updates and other instances' writes.
+ */
+@Service
+@Slf4j
+public class SearchIndexService {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    public enum SearchCategory {
+        USERS("users"),
+        FACILITIES("facilities"),
+        LESSONS("lessons"),
+        MEDICATIONS("medications"),
+        CONTRACEPTION_METHODS("contraceptionMethods"),
+        SUPPORT_GROUPS("supportGroups");
+
+        private final String key;
+
+        SearchCategory(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    public record SearchHit(long id, double score) {
+    }
+
+    public record CategoryResult(List<SearchHit> hits, int total) {
+    }
+
+    /**
+     * Scalar projection used to (re)build a category, and the weight of each projected text field.
+     * fieldsOf(entity) returns the same fields in the same order for incremental updates.
+     */
+    private record IndexDefinition(String entityName, String alias, List<String> fields, float[] weights) {
+
+        String query() {
+            StringBuilder select = new StringBuilder("SELECT ").append(alias).append(".id");
+            for (String field : fields) {
+                select.append(", ").append(alias).append('.').append(field);
+            }
+            return select.append(" FROM ").append(entityName).append(' ').append(alias)
+                .append(" WHERE ").append(alias).append(".id > :afterId ORDER BY ").append(alias).append(".id")
+                .toString();
+        }
+    }
+
+    private static final Map<SearchCategory, IndexDefinition> DEFINITIONS = Map.of(
+        SearchCategory.USERS, new IndexDefinition("User", "u", List.of("name", "email"), new float[] {3f, 1f}),
+        SearchCategory.FACILITIES, new IndexDefinition("HealthFacility", "f", List.of("name", "address"), new float[] {3f, 1f}),
+        SearchCategory.LESSONS, new IndexDefinition("EducationLesson", "l", List.of("title", "description", "content"),
+            new float[] {3f, 1.5f, 1f}),
+        SearchCategory.MEDICATIONS, new IndexDefinition("Medication", "m", List.of("name", "purpose"), new float[] {3f, 1f}),
+        SearchCategory.CONTRACEPTION_METHODS, new IndexDefinition("ContraceptionMethod", "c", List.of("name", "description"),
+            new float[] {3f, 1f}),
+        SearchCategory.SUPPORT_GROUPS, new IndexDefinition("SupportGroup", "g", List.of("name", "description", "category"),
+            new float[] {3f, 1f, 1.5f})
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserRepository userRepository;
+    private final HealthFacilityRepository healthFacilityRepository;
+    private final EducationLessonRepository educationLessonRepository;
+    private final MedicationRepository medicationRepository;
+    private final ContraceptionMethodRepository contraceptionMethodRepository;
+    private final SupportGroupRepository supportGroupRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService rebuildExecutor;
+
+    private volatile Map<SearchCategory, InvertedIndex> indexes;
+    private volatile boolean ready;
+
+    // Guards the swap of the live indexes against incremental changes
+    private final Object changeLock = new Object();
+
+    // Incremental changes made while a rebuild is running, replayed onto the rebuilt indexes
+    private List<Consumer<Map<SearchCategory, InvertedIndex>>> changesDuringRebuild;
+
+    public SearchIndexService(UserRepository userRepository,
+                              HealthFacilityRepository healthFacilityRepository,
+                              EducationLessonRepository educationLessonRepository,
+                              MedicationRepository medicationRepository,
+                              ContraceptionMethodRepository contraceptionMethodRepository,
+                              SupportGroupRepository supportGroupRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.healthFacilityRepository = healthFacilityRepository;
+        this.educationLessonRepository = educationLessonRepository;
+        this.medicationRepository = medicationRepository;
+        this.contraceptionMethodRepository = contraceptionMethodRepository;
+        this.supportGroupRepository = supportGroupRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.indexes = emptyIndexes();
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * One page of ranked hits per category
+     */
+    public Map<SearchCategory, CategoryResult> search(String query, int page, int size) {
+        List<String> terms = SearchTokenizer.tokenizeQuery(query);
+        Map<SearchCategory, CategoryResult> results = new EnumMap<>(SearchCategory.class);
+        int from = Math.max(0, page) * size;
+
+        indexes.forEach((category, index) -> {
+            List<InvertedIndex.ScoredDocument> matches = index.search(terms);
+            List<SearchHit> hits = new ArrayList<>();
+            for (int i = from; i < Math.min(from + size, matches.size()); i++) {
+                hits.add(new SearchHit(matches.get(i).id(), matches.get(i).score()));
+            }
+            results.put(category, new CategoryResult(hits, matches.size()));
+        });
+        return results;
+    }
+
+    /**
+     * Load the entities for a page of hits, in hit order
+     */
+    public List<?> loadEntities(SearchCategory category, List<SearchHit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = hits.stream().map(SearchHit::id).toList();
+        return switch (category) {
+            case USERS -> inHitOrder(userRepository.findAllById(ids), User::getId, ids);
+            case FACILITIES -> inHitOrder(healthFacilityRepository.findAllById(ids), HealthFacility::getId, ids);
+            case LESSONS -> inHitOrder(educationLessonRepository.findAllById(ids), EducationLesson::getId, ids);
+            case MEDICATIONS -> inHitOrder(medicationRepository.findAllById(ids), Medication::getId, ids);
+            case CONTRACEPTION_METHODS -> inHitOrder(contraceptionMethodRepository.findAllById(ids), ContraceptionMethod::getId, ids);
+            case SUPPORT_GROUPS -> inHitOrder(supportGroupRepository.findAllById(ids), SupportGroup::getId, ids);
+        };
+    }
+
+    /**
+     * Whether entities of this class are indexed
+     */
+    public boolean handles(Class<?> entityClass) {
+        return categoryOf(entityClass) != null;
+    }
+
+    /**
+     * Add or refresh an entity after a committed insert or update
+     */
+    public void index(Object entity) {
+        SearchCategory category = categoryOf(entity.getClass());
+        Long id = idOf(entity);
+        if (category == null || id == null) {
+            return;
+        }
+        Map<String, Float> weights = termWeights(category, fieldsOf(entity));
+        apply(target -> target.get(category).put(id, weights));
+    }
+
+    /**
+     * Drop an entity after a committed delete
+     */
+    public void remove(Object entity) {
+        SearchCategory category = categoryOf(entity.getClass());
+        Long id = idOf(entity);
+        if (category != null && id != null) {
+            apply(target -> target.get(category).remove(id));
+        }
+    }
+
+    private void apply(Consumer<Map<SearchCategory, InvertedIndex>> change) {
+        // Under the lock a change lands either before the swap (and is replayed) or after it
+        synchronized (changeLock) {
+            change.accept(indexes);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuildExecutor.submit(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${ubuzima.search.rebuild-interval-ms:21600000}",
+               initialDelayString = "${ubuzima.search.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        rebuildExecutor.submit(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild every category from the database and swap the new indexes in.
+     * Loading runs without the change lock; changes made meanwhile are recorded and replayed onto
+     * the rebuilt indexes under the lock, just before the swap.
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        synchronized (changeLock) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            Map<SearchCategory, InvertedIndex> rebuilt = emptyIndexes();
+            for (SearchCategory category : SearchCategory.values()) {
+                loadAll(category, rebuilt.get(category));
+            }
+
+            synchronized (changeLock) {
+                for (Consumer<Map<SearchCategory, InvertedIndex>> change : changesDuringRebuild) {
+                    change.accept(rebuilt);
+                }
+                changesDuringRebuild = null;
+                indexes = rebuilt;
+            }
+            ready = true;
+
+            Map<String, Integer> sizes = new LinkedHashMap<>();
+            rebuilt.forEach((category, index) -> sizes.put(category.getKey(), index.size()));
+            log.info("Search index rebuilt in {} ms: {}", System.currentTimeMillis() - started, sizes);
+        } catch (Exception e) {
+            synchronized (changeLock) {
+                changesDuringRebuild = null;
+            }
+            log.error("Failed to rebuild search index", e);
+        }
+    }
+
+    private void loadAll(SearchCategory category, InvertedIndex index) {
+        IndexDefinition definition = DEFINITIONS.get(category);
+        String query = definition.query();
+        long afterId = 0L;
+
+        while (true) {
+            long cursor = afterId;
+            // Keyset pages of scalar rows, each in a short read-only transaction
+            List<Object[]> rows = readOnlyTransaction.execute(status -> entityManager
+                .createQuery(query, Object[].class)
+                .setParameter("afterId", cursor)
+                .setMaxResults(REBUILD_PAGE_SIZE)
+                .getResultList());
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+
+            for (Object[] row : rows) {
+                List<String> texts = new ArrayList<>(row.length - 1);
+                for (int i = 1; i < row.length; i++) {
+                    texts.add(row[i] != null ? row[i].toString() : null);
+                }
+                index.put((Long) row[0], termWeights(category, texts));
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    private List<String> fieldsOf(Object entity) {
+        if (entity instanceof User user) {
+            return Arrays.asList(user.getName(), user.getEmail());
+        }
+        if (entity instanceof HealthFacility facility) {
+            return Arrays.asList(facility.getName(), facility.getAddress());
+        }
+        if (entity instanceof EducationLesson lesson) {
+            return Arrays.asList(lesson.getTitle(), lesson.getDescription(), lesson.getContent());
+        }
+        if (entity instanceof Medication medication) {
+            return Arrays.asList(medication.getName(), medication.getPurpose());
+        }
+        if (entity instanceof ContraceptionMethod method) {
+            return Arrays.asList(method.getName(), method.getDescription());
+        }
+        if (entity instanceof SupportGroup group) {
+            return Arrays.asList(group.getName(), group.getDescription(), group.getCategory());
+        }
+        return List.of();
+    }
+
+    // Per-term weight: sum over fields of fieldWeight * (1 + ln(tf)), so long text can't drown the title
+    private Map<String, Float> termWeights(SearchCategory category, List<String> texts) {
+        float[] fieldWeights = DEFINITIONS.get(category).weights();
+        Map<String, Float> weights = new HashMap<>();
+        for (int i = 0; i < texts.size() && i < fieldWeights.length; i++) {
+            float fieldWeight = fieldWeights[i];
+            Map<String, Integer> counts = new HashMap<>();
+            for (String token : SearchTokenizer.tokenize(texts.get(i))) {
+                counts.merge(token, 1, Integer::sum);
+            }
+            counts.forEach((term, count) ->
+                weights.merge(term, fieldWeight * (float) (1.0 + Math.log(count)), Float::sum));
+        }
+        return weights;
+    }
+
+    private SearchCategory categoryOf(Class<?> entityClass) {
+        if (User.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.USERS;
+        }
+        if (HealthFacility.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.FACILITIES;
+        }
+        if (EducationLesson.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.LESSONS;
+        }
+        if (Medication.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.MEDICATIONS;
+        }
+        if (ContraceptionMethod.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.CONTRACEPTION_METHODS;
+        }
+        if (SupportGroup.class.isAssignableFrom(entityClass)) {
+            return SearchCategory.SUPPORT_GROUPS;
+        }
+        return null;
+    }
+
+    private Long idOf(Object entity) {
+        if (entity instanceof BaseEntity baseEntity) {
+            return baseEntity.getId();
+        }
+        if (entity instanceof SupportGroup group) {
+            return group.getId();
+        }
+        return null;
+    }
+
+    private static <T> List<T> inHitOrder(List<T> entities, Function<T, Long> idGetter, List<Long> ids) {
+        Map<Long, Integer> order = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            order.put(ids.get(i), i);
+        }
+        List<T> sorted = new ArrayList<>(entities);
+        sorted.sort(Comparator.comparingInt(entity -> order.getOrDefault(idGetter.apply(entity), Integer.MAX_VALUE)));
+        return sorted;
+    }
+
+    private static Map<SearchCategory, InvertedIndex> emptyIndexes() {
+        Map<SearchCategory, InvertedIndex> map = new EnumMap<>(SearchCategory.class);
+        for (SearchCategory category : SearchCategory.values()) {
+            map.put(category, new InvertedIndex());
+        }
+        return map;
+    }
+}
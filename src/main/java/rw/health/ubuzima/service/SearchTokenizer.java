@@ -0,0 +1,64 @@
+package rw.health.ubuzima.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenizer for Kinyarwanda, English and French text.
+ * Lowercases, strips accents (so "santé" matches "sante"), splits on anything that isn't a letter
+ * or digit (including the apostrophes of Kinyarwanda/French elisions such as "n'ubuzima" or
+ * "l'enfant") and drops one-letter tokens and common function words of the three languages.
+ */
+final class SearchTokenizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        // English
+        "the", "and", "of", "to", "in", "for", "is", "on", "with", "an", "or", "at", "by", "be", "are",
+        "this", "that", "it", "as", "from", "your", "you",
+        // French
+        "le", "la", "les", "de", "des", "du", "un", "une", "et", "en", "au", "aux", "pour", "par", "sur",
+        "est", "dans", "que", "qui", "votre", "vous",
+        // Kinyarwanda
+        "na", "ya", "wa", "rya", "cya", "bya", "za", "ku", "mu", "kandi", "ni", "nka", "cyangwa", "iyo"
+    );
+
+    private SearchTokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * Tokens of a query. Falls back to keeping stop words when the query is made only of them.
+     */
+    static List<String> tokenizeQuery(String query) {
+        List<String> tokens = tokenize(query, true);
+        return tokens.isEmpty() ? tokenize(query, false) : tokens;
+    }
+
+    private static List<String> tokenize(String text, boolean dropStopWords) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+            .toLowerCase(Locale.ROOT);
+
+        for (String token : SEPARATORS.split(normalized)) {
+            if (token.length() < 2 || (dropStopWords && STOP_WORDS.contains(token))) {
+                continue;
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
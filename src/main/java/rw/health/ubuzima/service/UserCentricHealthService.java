@@ -1,25 +1,56 @@
 package rw.health.ubuzima.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import rw.health.ubuzima.entity.HealthRecord;
 import rw.health.ubuzima.entity.User;
+import rw.health.ubuzima.enums.VitalMetric;
 import rw.health.ubuzima.repository.HealthRecordRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.VitalsTimeSeriesService.VitalReading;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * User-centric health data.
+ * Every vital sign update is appended to the vitals time series; the one HealthRecord per user
+ * is a derived view holding the latest value of each metric.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserCentricHealthService {
 
     private final HealthRecordRepository healthRecordRepository;
     private final UserRepository userRepository;
+    private final VitalsTimeSeriesService vitalsTimeSeriesService;
+    private final CriticalVitalsDetector criticalVitalsDetector;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserCentricHealthService(HealthRecordRepository healthRecordRepository, UserRepository userRepository,
+                                    VitalsTimeSeriesService vitalsTimeSeriesService,
+                                    CriticalVitalsDetector criticalVitalsDetector,
+                                    PlatformTransactionManager transactionManager) {
+        this.healthRecordRepository = healthRecordRepository;
+        this.userRepository = userRepository;
+        this.vitalsTimeSeriesService = vitalsTimeSeriesService;
+        this.criticalVitalsDetector = criticalVitalsDetector;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     /**
      * Get user's health record (user-centric approach - one record per user)
@@ -56,60 +87,61 @@ public class UserCentricHealthService {
      * Update heart rate for a user
      */
     public HealthRecord updateHeartRate(Long userId, Integer heartRateValue, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setHeartRateValue(heartRateValue);
-        record.setHeartRateUnit(unit != null ? unit : "bpm");
-        return healthRecordRepository.save(record);
+        return recordVitals(userId, LocalDateTime.now(),
+            Map.of(VitalMetric.HEART_RATE, heartRateValue.doubleValue()),
+            Map.of(VitalMetric.HEART_RATE, unit != null ? unit : "bpm"));
     }
 
     /**
      * Update blood pressure for a user
      */
     public HealthRecord updateBloodPressure(Long userId, String bpValue, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setBpValue(bpValue);
-        record.setBpUnit(unit != null ? unit : "mmHg");
-        return healthRecordRepository.save(record);
+        int[] parsed = parseBloodPressure(bpValue);
+        if (parsed == null) {
+            // Not "systolic/diastolic": keep it on the record only, there is nothing to chart
+            HealthRecord record = getOrCreateUserHealthRecord(userId);
+            record.setBpValue(bpValue);
+            record.setBpUnit(unit != null ? unit : "mmHg");
+            return healthRecordRepository.save(record);
+        }
+        return updateBloodPressure(userId, parsed[0], parsed[1], unit);
     }
 
     /**
      * Update blood pressure with systolic/diastolic values
      */
     public HealthRecord updateBloodPressure(Long userId, int systolic, int diastolic, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setBloodPressure(systolic, diastolic);
-        record.setBpUnit(unit != null ? unit : "mmHg");
-        return healthRecordRepository.save(record);
+        String bpUnit = unit != null ? unit : "mmHg";
+        return recordVitals(userId, LocalDateTime.now(),
+            Map.of(VitalMetric.SYSTOLIC, (double) systolic, VitalMetric.DIASTOLIC, (double) diastolic),
+            Map.of(VitalMetric.SYSTOLIC, bpUnit, VitalMetric.DIASTOLIC, bpUnit));
     }
 
     /**
      * Update weight for a user
      */
     public HealthRecord updateWeight(Long userId, BigDecimal kgValue, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setKgValue(kgValue);
-        record.setKgUnit(unit != null ? unit : "kg");
-        return healthRecordRepository.save(record);
+        return recordVitals(userId, LocalDateTime.now(),
+            Map.of(VitalMetric.WEIGHT, kgValue.doubleValue()),
+            Map.of(VitalMetric.WEIGHT, unit != null ? unit : "kg"));
     }
 
     /**
      * Update temperature for a user
      */
     public HealthRecord updateTemperature(Long userId, BigDecimal tempValue, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setTempValue(tempValue);
-        record.setTempUnit(unit != null ? unit : "°C");
-        return healthRecordRepository.save(record);
+        return recordVitals(userId, LocalDateTime.now(),
+            Map.of(VitalMetric.TEMPERATURE, tempValue.doubleValue()),
+            Map.of(VitalMetric.TEMPERATURE, unit != null ? unit : "°C"));
     }
 
     /**
      * Update height for a user
      */
     public HealthRecord updateHeight(Long userId, BigDecimal heightValue, String unit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
-        record.setHeightValue(heightValue);
-        record.setHeightUnit(unit != null ? unit : "cm");
-        return healthRecordRepository.save(record);
+        return recordVitals(userId, LocalDateTime.now(),
+            Map.of(VitalMetric.HEIGHT, heightValue.doubleValue()),
+            Map.of(VitalMetric.HEIGHT, unit != null ? unit : "cm"));
     }
 
     /**
@@ -121,34 +153,202 @@ public class UserCentricHealthService {
                                             BigDecimal weight, String weightUnit,
                                             BigDecimal temperature, String tempUnit,
                                             BigDecimal height, String heightUnit) {
-        HealthRecord record = getOrCreateUserHealthRecord(userId);
+        return updateMultipleMetrics(userId, LocalDateTime.now(), heartRate, heartRateUnit, bloodPressure, bpUnit,
+            weight, weightUnit, temperature, tempUnit, height, heightUnit);
+    }
+
+    /**
+     * Update multiple health metrics measured at the given time, as one batch of readings
+     */
+    public HealthRecord updateMultipleMetrics(Long userId, LocalDateTime recordedAt,
+                                            Integer heartRate, String heartRateUnit,
+                                            String bloodPressure, String bpUnit,
+                                            BigDecimal weight, String weightUnit,
+                                            BigDecimal temperature, String tempUnit,
+                                            BigDecimal height, String heightUnit) {
+        Map<VitalMetric, Double> values = new EnumMap<>(VitalMetric.class);
+        Map<VitalMetric, String> units = new EnumMap<>(VitalMetric.class);
 
         if (heartRate != null) {
-            record.setHeartRateValue(heartRate);
-            record.setHeartRateUnit(heartRateUnit != null ? heartRateUnit : "bpm");
+            values.put(VitalMetric.HEART_RATE, heartRate.doubleValue());
+            units.put(VitalMetric.HEART_RATE, heartRateUnit != null ? heartRateUnit : "bpm");
         }
 
+        String unparsedBloodPressure = null;
         if (bloodPressure != null) {
-            record.setBpValue(bloodPressure);
-            record.setBpUnit(bpUnit != null ? bpUnit : "mmHg");
+            int[] parsed = parseBloodPressure(bloodPressure);
+            if (parsed != null) {
+                values.put(VitalMetric.SYSTOLIC, (double) parsed[0]);
+                values.put(VitalMetric.DIASTOLIC, (double) parsed[1]);
+                units.put(VitalMetric.SYSTOLIC, bpUnit != null ? bpUnit : "mmHg");
+                units.put(VitalMetric.DIASTOLIC, bpUnit != null ? bpUnit : "mmHg");
+            } else {
+                unparsedBloodPressure = bloodPressure;
+            }
         }
 
         if (weight != null) {
-            record.setKgValue(weight);
-            record.setKgUnit(weightUnit != null ? weightUnit : "kg");
+            values.put(VitalMetric.WEIGHT, weight.doubleValue());
+            units.put(VitalMetric.WEIGHT, weightUnit != null ? weightUnit : "kg");
         }
 
         if (temperature != null) {
-            record.setTempValue(temperature);
-            record.setTempUnit(tempUnit != null ? tempUnit : "°C");
+            values.put(VitalMetric.TEMPERATURE, temperature.doubleValue());
+            units.put(VitalMetric.TEMPERATURE, tempUnit != null ? tempUnit : "°C");
         }
 
         if (height != null) {
-            record.setHeightValue(height);
-            record.setHeightUnit(heightUnit != null ? heightUnit : "cm");
+            values.put(VitalMetric.HEIGHT, height.doubleValue());
+            units.put(VitalMetric.HEIGHT, heightUnit != null ? heightUnit : "cm");
+        }
+
+        if (unparsedBloodPressure != null) {
+            updateBloodPressure(userId, unparsedBloodPressure, bpUnit);
+        }
+        return values.isEmpty() ? getOrCreateUserHealthRecord(userId) : recordVitals(userId, recordedAt, values, units);
+    }
+
+    /**
+     * Append readings for many users (e.g. a screening day) and refresh each user's latest values.
+     * Values must be in each metric's unit. All or nothing: the readings and the refreshed records
+     * are written in one transaction, after checking every user exists.
+     *
+     * @return refreshed health record per user
+     * @throws IllegalArgumentException if a reading is for an unknown user or out of the accepted time window
+     */
+    public Map<Long, HealthRecord> recordReadings(List<VitalReading> readings) {
+        Map<Long, List<VitalReading>> byUser = new LinkedHashMap<>();
+        for (VitalReading reading : readings) {
+            byUser.computeIfAbsent(reading.userId(), id -> new ArrayList<>()).add(reading);
+        }
+        Set<Long> unknown = new HashSet<>(byUser.keySet());
+        userRepository.findExistingIds(byUser.keySet()).forEach(unknown::remove);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown user ids: " + unknown);
         }
 
-        return healthRecordRepository.save(record);
+        Map<Long, HealthRecord> refreshed = transactionTemplate.execute(status -> {
+            vitalsTimeSeriesService.ingest(readings);
+            return refreshLatest(byUser);
+        });
+
+        // Alerts only for what was committed
+        refreshed.forEach((userId, record) -> criticalVitalsDetector.evaluate(record, byUser.get(userId)));
+        return refreshed;
+    }
+
+    /**
+     * Record one user's readings, converting each value from the given unit to its metric's unit
+     */
+    private HealthRecord recordVitals(Long userId, LocalDateTime recordedAt, Map<VitalMetric, Double> values,
+                                      Map<VitalMetric, String> units) {
+        List<VitalReading> readings = new ArrayList<>(values.size());
+        values.forEach((metric, value) ->
+            readings.add(new VitalReading(userId, metric, recordedAt, metric.normalize(value, units.get(metric)))));
+
+        HealthRecord record = transactionTemplate.execute(status -> {
+            // Fails for an unknown user before anything is appended
+            getOrCreateUserHealthRecord(userId);
+            vitalsTimeSeriesService.ingest(readings);
+            return refreshLatest(Map.of(userId, readings)).get(userId);
+        });
+        criticalVitalsDetector.evaluate(record, readings);
+        return record;
+    }
+
+    /**
+     * The health record is a derived view: copy the newest reading of each touched metric onto it,
+     * in the metric's own unit. Call after the readings are appended. The newest values come from
+     * the readings themselves; one query for the stored latest times skips any metric that already
+     * has a later reading on file, and the records are loaded and saved in bulk.
+     */
+    private Map<Long, HealthRecord> refreshLatest(Map<Long, List<VitalReading>> byUser) {
+        Set<VitalMetric> metrics = EnumSet.noneOf(VitalMetric.class);
+        Map<Long, Map<VitalMetric, VitalReading>> newest = new LinkedHashMap<>();
+        byUser.forEach((userId, readings) -> {
+            Map<VitalMetric, VitalReading> perMetric = new EnumMap<>(VitalMetric.class);
+            for (VitalReading reading : readings) {
+                // Later in the batch wins a tie, as it was appended last
+                perMetric.merge(reading.metric(), reading,
+                    (current, candidate) -> candidate.recordedAt().isBefore(current.recordedAt()) ? current : candidate);
+                metrics.add(reading.metric());
+            }
+            newest.put(userId, perMetric);
+        });
+        Map<Long, Map<VitalMetric, LocalDateTime>> stored = vitalsTimeSeriesService.findLatestTimes(byUser.keySet(), metrics);
+
+        Map<Long, HealthRecord> existing = new HashMap<>();
+        healthRecordRepository.findByUserIdIn(byUser.keySet()).forEach(record -> existing.put(record.getUser().getId(), record));
+
+        Map<Long, HealthRecord> records = new LinkedHashMap<>();
+        newest.forEach((userId, perMetric) -> {
+            HealthRecord record = existing.get(userId);
+            if (record == null) {
+                record = getOrCreateUserHealthRecord(userId);
+            }
+            Map<VitalMetric, LocalDateTime> storedTimes = stored.getOrDefault(userId, Map.of());
+            perMetric.values().removeIf(reading -> storedTimes.get(reading.metric()) != null
+                && reading.recordedAt().isBefore(storedTimes.get(reading.metric())));
+            applyLatest(record, perMetric);
+            records.put(userId, record);
+        });
+
+        healthRecordRepository.saveAll(records.values());
+        return records;
+    }
+
+    private void applyLatest(HealthRecord record, Map<VitalMetric, VitalReading> latestByMetric) {
+        Integer systolic = record.getSystolic();
+        Integer diastolic = record.getDiastolic();
+
+        latestByMetric.forEach((metric, latest) -> {
+            switch (metric) {
+                case HEART_RATE -> {
+                    record.setHeartRateValue((int) Math.round(latest.value()));
+                    record.setHeartRateUnit(metric.getUnit());
+                }
+                case SYSTOLIC, DIASTOLIC -> {
+                    // Written together below
+                }
+                case WEIGHT -> {
+                    record.setKgValue(BigDecimal.valueOf(latest.value()).setScale(2, RoundingMode.HALF_UP));
+                    record.setKgUnit(metric.getUnit());
+                }
+                case TEMPERATURE -> {
+                    record.setTempValue(BigDecimal.valueOf(latest.value()).setScale(1, RoundingMode.HALF_UP));
+                    record.setTempUnit(metric.getUnit());
+                }
+                case HEIGHT -> {
+                    record.setHeightValue(BigDecimal.valueOf(latest.value()).setScale(2, RoundingMode.HALF_UP));
+                    record.setHeightUnit(metric.getUnit());
+                }
+            }
+        });
+
+        VitalReading latestSystolic = latestByMetric.get(VitalMetric.SYSTOLIC);
+        VitalReading latestDiastolic = latestByMetric.get(VitalMetric.DIASTOLIC);
+        if (latestSystolic != null) {
+            systolic = (int) Math.round(latestSystolic.value());
+        }
+        if (latestDiastolic != null) {
+            diastolic = (int) Math.round(latestDiastolic.value());
+        }
+        if ((latestSystolic != null || latestDiastolic != null) && systolic != null && diastolic != null) {
+            record.setBloodPressure(systolic, diastolic);
+            record.setBpUnit(VitalMetric.SYSTOLIC.getUnit());
+        }
+    }
+
+    private int[] parseBloodPressure(String bpValue) {
+        if (bpValue == null || !bpValue.contains("/")) {
+            return null;
+        }
+        try {
+            String[] parts = bpValue.split("/");
+            return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
     }
 
     /**
@@ -162,7 +362,35 @@ public class UserCentricHealthService {
      * Get users with critical health status
      */
     public List<HealthRecord> getCriticalHealthUsers() {
-        return healthRecordRepository.findByHealthStatus("critical");
+        return getCriticalHealthUsers(null);
+    }
+
+    /**
+     * Get users with critical health status, optionally only one health worker's patients.
+     * Served from the critical vitals index once it is loaded, so only the matching records are read.
+     */
+    public List<HealthRecord> getCriticalHealthUsers(Long healthWorkerId) {
+        if (!criticalVitalsDetector.isReady()) {
+            List<HealthRecord> records = healthRecordRepository.findByHealthStatus("critical");
+            if (healthWorkerId == null) {
+                return records;
+            }
+            return records.stream()
+                .filter(record -> record.getAssignedHealthWorker() != null
+                    && healthWorkerId.equals(record.getAssignedHealthWorker().getId()))
+                .toList();
+        }
+
+        List<Long> userIds = criticalVitalsDetector.getAbnormal(healthWorkerId, CriticalVitalsDetector.Severity.CRITICAL)
+            .stream()
+            .map(CriticalVitalsDetector.Alert::userId)
+            .toList();
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, HealthRecord> byUser = new LinkedHashMap<>();
+        healthRecordRepository.findByUserIdIn(userIds).forEach(record -> byUser.put(record.getUser().getId(), record));
+        return userIds.stream().map(byUser::get).filter(Objects::nonNull).toList();
     }
 
     /**
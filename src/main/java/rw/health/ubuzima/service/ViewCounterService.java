@@ -0,0 +1,137 @@
+package rw.health.ubuzima.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind view counters for lessons and forum topics.
+ * Views are accumulated in memory (a LongAdder per row) and flushed every few seconds as one
+ * JDBC batch of {@code view_count = view_count + ?} updates, so opening a lesson never loads,
+ * versions or locks the row. At most one flush interval of views is lost on a crash; reads
+ * add the not-yet-flushed delta to the stored count.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ViewCounterService {
+
+    public enum CounterTarget {
+        LESSON("UPDATE education_lessons SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?"),
+        FORUM_TOPIC("UPDATE forum_topics SET view_count = view_count + ? WHERE id = ?");
+
+        private final String updateSql;
+
+        CounterTarget(String updateSql) {
+            this.updateSql = updateSql;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Views not yet taken by a flush
+    private final Map<CounterTarget, ConcurrentHashMap<Long, LongAdder>> pending = newCounterMaps();
+    // Views taken by a flush that is still writing, so reads don't dip while it runs
+    private final Map<CounterTarget, ConcurrentHashMap<Long, Long>> inFlight = newInFlightMaps();
+
+    public void recordView(CounterTarget target, Long id) {
+        if (id != null) {
+            pending.get(target).computeIfAbsent(id, key -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Stored count plus views that have not been flushed yet
+     */
+    public long getViewCount(CounterTarget target, Long id, Number persistedCount) {
+        long count = persistedCount != null ? persistedCount.longValue() : 0L;
+        LongAdder adder = pending.get(target).get(id);
+        if (adder != null) {
+            count += adder.sum();
+        }
+        return count + inFlight.get(target).getOrDefault(id, 0L);
+    }
+
+    @Scheduled(fixedDelayString = "${ubuzima.counters.flush-interval-ms:5000}",
+               initialDelayString = "${ubuzima.counters.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Write accumulated deltas to the database
+     *
+     * @return number of rows updated
+     */
+    public synchronized int flush() {
+        int updated = 0;
+        for (CounterTarget target : CounterTarget.values()) {
+            updated += flush(target);
+        }
+        return updated;
+    }
+
+    private int flush(CounterTarget target) {
+        ConcurrentHashMap<Long, Long> taken = inFlight.get(target);
+        List<Object[]> batchArgs = new ArrayList<>();
+
+        // sumThenReset moves each row's views out atomically; views counted after it stay for the next flush
+        pending.get(target).forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                taken.merge(id, delta, Long::sum);
+                batchArgs.add(new Object[] {delta, id});
+            }
+        });
+
+        if (batchArgs.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(target.updateSql, batchArgs);
+            log.debug("Flushed {} {} view counters", batchArgs.size(), target);
+            return batchArgs.size();
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            log.error("Failed to flush {} view counters, retrying next interval", target, e);
+            for (Object[] args : batchArgs) {
+                pending.get(target).computeIfAbsent((Long) args[1], key -> new LongAdder()).add((Long) args[0]);
+            }
+            return 0;
+        } finally {
+            taken.clear();
+        }
+    }
+
+    private static Map<CounterTarget, ConcurrentHashMap<Long, LongAdder>> newCounterMaps() {
+        Map<CounterTarget, ConcurrentHashMap<Long, LongAdder>> maps = new EnumMap<>(CounterTarget.class);
+        for (CounterTarget target : CounterTarget.values()) {
+            maps.put(target, new ConcurrentHashMap<>());
+        }
+        return maps;
+    }
+
+    private static Map<CounterTarget, ConcurrentHashMap<Long, Long>> newInFlightMaps() {
+        Map<CounterTarget, ConcurrentHashMap<Long, Long>> maps = new EnumMap<>(CounterTarget.class);
+        for (CounterTarget target : CounterTarget.values()) {
+            maps.put(target, new ConcurrentHashMap<>());
+        }
+        return maps;
+    }
+}
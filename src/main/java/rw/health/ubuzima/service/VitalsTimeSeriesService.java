@@ -0,0 +1,296 @@
+package rw.health.ubuzima.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.VitalMetric;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only vitals time series.
+ * Readings are narrow (user, metric, time, value) rows in a table range-partitioned by month
+ * (migration V10) and are written as one JDBC batch per request, together with upserts
+ * of the daily min/max/sum/count rollups. Range queries hit one (user, metric, time) index
+ * range in the months asked for; weekly rollups are folded from the daily ones.
+ */
+@Service
+@Slf4j
+public class VitalsTimeSeriesService {
+
+    public enum RollupInterval {
+        DAY,
+        WEEK
+    }
+
+    public record VitalReading(Long userId, VitalMetric metric, LocalDateTime recordedAt, double value) {
+    }
+
+    public record VitalRollup(LocalDate periodStart, double min, double max, double avg, long count) {
+    }
+
+    private static final String INSERT_READING_SQL =
+        "INSERT INTO vital_readings (user_id, metric, recorded_at, reading_value) VALUES (?, ?, ?, ?)";
+
+    private static final String UPSERT_ROLLUP_SQL =
+        "INSERT INTO vital_rollups_daily (user_id, metric, rollup_date, min_value, max_value, sum_value, sample_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (user_id, metric, rollup_date) DO UPDATE SET " +
+        "min_value = LEAST(vital_rollups_daily.min_value, EXCLUDED.min_value), " +
+        "max_value = GREATEST(vital_rollups_daily.max_value, EXCLUDED.max_value), " +
+        "sum_value = vital_rollups_daily.sum_value + EXCLUDED.sum_value, " +
+        "sample_count = vital_rollups_daily.sample_count + EXCLUDED.sample_count";
+
+    // H2 has no ON CONFLICT: update existing rollup rows, then insert the rest
+    private static final String UPDATE_ROLLUP_SQL =
+        "UPDATE vital_rollups_daily SET min_value = LEAST(min_value, ?), max_value = GREATEST(max_value, ?), " +
+        "sum_value = sum_value + ?, sample_count = sample_count + ? WHERE user_id = ? AND metric = ? AND rollup_date = ?";
+
+    private static final String INSERT_ROLLUP_SQL =
+        "INSERT INTO vital_rollups_daily (user_id, metric, rollup_date, min_value, max_value, sum_value, sample_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate partitionTransaction;
+    private final int maxReadingAgeYears;
+
+    // Months whose partition is known to exist
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+    private volatile Boolean postgres;
+
+    public VitalsTimeSeriesService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   @Value("${ubuzima.vitals.max-reading-age-years:10}") int maxReadingAgeYears) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Partition DDL commits on its own, so it never holds the parent table's lock for a caller's transaction
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxReadingAgeYears = maxReadingAgeYears;
+    }
+
+    /**
+     * Append readings and update their daily rollups in one transaction (the caller's, if any).
+     * Values must already be in each metric's unit (see VitalMetric.normalize).
+     *
+     * @return number of readings written
+     * @throws IllegalArgumentException if a reading's time is outside the accepted window, from
+     *         max-reading-age-years ago to one day ahead; nothing is written then
+     */
+    public int ingest(List<VitalReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            return 0;
+        }
+
+        // Checked before anything is written: recorded_at is client supplied and picks the partition
+        LocalDateTime earliest = LocalDateTime.now().minusYears(maxReadingAgeYears);
+        LocalDateTime latest = LocalDateTime.now().plusDays(1);
+        for (VitalReading reading : readings) {
+            if (reading.recordedAt() == null || reading.recordedAt().isBefore(earliest)
+                    || reading.recordedAt().isAfter(latest)) {
+                throw new IllegalArgumentException("recordedAt must be between " + earliest.toLocalDate()
+                    + " and " + latest.toLocalDate() + ": " + reading.recordedAt());
+            }
+        }
+
+        List<Object[]> readingArgs = new ArrayList<>(readings.size());
+        Map<RollupKey, double[]> rollups = new LinkedHashMap<>();
+        for (VitalReading reading : readings) {
+            ensurePartition(YearMonth.from(reading.recordedAt()));
+            readingArgs.add(new Object[] {
+                reading.userId(), reading.metric().getCode(), Timestamp.valueOf(reading.recordedAt()), reading.value()
+            });
+
+            // min, max, sum, count per (user, metric, day) within this batch
+            RollupKey key = new RollupKey(reading.userId(), reading.metric().getCode(), reading.recordedAt().toLocalDate());
+            double[] rollup = rollups.computeIfAbsent(key, k -> new double[] {Double.MAX_VALUE, -Double.MAX_VALUE, 0, 0});
+            rollup[0] = Math.min(rollup[0], reading.value());
+            rollup[1] = Math.max(rollup[1], reading.value());
+            rollup[2] += reading.value();
+            rollup[3]++;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_READING_SQL, readingArgs);
+            writeRollups(rollups);
+        });
+        return readingArgs.size();
+    }
+
+    /**
+     * Raw readings in [from, to), newest first
+     */
+    public List<VitalReading> findReadings(Long userId, VitalMetric metric, LocalDateTime from, LocalDateTime to, int limit) {
+        return jdbcTemplate.query(
+            "SELECT recorded_at, reading_value FROM vital_readings " +
+            "WHERE user_id = ? AND metric = ? AND recorded_at >= ? AND recorded_at < ? " +
+            "ORDER BY recorded_at DESC LIMIT ?",
+            (rs, rowNum) -> new VitalReading(userId, metric, rs.getTimestamp(1).toLocalDateTime(), rs.getDouble(2)),
+            userId, metric.getCode(), Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+    }
+
+    /**
+     * Time of the latest stored reading of each of the given metrics, for many users at once
+     */
+    public Map<Long, Map<VitalMetric, LocalDateTime>> findLatestTimes(Collection<Long> userIds, Set<VitalMetric> metrics) {
+        Map<Long, Map<VitalMetric, LocalDateTime>> latest = new HashMap<>();
+        if (userIds.isEmpty() || metrics.isEmpty()) {
+            return latest;
+        }
+
+        List<Object> metricCodes = new ArrayList<>(metrics.size());
+        metrics.forEach(metric -> metricCodes.add(metric.getCode()));
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT));
+            List<Object> args = new ArrayList<>(chunk);
+            args.addAll(metricCodes);
+            jdbcTemplate.query(
+                "SELECT user_id, metric, MAX(recorded_at) FROM vital_readings " +
+                "WHERE user_id IN (" + placeholders(chunk.size()) + ") AND metric IN (" + placeholders(metricCodes.size()) + ") " +
+                "GROUP BY user_id, metric",
+                rs -> {
+                    latest.computeIfAbsent(rs.getLong(1), id -> new EnumMap<>(VitalMetric.class))
+                        .put(VitalMetric.fromCode(rs.getShort(2)), rs.getTimestamp(3).toLocalDateTime());
+                },
+                args.toArray());
+        }
+        return latest;
+    }
+
+    /**
+     * Daily or weekly (ISO, Monday-based) min/max/avg over [from, to], oldest first
+     */
+    public List<VitalRollup> findRollups(Long userId, VitalMetric metric, LocalDate from, LocalDate to, RollupInterval interval) {
+        LocalDate rangeStart = interval == RollupInterval.WEEK ? from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : from;
+
+        Map<LocalDate, double[]> periods = new TreeMap<>();
+        jdbcTemplate.query(
+            "SELECT rollup_date, min_value, max_value, sum_value, sample_count FROM vital_rollups_daily " +
+            "WHERE user_id = ? AND metric = ? AND rollup_date >= ? AND rollup_date <= ?",
+            rs -> {
+                LocalDate day = rs.getDate(1).toLocalDate();
+                LocalDate period = interval == RollupInterval.WEEK ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+                double[] totals = periods.computeIfAbsent(period, p -> new double[] {Double.MAX_VALUE, -Double.MAX_VALUE, 0, 0});
+                totals[0] = Math.min(totals[0], rs.getDouble(2));
+                totals[1] = Math.max(totals[1], rs.getDouble(3));
+                totals[2] += rs.getDouble(4);
+                totals[3] += rs.getLong(5);
+            },
+            userId, metric.getCode(), Date.valueOf(rangeStart), Date.valueOf(to));
+
+        List<VitalRollup> result = new ArrayList<>(periods.size());
+        periods.forEach((period, totals) -> result.add(
+            new VitalRollup(period, totals[0], totals[1], totals[2] / totals[3], (long) totals[3])));
+        return result;
+    }
+
+    /**
+     * The tables and the first partitions come from migration V10. Monthly partitions are the one
+     * piece of schema created at runtime, as they have to keep appearing ahead of the calendar:
+     * the current and next two months on startup and nightly, and any other month on first write.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareUpcomingPartitions() {
+        try {
+            createUpcomingPartitions();
+        } catch (Exception e) {
+            log.error("Failed to create upcoming vitals partitions", e);
+        }
+    }
+
+    @Scheduled(cron = "${ubuzima.vitals.partition-cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= 2; i++) {
+            ensurePartition(current.plusMonths(i));
+        }
+    }
+
+    private void writeRollups(Map<RollupKey, double[]> rollups) {
+        List<Object[]> insertArgs = new ArrayList<>(rollups.size());
+        rollups.forEach((key, rollup) -> insertArgs.add(new Object[] {
+            key.userId(), key.metric(), Date.valueOf(key.date()), rollup[0], rollup[1], rollup[2], (int) rollup[3]
+        }));
+
+        if (isPostgres()) {
+            jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, insertArgs);
+            return;
+        }
+
+        List<Object[]> updateArgs = new ArrayList<>(rollups.size());
+        rollups.forEach((key, rollup) -> updateArgs.add(new Object[] {
+            rollup[0], rollup[1], rollup[2], (int) rollup[3], key.userId(), key.metric(), Date.valueOf(key.date())
+        }));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_ROLLUP_SQL, updateArgs);
+
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(insertArgs.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ROLLUP_SQL, missing);
+        }
+    }
+
+    private void ensurePartition(YearMonth month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        if (isPostgres()) {
+            String name = "vital_readings_" + month.format(PARTITION_SUFFIX);
+            partitionTransaction.executeWithoutResult(status -> jdbcTemplate.execute(
+                "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF vital_readings " +
+                "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')"));
+        }
+        partitions.add(month);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private boolean isPostgres() {
+        Boolean current = postgres;
+        if (current == null) {
+            current = "PostgreSQL".equals(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()));
+            postgres = current;
+        }
+        return current;
+    }
+
+    private record RollupKey(Long userId, short metric, LocalDate date) {
+    }
+}
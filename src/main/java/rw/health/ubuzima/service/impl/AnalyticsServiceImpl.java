@@ -4,48 +4,49 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import rw.health.ubuzima.enums.AnalyticsSubject;
 import rw.health.ubuzima.repository.*;
+import rw.health.ubuzima.service.AnalyticsRollupService;
+import rw.health.ubuzima.service.AnalyticsRollupService.FactFilter;
+import rw.health.ubuzima.service.AnalyticsRollupService.Summary;
 import rw.health.ubuzima.service.AnalyticsService;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 
+import static rw.health.ubuzima.service.AnalyticsRollupService.CATEGORY;
+import static rw.health.ubuzima.service.AnalyticsRollupService.DISTRICT;
+import static rw.health.ubuzima.service.AnalyticsRollupService.ROLE;
+import static rw.health.ubuzima.service.AnalyticsRollupService.STATUS;
+
+/**
+ * Platform analytics read from the daily analytics facts (see {@link AnalyticsRollupService}).
+ * Totals are sums over all days and "new"/period figures over the requested range, so every
+ * statistic is one small query on the fact table; only per-user and per-health-worker figures
+ * still count the source tables, through their indexes.
+ */
 @Service
 @RequiredArgsConstructor
 public class AnalyticsServiceImpl implements AnalyticsService {
 
     private static final Logger log = LoggerFactory.getLogger(AnalyticsServiceImpl.class);
 
-    private final UserRepository userRepository;
     private final HealthRecordRepository healthRecordRepository;
-    private final ContraceptionMethodRepository contraceptionMethodRepository;
     private final AppointmentRepository appointmentRepository;
     private final EducationProgressRepository educationProgressRepository;
-    private final CommunityEventRepository communityEventRepository;
-    private final SupportTicketRepository supportTicketRepository;
-    private final NotificationRepository notificationRepository;
     private final HealthFacilityRepository healthFacilityRepository;
+    private final AnalyticsRollupService analyticsRollupService;
 
     @Override
     public Map<String, Object> getUserRegistrationStats(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalUsers = userRepository.count();
-            long newUsers = userRepository.countByCreatedAtBetween(startDate.atStartOfDay(), endDate.atTime(23, 59, 59));
-            long activeUsers = userRepository.countByStatus(rw.health.ubuzima.enums.UserStatus.ACTIVE);
-            
-            stats.put("totalUsers", totalUsers);
-            stats.put("newUsers", newUsers);
-            stats.put("activeUsers", activeUsers);
-            stats.put("inactiveUsers", totalUsers - activeUsers);
-            
-            // User role distribution
-            stats.put("adminCount", userRepository.countByRole(rw.health.ubuzima.enums.UserRole.ADMIN));
-            stats.put("healthWorkerCount", userRepository.countByRole(rw.health.ubuzima.enums.UserRole.HEALTH_WORKER));
-            stats.put("clientCount", userRepository.countByRoleAndEmailVerified(rw.health.ubuzima.enums.UserRole.CLIENT, true));
-            
+            Map<AnalyticsSubject, Summary> summaries = analyticsRollupService.summarize(
+                EnumSet.of(AnalyticsSubject.USERS, AnalyticsSubject.VERIFIED_USERS), startDate, endDate, FactFilter.NONE);
+            stats.putAll(userRegistrationStats(summaries.get(AnalyticsSubject.USERS), summaries.get(AnalyticsSubject.VERIFIED_USERS)));
         } catch (Exception e) {
             log.error("Error getting user registration stats", e);
             stats.put("error", "Failed to retrieve user registration statistics");
@@ -59,13 +60,9 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalRecords = healthRecordRepository.count();
-            long newRecords = healthRecordRepository.countByCreatedAtBetween(startDate.atStartOfDay(), endDate.atTime(23, 59, 59));
-            
-            stats.put("totalHealthRecords", totalRecords);
-            stats.put("newHealthRecords", newRecords);
-            stats.put("averageRecordsPerUser", totalRecords > 0 ? (double) totalRecords / userRepository.count() : 0);
-            
+            Map<AnalyticsSubject, Summary> summaries = analyticsRollupService.summarize(
+                EnumSet.of(AnalyticsSubject.HEALTH_RECORDS, AnalyticsSubject.USERS), startDate, endDate, FactFilter.NONE);
+            stats.putAll(healthRecordsStats(summaries.get(AnalyticsSubject.HEALTH_RECORDS), summaries.get(AnalyticsSubject.USERS)));
         } catch (Exception e) {
             log.error("Error getting health records stats", e);
             stats.put("error", "Failed to retrieve health records statistics");
@@ -79,18 +76,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalMethods = contraceptionMethodRepository.count();
-            long activeMethods = contraceptionMethodRepository.countByIsActive(true);
-            
-            stats.put("totalContraceptionMethods", totalMethods);
-            stats.put("activeContraceptionMethods", activeMethods);
-            stats.put("inactiveContraceptionMethods", totalMethods - activeMethods);
-            
-            // Method type distribution
-            for (rw.health.ubuzima.enums.ContraceptionType type : rw.health.ubuzima.enums.ContraceptionType.values()) {
-                stats.put(type.name().toLowerCase() + "Count", contraceptionMethodRepository.countByType(type));
-            }
-            
+            stats.putAll(contraceptionStats(summarize(AnalyticsSubject.CONTRACEPTION_METHODS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting contraception stats", e);
             stats.put("error", "Failed to retrieve contraception statistics");
@@ -104,17 +90,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalAppointments = appointmentRepository.count();
-            long scheduledAppointments = appointmentRepository.countByStatus(rw.health.ubuzima.enums.AppointmentStatus.SCHEDULED);
-            long completedAppointments = appointmentRepository.countByStatus(rw.health.ubuzima.enums.AppointmentStatus.COMPLETED);
-            long cancelledAppointments = appointmentRepository.countByStatus(rw.health.ubuzima.enums.AppointmentStatus.CANCELLED);
-            
-            stats.put("totalAppointments", totalAppointments);
-            stats.put("scheduledAppointments", scheduledAppointments);
-            stats.put("completedAppointments", completedAppointments);
-            stats.put("cancelledAppointments", cancelledAppointments);
-            stats.put("completionRate", totalAppointments > 0 ? (double) completedAppointments / totalAppointments * 100 : 0);
-            
+            stats.putAll(appointmentStats(summarize(AnalyticsSubject.APPOINTMENTS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting appointment stats", e);
             stats.put("error", "Failed to retrieve appointment statistics");
@@ -128,13 +104,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalProgress = educationProgressRepository.count();
-            long completedLessons = educationProgressRepository.countByIsCompleted(true);
-            
-            stats.put("totalEducationProgress", totalProgress);
-            stats.put("completedLessons", completedLessons);
-            stats.put("completionRate", totalProgress > 0 ? (double) completedLessons / totalProgress * 100 : 0);
-            
+            stats.putAll(educationStats(summarize(AnalyticsSubject.EDUCATION_PROGRESS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting education stats", e);
             stats.put("error", "Failed to retrieve education statistics");
@@ -148,13 +118,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalEvents = communityEventRepository.count();
-            long upcomingEvents = communityEventRepository.countByEventDateAfter(LocalDate.now());
-            
-            stats.put("totalCommunityEvents", totalEvents);
-            stats.put("upcomingEvents", upcomingEvents);
-            stats.put("pastEvents", totalEvents - upcomingEvents);
-            
+            stats.putAll(communityStats(summarize(AnalyticsSubject.COMMUNITY_EVENTS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting community stats", e);
             stats.put("error", "Failed to retrieve community statistics");
@@ -168,15 +132,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalTickets = supportTicketRepository.count();
-            long openTickets = supportTicketRepository.countByStatus(rw.health.ubuzima.enums.TicketStatus.OPEN);
-            long closedTickets = supportTicketRepository.countByStatus(rw.health.ubuzima.enums.TicketStatus.CLOSED);
-            
-            stats.put("totalSupportTickets", totalTickets);
-            stats.put("openTickets", openTickets);
-            stats.put("closedTickets", closedTickets);
-            stats.put("resolutionRate", totalTickets > 0 ? (double) closedTickets / totalTickets * 100 : 0);
-            
+            stats.putAll(supportTicketStats(summarize(AnalyticsSubject.SUPPORT_TICKETS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting support ticket stats", e);
             stats.put("error", "Failed to retrieve support ticket statistics");
@@ -190,14 +146,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long totalNotifications = notificationRepository.count();
-            long readNotifications = notificationRepository.countByIsRead(true);
-            
-            stats.put("totalNotifications", totalNotifications);
-            stats.put("readNotifications", readNotifications);
-            stats.put("unreadNotifications", totalNotifications - readNotifications);
-            stats.put("readRate", totalNotifications > 0 ? (double) readNotifications / totalNotifications * 100 : 0);
-            
+            stats.putAll(notificationStats(summarize(AnalyticsSubject.NOTIFICATIONS, startDate, endDate)));
         } catch (Exception e) {
             log.error("Error getting notification stats", e);
             stats.put("error", "Failed to retrieve notification statistics");
@@ -211,17 +160,19 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            stats.putAll(getUserRegistrationStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getHealthRecordsStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getContraceptionStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getAppointmentStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getEducationStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getCommunityStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getSupportTicketStats(LocalDate.now().minusMonths(1), LocalDate.now()));
-            stats.putAll(getNotificationStats(LocalDate.now().minusMonths(1), LocalDate.now()));
+            Map<AnalyticsSubject, Summary> summaries = summarizeAll(LocalDate.now().minusMonths(1), LocalDate.now());
+            stats.putAll(userRegistrationStats(summaries.get(AnalyticsSubject.USERS), summaries.get(AnalyticsSubject.VERIFIED_USERS)));
+            stats.putAll(healthRecordsStats(summaries.get(AnalyticsSubject.HEALTH_RECORDS), summaries.get(AnalyticsSubject.USERS)));
+            stats.putAll(contraceptionStats(summaries.get(AnalyticsSubject.CONTRACEPTION_METHODS)));
+            stats.putAll(appointmentStats(summaries.get(AnalyticsSubject.APPOINTMENTS)));
+            stats.putAll(educationStats(summaries.get(AnalyticsSubject.EDUCATION_PROGRESS)));
+            stats.putAll(communityStats(summaries.get(AnalyticsSubject.COMMUNITY_EVENTS)));
+            stats.putAll(supportTicketStats(summaries.get(AnalyticsSubject.SUPPORT_TICKETS)));
+            stats.putAll(notificationStats(summaries.get(AnalyticsSubject.NOTIFICATIONS)));
             
             stats.put("totalHealthFacilities", healthFacilityRepository.count());
             stats.put("activeHealthFacilities", healthFacilityRepository.countByIsActive(true));
+            stats.put("statsAsOf", analyticsRollupService.getLastRunAt());
             
         } catch (Exception e) {
             log.error("Error getting platform stats", e);
@@ -254,9 +205,16 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
+            FactFilter facility = new FactFilter(facilityId.toString(), null, null);
+            Map<AnalyticsSubject, Summary> summaries = analyticsRollupService.summarize(
+                EnumSet.of(AnalyticsSubject.APPOINTMENTS, AnalyticsSubject.USERS), startDate, endDate, facility);
+            Summary appointments = summaries.get(AnalyticsSubject.APPOINTMENTS);
+
             stats.put("facilityId", facilityId);
-            stats.put("appointmentCount", appointmentRepository.countByHealthFacilityIdAndScheduledDateBetween(facilityId, startDate, endDate));
-            stats.put("healthWorkerCount", userRepository.countByFacilityIdAndRole(facilityId.toString(), rw.health.ubuzima.enums.UserRole.HEALTH_WORKER));
+            stats.put("appointmentCount", appointments.inRange());
+            stats.put("completedAppointments", appointments.countInRange(STATUS, "COMPLETED"));
+            stats.put("appointmentsByType", appointments.breakdown(CATEGORY, true));
+            stats.put("healthWorkerCount", summaries.get(AnalyticsSubject.USERS).count(ROLE, "HEALTH_WORKER"));
             
         } catch (Exception e) {
             log.error("Error getting health facility stats for facility: {}", facilityId, e);
@@ -273,8 +231,8 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         try {
             stats.put("workerId", workerId);
             stats.put("appointmentCount", appointmentRepository.countByHealthWorkerIdAndScheduledDateBetween(workerId, startDate, endDate));
-            // Count only verified clients for this health worker (simplified approach)
-            stats.put("clientCount", userRepository.countByRoleAndEmailVerified(rw.health.ubuzima.enums.UserRole.CLIENT, true));
+            // Count all clients for this health worker (simplified approach)
+            stats.put("clientCount", summarize(AnalyticsSubject.VERIFIED_USERS, null, null).count(ROLE, "CLIENT"));
             
         } catch (Exception e) {
             log.error("Error getting health worker stats for worker: {}", workerId, e);
@@ -289,13 +247,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            // Gender distribution
-            stats.put("maleCount", userRepository.countByGender(rw.health.ubuzima.enums.Gender.MALE));
-            stats.put("femaleCount", userRepository.countByGender(rw.health.ubuzima.enums.Gender.FEMALE));
-            
-            // Age group distribution (simplified)
-            stats.put("totalUsers", userRepository.count());
-            
+            stats.putAll(demographicStats(summarize(AnalyticsSubject.USERS, null, null)));
         } catch (Exception e) {
             log.error("Error getting demographic stats", e);
             stats.put("error", "Failed to retrieve demographic statistics");
@@ -309,10 +261,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            // District distribution
-            stats.put("kigaliUsers", userRepository.countByDistrict("Kigali"));
-            stats.put("totalUsers", userRepository.count());
-            
+            stats.putAll(geographicStats(summarize(AnalyticsSubject.USERS, null, null)));
         } catch (Exception e) {
             log.error("Error getting geographic stats", e);
             stats.put("error", "Failed to retrieve geographic statistics");
@@ -329,8 +278,14 @@ public class AnalyticsServiceImpl implements AnalyticsService {
             stats.put("metric", metric);
             stats.put("startDate", startDate);
             stats.put("endDate", endDate);
-            stats.put("message", "Trend analysis implementation pending");
+
+            AnalyticsSubject subject = AnalyticsSubject.valueOf(metric.trim().toUpperCase().replace('-', '_'));
+            Map<LocalDate, Long> series = analyticsRollupService.dailySeries(subject, startDate, endDate, FactFilter.NONE);
+            stats.put("series", series);
+            stats.put("total", series.values().stream().mapToLong(Long::longValue).sum());
             
+        } catch (IllegalArgumentException e) {
+            stats.put("error", "Unknown metric: " + metric);
         } catch (Exception e) {
             log.error("Error getting trend analysis for metric: {}", metric, e);
             stats.put("error", "Failed to retrieve trend analysis");
@@ -344,17 +299,21 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         Map<String, Object> report = new HashMap<>();
         
         try {
+            Map<AnalyticsSubject, Summary> summaries = summarizeAll(startDate, endDate);
+            Summary users = summaries.get(AnalyticsSubject.USERS);
+
             report.put("reportPeriod", Map.of("startDate", startDate, "endDate", endDate));
-            report.put("userStats", getUserRegistrationStats(startDate, endDate));
-            report.put("healthStats", getHealthRecordsStats(startDate, endDate));
-            report.put("contraceptionStats", getContraceptionStats(startDate, endDate));
-            report.put("appointmentStats", getAppointmentStats(startDate, endDate));
-            report.put("educationStats", getEducationStats(startDate, endDate));
-            report.put("communityStats", getCommunityStats(startDate, endDate));
-            report.put("supportStats", getSupportTicketStats(startDate, endDate));
-            report.put("notificationStats", getNotificationStats(startDate, endDate));
-            report.put("demographicStats", getDemographicStats());
-            report.put("geographicStats", getGeographicStats());
+            report.put("userStats", userRegistrationStats(users, summaries.get(AnalyticsSubject.VERIFIED_USERS)));
+            report.put("healthStats", healthRecordsStats(summaries.get(AnalyticsSubject.HEALTH_RECORDS), users));
+            report.put("contraceptionStats", contraceptionStats(summaries.get(AnalyticsSubject.CONTRACEPTION_METHODS)));
+            report.put("appointmentStats", appointmentStats(summaries.get(AnalyticsSubject.APPOINTMENTS)));
+            report.put("educationStats", educationStats(summaries.get(AnalyticsSubject.EDUCATION_PROGRESS)));
+            report.put("communityStats", communityStats(summaries.get(AnalyticsSubject.COMMUNITY_EVENTS)));
+            report.put("supportStats", supportTicketStats(summaries.get(AnalyticsSubject.SUPPORT_TICKETS)));
+            report.put("notificationStats", notificationStats(summaries.get(AnalyticsSubject.NOTIFICATIONS)));
+            report.put("demographicStats", demographicStats(users));
+            report.put("geographicStats", geographicStats(users));
+            report.put("statsAsOf", analyticsRollupService.getLastRunAt());
             
         } catch (Exception e) {
             log.error("Error generating comprehensive report", e);
@@ -386,4 +345,149 @@ public class AnalyticsServiceImpl implements AnalyticsService {
             return "Export failed".getBytes();
         }
     }
+
+    private Summary summarize(AnalyticsSubject subject, LocalDate startDate, LocalDate endDate) {
+        return analyticsRollupService.summarize(subject, startDate, endDate, FactFilter.NONE);
+    }
+
+    private Map<AnalyticsSubject, Summary> summarizeAll(LocalDate startDate, LocalDate endDate) {
+        return analyticsRollupService.summarize(EnumSet.allOf(AnalyticsSubject.class), startDate, endDate, FactFilter.NONE);
+    }
+
+    /**
+     * @param verified the same facts restricted to users with a verified email; only verified clients are counted
+     */
+    private Map<String, Object> userRegistrationStats(Summary users, Summary verified) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalUsers = users.total();
+        long activeUsers = users.count(STATUS, "ACTIVE");
+
+        stats.put("totalUsers", totalUsers);
+        stats.put("newUsers", users.inRange());
+        stats.put("activeUsers", activeUsers);
+        stats.put("inactiveUsers", totalUsers - activeUsers);
+
+        // User role distribution
+        stats.put("adminCount", users.count(ROLE, "ADMIN"));
+        stats.put("healthWorkerCount", users.count(ROLE, "HEALTH_WORKER"));
+        stats.put("clientCount", verified.count(ROLE, "CLIENT"));
+        stats.put("newUsersByRole", users.breakdown(ROLE, true));
+        return stats;
+    }
+
+    private Map<String, Object> healthRecordsStats(Summary records, Summary users) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalRecords = records.total();
+
+        stats.put("totalHealthRecords", totalRecords);
+        stats.put("newHealthRecords", records.inRange());
+        stats.put("averageRecordsPerUser", users.total() > 0 ? (double) totalRecords / users.total() : 0);
+        stats.put("healthStatusBreakdown", records.breakdown(STATUS, false));
+        return stats;
+    }
+
+    private Map<String, Object> contraceptionStats(Summary methods) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalMethods = methods.total();
+        long activeMethods = methods.count(STATUS, "active");
+
+        stats.put("totalContraceptionMethods", totalMethods);
+        stats.put("activeContraceptionMethods", activeMethods);
+        stats.put("inactiveContraceptionMethods", totalMethods - activeMethods);
+        stats.put("newContraceptionMethods", methods.inRange());
+
+        // Method type distribution
+        for (rw.health.ubuzima.enums.ContraceptionType type : rw.health.ubuzima.enums.ContraceptionType.values()) {
+            stats.put(type.name().toLowerCase() + "Count", methods.count(CATEGORY, type.name()));
+        }
+        return stats;
+    }
+
+    private Map<String, Object> appointmentStats(Summary appointments) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalAppointments = appointments.total();
+        long completedAppointments = appointments.count(STATUS, "COMPLETED");
+
+        stats.put("totalAppointments", totalAppointments);
+        stats.put("scheduledAppointments", appointments.count(STATUS, "SCHEDULED"));
+        stats.put("completedAppointments", completedAppointments);
+        stats.put("cancelledAppointments", appointments.count(STATUS, "CANCELLED"));
+        stats.put("completionRate", totalAppointments > 0 ? (double) completedAppointments / totalAppointments * 100 : 0);
+        stats.put("appointmentsInPeriod", appointments.inRange());
+        stats.put("appointmentStatusInPeriod", appointments.breakdown(STATUS, true));
+        return stats;
+    }
+
+    private Map<String, Object> educationStats(Summary progress) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalProgress = progress.total();
+        long completedLessons = progress.count(STATUS, "completed");
+
+        stats.put("totalEducationProgress", totalProgress);
+        stats.put("completedLessons", completedLessons);
+        stats.put("completionRate", totalProgress > 0 ? (double) completedLessons / totalProgress * 100 : 0);
+        stats.put("newEducationProgress", progress.inRange());
+        return stats;
+    }
+
+    private Map<String, Object> communityStats(Summary events) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalEvents = events.total();
+        // Events are dated by their event date, so upcoming ones are the facts after today
+        long upcomingEvents = analyticsRollupService.summarize(AnalyticsSubject.COMMUNITY_EVENTS,
+            LocalDate.now().plusDays(1), null, FactFilter.NONE).inRange();
+
+        stats.put("totalCommunityEvents", totalEvents);
+        stats.put("upcomingEvents", upcomingEvents);
+        stats.put("pastEvents", totalEvents - upcomingEvents);
+        stats.put("eventsInPeriod", events.inRange());
+        return stats;
+    }
+
+    private Map<String, Object> supportTicketStats(Summary tickets) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalTickets = tickets.total();
+        long closedTickets = tickets.count(STATUS, "CLOSED");
+
+        stats.put("totalSupportTickets", totalTickets);
+        stats.put("openTickets", tickets.count(STATUS, "OPEN"));
+        stats.put("closedTickets", closedTickets);
+        stats.put("resolutionRate", totalTickets > 0 ? (double) closedTickets / totalTickets * 100 : 0);
+        stats.put("newSupportTickets", tickets.inRange());
+        return stats;
+    }
+
+    private Map<String, Object> notificationStats(Summary notifications) {
+        Map<String, Object> stats = new HashMap<>();
+        long totalNotifications = notifications.total();
+        long readNotifications = notifications.count(STATUS, "read");
+
+        stats.put("totalNotifications", totalNotifications);
+        stats.put("readNotifications", readNotifications);
+        stats.put("unreadNotifications", totalNotifications - readNotifications);
+        stats.put("readRate", totalNotifications > 0 ? (double) readNotifications / totalNotifications * 100 : 0);
+        stats.put("notificationsInPeriod", notifications.inRange());
+        return stats;
+    }
+
+    private Map<String, Object> demographicStats(Summary users) {
+        Map<String, Object> stats = new HashMap<>();
+
+        // Gender distribution
+        stats.put("maleCount", users.count(CATEGORY, rw.health.ubuzima.enums.Gender.MALE.name()));
+        stats.put("femaleCount", users.count(CATEGORY, rw.health.ubuzima.enums.Gender.FEMALE.name()));
+        stats.put("genderBreakdown", users.breakdown(CATEGORY, false));
+        stats.put("totalUsers", users.total());
+        return stats;
+    }
+
+    private Map<String, Object> geographicStats(Summary users) {
+        Map<String, Object> stats = new HashMap<>();
+
+        // District distribution
+        stats.put("kigaliUsers", users.count(DISTRICT, "Kigali"));
+        stats.put("usersByDistrict", users.breakdown(DISTRICT, false));
+        stats.put("totalUsers", users.total());
+        return stats;
+    }
 }
@@ -0,0 +1,102 @@
+package rw.health.ubuzima.service.impl;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rw.health.ubuzima.service.PushTransport;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Push transport backed by Firebase Cloud Messaging.
+ * Unavailable (and skipped by the dispatch engine) when no FirebaseMessaging bean is configured.
+ */
+@Component
+@ConditionalOnProperty(name = "ubuzima.push.transport", havingValue = "firebase", matchIfMissing = true)
+public class FirebasePushTransport implements PushTransport {
+
+    private static final Set<MessagingErrorCode> TRANSIENT_ERRORS = EnumSet.of(
+        MessagingErrorCode.UNAVAILABLE, MessagingErrorCode.INTERNAL, MessagingErrorCode.QUOTA_EXCEEDED);
+
+    // INVALID_ARGUMENT is not here: FCM also returns it for a bad or oversized payload, which would
+    // prune every token in the multicast. It falls through to FAILED (permanent, tokens kept).
+    private static final Set<MessagingErrorCode> INVALID_TOKEN_ERRORS = EnumSet.of(
+        MessagingErrorCode.UNREGISTERED, MessagingErrorCode.SENDER_ID_MISMATCH);
+
+    @Autowired(required = false)
+    private FirebaseMessaging firebaseMessaging;
+
+    @Override
+    public String getName() {
+        return "firebase";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return firebaseMessaging != null;
+    }
+
+    @Override
+    public List<SendStatus> sendMulticast(List<String> tokens, String title, String body, Map<String, String> data)
+            throws PushTransportException {
+        if (firebaseMessaging == null) {
+            throw new PushTransportException("Firebase messaging not configured", false, null);
+        }
+
+        BatchResponse response;
+        try {
+            response = firebaseMessaging.sendEachForMulticast(buildMessage(tokens, title, body, data));
+        } catch (FirebaseMessagingException e) {
+            boolean retryable = e.getMessagingErrorCode() == null || TRANSIENT_ERRORS.contains(e.getMessagingErrorCode());
+            throw new PushTransportException(e.getMessage(), retryable, e);
+        }
+
+        List<SendStatus> statuses = new ArrayList<>(tokens.size());
+        for (SendResponse sendResponse : response.getResponses()) {
+            statuses.add(toStatus(sendResponse));
+        }
+        return statuses;
+    }
+
+    private SendStatus toStatus(SendResponse sendResponse) {
+        if (sendResponse.isSuccessful()) {
+            return SendStatus.DELIVERED;
+        }
+
+        MessagingErrorCode errorCode = sendResponse.getException() != null
+            ? sendResponse.getException().getMessagingErrorCode()
+            : null;
+
+        if (errorCode != null && INVALID_TOKEN_ERRORS.contains(errorCode)) {
+            return SendStatus.INVALID_TOKEN;
+        }
+        if (errorCode == null || TRANSIENT_ERRORS.contains(errorCode)) {
+            return SendStatus.RETRYABLE;
+        }
+        return SendStatus.FAILED;
+    }
+
+    private MulticastMessage buildMessage(List<String> tokens, String title, String body, Map<String, String> data) {
+        MulticastMessage.Builder builder = MulticastMessage.builder()
+            .addAllTokens(tokens)
+            .setNotification(com.google.firebase.messaging.Notification.builder()
+                .setTitle(title)
+                .setBody(body)
+                .build());
+
+        if (!data.isEmpty()) {
+            builder.putAllData(data);
+        }
+        return builder.build();
+    }
+}
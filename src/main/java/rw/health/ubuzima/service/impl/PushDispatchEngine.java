@@ -0,0 +1,202 @@
+package rw.health.ubuzima.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.PushTransport;
+import rw.health.ubuzima.service.PushTransport.SendStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push dispatch engine.
+ * Tokens are grouped into multicast batches of up to 500 and sent through the configured
+ * PushTransport on a dedicated,
+ * bounded executor; when its queue is full the submitting thread runs the batch itself, which
+ * throttles producers instead of piling work onto the common ForkJoinPool. Transient failures
+ * are retried with jittered exponential backoff and tokens FCM reports as invalid are cleared
+ * from their users.
+ */
+@Component
+@Slf4j
+public class PushDispatchEngine {
+
+    public static final int MAX_MULTICAST_TOKENS = 500;
+
+    private final PushTransport pushTransport;
+    private final UserRepository userRepository;
+    private final ThreadPoolExecutor executor;
+
+    @Value("${ubuzima.push.dispatch.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${ubuzima.push.dispatch.base-backoff-ms:200}")
+    private long baseBackoffMs;
+
+    @Value("${ubuzima.push.dispatch.max-backoff-ms:5000}")
+    private long maxBackoffMs;
+
+    public PushDispatchEngine(PushTransport pushTransport,
+                              UserRepository userRepository,
+                              @Value("${ubuzima.push.dispatch.threads:4}") int threads,
+                              @Value("${ubuzima.push.dispatch.queue-capacity:64}") int queueCapacity) {
+        this.pushTransport = pushTransport;
+        this.userRepository = userRepository;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "push-dispatch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public boolean isEnabled() {
+        return pushTransport.isAvailable();
+    }
+
+    public String getTransportName() {
+        return pushTransport.getName();
+    }
+
+    /**
+     * Dispatch one push to every token, in multicast batches.
+     * The returned future completes when every batch has finished (including retries).
+     */
+    public CompletableFuture<DispatchResult> dispatch(List<String> tokens, String title, String body, Map<String, Object> data) {
+        if (!pushTransport.isAvailable() || tokens == null || tokens.isEmpty()) {
+            return CompletableFuture.completedFuture(new DispatchResult(0, 0, 0));
+        }
+
+        Map<String, String> stringData = toStringData(data);
+        List<CompletableFuture<DispatchResult>> batches = new ArrayList<>();
+
+        for (int start = 0; start < tokens.size(); start += MAX_MULTICAST_TOKENS) {
+            List<String> batch = new ArrayList<>(tokens.subList(start, Math.min(start + MAX_MULTICAST_TOKENS, tokens.size())));
+            // CallerRunsPolicy applies backpressure: a full queue makes the caller send this batch itself
+            batches.add(CompletableFuture.supplyAsync(() -> sendBatch(batch, title, body, stringData), executor));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> batches.stream()
+                .map(CompletableFuture::join)
+                .reduce(new DispatchResult(0, 0, 0), DispatchResult::plus));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DispatchResult sendBatch(List<String> tokens, String title, String body, Map<String, String> data) {
+        List<String> pending = tokens;
+        List<String> invalidTokens = new ArrayList<>();
+        int delivered = 0;
+
+        for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                sleepWithJitter(attempt);
+            }
+
+            List<String> retry = new ArrayList<>();
+            try {
+                List<SendStatus> statuses = pushTransport.sendMulticast(pending, title, body, data);
+
+                for (int i = 0; i < statuses.size(); i++) {
+                    switch (statuses.get(i)) {
+                        case DELIVERED -> delivered++;
+                        case INVALID_TOKEN -> invalidTokens.add(pending.get(i));
+                        case RETRYABLE -> retry.add(pending.get(i));
+                        default -> {
+                        }
+                    }
+                }
+            } catch (PushTransport.PushTransportException e) {
+                // Whole-request failure: retry the batch when the error is transient
+                if (!e.isRetryable()) {
+                    log.error("Push multicast failed permanently for {} tokens: {}", pending.size(), e.getMessage());
+                    break;
+                }
+                log.warn("Push multicast attempt {} failed for {} tokens: {}", attempt, pending.size(), e.getMessage());
+                retry = pending;
+            }
+
+            pending = retry;
+        }
+
+        if (!pending.isEmpty()) {
+            log.warn("Giving up on {} push tokens after {} attempts", pending.size(), maxAttempts);
+        }
+
+        if (!invalidTokens.isEmpty()) {
+            pruneInvalidTokens(invalidTokens);
+        }
+
+        return new DispatchResult(delivered, tokens.size() - delivered - invalidTokens.size(), invalidTokens.size());
+    }
+
+    private void pruneInvalidTokens(List<String> invalidTokens) {
+        try {
+            int cleared = userRepository.clearDeviceTokens(invalidTokens);
+            log.info("Cleared {} invalid device tokens", cleared);
+        } catch (Exception e) {
+            log.error("Failed to clear invalid device tokens", e);
+        }
+    }
+
+    private void sleepWithJitter(int attempt) {
+        // Full jitter: random delay in [0, min(max, base * 2^(attempt - 1))]
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs * (1L << Math.min(attempt - 1, 20)));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, String> toStringData(Map<String, Object> data) {
+        Map<String, String> stringData = new HashMap<>();
+        if (data != null) {
+            data.forEach((key, value) -> {
+                if (value != null) {
+                    stringData.put(key, value.toString());
+                }
+            });
+        }
+        return stringData;
+    }
+
+    /**
+     * Outcome counts for a dispatch
+     */
+    public record DispatchResult(int delivered, int failed, int invalidTokens) {
+
+        DispatchResult plus(DispatchResult other) {
+            return new DispatchResult(delivered + other.delivered, failed + other.failed,
+                invalidTokens + other.invalidTokens);
+        }
+    }
+}
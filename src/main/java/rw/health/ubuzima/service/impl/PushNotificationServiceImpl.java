@@ -1,18 +1,18 @@
 package rw.health.ubuzima.service.impl;
 
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.Message;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import rw.health.ubuzima.entity.User;
 import rw.health.ubuzima.enums.NotificationType;
 import rw.health.ubuzima.repository.NotificationRepository;
 import rw.health.ubuzima.repository.UserRepository;
+import rw.health.ubuzima.service.NotificationBatchWriter;
 import rw.health.ubuzima.service.PushNotificationService;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,8 +22,13 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class PushNotificationServiceImpl implements PushNotificationService {
 
-    @Autowired(required = false)
-    private FirebaseMessaging firebaseMessaging;
+    private static final int RECIPIENT_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private PushDispatchEngine pushDispatchEngine;
+
+    @Autowired
+    private NotificationBatchWriter notificationBatchWriter;
 
     @Autowired
     private UserRepository userRepository;
@@ -47,9 +52,9 @@ public class PushNotificationServiceImpl implements PushNotificationService {
             notificationRepository.save(notification);
 
             // Send push notification if device token exists and Firebase is configured
-            if (firebaseMessaging != null && user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
+            if (pushDispatchEngine.isEnabled() && user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
                 sendFirebaseNotification(user.getDeviceToken(), title, message, data);
-            } else if (firebaseMessaging == null) {
+            } else if (!pushDispatchEngine.isEnabled()) {
                 log.warn("Firebase messaging not configured. Push notification not sent to user: {}", userId);
             }
 
@@ -61,22 +66,62 @@ public class PushNotificationServiceImpl implements PushNotificationService {
 
     @Override
     public void sendNotificationToUsers(List<Long> userIds, String title, String message, Map<String, Object> data) {
-        userIds.forEach(userId -> {
-            CompletableFuture.runAsync(() -> {
-                sendNotificationToUser(userId, title, message, data);
-            });
+        List<Long> recipients = List.copyOf(userIds);
+        // Handed off like before the batching, so the caller never waits for inserts or FCM retries
+        CompletableFuture.runAsync(() -> {
+            try {
+                for (int start = 0; start < recipients.size(); start += RECIPIENT_CHUNK_SIZE) {
+                    List<Long> chunk = recipients.subList(start, Math.min(start + RECIPIENT_CHUNK_SIZE, recipients.size()));
+
+                    // One batched insert for the chunk, then one multicast per 500 tokens
+                    notificationBatchWriter.insertForUsers(chunk, title, message, NotificationType.SYSTEM_NOTIFICATION,
+                        null, null, 1, null);
+                    dispatchToTokens(tokensOf(userRepository.findDeviceTokensByIdIn(chunk)), title, message, data);
+                }
+
+                log.info("Push notification queued for {} users", recipients.size());
+            } catch (Exception e) {
+                log.error("Failed to send notification to {} users", recipients.size(), e);
+            }
         });
     }
 
+    @Override
+    public CompletableFuture<Integer> sendPushToUsers(List<Long> userIds, String title, String message, Map<String, Object> data) {
+        if (!pushDispatchEngine.isEnabled() || userIds == null || userIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        List<String> tokens = tokensOf(userRepository.findDeviceTokensByIdIn(userIds));
+        return dispatchToTokens(tokens, title, message, data).thenApply(PushDispatchEngine.DispatchResult::delivered);
+    }
+
     @Override
     public void sendNotificationToAll(String title, String message, Map<String, Object> data) {
         try {
-            List<User> users = userRepository.findByDeviceTokenIsNotNull();
-            users.forEach(user -> {
-                CompletableFuture.runAsync(() -> {
-                    sendNotificationToUser(user.getId(), title, message, data);
-                });
-            });
+            // Keyset over users with device tokens, so the full user list is never in memory
+            long afterId = 0L;
+            long recipients = 0L;
+            while (true) {
+                List<Object[]> rows = userRepository.findDeviceTokensAfter(afterId, PageRequest.of(0, RECIPIENT_CHUNK_SIZE));
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                List<Long> chunkIds = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    chunkIds.add((Long) row[0]);
+                }
+
+                notificationBatchWriter.insertForUsers(chunkIds, title, message, NotificationType.SYSTEM_NOTIFICATION,
+                    null, null, 1, null);
+                dispatchToTokens(tokensOf(rows), title, message, data);
+
+                recipients += rows.size();
+                afterId = chunkIds.get(chunkIds.size() - 1);
+            }
+
+            log.info("Push notification queued for all {} users with device tokens", recipients);
         } catch (Exception e) {
             log.error("Failed to send notification to all users", e);
         }
@@ -206,10 +251,10 @@ public class PushNotificationServiceImpl implements PushNotificationService {
             data.put("type", "general");
             data.put("notificationId", notification.getId());
             
-            if (firebaseMessaging != null && user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
+            if (pushDispatchEngine.isEnabled() && user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
                 sendFirebaseNotification(user.getDeviceToken(),
                     notification.getTitle(), notification.getMessage(), data);
-            } else if (firebaseMessaging == null) {
+            } else if (!pushDispatchEngine.isEnabled()) {
                 log.warn("Firebase messaging not configured. Push notification not sent for notification: {}", notification.getId());
             }
             
@@ -220,31 +265,37 @@ public class PushNotificationServiceImpl implements PushNotificationService {
     }
 
     private void sendFirebaseNotification(String deviceToken, String title, String message, Map<String, Object> data) {
-        if (firebaseMessaging == null) {
+        if (!pushDispatchEngine.isEnabled()) {
             log.warn("Firebase messaging not configured. Cannot send push notification.");
             return;
         }
 
-        try {
-            Message.Builder messageBuilder = Message.builder()
-                    .setToken(deviceToken)
-                    .setNotification(com.google.firebase.messaging.Notification.builder()
-                            .setTitle(title)
-                            .setBody(message)
-                            .build());
-
-            // Add custom data
-            if (data != null && !data.isEmpty()) {
-                messageBuilder.putAllData(data.entrySet().stream()
-                        .collect(HashMap::new, (map, entry) -> 
-                            map.put(entry.getKey(), entry.getValue().toString()), HashMap::putAll));
-            }
+        // Single-token sends share the dispatch engine's retry and token pruning. Handed off so that even when
+        // the engine's queue is full (and it makes the submitting thread send) a request thread never waits
+        CompletableFuture.runAsync(() -> dispatchToTokens(List.of(deviceToken), title, message, data));
+    }
 
-            String response = firebaseMessaging.send(messageBuilder.build());
-            log.info("Firebase notification sent successfully: {}", response);
-            
-        } catch (FirebaseMessagingException e) {
-            log.error("Failed to send Firebase notification", e);
+    private CompletableFuture<PushDispatchEngine.DispatchResult> dispatchToTokens(List<String> tokens, String title,
+                                                                                 String message, Map<String, Object> data) {
+        if (tokens.isEmpty()) {
+            return CompletableFuture.completedFuture(new PushDispatchEngine.DispatchResult(0, 0, 0));
+        }
+        return pushDispatchEngine.dispatch(tokens, title, message, data)
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    log.error("Push dispatch failed for {} tokens", tokens.size(), error);
+                } else {
+                    log.info("Push dispatch finished: {} delivered, {} failed, {} invalid tokens",
+                        result.delivered(), result.failed(), result.invalidTokens());
+                }
+            });
+    }
+
+    private List<String> tokensOf(List<Object[]> idTokenRows) {
+        List<String> tokens = new ArrayList<>(idTokenRows.size());
+        for (Object[] row : idTokenRows) {
+            tokens.add((String) row[1]);
         }
+        return tokens;
     }
 } 
\ No newline at end of file
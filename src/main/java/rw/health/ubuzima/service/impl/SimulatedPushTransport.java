@@ -0,0 +1,137 @@
+package rw.health.ubuzima.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rw.health.ubuzima.service.PushTransport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for FCM, for load tests and local development.
+ * Each multicast call sleeps for a configurable latency and fails tokens at configurable rates.
+ * Tokens it invalidates stay invalid, so token pruning behaves as it would against FCM.
+ */
+@Component
+@ConditionalOnProperty(name = "ubuzima.push.transport", havingValue = "simulator")
+public class SimulatedPushTransport implements PushTransport {
+
+    @Value("${ubuzima.push.simulator.latency-ms:40}")
+    private long latencyMs;
+
+    @Value("${ubuzima.push.simulator.latency-jitter-ms:20}")
+    private long latencyJitterMs;
+
+    @Value("${ubuzima.push.simulator.transient-error-rate:0.01}")
+    private double transientErrorRate;
+
+    @Value("${ubuzima.push.simulator.invalid-token-rate:0.005}")
+    private double invalidTokenRate;
+
+    @Value("${ubuzima.push.simulator.call-failure-rate:0.001}")
+    private double callFailureRate;
+
+    private final Set<String> invalidatedTokens = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retryable = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+
+    @Override
+    public String getName() {
+        return "simulator";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public List<SendStatus> sendMulticast(List<String> tokens, String title, String body, Map<String, String> data)
+            throws PushTransportException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        calls.incrementAndGet();
+        simulateLatency(random);
+
+        if (random.nextDouble() < callFailureRate) {
+            failedCalls.incrementAndGet();
+            throw new PushTransportException("Simulated UNAVAILABLE", true, null);
+        }
+
+        List<SendStatus> statuses = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            SendStatus status;
+            if (invalidatedTokens.contains(token)) {
+                status = SendStatus.INVALID_TOKEN;
+            } else if (random.nextDouble() < invalidTokenRate) {
+                invalidatedTokens.add(token);
+                status = SendStatus.INVALID_TOKEN;
+            } else if (random.nextDouble() < transientErrorRate) {
+                status = SendStatus.RETRYABLE;
+            } else {
+                status = SendStatus.DELIVERED;
+            }
+            statuses.add(status);
+            countStatus(status);
+        }
+
+        messages.addAndGet(tokens.size());
+        return statuses;
+    }
+
+    /**
+     * Counters since the last reset
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("failedCalls", failedCalls.get());
+        stats.put("messages", messages.get());
+        stats.put("delivered", delivered.get());
+        stats.put("retryable", retryable.get());
+        stats.put("invalidTokens", invalid.get());
+        return stats;
+    }
+
+    public void resetStats() {
+        calls.set(0);
+        failedCalls.set(0);
+        messages.set(0);
+        delivered.set(0);
+        retryable.set(0);
+        invalid.set(0);
+    }
+
+    private void countStatus(SendStatus status) {
+        switch (status) {
+            case DELIVERED -> delivered.incrementAndGet();
+            case RETRYABLE -> retryable.incrementAndGet();
+            case INVALID_TOKEN -> invalid.incrementAndGet();
+            default -> {
+            }
+        }
+    }
+
+    private void simulateLatency(ThreadLocalRandom random) {
+        long delay = latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
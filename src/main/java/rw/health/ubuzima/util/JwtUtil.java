@@ -1,21 +1,24 @@
 package rw.health.ubuzima.util;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import rw.health.ubuzima.security.JwtClaimsResolver;
+import rw.health.ubuzima.security.TokenRevocationService;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
-    @Value("${ubuzima.jwt.secret}")
-    private String secret;
+    private final JwtClaimsResolver claimsResolver;
+    private final TokenRevocationService tokenRevocationService;
 
     @Value("${ubuzima.jwt.expiration}")
     private Long expiration;
@@ -23,10 +26,6 @@ public class JwtUtil {
     @Value("${ubuzima.jwt.refresh-expiration}")
     private Long refreshExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
-    }
-
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -40,12 +39,8 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public Claims extractAllClaims(String token) {
+        return claimsResolver.resolve(token);
     }
 
     public Boolean isTokenExpired(String token) {
@@ -53,27 +48,48 @@ public class JwtUtil {
     }
 
     public String generateToken(String username, String role, Long userId) {
+        return generateToken(username, role, userId, null);
+    }
+
+    /**
+     * Access token bound to a refresh-token family, so revoking the family also revokes it
+     */
+    public String generateToken(String username, String role, Long userId, String familyId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
         claims.put("userId", userId);
+        if (familyId != null) {
+            claims.put(TokenRevocationService.FAMILY_CLAIM, familyId);
+        }
         return createToken(claims, username, expiration);
     }
 
     public String generateRefreshToken(String username, String role, Long userId) {
+        return generateRefreshToken(username, role, userId, newFamilyId());
+    }
+
+    public String generateRefreshToken(String username, String role, Long userId, String familyId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
         claims.put("userId", userId);
         claims.put("type", "refresh");
+        claims.put(TokenRevocationService.FAMILY_CLAIM, familyId);
         return createToken(claims, username, refreshExpiration);
     }
 
+    public String newFamilyId() {
+        return UUID.randomUUID().toString();
+    }
+
     private String createToken(Map<String, Object> claims, String subject, Long expiration) {
+        Date issuedAt = tokenRevocationService.issuedAtFor((Long) claims.get("userId"));
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + expiration))
+                .signWith(claimsResolver.getSigningKey())
                 .compact();
     }
 
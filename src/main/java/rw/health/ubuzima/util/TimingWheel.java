@@ -0,0 +1,128 @@
+package rw.health.ubuzima.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (not thread-safe).
+ * The finest level has {@code wheelSize} buckets of {@code tickMs}; each coarser level's tick is
+ * the full span of the level below and is added only when an item needs it, so adding an item is
+ * O(1) however far out it is. Advancing the clock empties the buckets it has passed: items that are
+ * due go to the consumer, the rest cascade into finer buckets. An item fires within one tick after
+ * its due time, never before it.
+ */
+public class TimingWheel<T> {
+
+    private record Entry<T>(T item, long dueAtMs) {
+    }
+
+    private final class Level {
+        private final long tickMs;
+        private final long spanMs;
+        private final List<List<Entry<T>>> buckets;
+        private long currentMs;
+
+        private Level(long tickMs, long nowMs) {
+            this.tickMs = tickMs;
+            this.spanMs = tickMs * wheelSize;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            this.currentMs = nowMs - Math.floorMod(nowMs, tickMs);
+        }
+
+        private List<Entry<T>> bucket(long timeMs) {
+            return buckets.get((int) Math.floorMod(Math.floorDiv(timeMs, tickMs), (long) wheelSize));
+        }
+
+        /**
+         * Move this level's clock to the tick containing {@code nowMs} and empty the buckets it reached.
+         * The finest level empties the buckets it has passed (its current bucket may hold items due
+         * later in the tick); coarser levels also empty the bucket that has just become current, whose
+         * items now belong in finer levels.
+         */
+        private void advance(long nowMs, boolean finest, List<Entry<T>> drained) {
+            long targetMs = nowMs - Math.floorMod(nowMs, tickMs);
+            long fromMs = finest ? currentMs : currentMs + tickMs;
+            long toMs = finest ? targetMs - tickMs : targetMs;
+            int visited = 0;
+            for (long bucketMs = fromMs; bucketMs <= toMs && visited < wheelSize; bucketMs += tickMs, visited++) {
+                List<Entry<T>> bucket = bucket(bucketMs);
+                drained.addAll(bucket);
+                bucket.clear();
+            }
+            currentMs = Math.max(currentMs, targetMs);
+        }
+    }
+
+    private final int wheelSize;
+    private final List<Level> levels = new ArrayList<>();
+    private long nowMs;
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize at least 2");
+        }
+        this.wheelSize = wheelSize;
+        this.nowMs = startMs;
+        this.levels.add(new Level(tickMs, startMs));
+    }
+
+    /**
+     * Schedule an item
+     *
+     * @return false if the item is already due, in which case it was not added
+     */
+    public boolean add(T item, long dueAtMs) {
+        if (dueAtMs <= nowMs) {
+            return false;
+        }
+        place(new Entry<>(item, dueAtMs));
+        size++;
+        return true;
+    }
+
+    /**
+     * Advance the clock to {@code toMs}, handing every item due by then to {@code due}
+     */
+    public void advanceTo(long toMs, Consumer<T> due) {
+        if (toMs <= nowMs) {
+            return;
+        }
+        nowMs = toMs;
+
+        // Every level's clock moves before anything is re-placed, so cascading items land in future buckets
+        List<Entry<T>> drained = new ArrayList<>();
+        for (int i = 0; i < levels.size(); i++) {
+            levels.get(i).advance(toMs, i == 0, drained);
+        }
+        for (Entry<T> entry : drained) {
+            if (entry.dueAtMs() <= toMs) {
+                size--;
+                due.accept(entry.item());
+            } else {
+                place(entry);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                levels.add(new Level(levels.get(i - 1).spanMs, nowMs));
+            }
+            Level level = levels.get(i);
+            if (entry.dueAtMs() < level.currentMs + level.spanMs) {
+                level.bucket(entry.dueAtMs()).add(entry);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+-- V10: Append-only vitals time series
+-- One narrow row per reading, range-partitioned by month on recorded_at so range scans prune to
+-- the months asked for and old months can be detached. Monthly partitions are created ahead of
+-- use by VitalsTimeSeriesService. Daily min/max/sum/count rollups are upserted on ingest;
+-- weekly rollups are folded from the daily rows.
+
+CREATE TABLE IF NOT EXISTS vital_readings (
+    user_id BIGINT NOT NULL,
+    metric SMALLINT NOT NULL,
+    recorded_at TIMESTAMP NOT NULL,
+    reading_value DOUBLE PRECISION NOT NULL
+) PARTITION BY RANGE (recorded_at);
+
+CREATE INDEX IF NOT EXISTS idx_vital_readings_user_metric_time
+    ON vital_readings(user_id, metric, recorded_at DESC);
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', CURRENT_DATE)::DATE;
+    i INT;
+BEGIN
+    FOR i IN 0..2 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF vital_readings FOR VALUES FROM (%L) TO (%L)',
+            'vital_readings_' || to_char(month_start + make_interval(months => i), 'YYYY_MM'),
+            month_start + make_interval(months => i),
+            month_start + make_interval(months => i + 1));
+    END LOOP;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS vital_rollups_daily (
+    user_id BIGINT NOT NULL,
+    metric SMALLINT NOT NULL,
+    rollup_date DATE NOT NULL,
+    min_value DOUBLE PRECISION NOT NULL,
+    max_value DOUBLE PRECISION NOT NULL,
+    sum_value DOUBLE PRECISION NOT NULL,
+    sample_count INTEGER NOT NULL,
+    PRIMARY KEY (user_id, metric, rollup_date)
+);
@@ -0,0 +1,46 @@
+-- V11: In-app feedback
+-- Submissions are queued in memory and batch-inserted by FeedbackIngestionService, so rows carry
+-- the device fields extracted at submit time. The daily rollup table is recomputed for recent
+-- days by FeedbackService and backs the feedback statistics.
+
+CREATE TABLE IF NOT EXISTS app_feedback (
+    id BIGSERIAL PRIMARY KEY,
+    ticket_id VARCHAR(32) NOT NULL,
+    user_id BIGINT,
+    title VARCHAR(255),
+    description TEXT,
+    category VARCHAR(30) NOT NULL DEFAULT 'other',
+    priority VARCHAR(20) NOT NULL DEFAULT 'medium',
+    status VARCHAR(20) NOT NULL DEFAULT 'received',
+    rating INTEGER,
+    email VARCHAR(255),
+    app_version VARCHAR(50) NOT NULL DEFAULT 'unknown',
+    platform VARCHAR(30) NOT NULL DEFAULT 'unknown',
+    os_version VARCHAR(50),
+    device_model VARCHAR(100),
+    device_info TEXT,
+    admin_notes TEXT,
+    resolved_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_app_feedback_ticket_id ON app_feedback(ticket_id);
+CREATE INDEX IF NOT EXISTS idx_app_feedback_created_at ON app_feedback(created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_app_feedback_status_created ON app_feedback(status, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_app_feedback_category_created ON app_feedback(category, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_app_feedback_version_platform ON app_feedback(app_version, platform, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_app_feedback_user_created ON app_feedback(user_id, created_at DESC);
+
+CREATE TABLE IF NOT EXISTS feedback_rollups_daily (
+    rollup_date DATE NOT NULL,
+    app_version VARCHAR(50) NOT NULL,
+    platform VARCHAR(30) NOT NULL,
+    category VARCHAR(30) NOT NULL,
+    priority VARCHAR(20) NOT NULL,
+    feedback_count BIGINT NOT NULL,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_date, app_version, platform, category, priority)
+);
@@ -0,0 +1,47 @@
+-- V12: Daily analytics facts
+-- One row per day x subject x facility x district x role x status x category with a count.
+-- Dimensions are never NULL ('' when absent) so they can be part of the primary key.
+-- AnalyticsRollupService recomputes only the days whose source rows changed since the last
+-- run (found through updated_at) and rebuilds everything nightly to pick up deletes.
+
+CREATE TABLE IF NOT EXISTS analytics_daily_facts (
+    fact_date DATE NOT NULL,
+    subject VARCHAR(30) NOT NULL,
+    facility_id VARCHAR(50) NOT NULL DEFAULT '',
+    district VARCHAR(100) NOT NULL DEFAULT '',
+    user_role VARCHAR(30) NOT NULL DEFAULT '',
+    status VARCHAR(50) NOT NULL DEFAULT '',
+    category VARCHAR(50) NOT NULL DEFAULT '',
+    fact_count BIGINT NOT NULL,
+    PRIMARY KEY (subject, fact_date, facility_id, district, user_role, status, category)
+);
+
+CREATE TABLE IF NOT EXISTS analytics_rollup_state (
+    subject VARCHAR(30) PRIMARY KEY,
+    watermark TIMESTAMP NOT NULL,
+    last_run_at TIMESTAMP NOT NULL
+);
+
+-- Change detection and per-day recomputation on the source tables
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users(updated_at);
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users(created_at);
+CREATE INDEX IF NOT EXISTS idx_appointments_updated_at ON appointments(updated_at);
+CREATE INDEX IF NOT EXISTS idx_appointments_scheduled_date ON appointments(scheduled_date);
+CREATE INDEX IF NOT EXISTS idx_health_records_updated_at ON health_records(updated_at);
+CREATE INDEX IF NOT EXISTS idx_health_records_created_at ON health_records(created_at);
+CREATE INDEX IF NOT EXISTS idx_contraception_methods_updated_at ON contraception_methods(updated_at);
+CREATE INDEX IF NOT EXISTS idx_contraception_methods_created_at ON contraception_methods(created_at);
+CREATE INDEX IF NOT EXISTS idx_education_progress_updated_at ON education_progress(updated_at);
+CREATE INDEX IF NOT EXISTS idx_education_progress_created_at ON education_progress(created_at);
+CREATE INDEX IF NOT EXISTS idx_support_tickets_updated_at ON support_tickets(updated_at);
+CREATE INDEX IF NOT EXISTS idx_support_tickets_created_at ON support_tickets(created_at);
+CREATE INDEX IF NOT EXISTS idx_notifications_updated_at ON notifications(updated_at);
+CREATE INDEX IF NOT EXISTS idx_notifications_created_at ON notifications(created_at);
+CREATE INDEX IF NOT EXISTS idx_medications_updated_at ON medications(updated_at);
+CREATE INDEX IF NOT EXISTS idx_medications_created_at ON medications(created_at);
+CREATE INDEX IF NOT EXISTS idx_messages_updated_at ON messages(updated_at);
+CREATE INDEX IF NOT EXISTS idx_messages_created_at ON messages(created_at);
+CREATE INDEX IF NOT EXISTS idx_side_effect_reports_updated_at ON side_effect_reports(updated_at);
+CREATE INDEX IF NOT EXISTS idx_side_effect_reports_created_at ON side_effect_reports(created_at);
+CREATE INDEX IF NOT EXISTS idx_community_events_updated_at ON community_events(updated_at);
+CREATE INDEX IF NOT EXISTS idx_community_events_event_date ON community_events(event_date);
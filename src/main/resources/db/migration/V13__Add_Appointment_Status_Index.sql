@@ -0,0 +1,5 @@
+-- V13: Appointment status transitions
+-- AppointmentStatusSchedulerService moves appointments between statuses with bulk updates that
+-- select by status and a scheduled_date range; this index serves all of them.
+
+CREATE INDEX IF NOT EXISTS idx_appointments_status_scheduled_date ON appointments(status, scheduled_date);
@@ -0,0 +1,21 @@
+-- V14: Transactional outbox
+-- Pushes and real-time (STOMP) messages are written here in the same transaction as the change
+-- that causes them; OutboxRelay claims due rows with FOR UPDATE SKIP LOCKED and dispatches them
+-- after commit. available_at doubles as the claim lease and the retry backoff.
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    user_id BIGINT,
+    destination VARCHAR(255),
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    dispatched_at TIMESTAMP,
+    last_error VARCHAR(500)
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_pending ON outbox_events(available_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_outbox_events_dispatched ON outbox_events(dispatched_at) WHERE status = 'DISPATCHED';
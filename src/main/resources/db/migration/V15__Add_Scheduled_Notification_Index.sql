@@ -0,0 +1,6 @@
+-- V15: Scheduled notification delivery
+-- ScheduledNotificationDispatcher loads unsent notifications due in the next few minutes by a
+-- range query on scheduled_for; the partial index keeps that query proportional to the window.
+
+CREATE INDEX IF NOT EXISTS idx_notifications_scheduled_unsent
+    ON notifications(scheduled_for) WHERE sent_at IS NULL AND scheduled_for IS NOT NULL;
@@ -0,0 +1,21 @@
+-- V16: Medication dose schedule
+-- MedicationReminderService expands each active medication's frequency into dose rows a rolling
+-- horizon ahead (idempotently, via the unique key), reminds from them and records acknowledgements
+-- on them; adherence is computed from their statuses.
+
+CREATE TABLE IF NOT EXISTS medication_doses (
+    id BIGSERIAL PRIMARY KEY,
+    medication_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    scheduled_at TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    reminded_at TIMESTAMP,
+    acknowledged_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    version BIGINT,
+    CONSTRAINT uk_medication_doses_medication_time UNIQUE (medication_id, scheduled_at)
+);
+
+CREATE INDEX IF NOT EXISTS idx_medication_doses_status_time ON medication_doses(status, scheduled_at);
+CREATE INDEX IF NOT EXISTS idx_medication_doses_user_time ON medication_doses(user_id, scheduled_at);
@@ -0,0 +1,56 @@
+-- V4: Materialized conversation summaries for the chat inbox
+-- One row per user pair (participant_one_id < participant_two_id) with the last message and per-participant unread counters
+
+CREATE TABLE conversation_summaries (
+    id BIGSERIAL PRIMARY KEY,
+    participant_one_id BIGINT NOT NULL,
+    participant_two_id BIGINT NOT NULL,
+    conversation_id VARCHAR(255),
+    last_message_id BIGINT,
+    last_message_preview VARCHAR(255),
+    last_message_type VARCHAR(255),
+    last_message_at TIMESTAMP,
+    last_sender_id BIGINT,
+    participant_one_unread INTEGER NOT NULL DEFAULT 0,
+    participant_two_unread INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0,
+    FOREIGN KEY (participant_one_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (participant_two_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uk_conversation_summaries_participants UNIQUE (participant_one_id, participant_two_id)
+);
+
+CREATE INDEX idx_conversation_summaries_one_last ON conversation_summaries(participant_one_id, last_message_at);
+CREATE INDEX idx_conversation_summaries_two_last ON conversation_summaries(participant_two_id, last_message_at);
+
+-- Backfill from existing messages
+INSERT INTO conversation_summaries (
+    participant_one_id, participant_two_id, conversation_id,
+    last_message_id, last_message_preview, last_message_type, last_message_at, last_sender_id,
+    participant_one_unread, participant_two_unread, created_at, updated_at, version
+)
+WITH visible AS (
+    SELECT m.*,
+           LEAST(m.sender_id, m.receiver_id) AS p1,
+           GREATEST(m.sender_id, m.receiver_id) AS p2
+    FROM messages m
+    WHERE COALESCE(m.deleted_for_everyone, FALSE) = FALSE
+),
+last_messages AS (
+    SELECT DISTINCT ON (p1, p2) p1, p2, id, conversation_id, content, message_type, created_at, sender_id
+    FROM visible
+    ORDER BY p1, p2, created_at DESC, id DESC
+),
+unread AS (
+    SELECT p1, p2,
+           COUNT(*) FILTER (WHERE receiver_id = p1 AND sender_id <> receiver_id AND COALESCE(is_read, FALSE) = FALSE) AS one_unread,
+           COUNT(*) FILTER (WHERE receiver_id = p2 AND sender_id <> receiver_id AND COALESCE(is_read, FALSE) = FALSE) AS two_unread
+    FROM visible
+    GROUP BY p1, p2
+)
+SELECT l.p1, l.p2, COALESCE(l.conversation_id, 'conv_' || l.p1 || '_' || l.p2),
+       l.id, LEFT(COALESCE(l.content, ''), 255), l.message_type, l.created_at, l.sender_id,
+       u.one_unread, u.two_unread, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0
+FROM last_messages l
+JOIN unread u ON u.p1 = l.p1 AND u.p2 = l.p2;
@@ -0,0 +1,11 @@
+-- V5: Composite indexes for keyset-paginated conversation history
+-- Each direction of a conversation is an index range on (sender, receiver) ordered by (created_at, id)
+
+CREATE INDEX IF NOT EXISTS idx_messages_pair_created_id
+    ON messages(sender_id, receiver_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_created_id
+    ON messages(conversation_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_message_attachments_message
+    ON message_attachments(message_id);
@@ -0,0 +1,28 @@
+-- V6: Background broadcast notification jobs
+-- last_user_id is the keyset resume cursor, advanced in the same transaction as each inserted chunk
+
+CREATE TABLE broadcast_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    message TEXT,
+    notification_type VARCHAR(50) NOT NULL,
+    priority INTEGER DEFAULT 2,
+    action_url VARCHAR(255),
+    icon VARCHAR(255),
+    target_role VARCHAR(50),
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    total_recipients BIGINT DEFAULT 0,
+    processed_recipients BIGINT DEFAULT 0,
+    pushes_sent BIGINT DEFAULT 0,
+    last_user_id BIGINT DEFAULT 0,
+    started_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    error_message TEXT,
+    created_by BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0
+);
+
+CREATE INDEX idx_broadcast_jobs_status ON broadcast_jobs(status);
+CREATE INDEX idx_broadcast_jobs_created_at ON broadcast_jobs(created_at);
@@ -0,0 +1,20 @@
+-- V7: JWT revocation deny-list
+-- TOKEN rows revoke one jti, FAMILY rows a refresh-token family, USER rows every token issued before not_before.
+-- Rows are purged once expires_at passes, since the tokens they cover have expired by then.
+
+CREATE TABLE revoked_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    revocation_type VARCHAR(20) NOT NULL,
+    revoked_key VARCHAR(100) NOT NULL,
+    user_id BIGINT,
+    reason VARCHAR(30),
+    not_before TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0,
+    CONSTRAINT uk_revoked_tokens_type_key UNIQUE (revocation_type, revoked_key)
+);
+
+CREATE INDEX idx_revoked_tokens_updated_at ON revoked_tokens(updated_at);
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
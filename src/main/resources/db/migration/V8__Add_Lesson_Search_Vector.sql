@@ -0,0 +1,65 @@
+-- V8: Weighted full-text search vector for education lessons
+-- Title is weight A, tags and description B, content C. The text search configuration follows the
+-- lesson language (english/french); Kinyarwanda and anything else use 'simple' (no stemming).
+-- Triggers keep the vector current on lesson and tag writes; a GIN index serves @@ queries.
+
+CREATE OR REPLACE FUNCTION lesson_search_config(lang VARCHAR) RETURNS regconfig AS $$
+    SELECT CASE lower(coalesce(lang, ''))
+        WHEN 'en' THEN 'english'::regconfig
+        WHEN 'fr' THEN 'french'::regconfig
+        ELSE 'simple'::regconfig
+    END
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Query side: OR of the per-language parses, so one tsquery matches lessons in every language
+CREATE OR REPLACE FUNCTION lesson_search_query(query TEXT) RETURNS tsquery AS $$
+    SELECT websearch_to_tsquery('english', query)
+        || websearch_to_tsquery('french', query)
+        || websearch_to_tsquery('simple', query)
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION lesson_search_document(lesson_id BIGINT, lang VARCHAR, title VARCHAR,
+                                                  description TEXT, content TEXT) RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector(lesson_search_config(lang), coalesce(title, '')), 'A')
+        || setweight(to_tsvector(lesson_search_config(lang),
+               coalesce((SELECT string_agg(t.tag, ' ') FROM lesson_tags t WHERE t.lesson_id = $1), '')), 'B')
+        || setweight(to_tsvector(lesson_search_config(lang), coalesce(description, '')), 'B')
+        || setweight(to_tsvector(lesson_search_config(lang), coalesce(content, '')), 'C')
+$$ LANGUAGE sql STABLE;
+
+ALTER TABLE education_lessons ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION education_lessons_search_vector_trigger() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := lesson_search_document(NEW.id, NEW.language, NEW.title, NEW.description, NEW.content);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_education_lessons_search_vector ON education_lessons;
+CREATE TRIGGER trg_education_lessons_search_vector
+    BEFORE INSERT OR UPDATE OF title, description, content, language ON education_lessons
+    FOR EACH ROW EXECUTE FUNCTION education_lessons_search_vector_trigger();
+
+CREATE OR REPLACE FUNCTION lesson_tags_search_vector_trigger() RETURNS trigger AS $$
+DECLARE
+    affected BIGINT := CASE WHEN TG_OP = 'DELETE' THEN OLD.lesson_id ELSE NEW.lesson_id END;
+BEGIN
+    UPDATE education_lessons l
+       SET search_vector = lesson_search_document(l.id, l.language, l.title, l.description, l.content)
+     WHERE l.id = affected;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_lesson_tags_search_vector ON lesson_tags;
+CREATE TRIGGER trg_lesson_tags_search_vector
+    AFTER INSERT OR UPDATE OR DELETE ON lesson_tags
+    FOR EACH ROW EXECUTE FUNCTION lesson_tags_search_vector_trigger();
+
+-- Backfill existing rows
+UPDATE education_lessons l
+   SET search_vector = lesson_search_document(l.id, l.language, l.title, l.description, l.content);
+
+CREATE INDEX IF NOT EXISTS idx_education_lessons_search_vector
+    ON education_lessons USING GIN (search_vector);
@@ -0,0 +1,8 @@
+-- V9: Persisted cycle forecasts
+-- Forecasts live in is_predicted rows of menstrual_cycles; reads look up a user's next forecast
+-- by (user_id, is_predicted, start_date).
+
+ALTER TABLE menstrual_cycles ADD COLUMN IF NOT EXISTS prediction_confidence DOUBLE PRECISION;
+
+CREATE INDEX IF NOT EXISTS idx_menstrual_cycles_user_predicted_start
+    ON menstrual_cycles(user_id, is_predicted, start_date);
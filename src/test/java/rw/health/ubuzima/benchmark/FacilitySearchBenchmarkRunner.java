@@ -0,0 +1,169 @@
+package rw.health.ubuzima.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import rw.health.ubuzima.entity.HealthFacility;
+import rw.health.ubuzima.enums.FacilityType;
+import rw.health.ubuzima.repository.HealthFacilityRepository;
+import rw.health.ubuzima.service.FacilityGeoIndexService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Nearby facility search benchmark: the haversine SQL query versus the in-memory grid index.
+ * Runs only with the geo-benchmark profile. Seeds synthetic facilities across Rwanda, runs the
+ * same random queries through both paths after a warmup, and logs throughput and p50/p99 latency.
+ *
+ * Lives in the test sources so it never ships in the application jar. Run against a scratch
+ * database, e.g. {@code mvn spring-boot:test-run -Dspring-boot.run.profiles=test,geo-benchmark}
+ * for in-memory H2.
+ */
+@Component
+@Profile("geo-benchmark")
+@Order(Integer.MAX_VALUE)
+@Slf4j
+public class FacilitySearchBenchmarkRunner implements CommandLineRunner {
+
+    private static final String NAME_PREFIX = "geo-bench-";
+
+    // Rough bounding box of Rwanda
+    private static final double MIN_LAT = -2.84;
+    private static final double MAX_LAT = -1.05;
+    private static final double MIN_LON = 28.86;
+    private static final double MAX_LON = 30.90;
+
+    private static final String INSERT_FACILITY_SQL =
+        "INSERT INTO health_facilities (name, facility_type, address, latitude, longitude, services_offered, " +
+        "is_active, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, true, ?, ?, 0)";
+
+    private final HealthFacilityRepository healthFacilityRepository;
+    private final FacilityGeoIndexService facilityGeoIndexService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationContext applicationContext;
+
+    @Value("${ubuzima.facilities.benchmark.facilities:5000}")
+    private int facilityCount;
+
+    @Value("${ubuzima.facilities.benchmark.warmup-queries:200}")
+    private int warmupQueries;
+
+    @Value("${ubuzima.facilities.benchmark.queries:2000}")
+    private int measuredQueries;
+
+    @Value("${ubuzima.facilities.benchmark.radius-km:10.0}")
+    private double radiusKm;
+
+    @Value("${ubuzima.facilities.benchmark.limit:20}")
+    private int limit;
+
+    @Value("${ubuzima.facilities.benchmark.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    public FacilitySearchBenchmarkRunner(HealthFacilityRepository healthFacilityRepository,
+                                         FacilityGeoIndexService facilityGeoIndexService,
+                                         JdbcTemplate jdbcTemplate,
+                                         ApplicationContext applicationContext) {
+        this.healthFacilityRepository = healthFacilityRepository;
+        this.facilityGeoIndexService = facilityGeoIndexService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            seedFacilities();
+            facilityGeoIndexService.rebuild();
+
+            double[][] queryPoints = randomPoints(warmupQueries + measuredQueries, new Random(42));
+
+            log.info("Facility search benchmark {}", measure("sql", queryPoints, point -> () -> {
+                List<HealthFacility> rows = healthFacilityRepository.findNearbyFacilities(point[0], point[1], radiusKm);
+                // Same output as the index: nearest first, top k
+                rows.sort(Comparator.comparingDouble(facility -> FacilityGeoIndexService.haversineKm(
+                    point[0], point[1], facility.getLatitude(), facility.getLongitude())));
+                return rows.size() > limit ? rows.subList(0, limit).size() : rows.size();
+            }));
+
+            log.info("Facility search benchmark {}", measure("grid-index", queryPoints, point -> () ->
+                facilityGeoIndexService.findNearest(point[0], point[1], radiusKm, limit, null, null).size()));
+        } finally {
+            int removed = jdbcTemplate.update("DELETE FROM health_facilities WHERE name LIKE ?", NAME_PREFIX + "%");
+            facilityGeoIndexService.rebuild();
+            log.info("Removed {} synthetic facilities", removed);
+        }
+
+        if (exitOnFinish) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private BenchmarkResult measure(String path, double[][] queryPoints,
+                                    Function<double[], Supplier<Integer>> query) {
+        for (int i = 0; i < warmupQueries; i++) {
+            query.apply(queryPoints[i]).get();
+        }
+
+        long[] latencies = new long[measuredQueries];
+        long totalResults = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < measuredQueries; i++) {
+            long queryStarted = System.nanoTime();
+            totalResults += query.apply(queryPoints[warmupQueries + i]).get();
+            latencies[i] = System.nanoTime() - queryStarted;
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        return new BenchmarkResult(path, facilityCount, measuredQueries,
+            measuredQueries * 1_000_000_000.0 / Math.max(1, elapsed),
+            latencies[(int) Math.ceil(0.50 * latencies.length) - 1] / 1_000_000.0,
+            latencies[(int) Math.ceil(0.99 * latencies.length) - 1] / 1_000_000.0,
+            totalResults / (double) measuredQueries);
+    }
+
+    private void seedFacilities() {
+        Random random = new Random(7);
+        FacilityType[] types = FacilityType.values();
+        String[] services = {"Family planning", "Antenatal care", "HIV testing", "Vaccination", "Maternity"};
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> batch = new ArrayList<>(facilityCount);
+        for (double[] point : randomPoints(facilityCount, random)) {
+            batch.add(new Object[] {
+                NAME_PREFIX + batch.size(), types[random.nextInt(types.length)].name(), "Synthetic address",
+                point[0], point[1], services[random.nextInt(services.length)], now, now
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_FACILITY_SQL, batch);
+        log.info("Seeded {} synthetic facilities", batch.size());
+    }
+
+    private double[][] randomPoints(int count, Random random) {
+        double[][] points = new double[count][2];
+        for (int i = 0; i < count; i++) {
+            points[i][0] = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+            points[i][1] = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+        }
+        return points;
+    }
+
+    record BenchmarkResult(String path, int facilities, int queries, double queriesPerSecond,
+                           double p50Ms, double p99Ms, double meanResults) {
+    }
+}
@@ -0,0 +1,221 @@
+package rw.health.ubuzima.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rw.health.ubuzima.enums.NotificationType;
+import rw.health.ubuzima.service.NotificationBatchWriter;
+import rw.health.ubuzima.service.PushNotificationService;
+import rw.health.ubuzima.service.PushTransport;
+import rw.health.ubuzima.service.impl.SimulatedPushTransport;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Push delivery load test.
+ * Runs only with the push-benchmark profile, which selects the simulated push transport.
+ * For each configured recipient count it seeds synthetic users with device tokens, then drives
+ * the broadcast path (batched notification insert + multicast push per chunk) and logs throughput,
+ * chunk latency percentiles, multicast calls and DB rows written per recipient.
+ *
+ * Lives in the test sources so it never ships in the application jar. Run against a scratch
+ * database, e.g. {@code mvn spring-boot:test-run -Dspring-boot.run.profiles=test,push-benchmark}
+ * for in-memory H2.
+ */
+@Component
+@Profile("push-benchmark")
+@Order(Integer.MAX_VALUE)
+@Slf4j
+public class PushLoadTestRunner implements CommandLineRunner {
+
+    private static final String EMAIL_PREFIX = "push-bench-";
+    private static final String EMAIL_DOMAIN = "@bench.ubuzima.local";
+
+    private static final String INSERT_USER_SQL =
+        "INSERT INTO users (name, email, phone, password_hash, role, status, email_verified, phone_verified, " +
+        "device_token, platform, created_at, updated_at, version) " +
+        "VALUES (?, ?, ?, 'benchmark', 'CLIENT', 'ACTIVE', false, false, ?, 'android', ?, ?, 0)";
+
+    private final PushTransport pushTransport;
+    private final PushNotificationService pushNotificationService;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationContext applicationContext;
+
+    @Value("${ubuzima.push.benchmark.recipients:10000,100000,1000000}")
+    private long[] recipientCounts;
+
+    @Value("${ubuzima.push.benchmark.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${ubuzima.push.benchmark.cleanup:true}")
+    private boolean cleanup;
+
+    @Value("${ubuzima.push.benchmark.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    public PushLoadTestRunner(PushTransport pushTransport,
+                              PushNotificationService pushNotificationService,
+                              NotificationBatchWriter notificationBatchWriter,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationContext applicationContext) {
+        this.pushTransport = pushTransport;
+        this.pushNotificationService = pushNotificationService;
+        this.notificationBatchWriter = notificationBatchWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!(pushTransport instanceof SimulatedPushTransport simulator)) {
+            log.error("Push benchmark requires ubuzima.push.transport=simulator (current: {})", pushTransport.getName());
+            return;
+        }
+
+        try {
+            for (long recipients : recipientCounts) {
+                BenchmarkResult result = runScenario(simulator, recipients);
+                log.info("Push benchmark {}", result);
+            }
+        } finally {
+            if (cleanup) {
+                removeSyntheticData();
+            }
+        }
+
+        if (exitOnFinish) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private BenchmarkResult runScenario(SimulatedPushTransport simulator, long recipients) {
+        seedUsers(recipients);
+        simulator.resetStats();
+
+        long notificationsBefore = countRows("SELECT COUNT(*) FROM notifications");
+        long tokensBefore = countRows("SELECT COUNT(*) FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%' AND device_token IS NOT NULL");
+
+        List<Long> chunkNanos = new ArrayList<>();
+        long delivered = 0;
+        long processed = 0;
+        long afterId = 0;
+        long started = System.nanoTime();
+
+        while (processed < recipients) {
+            List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE email LIKE ? AND id > ? ORDER BY id LIMIT ?",
+                Long.class, EMAIL_PREFIX + "%", afterId, (int) Math.min(chunkSize, recipients - processed));
+            if (userIds.isEmpty()) {
+                break;
+            }
+
+            long chunkStarted = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status ->
+                notificationBatchWriter.insertForUsers(userIds, "Benchmark", "Push load test",
+                    NotificationType.SYSTEM_NOTIFICATION, null, null, 1, null));
+            delivered += pushNotificationService.sendPushToUsers(userIds, "Benchmark", "Push load test",
+                Map.of("type", "BENCHMARK")).join();
+            chunkNanos.add(System.nanoTime() - chunkStarted);
+
+            processed += userIds.size();
+            afterId = userIds.get(userIds.size() - 1);
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        long notificationsWritten = countRows("SELECT COUNT(*) FROM notifications") - notificationsBefore;
+        long tokensCleared = tokensBefore
+            - countRows("SELECT COUNT(*) FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%' AND device_token IS NOT NULL");
+
+        Map<String, Long> transportStats = simulator.getStats();
+        return new BenchmarkResult(
+            processed,
+            delivered,
+            elapsedNanos / 1_000_000,
+            processed * 1_000_000_000.0 / Math.max(1, elapsedNanos),
+            percentileMillis(chunkNanos, 0.50),
+            percentileMillis(chunkNanos, 0.99),
+            transportStats.get("calls"),
+            transportStats.get("retryable"),
+            tokensCleared,
+            (notificationsWritten + tokensCleared) / (double) Math.max(1, processed)
+        );
+    }
+
+    private void seedUsers(long recipients) {
+        long existing = countRows("SELECT COUNT(*) FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%'");
+        if (existing >= recipients) {
+            // Restore tokens cleared by earlier scenarios so every run starts from the same state
+            jdbcTemplate.update("UPDATE users SET device_token = CONCAT('bench-token-', id) " +
+                "WHERE email LIKE ? AND device_token IS NULL", EMAIL_PREFIX + "%");
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(chunkSize);
+        for (long i = existing; i < recipients; i++) {
+            batch.add(new Object[] {
+                "Benchmark User " + i, EMAIL_PREFIX + i + EMAIL_DOMAIN, "+2509" + String.format("%011d", i),
+                "bench-token-" + i, now, now
+            });
+            if (batch.size() == chunkSize) {
+                jdbcTemplate.batchUpdate(INSERT_USER_SQL, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, batch);
+        }
+
+        jdbcTemplate.update("UPDATE users SET device_token = CONCAT('bench-token-', id) " +
+            "WHERE email LIKE ? AND device_token IS NULL", EMAIL_PREFIX + "%");
+        log.info("Seeded {} synthetic push recipients", recipients - existing);
+    }
+
+    private void removeSyntheticData() {
+        int notifications = jdbcTemplate.update("DELETE FROM notifications WHERE user_id IN " +
+            "(SELECT id FROM users WHERE email LIKE ?)", EMAIL_PREFIX + "%");
+        int users = jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+        log.info("Removed {} synthetic users and {} notifications", users, notifications);
+    }
+
+    private long countRows(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count != null ? count : 0L;
+    }
+
+    private double percentileMillis(List<Long> nanos, double percentile) {
+        if (nanos.isEmpty()) {
+            return 0.0;
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * One scenario's measurements. Write amplification is DB rows written per recipient
+     * (notification rows plus device tokens cleared).
+     */
+    record BenchmarkResult(long recipients, long delivered, long elapsedMs, double recipientsPerSecond,
+                           double chunkP50Ms, double chunkP99Ms, long multicastCalls, long retriedTokens,
+                           long tokensCleared, double writeAmplification) {
+    }
+}
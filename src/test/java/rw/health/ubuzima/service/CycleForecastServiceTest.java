@@ -0,0 +1,98 @@
+package rw.health.ubuzima.service;
+
+import org.junit.jupiter.api.Test;
+import rw.health.ubuzima.entity.MenstrualCycle;
+import rw.health.ubuzima.service.CycleForecastService.CycleStatistics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CycleForecastServiceTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+
+    @Test
+    public void defaultsWithoutHistory() {
+        CycleStatistics stats = CycleForecastService.computeStatistics(List.of());
+        assertEquals(28.0, stats.meanCycleLength());
+        assertEquals(3.0, stats.stdDevDays());
+        assertEquals(0, stats.sampleSize());
+        assertEquals(5, stats.flowDuration());
+        assertEquals(0.1, stats.confidence());
+    }
+
+    @Test
+    public void regularCyclesGiveHighConfidence() {
+        CycleStatistics stats = CycleForecastService.computeStatistics(cycles(28, 28, 28, 28, 28, 28));
+        assertEquals(28.0, stats.meanCycleLength(), 1e-9);
+        assertEquals(0.0, stats.stdDevDays(), 1e-9);
+        assertEquals(6, stats.sampleSize());
+        assertEquals(4, stats.flowDuration());
+        assertEquals(0.95, stats.confidence());
+    }
+
+    @Test
+    public void recentCyclesWeighMore() {
+        // Weights 0.85 and 1 for the older and newer gap
+        CycleStatistics stats = CycleForecastService.computeStatistics(cycles(26, 30));
+        assertEquals((26 * 0.85 + 30) / 1.85, stats.meanCycleLength(), 1e-9);
+        assertEquals(2, stats.sampleSize());
+        assertTrue(stats.stdDevDays() > 0);
+    }
+
+    @Test
+    public void outliersAndUnloggedGapsAreDropped() {
+        // 45 is far from the median of 28; 120 is most likely a missed log, not a cycle
+        CycleStatistics stats = CycleForecastService.computeStatistics(cycles(28, 29, 45, 28, 120, 28));
+        assertEquals(4, stats.sampleSize());
+        assertTrue(Math.abs(stats.meanCycleLength() - 28.2) < 0.3);
+    }
+
+    @Test
+    public void fallsBackToEnteredLengthsAndEndDates() {
+        MenstrualCycle only = cycle(FIRST, null);
+        only.setCycleLength(31);
+        only.setEndDate(FIRST.plusDays(5));
+
+        CycleStatistics stats = CycleForecastService.computeStatistics(List.of(only));
+        assertEquals(31.0, stats.meanCycleLength(), 1e-9);
+        assertEquals(1, stats.sampleSize());
+        assertEquals(6, stats.flowDuration());
+    }
+
+    @Test
+    public void onlyTheMostRecentCyclesCount() {
+        // Thirteen old 35-day gaps, then twelve 27-day gaps: only the last twelve gaps are used
+        int[] gaps = new int[25];
+        for (int i = 0; i < gaps.length; i++) {
+            gaps[i] = i < 13 ? 35 : 27;
+        }
+        CycleStatistics stats = CycleForecastService.computeStatistics(cycles(gaps));
+        assertEquals(27.0, stats.meanCycleLength(), 1e-9);
+        assertEquals(12, stats.sampleSize());
+    }
+
+    // Logged cycles, oldest first, separated by the given gaps in days
+    private static List<MenstrualCycle> cycles(int... gaps) {
+        List<MenstrualCycle> cycles = new ArrayList<>();
+        LocalDate start = FIRST;
+        cycles.add(cycle(start, 4));
+        for (int gap : gaps) {
+            start = start.plusDays(gap);
+            cycles.add(cycle(start, 4));
+        }
+        return cycles;
+    }
+
+    private static MenstrualCycle cycle(LocalDate startDate, Integer flowDuration) {
+        MenstrualCycle cycle = new MenstrualCycle();
+        cycle.setStartDate(startDate);
+        cycle.setFlowDuration(flowDuration);
+        cycle.setIsPredicted(false);
+        return cycle;
+    }
+}
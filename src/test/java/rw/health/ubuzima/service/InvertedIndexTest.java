@@ -0,0 +1,90 @@
+package rw.health.ubuzima.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InvertedIndexTest {
+
+    @Test
+    public void everyQueryTermMustMatch() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("family", 1f, "planning", 1f));
+        index.put(2, Map.of("family", 1f, "nutrition", 1f));
+
+        assertEquals(List.of(1L), ids(index.search(List.of("family", "planning"))));
+        assertEquals(List.of(1L, 2L), ids(index.search(List.of("family"))));
+        assertTrue(index.search(List.of("family", "malaria")).isEmpty());
+        assertTrue(index.search(List.of()).isEmpty());
+    }
+
+    @Test
+    public void exactBeatsPrefixBeatsFuzzy() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("clinics", 1f));
+        index.put(2, Map.of("clinic", 1f));
+        index.put(3, Map.of("clinix", 1f));
+
+        // "clinic" is exact for 2, a prefix of "clinics" for 1 and one substitution from "clinix" for 3
+        assertEquals(List.of(2L, 1L, 3L), ids(index.search(List.of("clinic"))));
+    }
+
+    @Test
+    public void higherWeightRanksFirst() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("vaccine", 1f));
+        index.put(2, Map.of("vaccine", 3f));
+
+        assertEquals(List.of(2L, 1L), ids(index.search(List.of("vaccine"))));
+    }
+
+    @Test
+    public void fuzzyMatchesExactlyOneEdit() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("malaria", 1f));
+
+        assertEquals(List.of(1L), ids(index.search(List.of("malria"))));   // deletion
+        assertEquals(List.of(1L), ids(index.search(List.of("mallaria")))); // insertion
+        assertEquals(List.of(1L), ids(index.search(List.of("malarie"))));  // substitution
+        assertEquals(List.of(1L), ids(index.search(List.of("mlaaria"))));  // adjacent swap
+        assertTrue(index.search(List.of("mlaira")).isEmpty());             // two edits
+        assertTrue(index.search(List.of("molarie")).isEmpty());            // two edits
+    }
+
+    @Test
+    public void shortTermsAreNotFuzzy() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("hiv", 1f));
+
+        assertEquals(List.of(1L), ids(index.search(List.of("hiv"))));
+        assertEquals(List.of(1L), ids(index.search(List.of("hi"))));
+        assertTrue(index.search(List.of("hiw")).isEmpty());
+    }
+
+    @Test
+    public void putReplacesAndRemoveDrops() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, Map.of("malaria", 1f));
+        index.put(1, Map.of("nutrition", 1f));
+
+        assertTrue(index.search(List.of("malaria")).isEmpty());
+        assertTrue(index.search(List.of("malria")).isEmpty());
+        assertEquals(List.of(1L), ids(index.search(List.of("nutrition"))));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertTrue(index.search(List.of("nutrition")).isEmpty());
+        assertEquals(0, index.size());
+
+        index.put(2, Map.of());
+        assertEquals(0, index.size());
+    }
+
+    private static List<Long> ids(List<InvertedIndex.ScoredDocument> results) {
+        return results.stream().map(InvertedIndex.ScoredDocument::id).toList();
+    }
+}
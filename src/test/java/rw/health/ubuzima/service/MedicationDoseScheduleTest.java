@@ -0,0 +1,111 @@
+package rw.health.ubuzima.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MedicationDoseScheduleTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 7, 1);
+
+    @Test
+    public void noScheduleForMissingAsNeededOrUnknownFrequencies() {
+        assertTrue(MedicationDoseSchedule.parse(null).isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("  ").isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("As needed for pain").isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("PRN").isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("twice daily when needed").isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("see leaflet").isEmpty());
+        assertTrue(MedicationDoseSchedule.parse("every 100 hours").isEmpty());
+    }
+
+    @Test
+    public void timesPerDayAreSpreadOverTheWakingDay() {
+        assertEquals(List.of(at(1, 8, 0)), firstDay("once daily"));
+        assertEquals(List.of(at(1, 8, 0)), firstDay("OD"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 20, 0)), firstDay("Twice daily"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 20, 0)), firstDay("BID"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 14, 0), at(1, 20, 0)), firstDay("TID"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 14, 0), at(1, 20, 0)), firstDay("three times a day"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 12, 0), at(1, 16, 0), at(1, 20, 0)), firstDay("QID"));
+        assertEquals(List.of(at(1, 8, 0), at(1, 12, 0), at(1, 16, 0), at(1, 20, 0)), firstDay("4 times a day"));
+        assertEquals(List.of(at(1, 8, 0)), firstDay("every morning"));
+        assertEquals(List.of(at(1, 21, 0)), firstDay("at bedtime"));
+    }
+
+    @Test
+    public void explicitTimesWinAndAreSorted() {
+        assertEquals(List.of(at(1, 7, 30), at(1, 19, 30)), firstDay("19:30 and 07:30"));
+        assertEquals(List.of(at(1, 9, 0), at(1, 21, 0)), firstDay("9h00, 21.00, 9:00"));
+    }
+
+    @Test
+    public void intervalsCountFromEightOnTheStartDate() {
+        MedicationDoseSchedule schedule = parse("every 8 hours");
+        assertEquals(List.of(at(1, 8, 0), at(1, 16, 0), at(2, 0, 0), at(2, 8, 0)),
+            schedule.occurrences(START, null, START.atStartOfDay(), at(2, 8, 0)));
+        // A window starting later skips ahead without drifting off the 8-hour grid
+        assertEquals(List.of(at(5, 16, 0), at(6, 0, 0)),
+            schedule.occurrences(START, null, at(5, 10, 0), at(6, 4, 0)));
+        assertEquals(List.of(at(1, 8, 0), at(1, 14, 0)),
+            parse("q6h").occurrences(START, null, START.atStartOfDay(), at(1, 15, 0)));
+    }
+
+    @Test
+    public void everyFewDaysCountsFromTheStartDate() {
+        assertEquals(List.of(at(1, 8, 0), at(8, 8, 0), at(15, 8, 0)),
+            parse("weekly").occurrences(START, null, START.atStartOfDay(), at(21, 0, 0)));
+        assertEquals(List.of(at(1, 8, 0), at(3, 8, 0), at(5, 8, 0)),
+            parse("every other day").occurrences(START, null, START.atStartOfDay(), at(6, 0, 0)));
+        // Starting the window mid-cycle keeps the start date's rhythm
+        assertEquals(List.of(at(8, 8, 0)),
+            parse("once weekly").occurrences(START, null, at(2, 0, 0), at(14, 0, 0)));
+    }
+
+    @Test
+    public void windowExcludesFromAndIncludesTo() {
+        MedicationDoseSchedule daily = parse("twice daily");
+        assertEquals(List.of(at(1, 20, 0), at(2, 8, 0)),
+            daily.occurrences(START, null, at(1, 8, 0), at(2, 8, 0)));
+        // Back-to-back windows see every dose exactly once
+        assertEquals(List.of(at(2, 20, 0)),
+            daily.occurrences(START, null, at(2, 8, 0), at(2, 20, 0)));
+
+        MedicationDoseSchedule interval = parse("every 12 hours");
+        assertEquals(List.of(at(1, 20, 0), at(2, 8, 0)),
+            interval.occurrences(START, null, at(1, 8, 0), at(2, 8, 0)));
+    }
+
+    @Test
+    public void endDateIsInclusiveAndStartDateBoundsTheWindow() {
+        MedicationDoseSchedule daily = parse("twice daily");
+        LocalDate end = LocalDate.of(2024, 7, 2);
+        assertEquals(List.of(at(1, 8, 0), at(1, 20, 0), at(2, 8, 0), at(2, 20, 0)),
+            daily.occurrences(START, end, at(1, 0, 0), at(5, 0, 0)));
+        assertEquals(List.of(), daily.occurrences(START, end, at(2, 20, 0), at(5, 0, 0)));
+
+        MedicationDoseSchedule interval = parse("every 8 hours");
+        assertEquals(List.of(at(2, 8, 0), at(2, 16, 0)),
+            interval.occurrences(START, end, at(2, 0, 0), at(5, 0, 0)));
+
+        // Nothing before the first day even if the window reaches back
+        assertEquals(List.of(at(1, 8, 0)), daily.occurrences(START, null, at(-5, 0, 0), at(1, 12, 0)));
+    }
+
+    private static MedicationDoseSchedule parse(String frequency) {
+        return MedicationDoseSchedule.parse(frequency).orElseThrow();
+    }
+
+    private static List<LocalDateTime> firstDay(String frequency) {
+        return parse(frequency).occurrences(START, null, START.atStartOfDay(), START.plusDays(1).atStartOfDay().minusNanos(1));
+    }
+
+    private static LocalDateTime at(int dayOfJuly, int hour, int minute) {
+        return START.plusDays(dayOfJuly - 1L).atTime(hour, minute);
+    }
+}
@@ -0,0 +1,40 @@
+package rw.health.ubuzima.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchTokenizerTest {
+
+    @Test
+    public void lowercasesAndStripsAccents() {
+        assertEquals(List.of("sante", "maternelle"), SearchTokenizer.tokenize("Santé MATERNELLE"));
+        assertEquals(List.of("creche", "ecole"), SearchTokenizer.tokenize("Crèche, École"));
+    }
+
+    @Test
+    public void splitsElisionsAndPunctuation() {
+        assertEquals(List.of("ubuzima", "bw", "umwana"), SearchTokenizer.tokenize("n'ubuzima bw'umwana"));
+        assertEquals(List.of("enfant", "hiv", "aids"), SearchTokenizer.tokenize("l'enfant (HIV/AIDS)"));
+        assertEquals(List.of("covid", "19"), SearchTokenizer.tokenize("COVID-19"));
+    }
+
+    @Test
+    public void dropsOneLetterTokensAndStopWords() {
+        assertEquals(List.of("guide", "family", "planning"), SearchTokenizer.tokenize("A guide to the family planning"));
+        assertEquals(List.of("vaccination", "enfants"), SearchTokenizer.tokenize("La vaccination des enfants"));
+        assertEquals(List.of("ubuzima", "bwiza"), SearchTokenizer.tokenize("ubuzima na bwiza"));
+        assertTrue(SearchTokenizer.tokenize(null).isEmpty());
+        assertTrue(SearchTokenizer.tokenize("   ").isEmpty());
+    }
+
+    @Test
+    public void queryOfOnlyStopWordsKeepsThem() {
+        assertEquals(List.of("the", "and"), SearchTokenizer.tokenizeQuery("The AND"));
+        assertEquals(List.of("clinic"), SearchTokenizer.tokenizeQuery("the clinic"));
+        assertTrue(SearchTokenizer.tokenizeQuery("a").isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package rw.health.ubuzima.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    @Test
+    public void firesWithinOneTickNeverEarlyAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        // Around the finest span (80 ms), the second level's span (640 ms) and several levels out
+        long[] dues = {1, 9, 10, 11, 79, 80, 81, 639, 640, 641, 5_119, 5_120, 40_960, 123_457};
+        for (long due : dues) {
+            assertTrue(wheel.add(due, due));
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = TICK_MS; now <= 124_000; now += TICK_MS) {
+            long at = now;
+            wheel.advanceTo(now, due -> firedAt.put(due, at));
+        }
+
+        assertEquals(dues.length, firedAt.size());
+        assertEquals(0, wheel.size());
+        for (long due : dues) {
+            long lateness = firedAt.get(due) - due;
+            assertTrue(lateness >= 0, "fired early: " + due);
+            assertTrue(lateness <= TICK_MS, "fired " + lateness + " ms late: " + due);
+        }
+    }
+
+    @Test
+    public void jumpFiresOnlyWhatIsDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        wheel.add("soon", 50);
+        wheel.add("next level", 500);
+        wheel.add("far", 5_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(1_000, fired::add);
+        assertEquals(List.of("soon", "next level"), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(4_999, fired::add);
+        assertEquals(2, fired.size());
+        wheel.advanceTo(5_000 + TICK_MS, fired::add);
+        assertEquals(List.of("soon", "next level", "far"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rejectsItemsAlreadyDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 1_000);
+        assertFalse(wheel.add("now", 1_000));
+        assertFalse(wheel.add("past", 10));
+        assertEquals(0, wheel.size());
+
+        wheel.advanceTo(2_000, item -> { });
+        assertFalse(wheel.add("before the clock", 1_500));
+        assertTrue(wheel.add("after the clock", 2_001));
+        assertEquals(1, wheel.size());
+    }
+
+    /**
+     * Random adds and uneven clock steps from an unaligned start: every item fires on the first
+     * advance that is past its due time's tick, and never on an advance before its due time.
+     */
+    @Test
+    public void randomScheduleFiresOnTimeAndNeverEarly() {
+        Random random = new Random(42);
+        long start = 1_000_003;
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, start);
+
+        Map<Long, Long> dueOf = new HashMap<>();
+        long nextId = 0;
+        long now = start;
+        int fired = 0;
+
+        while (now < start + 300_000) {
+            for (int i = random.nextInt(5); i > 0; i--) {
+                long due = now + 1 + (long) (random.nextDouble() * random.nextDouble() * 200_000);
+                long id = nextId++;
+                assertTrue(wheel.add(id, due));
+                dueOf.put(id, due);
+            }
+
+            long prior = now;
+            now += 1 + random.nextInt((int) (3 * TICK_MS));
+            List<Long> due = new ArrayList<>();
+            wheel.advanceTo(now, due::add);
+            for (Long id : due) {
+                long dueAt = dueOf.remove(id);
+                long dueTickEnd = dueAt - Math.floorMod(dueAt, TICK_MS) + TICK_MS;
+                assertTrue(now >= dueAt, "item due at " + dueAt + " fired early at " + now);
+                assertTrue(prior < dueTickEnd, "item due at " + dueAt + " missed the advance to " + prior);
+            }
+            fired += due.size();
+        }
+
+        assertEquals(dueOf.size(), wheel.size());
+        for (long dueAt : dueOf.values()) {
+            assertTrue(dueAt - Math.floorMod(dueAt, TICK_MS) + TICK_MS > now, "overdue item never fired: " + dueAt);
+        }
+        assertTrue(fired > 1_000);
+    }
+}